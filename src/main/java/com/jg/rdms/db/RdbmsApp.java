@@ -3,7 +3,6 @@ package com.jg.rdms.db;
 import com.jg.rdms.db.core.Database;
 import com.jg.rdms.db.repl.Repl;
 import com.jg.rdms.db.sql.QueryExecutor;
-import com.jg.rdms.db.tx.TransactionManager;
 
 public class RdbmsApp {
     public static void main(String[] args) {
@@ -13,9 +12,11 @@ public class RdbmsApp {
         db.init();
         System.out.println("Database startup completed");
 
-        TransactionManager txManager = new TransactionManager();
-        QueryExecutor executor = new QueryExecutor(db, txManager);
+        QueryExecutor executor = new QueryExecutor(db, db.transactions());
 
         new Repl(executor).start();
+
+        // flush tables so the next start has nothing to replay
+        db.close();
     }
 }
@@ -0,0 +1,39 @@
+package com.jg.rdms.db.columnar;
+
+import com.jg.rdms.db.sql.Comparison;
+
+/**
+ * Values of one column of a {@link ColumnarSegment}, stored in fixed-size
+ * chunks by row position.
+ */
+interface ColumnVector {
+
+    int CHUNK_SIZE = 4096;
+
+    /** Appends the value of the next row; {@code null} for NULL. */
+    void add(Object value);
+
+    /** Whether {@code value} can be stored (right type or NULL). */
+    boolean accepts(Object value);
+
+    Object get(int position);
+
+    /**
+     * Clears the bit of every row in {@code matches} (one bit per row,
+     * {@code rows} rows) that does not satisfy {@code column op value},
+     * with the semantics of {@link Comparison#test}.
+     */
+    void filter(Comparison.Op op, Object value, long[] matches, int rows);
+
+    /** Whether a comparison result {@code c} satisfies {@code op}. */
+    static boolean holds(Comparison.Op op, int c) {
+        return switch (op) {
+            case EQ -> c == 0;
+            case NE -> c != 0;
+            case LT -> c < 0;
+            case LE -> c <= 0;
+            case GT -> c > 0;
+            case GE -> c >= 0;
+        };
+    }
+}
@@ -0,0 +1,158 @@
+package com.jg.rdms.db.columnar;
+
+import com.jg.rdms.db.sql.Comparison;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Column-wise copy of a table's rows for filtered full scans: INT columns
+ * as {@code int[]} chunks, TEXT columns dictionary encoded. A WHERE clause
+ * is evaluated one column at a time into a bitmap of matching rows, in
+ * tight loops over primitive arrays, and only the matches are turned back
+ * into rows.
+ *
+ * A segment is a copy as of its build and is never updated. The table
+ * {@link #touch touches} every row it changes afterwards; those rows are
+ * skipped here and read from the table itself.
+ */
+public final class ColumnarSegment {
+
+    private final String[] columns;
+    private final ColumnVector[] vectors;
+    private final int idColumn;
+    private int size = 0;
+    private volatile boolean sealed = false;
+
+    // row ids changed since the build started
+    private final Set<Object> touched = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param columns    column names in row order, including {@code id}
+     * @param intColumns which of them are INT (the others are TEXT)
+     */
+    public ColumnarSegment(List<String> columns, List<Boolean> intColumns) {
+        this.columns = columns.toArray(String[]::new);
+        this.vectors = new ColumnVector[this.columns.length];
+
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = intColumns.get(i) ? new IntColumn() : new TextColumn();
+        }
+
+        this.idColumn = columns.indexOf("id");
+        if (idColumn < 0) {
+            throw new IllegalArgumentException("Rows have no id column");
+        }
+    }
+
+    /* =========================
+       BUILD
+       ========================= */
+
+    /**
+     * Appends a row, given by position, unless a value does not fit its
+     * column; such rows are left to the table (returns false). Not
+     * thread-safe: one thread builds, then {@link #seal seals} it.
+     */
+    public boolean add(Object[] values) {
+        if (sealed) {
+            throw new IllegalStateException("Columnar segment is sealed");
+        }
+        if (values[idColumn] == null) {
+            return false;
+        }
+        for (int i = 0; i < vectors.length; i++) {
+            if (!vectors[i].accepts(values[i])) {
+                return false;
+            }
+        }
+
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i].add(values[i]);
+        }
+        size++;
+        return true;
+    }
+
+    /** Ends the build; the rows added so far become visible to scans. */
+    public void seal() {
+        sealed = true;
+    }
+
+    public boolean sealed() {
+        return sealed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /* =========================
+       TOUCHED ROWS
+       ========================= */
+
+    /** Records that row {@code id} changed since the build started. */
+    public void touch(Object id) {
+        touched.add(id);
+    }
+
+    public boolean isTouched(Object id) {
+        return touched.contains(id);
+    }
+
+    /** Ids of the rows changed since the build started (a live view). */
+    public Set<Object> touched() {
+        return Collections.unmodifiableSet(touched);
+    }
+
+    /* =========================
+       SCAN
+       ========================= */
+
+    /**
+     * Positions of the rows satisfying every term of {@code where}, with
+     * the semantics of {@link Comparison#test}, as a bitmap (bit
+     * {@code i % 64} of word {@code i / 64}). Terms on columns the
+     * segment does not hold match nothing.
+     */
+    public long[] filter(List<Comparison> where) {
+        long[] matches = new long[(size + 63) >>> 6];
+        Arrays.fill(matches, -1L);
+        if ((size & 63) != 0) {
+            matches[matches.length - 1] = (1L << size) - 1;
+        }
+
+        for (Comparison c : where) {
+            int column = Arrays.asList(columns).indexOf(c.column());
+
+            if (column < 0 || c.value() == null) {
+                return new long[matches.length];
+            }
+            vectors[column].filter(c.op(), c.value(), matches, size);
+        }
+        return matches;
+    }
+
+    public Object id(int position) {
+        return vectors[idColumn].get(position);
+    }
+
+    /** The values of the row at {@code position}, in column order. */
+    public Object[] values(int position) {
+        return values(position, null);
+    }
+
+    /**
+     * Like {@link #values(int)}, reading only the columns {@code read}
+     * marks (all when null); the others are left null.
+     */
+    public Object[] values(int position, boolean[] read) {
+        Object[] values = new Object[vectors.length];
+        for (int i = 0; i < vectors.length; i++) {
+            if (read == null || read[i]) {
+                values[i] = vectors[i].get(position);
+            }
+        }
+        return values;
+    }
+}
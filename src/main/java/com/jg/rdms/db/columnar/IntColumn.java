@@ -0,0 +1,119 @@
+package com.jg.rdms.db.columnar;
+
+import com.jg.rdms.db.sql.Comparison;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** INT column as {@code int[]} chunks plus a NULL bitmap per chunk. */
+final class IntColumn implements ColumnVector {
+
+    private final List<int[]> chunks = new ArrayList<>();
+    private final List<long[]> nulls = new ArrayList<>();
+    private int size = 0;
+
+    @Override
+    public boolean accepts(Object value) {
+        return value == null || value instanceof Integer;
+    }
+
+    @Override
+    public void add(Object value) {
+        int offset = size % CHUNK_SIZE;
+        if (offset == 0) {
+            chunks.add(new int[CHUNK_SIZE]);
+            nulls.add(new long[CHUNK_SIZE / 64]);
+        }
+
+        int chunk = size / CHUNK_SIZE;
+        if (value == null) {
+            nulls.get(chunk)[offset >>> 6] |= 1L << offset;
+        } else {
+            chunks.get(chunk)[offset] = (Integer) value;
+        }
+        size++;
+    }
+
+    @Override
+    public Object get(int position) {
+        int chunk = position / CHUNK_SIZE;
+        int offset = position % CHUNK_SIZE;
+
+        if ((nulls.get(chunk)[offset >>> 6] & (1L << offset)) != 0) {
+            return null;
+        }
+        return chunks.get(chunk)[offset];
+    }
+
+    @Override
+    public void filter(Comparison.Op op, Object value, long[] matches, int rows) {
+        if (!(value instanceof Integer boxed)) {
+            Arrays.fill(matches, 0L); // never equal across types
+            return;
+        }
+        int x = boxed;
+
+        for (int chunk = 0; chunk < chunks.size(); chunk++) {
+            int[] values = chunks.get(chunk);
+            int base = chunk * CHUNK_SIZE;
+            int count = Math.min(CHUNK_SIZE, rows - base);
+
+            // 🔑 one tight loop per operator, no boxing
+            switch (op) {
+                case EQ -> {
+                    for (int i = 0; i < count; i++) {
+                        if (values[i] != x) {
+                            clear(matches, base + i);
+                        }
+                    }
+                }
+                case NE -> {
+                    for (int i = 0; i < count; i++) {
+                        if (values[i] == x) {
+                            clear(matches, base + i);
+                        }
+                    }
+                }
+                case LT -> {
+                    for (int i = 0; i < count; i++) {
+                        if (values[i] >= x) {
+                            clear(matches, base + i);
+                        }
+                    }
+                }
+                case LE -> {
+                    for (int i = 0; i < count; i++) {
+                        if (values[i] > x) {
+                            clear(matches, base + i);
+                        }
+                    }
+                }
+                case GT -> {
+                    for (int i = 0; i < count; i++) {
+                        if (values[i] <= x) {
+                            clear(matches, base + i);
+                        }
+                    }
+                }
+                case GE -> {
+                    for (int i = 0; i < count; i++) {
+                        if (values[i] < x) {
+                            clear(matches, base + i);
+                        }
+                    }
+                }
+            }
+
+            // NULL never matches; chunks start on a word boundary
+            long[] chunkNulls = nulls.get(chunk);
+            for (int w = 0; w < chunkNulls.length && (base >>> 6) + w < matches.length; w++) {
+                matches[(base >>> 6) + w] &= ~chunkNulls[w];
+            }
+        }
+    }
+
+    private static void clear(long[] bits, int position) {
+        bits[position >>> 6] &= ~(1L << position);
+    }
+}
@@ -0,0 +1,77 @@
+package com.jg.rdms.db.columnar;
+
+import com.jg.rdms.db.index.BPlusTree;
+import com.jg.rdms.db.sql.Comparison;
+
+import java.util.*;
+
+/**
+ * TEXT column, dictionary encoded: each distinct string is stored once and
+ * rows hold its code in {@code int[]} chunks ({@code -1} for NULL). A
+ * filter tests each dictionary entry once, then only compares codes.
+ */
+final class TextColumn implements ColumnVector {
+
+    private static final int NULL = -1;
+
+    private final List<int[]> chunks = new ArrayList<>();
+    private final List<String> dictionary = new ArrayList<>();
+    private final Map<String, Integer> codes = new HashMap<>();
+    private int size = 0;
+
+    @Override
+    public boolean accepts(Object value) {
+        return value == null || value instanceof String;
+    }
+
+    @Override
+    public void add(Object value) {
+        int offset = size % CHUNK_SIZE;
+        if (offset == 0) {
+            chunks.add(new int[CHUNK_SIZE]);
+        }
+
+        int code = NULL;
+        if (value != null) {
+            code = codes.computeIfAbsent((String) value, v -> {
+                dictionary.add(v);
+                return dictionary.size() - 1;
+            });
+        }
+
+        chunks.get(size / CHUNK_SIZE)[offset] = code;
+        size++;
+    }
+
+    @Override
+    public Object get(int position) {
+        int code = chunks.get(position / CHUNK_SIZE)[position % CHUNK_SIZE];
+        return code == NULL ? null : dictionary.get(code);
+    }
+
+    @Override
+    public void filter(Comparison.Op op, Object value, long[] matches, int rows) {
+        if (!(value instanceof String)) {
+            Arrays.fill(matches, 0L); // never equal across types
+            return;
+        }
+
+        boolean[] accepted = new boolean[dictionary.size()];
+        for (int code = 0; code < accepted.length; code++) {
+            accepted[code] = ColumnVector.holds(op, BPlusTree.compareKeys(dictionary.get(code), value));
+        }
+
+        for (int chunk = 0; chunk < chunks.size(); chunk++) {
+            int[] values = chunks.get(chunk);
+            int base = chunk * CHUNK_SIZE;
+            int count = Math.min(CHUNK_SIZE, rows - base);
+
+            for (int i = 0; i < count; i++) {
+                int code = values[i];
+                if (code == NULL || !accepted[code]) {
+                    matches[(base + i) >>> 6] &= ~(1L << (base + i));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.jg.rdms.db.core;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background thread that checkpoints the database when either the time
+ * since the last checkpoint or the log written since then exceeds its
+ * limit. Bounds both the dirty pages held in memory and the log that has
+ * to be replayed after a crash.
+ *
+ * Also rolls back transactions left idle past their timeout, since one
+ * of them would hold every checkpoint back.
+ */
+public class Checkpointer {
+
+    private static final long POLL_MILLIS = 200;
+
+    private final Database db;
+    private final long intervalMillis;
+    private final long walBytes;
+    private final long idleTransactionMillis;
+
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "rdbms-checkpointer");
+                t.setDaemon(true);
+                return t;
+            });
+
+    private long lastCheckpointMillis = System.currentTimeMillis();
+    private long walBytesAtCheckpoint = 0;
+
+    public Checkpointer(Database db, long intervalMillis, long walBytes, long idleTransactionMillis) {
+        this.db = db;
+        this.intervalMillis = intervalMillis;
+        this.walBytes = walBytes;
+        this.idleTransactionMillis = idleTransactionMillis;
+    }
+
+    public void start() {
+        walBytesAtCheckpoint = db.wal().bytesWritten();
+        scheduler.scheduleWithFixedDelay(
+                this::maybeCheckpoint,
+                POLL_MILLIS,
+                POLL_MILLIS,
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    private void maybeCheckpoint() {
+        if (idleTransactionMillis > 0) {
+            try {
+                db.transactions().abortIdle(idleTransactionMillis);
+            } catch (RuntimeException e) {
+                System.err.println("Rolling back idle transactions failed: " + e.getMessage());
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        long logged = db.wal().bytesWritten();
+
+        boolean timeDue = intervalMillis > 0 && now - lastCheckpointMillis >= intervalMillis;
+        boolean sizeDue = walBytes > 0 && logged - walBytesAtCheckpoint >= walBytes;
+
+        if (!timeDue && !sizeDue) {
+            return;
+        }
+
+        try {
+            db.checkpoint();
+        } catch (RuntimeException e) {
+            // keep the thread alive; the next poll retries
+            System.err.println("Checkpoint failed: " + e.getMessage());
+            return;
+        }
+
+        lastCheckpointMillis = now;
+        walBytesAtCheckpoint = logged;
+    }
+
+    public void stop() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
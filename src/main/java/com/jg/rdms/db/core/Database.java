@@ -1,12 +1,110 @@
 package com.jg.rdms.db.core;
 
+import com.jg.rdms.db.sql.CreateIndexCommand;
 import com.jg.rdms.db.sql.CreateTableCommand;
-
+import com.jg.rdms.db.storage.BufferPool;
+import com.jg.rdms.db.tx.TransactionManager;
+import com.jg.rdms.db.tx.WalRecord;
+import com.jg.rdms.db.tx.WriteAheadLog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
 
 public class Database {
 
-    private final Map<String, Table> tables = new HashMap<>();
+    private final Map<String, Table> tables = new ConcurrentHashMap<>();
+    private final DatabaseOptions options;
+    private final Path dataDir;
+    private final WriteAheadLog wal;
+    private final TransactionManager transactions;
+    private final BufferPool bufferPool;
+    private final Checkpointer checkpointer;
+    private final ForkJoinPool queryPool;
+
+    public Database() {
+        this(new DatabaseOptions());
+    }
+
+    public Database(DatabaseOptions options) {
+        this.options = options;
+        this.dataDir = Path.of(options.getDataDir());
+
+        try {
+            this.wal = new WriteAheadLog(
+                    dataDir.resolve("wal").toString(),
+                    options.getWalSegmentBytes(),
+                    options.getGroupCommitMaxBatch(),
+                    options.getGroupCommitMaxWaitMicros()
+            );
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        this.transactions = new TransactionManager(wal);
+
+        // 🔑 a page evicted dirty is only written once its log records are durable
+        this.bufferPool = new BufferPool(options.getBufferPoolPages(), wal::force);
+
+        this.checkpointer = new Checkpointer(
+                this,
+                options.getCheckpointIntervalMillis(),
+                options.getCheckpointWalBytes(),
+                options.getIdleTransactionTimeoutMillis()
+        );
+
+        this.queryPool = options.getQueryParallelism() > 1
+                ? new ForkJoinPool(options.getQueryParallelism(), pool -> {
+                    ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    t.setName("rdbms-query-" + t.getPoolIndex());
+                    t.setDaemon(true);
+                    return t;
+                }, null, false)
+                : null;
+    }
+
+    public DatabaseOptions options() {
+        return options;
+    }
+
+    /** Where table files and the log live. */
+    public Path dataDir() {
+        return dataDir;
+    }
+
+    /** Where query operators spill (sort runs, hash join partitions); emptied on startup. */
+    public Path tempDir() {
+        return dataDir.resolve("tmp");
+    }
+
+    /**
+     * Threads for parallel scans and joins, shared by all queries; null
+     * when queries run serially ({@code queryParallelism} 1).
+     */
+    public ForkJoinPool queryPool() {
+        return queryPool;
+    }
+
+    /** The single log shared by every table of this database. */
+    public WriteAheadLog wal() {
+        return wal;
+    }
+
+    /** Transaction ids and snapshots; tables consult it to drop old row versions. */
+    public TransactionManager transactions() {
+        return transactions;
+    }
+
+    /**
+     * Page frames of every table file. When bounded, tables keep only the
+     * rows being written in memory and read the others through it.
+     */
+    public BufferPool bufferPool() {
+        return bufferPool;
+    }
 
     /* =========================
        Catalog access
@@ -44,11 +142,52 @@ public class Database {
        ========================= */
 
     public void execute(CreateTableCommand cmd) {
+        if (tableExists(cmd.tableName())) {
+            throw new IllegalStateException(
+                    "Table already exists: " + cmd.tableName()
+            );
+        }
+
         // 1. Create table instance
         createPersistentTable(cmd.tableName(), cmd.columns());
 
         // 2. Persist schema metadata
         persistSchema(cmd.tableName(), cmd.columns());
+
+        // 3. Index both sides of its foreign keys (and of keys referencing it)
+        ensureForeignKeyIndexes();
+    }
+
+    public void execute(CreateIndexCommand cmd) {
+        if (!(table(cmd.table()) instanceof PersistentTable pt)) {
+            throw new IllegalArgumentException(
+                    "Table does not exist: " + cmd.table()
+            );
+        }
+
+        Table catalog = table(SystemTables.TABLES);
+        boolean nameTaken = catalog.selectAll().stream()
+                .anyMatch(r -> cmd.indexName().equals(r.get("index_name")));
+
+        if (nameTaken) {
+            throw new IllegalStateException(
+                    "Index already exists: " + cmd.indexName()
+            );
+        }
+
+        // 1. Build the index from the current rows
+        pt.createIndex(cmd.indexName(), cmd.column());
+
+        // 2. Persist index metadata
+        Map<String, Object> row = new HashMap<>();
+        row.put("table_name", cmd.table());
+        row.put("column_name", cmd.column());
+        row.put("index_name", cmd.indexName());
+        row.put("primary_key", 0);
+        row.put("unique_key", 0);
+
+        // system operation → no transaction
+        catalog.insert(null, row);
     }
 
     /* =========================
@@ -99,6 +238,10 @@ public class Database {
         Map<String, List<Column>> schemas = new HashMap<>();
 
         for (Map<String, Object> row : catalog.selectAll()) {
+            if (SystemTables.isIndexRow(row)) {
+                continue; // built once the data is loaded
+            }
+
             String tableName = (String) row.get("table_name");
 
             schemas
@@ -118,6 +261,50 @@ public class Database {
         }
     }
 
+    /**
+     * Secondary index definitions recorded in the catalog, by table.
+     * Indexes are not stored, so they are built after the table data has
+     * been recovered.
+     */
+    private Map<String, List<Map<String, Object>>> indexRowsByTable() {
+        Map<String, List<Map<String, Object>>> byTable = new HashMap<>();
+
+        Table catalog = table(SystemTables.TABLES);
+        if (catalog == null) {
+            return byTable;
+        }
+
+        for (Map<String, Object> row : catalog.selectAll()) {
+            if (SystemTables.isIndexRow(row)) {
+                byTable.computeIfAbsent((String) row.get("table_name"), k -> new ArrayList<>())
+                        .add(row);
+            }
+        }
+        return byTable;
+    }
+
+    /**
+     * Indexes both columns of every foreign key, so the parent lookup on a
+     * child insert/update and the child lookup on a parent delete are
+     * probes instead of scans. Key columns are reused as they are; other
+     * columns get an implicit index that is not recorded in the catalog.
+     */
+    public void ensureForeignKeyIndexes() {
+        for (Table t : allTables()) {
+            if (!(t instanceof PersistentTable child)) {
+                continue;
+            }
+
+            for (Column fk : child.foreignKeyColumns()) {
+                child.ensureIndex(fk.name());
+
+                if (table(fk.referencesTable()) instanceof PersistentTable parent) {
+                    parent.ensureIndex(fk.referencesColumn());
+                }
+            }
+        }
+    }
+
     /* =========================
        DROP TABLE
        ========================= */
@@ -132,15 +319,24 @@ public class Database {
             return;
         }
 
-        if (table instanceof PersistentTable pt) {
-            pt.deleteFiles();
-        }
-
         // remove schema metadata
         Table catalog = tables.get(SystemTables.TABLES);
         if (catalog != null) {
             catalog.deleteWhere("table_name", name);
         }
+
+        // 📝 older log records of the dropped table must never be replayed,
+        //    not even into a table re-created under the same name
+        try {
+            wal.log(0, WalRecord.Type.DROP, name, Map.of());
+            wal.awaitDurable();
+        } catch (IOException e) {
+            throw new IllegalStateException("WAL write failed for DROP TABLE " + name, e);
+        }
+
+        if (table instanceof PersistentTable pt) {
+            pt.deleteFiles();
+        }
     }
 
     public void bootstrapCatalog() {
@@ -154,6 +350,9 @@ public class Database {
 
     public void init() {
 
+        // 0️⃣ spill files of queries that ran before a crash
+        clearTempDir();
+
         // 1️⃣ system catalog
         bootstrapCatalog();
 
@@ -161,14 +360,260 @@ public class Database {
         PersistentTable catalog = (PersistentTable) table(SystemTables.TABLES);         // 🔑
         catalog.loadFromDisk();
 
-        // 3️⃣ create EMPTY table definitions
+        // 3️⃣ redo catalog changes newer than the last checkpoint,
+        //    so tables created after it are known
+        Set<String> dropped = new HashSet<>();
+        Map<String, List<WalRecord>> pending = readRecoveryLog(dropped);
+        redo(catalog, pending);
+
+        // 4️⃣ create EMPTY table definitions
         loadSchemaFromCatalog();      // 🚫 must NOT load data
+        deleteDroppedFiles(dropped);
+
+        // 5️⃣ now load data exactly once, redo it and build its indexes,
+        //    several tables at a time
+        loadTables(catalog, pending);
+
+        // 6️⃣ foreign keys span tables: only once every table is resident
+        ensureForeignKeyIndexes();
 
-        // 4️⃣ now load data exactly once
+        // 7️⃣ recovered state is now in memory: make it the new baseline
+        checkpoint();
+
+        checkpointer.start();
+    }
+
+    private void clearTempDir() {
+        if (!Files.isDirectory(tempDir())) {
+            return;
+        }
+
+        try (Stream<Path> files = Files.list(tempDir())) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to clear " + tempDir(), e);
+        }
+    }
+
+    /* =========================
+       RECOVERY / CHECKPOINT
+       ========================= */
+
+    /**
+     * Log records to replay, by table: those of committed transactions and
+     * of transaction 0, after the last checkpoint. A table's records before
+     * its DROP are left out; the names of dropped tables go to
+     * {@code dropped}.
+     */
+    private Map<String, List<WalRecord>> readRecoveryLog(Set<String> dropped) {
+        Map<String, List<WalRecord>> byTable = new HashMap<>();
+
+        try {
+            List<WalRecord> records = wal.readAfter(wal.readCheckpointLsn());
+
+            Set<Long> committed = new HashSet<>();
+            for (WalRecord r : records) {
+                if (r.type() == WalRecord.Type.COMMIT) {
+                    committed.add(r.txId());
+                }
+            }
+
+            // changes of transactions that never committed are dropped
+            int replayed = 0;
+            for (WalRecord r : records) {
+                if (r.type() == WalRecord.Type.DROP) {
+                    List<WalRecord> gone = byTable.remove(r.table());
+                    replayed -= gone == null ? 0 : gone.size();
+                    dropped.add(r.table());
+                } else if (r.type() != WalRecord.Type.COMMIT
+                        && (r.txId() == 0 || committed.contains(r.txId()))) {
+                    byTable.computeIfAbsent(r.table(), k -> new ArrayList<>()).add(r);
+                    replayed++;
+                }
+            }
+
+            if (replayed > 0) {
+                System.out.println("Replaying " + replayed + " WAL record(s)");
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read WAL", e);
+        }
+
+        return byTable;
+    }
+
+    /**
+     * Loads every user table on a pool of {@code loadThreads} threads.
+     * A table only touches its own file, rows and indexes here (the log
+     * has already been read and split by table), so they load
+     * independently. Prints how long each table took.
+     */
+    private void loadTables(PersistentTable catalog, Map<String, List<WalRecord>> pending) {
+        List<PersistentTable> toLoad = new ArrayList<>();
         for (Table t : allTables()) {
             if (t instanceof PersistentTable pt && pt != catalog) {
-                pt.loadFromDisk();
+                toLoad.add(pt);
+            }
+        }
+        if (toLoad.isEmpty()) {
+            return;
+        }
+        toLoad.sort(Comparator.comparing(PersistentTable::getName));
+
+        Map<String, List<Map<String, Object>>> indexRows = indexRowsByTable();
+        int threads = Math.max(1, Math.min(options.getLoadThreads(), toLoad.size()));
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "rdbms-table-loader");
+            t.setDaemon(true);
+            return t;
+        });
+
+        long start = System.nanoTime();
+        try {
+            List<Future<String>> reports = new ArrayList<>();
+            for (PersistentTable pt : toLoad) {
+                List<WalRecord> records = pending.remove(pt.getName());
+                List<Map<String, Object>> indexes =
+                        indexRows.getOrDefault(pt.getName(), List.of());
+
+                reports.add(pool.submit(() -> loadTable(pt, records, indexes)));
+            }
+
+            for (Future<String> report : reports) {
+                System.out.println(report.get());
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading tables", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
             }
+            throw new IllegalStateException("Failed to load tables", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        System.out.printf(
+                "Loaded %d table(s) in %d ms on %d thread(s)%n",
+                toLoad.size(), (System.nanoTime() - start) / 1_000_000, threads
+        );
+    }
+
+    private static String loadTable(
+            PersistentTable table,
+            List<WalRecord> records,
+            List<Map<String, Object>> indexes
+    ) {
+        long start = System.nanoTime();
+
+        table.loadFromDisk();
+        long loaded = System.nanoTime();
+
+        if (records != null) {
+            table.redo(records);
+        }
+        long redone = System.nanoTime();
+
+        for (Map<String, Object> row : indexes) {
+            table.createIndex(
+                    (String) row.get("index_name"),
+                    (String) row.get("column_name")
+            );
+        }
+        long indexed = System.nanoTime();
+
+        return String.format(
+                "  %-24s %,10d row(s)  load %,6d ms  redo %,6d ms (%d)  index %,6d ms (%d)",
+                table.getName(), table.rowCount(),
+                (loaded - start) / 1_000_000,
+                (redone - loaded) / 1_000_000, records == null ? 0 : records.size(),
+                (indexed - redone) / 1_000_000, indexes.size()
+        );
+    }
+
+    /**
+     * Removes the files of tables dropped just before a crash: the DROP
+     * reached the log, but the files may not have been deleted yet.
+     */
+    private void deleteDroppedFiles(Set<String> dropped) {
+        for (String name : dropped) {
+            if (tableExists(name)) {
+                continue; // re-created since: the file is the new table's
+            }
+            try {
+                Files.deleteIfExists(dataDir.resolve(name + ".tbl"));
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to delete files of dropped table " + name, e);
+            }
+        }
+    }
+
+    private void redo(PersistentTable table, Map<String, List<WalRecord>> pending) {
+        List<WalRecord> records = pending.remove(table.getName());
+        if (records != null) {
+            table.redo(records);
+        }
+    }
+
+    /**
+     * Writes every table's dirty pages, records the LSN they cover and
+     * drops the log segments that are no longer needed for recovery.
+     * Changes logged after the captured LSN may or may not be in the
+     * flushed pages; replaying them on restart is harmless.
+     *
+     * Running transactions have not written their changes to the tables
+     * yet, so the checkpoint stops short of their first log record.
+     *
+     * Also drops row versions no running snapshot can see any more.
+     */
+    public synchronized void checkpoint() {
+        long lsn = Math.min(wal.lastLsn(), transactions.oldestLsn() - 1);
+
+        for (Table t : allTables()) {
+            if (t instanceof PersistentTable pt) {
+                pt.vacuum();
+                pt.flush();
+            }
+        }
+
+        try {
+            wal.writeCheckpointLsn(lsn);
+            wal.truncateBefore(lsn);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write checkpoint", e);
+        }
+    }
+
+    /* =========================
+       SHUTDOWN
+       ========================= */
+
+    public void close() {
+        checkpointer.stop();
+        if (queryPool != null) {
+            queryPool.shutdown();
+        }
+        shutdown();
+    }
+
+    private synchronized void shutdown() {
+        checkpoint();
+
+        for (Table t : allTables()) {
+            if (t instanceof PersistentTable pt) {
+                pt.close();
+            }
+        }
+
+        try {
+            wal.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to close WAL", e);
         }
     }
 
@@ -0,0 +1,54 @@
+package com.jg.rdms.db.core;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Engine tuning knobs. The web layer fills this from {@code RdbmsProperties},
+ * the REPL runs with the defaults.
+ */
+@Setter
+@Getter
+public class DatabaseOptions {
+
+    // directory of the table files, the WAL and temp files
+    private String dataDir = "data";
+
+    // fsync batching for the write-ahead log (see GroupCommit)
+    private int groupCommitMaxBatch = 64;
+    private long groupCommitMaxWaitMicros = 0;
+
+    // WAL segment rotation and background checkpoints (0 disables a trigger)
+    private long walSegmentBytes = 16L * 1024 * 1024;
+    private long checkpointIntervalMillis = 60_000;
+    private long checkpointWalBytes = 64L * 1024 * 1024;
+
+    // how long a writer waits for a row another transaction has locked
+    private long lockWaitTimeoutMillis = 5_000;
+
+    // an explicit transaction idle this long is rolled back (0 = never)
+    private long idleTransactionTimeoutMillis = 60_000;
+
+    // tables loaded (and indexed) concurrently on startup
+    private int loadThreads = Runtime.getRuntime().availableProcessors();
+
+    // table pages cached in memory; 0 keeps every row resident instead
+    private int bufferPoolPages = 0;
+
+    // column-wise copy of each table for filtered full scans (see ColumnarSegment)
+    private boolean columnarScans = false;
+
+    // rows a sort (ORDER BY, sort-merge join) buffers before spilling to disk
+    private long sortMemoryBytes = 64L * 1024 * 1024;
+
+    // build rows a hash join holds before it partitions to disk (see HashJoin)
+    private long hashJoinMemoryBytes = 64L * 1024 * 1024;
+
+    // threads one query may scan and join with (1 = serial), and the
+    // table size below which it does not bother
+    private int queryParallelism = Runtime.getRuntime().availableProcessors();
+    private long parallelThreshold = 50_000;
+
+    // parsed statements kept by QueryExecutor, by SQL text (0 disables the cache)
+    private int statementCacheSize = 256;
+}
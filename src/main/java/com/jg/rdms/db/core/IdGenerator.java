@@ -10,6 +10,11 @@ public class IdGenerator {
         return counter.incrementAndGet();
     }
 
+    /** Keeps generated ids above an id that was supplied explicitly. */
+    public void observe(int value) {
+        counter.accumulateAndGet(value, Math::max);
+    }
+
     public void set(int value) {
         counter.set(value);
     }
@@ -1,30 +1,125 @@
 package com.jg.rdms.db.core;
 
-import com.jg.rdms.db.storage.HeapFile;
+import com.jg.rdms.db.columnar.ColumnarSegment;
+import com.jg.rdms.db.index.BPlusTree;
+import com.jg.rdms.db.index.Index;
+import com.jg.rdms.db.storage.BufferPool;
+import com.jg.rdms.db.storage.RecordId;
 import com.jg.rdms.db.storage.RowSerializer;
+import com.jg.rdms.db.storage.SlottedHeapFile;
+import com.jg.rdms.db.sql.Comparison;
+import com.jg.rdms.db.sql.Condition;
+import com.jg.rdms.db.stats.TableStatistics;
+import com.jg.rdms.db.tx.Participant;
+import com.jg.rdms.db.tx.Snapshot;
 import com.jg.rdms.db.tx.Transaction;
 import com.jg.rdms.db.tx.WalRecord;
-import com.jg.rdms.db.tx.WriteAheadLog;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Table backed by a slotted heap file, with every row also held in memory
+ * (or, in paged mode, only the rows being written).
+ *
+ * <h3>Versions</h3>
+ * Each row id maps to a chain of {@link RowVersion}s, newest first, tagged
+ * with the creating and deleting transaction. Readers pick the version
+ * their {@link Snapshot} can see and take no lock at all; writers only
+ * ever add versions, so a long scan neither blocks nor sees a concurrent
+ * writer. Versions no running snapshot can see are dropped by
+ * {@link #vacuum()} and whenever their row is written again.
+ *
+ * <h3>Concurrency</h3>
+ * <ul>
+ *   <li>{@code tableLock} is held shared by every writer, and exclusively
+ *       by work that needs the table to stand still: index builds, the
+ *       checkpoint flush, load and redo.</li>
+ *   <li>{@code rowLocks} are striped by row id. A writer holds the stripe
+ *       of the row it changes from constraint check to install, so writes
+ *       to the same row serialize while writes to different rows run in
+ *       parallel.</li>
+ * </ul>
+ * Unique values are claimed atomically in concurrent maps, which keeps
+ * two writers of different rows from taking the same key. Constraint
+ * checks read the newest version of each row ({@link Snapshot#LATEST}).
+ *
+ * <h3>Paged mode</h3>
+ * With a bounded {@link BufferPool} a row whose only version is visible
+ * to everyone is dropped from {@code chains} once it is in the table file,
+ * and read back through the pool when needed. Writers bring a row back
+ * before adding a version to it. Row ids, key maps and indexes stay in
+ * memory; full scans return the resident rows first, then the others in
+ * file order.
+ *
+ * <h3>Columnar scans</h3>
+ * With {@code columnarScans} on, filtered full scans run over a
+ * {@link ColumnarSegment}: a column-wise copy of the rows every snapshot
+ * sees, built on first use. Writers touch the rows they change in the
+ * segment under the row's stripe; a scan reads those through their
+ * chains instead, and the segment is rebuilt once too many are touched.
+ */
+public class PersistentTable extends Table implements Participant {
+
+    private static final int ROW_LOCK_STRIPES = 64;
+
+    // touched rows a columnar segment tolerates before it is rebuilt
+    private static final int COLUMNAR_MIN_SLACK = 1024;
+
+    // table file pages a paged iterator decodes at a time
+    private static final int ITERATOR_PAGES = 8;
+
+    private final SlottedHeapFile heap;
+    private final RowSerializer format;
+    private final IdGenerator idGenerator = new IdGenerator();
 
-public class PersistentTable extends Table {
+    private final ReentrantReadWriteLock tableLock = new ReentrantReadWriteLock();
+    private final Lock[] rowLocks = new Lock[ROW_LOCK_STRIPES];
 
-    private final HeapFile heap;
-    private final WriteAheadLog wal;
-    private final IdGenerator idGenerator = new IdGenerator();
+    // row id → version chain, in id order
+    private final ConcurrentSkipListMap<Object, RowVersion> chains =
+            new ConcurrentSkipListMap<>(BPlusTree::compareKeys);
+
+    // row id → slot of its newest committed image
+    private final Map<Object, RecordId> locations = new ConcurrentHashMap<>();
+
+    // row id → transaction holding its write lock
+    private final Map<Object, Transaction> writers = new ConcurrentHashMap<>();
 
+    // unique / primary key value → row id (newest versions), per column
     private final List<Column> uniqueColumns;
-    private final Map<String, Set<Object>> uniqueIndexes = new HashMap<>();
+    private final Map<String, Map<Object, Object>> uniqueKeys = new HashMap<>();
+
+    // unique value → rows that gave it up while older versions holding it are retained
+    private final Map<String, Map<Object, Set<Object>>> releasedKeys = new HashMap<>();
+
+    // secondary indexes by column: key → row ids, for every retained version
+    private final Map<String, Index> indexes = new ConcurrentHashMap<>();
 
     private final Database database;
     private final List<Column> foreignKeyColumns;
 
+    // only rows being written are kept in chains (bounded buffer pool)
+    private final boolean paged;
+
+    private final boolean columnarScans;
+    private final List<Boolean> intColumns;
+    private final Object columnarBuild = new Object();
+    private volatile ColumnarSegment columnar;
+
+    // newest version of every row, for the planner
+    private final TableStatistics statistics;
+
     private boolean loaded = false;
 
 
@@ -33,12 +128,18 @@ public class PersistentTable extends Table {
         this.database = database;
 
         try {
-            this.heap = new HeapFile("data/" + name + ".tbl");
-            this.wal  = new WriteAheadLog("data/wal.log");
+            this.heap = SlottedHeapFile.open(
+                    database.dataDir().resolve(name + ".tbl").toString(), database.bufferPool());
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
 
+        this.intColumns = intColumns(layout, columns);
+        this.format = new RowSerializer(layout.names(), intColumns);
+        this.paged = database.bufferPool().bounded();
+        this.columnarScans = database.options().isColumnarScans();
+        this.statistics = new TableStatistics(layout.names());
+
         this.uniqueColumns = columns.stream()
                 .filter(c -> c.unique() || c.primary())
                 .toList();
@@ -48,50 +149,323 @@ public class PersistentTable extends Table {
                 .toList();
 
         for (Column c : uniqueColumns) {
-            uniqueIndexes.put(c.name(), new HashSet<>());
+            uniqueKeys.put(c.name(), new ConcurrentHashMap<>());
+            releasedKeys.put(c.name(), new ConcurrentHashMap<>());
+        }
+
+        for (int i = 0; i < rowLocks.length; i++) {
+            rowLocks[i] = new ReentrantLock();
         }
     }
 
+    /**
+     * Which columns of the table's {@link RowLayout} are INT, for the
+     * compact row format and the columnar segment, which both lay rows out
+     * by position. The {@code id} every row carries is an INT whether
+     * declared or not.
+     */
+    private static List<Boolean> intColumns(RowLayout layout, List<Column> columns) {
+        List<Boolean> ints = new ArrayList<>();
+
+        for (String column : layout.names()) {
+            ints.add(columns.stream()
+                    .filter(c -> c.name().equals(column))
+                    .findFirst()
+                    .map(c -> c.type() == DataType.INT)
+                    .orElse(true));
+        }
+        return ints;
+    }
+
+    /** Decodes a stored row straight into its layout. */
+    private Row decode(ByteBuffer data) throws IOException {
+        Object[] values = new Object[layout.size()];
+        Map<String, Object> extras = format.decodeInto(data, values);
+        return new Row(layout, values, extras);
+    }
+
+    private byte[] encode(Row row) {
+        return format.encode(row.valueArray(), row.extras());
+    }
+
     /* =========================
-       INSERT
+       SCAN
        ========================= */
 
+    /** The newest version of every row. */
     @Override
-    public synchronized void insert(Transaction tx, Map<String, Object> row) {
+    public List<Row> selectAll() {
+        return selectAll(Snapshot.LATEST);
+    }
 
-        // 🔒 UNIQUE CONSTRAINTS
-        for (Column c : uniqueColumns) {
-            Object value = row.get(c.name());
-            if (uniqueIndexes.get(c.name()).contains(value)) {
-                throw new IllegalStateException(
-                        "Unique constraint violation on " + c.name() + " = " + value
-                );
+    /**
+     * The rows as of {@code snapshot}, in id order (see paged mode). Takes
+     * no lock and is unaffected by writes that happen during the scan.
+     */
+    @Override
+    public List<Row> selectAll(Snapshot snapshot) {
+        List<Row> result = new ArrayList<>();
+        scan(snapshot, result::add);
+        return result;
+    }
+
+    /** Like {@link #selectAll(Snapshot)}; in paged mode rows stream from the file. */
+    @Override
+    public void scan(Snapshot snapshot, Consumer<Row> action) {
+        forEachChain((id, chain) -> {
+            Row row = visible(chain, snapshot);
+            if (row != null) {
+                action.accept(row);
+            }
+        });
+    }
+
+    /**
+     * Over the resident version chains as they are reached; in paged mode
+     * then over the table file, {@link #ITERATOR_PAGES} pages at a time.
+     */
+    @Override
+    public Iterator<Row> iterator(Snapshot snapshot) {
+        if (!paged) {
+            return Spliterators.iterator(new VisibleRows(chains.values().spliterator(), snapshot));
+        }
+        return new PagedRows(snapshot);
+    }
+
+    /**
+     * What {@link #forEachChain} and {@link #visible} give, pulled: the
+     * resident chains first, then rows of the table file that were not
+     * among them, read a batch of pages at a time.
+     */
+    private final class PagedRows implements Iterator<Row> {
+        private final Snapshot snapshot;
+        private final Iterator<Map.Entry<Object, RowVersion>> resident = chains.entrySet().iterator();
+        private final Set<Object> reported = new HashSet<>();
+        private final ArrayDeque<Row> batch = new ArrayDeque<>();
+        private int nextPage = 0;
+        private Row next;
+
+        PagedRows(Snapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = advance();
+            }
+            return next != null;
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Row row = next;
+            next = null;
+            return row;
+        }
+
+        private Row advance() {
+            while (resident.hasNext()) {
+                Map.Entry<Object, RowVersion> e = resident.next();
+                reported.add(e.getKey());
+
+                Row row = visible(e.getValue(), snapshot);
+                if (row != null) {
+                    return row;
+                }
+            }
+
+            while (batch.isEmpty()) {
+                int pages = heap.pageCount();
+                if (nextPage >= pages) {
+                    return null;
+                }
+                int from = nextPage;
+                nextPage = Math.min(pages, from + ITERATOR_PAGES);
+
+                try {
+                    heap.scanMapped(from, nextPage, (rid, data) -> {
+                        Row row = decode(data);
+                        Object id = row.get("id");
+
+                        if (!reported.contains(id)) {
+                            RowVersion chain = chains.get(id);
+                            Row found = visible(chain != null ? chain : new RowVersion(row, 0, null), snapshot);
+                            if (found != null) {
+                                batch.add(found);
+                            }
+                        }
+                    });
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed to scan table " + name, e);
+                }
+            }
+            return batch.poll();
+        }
+    }
+
+    /**
+     * Splits over the resident version chains, resolving each to the row
+     * {@code snapshot} sees as it goes. Paged tables scan their file in
+     * one pass, so they do not split.
+     *
+     * The skip list's own spliterator does not split, so each split takes
+     * the next batch of chains off one iterator (in id order); resolving
+     * their visibility is left to the thread the batch goes to.
+     */
+    @Override
+    public Optional<Spliterator<Row>> splitScan(Snapshot snapshot) {
+        if (paged) {
+            return Optional.empty();
+        }
+
+        Spliterator<RowVersion> batches = Spliterators.spliterator(
+                chains.values().iterator(),
+                statistics.rowCount(),
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.CONCURRENT
+        );
+        return Optional.of(new VisibleRows(batches, snapshot));
+    }
+
+    /** Rows visible to a snapshot, over a spliterator of version chains. */
+    private static final class VisibleRows implements Spliterator<Row> {
+        private final Spliterator<RowVersion> chains;
+        private final Snapshot snapshot;
+
+        VisibleRows(Spliterator<RowVersion> chains, Snapshot snapshot) {
+            this.chains = chains;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Row> action) {
+            Row[] found = new Row[1];
+            do {
+                if (!chains.tryAdvance(chain -> found[0] = visible(chain, snapshot))) {
+                    return false;
+                }
+            } while (found[0] == null); // a chain the snapshot does not see
+
+            action.accept(found[0]);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Row> action) {
+            chains.forEachRemaining(chain -> {
+                Row row = visible(chain, snapshot);
+                if (row != null) {
+                    action.accept(row);
+                }
+            });
+        }
+
+        @Override
+        public Spliterator<Row> trySplit() {
+            Spliterator<RowVersion> prefix = chains.trySplit();
+            return prefix == null ? null : new VisibleRows(prefix, snapshot);
+        }
+
+        @Override
+        public long estimateSize() {
+            return chains.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+
+    /** The version of a row {@code snapshot} sees, or null. */
+    private static Row visible(RowVersion chain, Snapshot snapshot) {
+        for (RowVersion v = chain; v != null; v = v.older) {
+            if (snapshot.sees(v.createdBy)) {
+                long deletedBy = v.deletedBy;
+                return deletedBy == RowVersion.LIVE || !snapshot.sees(deletedBy)
+                        ? v.data
+                        : null;
             }
         }
+        return null;
+    }
 
+    /**
+     * The newest version of row {@code id} if it is not deleted, made
+     * resident. Caller holds the row's stripe.
+     */
+    private RowVersion liveHead(Object id) {
+        RowVersion head = residentChain(id);
+        return head != null && head.deletedBy == RowVersion.LIVE ? head : null;
+    }
+
+    /* =========================
+       INSERT
+       ========================= */
+
+    @Override
+    public void insert(Transaction tx, Map<String, Object> row) {
         // Generate ID
         if (!row.containsKey("id")) {
             row.put("id", idGenerator.nextId());
+        } else if (row.get("id") instanceof Integer id) {
+            idGenerator.observe(id);
         }
 
-        // 🔗 FOREIGN KEY CONSTRAINTS
-        enforceForeignKeys(row);
+        Object id = row.get("id");
+        Row stored = freeze(row);
+
+        lockRow(tx, id);
 
+        tableLock.readLock().lock();
+        Lock rowLock = rowLock(id);
+        rowLock.lock();
         try {
-            if (tx != null) {
-                wal.log(new WalRecord(tx.getId(), name, row));
-            }
+            insertRow(tx, id, stored);
+        } finally {
+            rowLock.unlock();
+            tableLock.readLock().unlock();
+        }
 
-            heap.append(row);
+        if (tx == null) {
+            awaitDurable();
+        }
+    }
 
-            rows.add(new HashMap<>(row));
+    private void insertRow(Transaction tx, Object id, Row row) {
 
-            for (Column c : uniqueColumns) {
-                uniqueIndexes.get(c.name()).add(row.get(c.name()));
+        if (liveHead(id) != null) {
+            throw new IllegalStateException(
+                    "Duplicate row id " + id + " in table " + name
+            );
+        }
+
+        // 🔒 UNIQUE CONSTRAINTS (claims the values)
+        List<Column> claimed = claimKeys(id, null, row);
+
+        try {
+            // 🔗 FOREIGN KEY CONSTRAINTS
+            enforceForeignKeys(row);
+
+            // 📝 log first: the heap page only reaches disk at the next checkpoint
+            writeWal(tx, WalRecord.Type.INSERT, row);
+
+            if (tx == null) {
+                store(id, row);
             }
+            install(id, row, txId(tx));
 
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        } catch (RuntimeException e) {
+            releaseKeys(id, row, claimed);
+            throw e;
+        }
+        statistics.add(row);
+
+        if (tx != null) {
+            tx.changed(this, id);
         }
     }
 
@@ -99,73 +473,152 @@ public class PersistentTable extends Table {
        UPDATE
        ========================= */
 
-    public synchronized int updateWhere(
+    public int updateWhere(
             Transaction tx,
             String whereColumn,
             Object matchValue,
             Map<String, Object> newValues
     ) {
+        if (newValues.containsKey("id")) {
+            throw new IllegalArgumentException(
+                    "Column id identifies the row and cannot be updated"
+            );
+        }
 
-        int updated = 0;
+        Predicate<Row> matches = row -> Objects.equals(row.get(whereColumn), matchValue);
+        List<Row> targets = withContendedRows(
+                tx, matchingRows(whereColumn, matchValue, Snapshot.LATEST), matches);
+        enforceNotReferenced(targets, newValues);
 
-        for (Map<String, Object> row : rows) {
+        int updated = 0;
 
-            if (!Objects.equals(row.get(whereColumn), matchValue)) {
-                continue;
+        for (Row target : targets) {
+            if (updateLocked(tx, target.get("id"), matches, newValues)) {
+                updated++;
             }
+        }
 
-            // 🔒 UNIQUE CONSTRAINTS (only changed values)
-            for (Column c : uniqueColumns) {
-                if (!newValues.containsKey(c.name())) {
-                    continue;
-                }
+        if (updated > 0 && tx == null) {
+            awaitDurable();
+        }
+        return updated;
+    }
 
-                Object oldVal = row.get(c.name());
-                Object newVal = newValues.get(c.name());
+    /**
+     * Updates row {@code id} if its newest version still satisfies
+     * {@code matches} once the row is locked: a statement picks its rows
+     * before waiting for their writers, and a row another transaction
+     * changed meanwhile must not be overwritten unchecked.
+     */
+    public boolean updateRowIf(
+            Transaction tx,
+            Object id,
+            Predicate<Row> matches,
+            Map<String, Object> newValues
+    ) {
+        if (newValues.containsKey("id")) {
+            throw new IllegalArgumentException(
+                    "Column id identifies the row and cannot be updated"
+            );
+        }
 
-                if (!Objects.equals(oldVal, newVal)
-                        && uniqueIndexes.get(c.name()).contains(newVal)) {
-                    throw new IllegalStateException(
-                            "Unique constraint violation on " + c.name() + " = " + newVal
-                    );
-                }
-            }
+        RowVersion head = liveHead(id);
+        if (head != null) {
+            enforceNotReferenced(List.of(head.data), newValues);
+        }
 
-            // 🔗 FOREIGN KEY CONSTRAINTS (only changed FK columns)
-            enforceForeignKeysOnUpdate(row, newValues);
+        boolean updated = updateLocked(tx, id, matches, newValues);
 
-            if (tx != null) {
-                writeWal(tx, row);
-            }
+        if (updated && tx == null) {
+            awaitDurable();
+        }
+        return updated;
+    }
+
+    private boolean updateLocked(
+            Transaction tx,
+            Object id,
+            Predicate<Row> matches,
+            Map<String, Object> newValues
+    ) {
+        lockRow(tx, id);
 
-            // Apply update
-            row.putAll(newValues);
+        tableLock.readLock().lock();
+        Lock rowLock = rowLock(id);
+        rowLock.lock();
+        try {
+            return updateRow(tx, id, matches, newValues);
+        } finally {
+            rowLock.unlock();
+            tableLock.readLock().unlock();
+        }
+    }
 
-            // Update unique indexes
-            for (Column c : uniqueColumns) {
-                if (newValues.containsKey(c.name())) {
-                    uniqueIndexes.get(c.name()).remove(row.get(c.name()));
-                    uniqueIndexes.get(c.name()).add(newValues.get(c.name()));
-                }
-            }
+    /**
+     * Adds a new version of row {@code id} if it still matches. Caller
+     * holds the row's stripe.
+     */
+    private boolean updateRow(
+            Transaction tx,
+            Object id,
+            Predicate<Row> matches,
+            Map<String, Object> newValues
+    ) {
+        RowVersion head = liveHead(id);
 
-            updated++;
+        // deleted or changed since the statement looked it up
+        if (head == null || !matches.test(head.data)) {
+            return false;
         }
 
-        if (updated > 0) {
-            rewriteHeapFromMemory();
-            rebuildUniqueIndexes();
+        Row current = head.data;
+        Row next = current.with(newValues);
+
+        // 🔒 UNIQUE CONSTRAINTS (only changed values)
+        List<Column> claimed = claimKeys(id, current, next);
+
+        try {
+            // 🔗 FOREIGN KEY CONSTRAINTS (only changed FK columns)
+            enforceForeignKeysOnUpdate(current, newValues);
+
+            writeWal(tx, WalRecord.Type.UPDATE, next);
+
+            if (tx == null) {
+                store(id, next);
+            }
+            install(id, next, txId(tx));
+
+        } catch (RuntimeException e) {
+            releaseKeys(id, next, claimed);
+            throw e;
         }
+        statistics.replace(current, next);
 
-        return updated;
+        // the old values stay claimed until the change commits
+        if (tx == null) {
+            releaseReplacedKeys(id, current, next);
+        } else {
+            tx.changed(this, id);
+        }
+        return true;
     }
 
-    private void writeWal(Transaction tx, Map<String, Object> row) {
-        if (tx == null) {
-            return;
+    /**
+     * Logs a change before it is applied. System operations (no
+     * transaction) are logged too, under transaction id 0.
+     */
+    private void writeWal(Transaction tx, WalRecord.Type type, Map<String, Object> row) {
+        if (tx != null) {
+            database.transactions().logging(tx);
         }
+
         try {
-            wal.log(new WalRecord(tx.getId(), name, row));
+            database.wal().log(
+                    txId(tx),
+                    type,
+                    name,
+                    row
+            );
         } catch (IOException e) {
             throw new IllegalStateException(
                     "WAL write failed for table " + name, e
@@ -173,6 +626,10 @@ public class PersistentTable extends Table {
         }
     }
 
+    private static long txId(Transaction tx) {
+        return tx == null ? 0 : tx.getId();
+    }
+
     /* =========================
        FOREIGN KEY ENFORCEMENT
        ========================= */
@@ -188,22 +645,7 @@ public class PersistentTable extends Table {
                 );
             }
 
-            Table refTable = database.table(c.referencesTable());
-            if (refTable == null) {
-                throw new IllegalStateException(
-                        "Referenced table does not exist: " + c.referencesTable()
-                );
-            }
-
-            boolean exists = refTable.selectAll().stream()
-                    .anyMatch(r ->
-                            Objects.equals(
-                                    r.get(c.referencesColumn()),
-                                    value
-                            )
-                    );
-
-            if (!exists) {
+            if (!referencedValueExists(c, value)) {
                 throw new IllegalStateException(
                         "Foreign key violation: " +
                                 c.name() + " → " +
@@ -224,24 +666,7 @@ public class PersistentTable extends Table {
                 continue;
             }
 
-            Object newVal = newValues.get(c.name());
-
-            Table refTable = database.table(c.referencesTable());
-            if (refTable == null) {
-                throw new IllegalStateException(
-                        "Referenced table does not exist: " + c.referencesTable()
-                );
-            }
-
-            boolean exists = refTable.selectAll().stream()
-                    .anyMatch(r ->
-                            Objects.equals(
-                                    r.get(c.referencesColumn()),
-                                    newVal
-                            )
-                    );
-
-            if (!exists) {
+            if (!referencedValueExists(c, newValues.get(c.name()))) {
                 throw new IllegalStateException(
                         "Foreign key violation on update: " +
                                 c.name() + " → " +
@@ -252,44 +677,212 @@ public class PersistentTable extends Table {
         }
     }
 
-    /* =========================
-       RECOVERY
-       ========================= */
-
-    public synchronized void loadFromDisk() {
-        if (loaded) {
+    /**
+     * Probes the referenced column through its key map or index (see
+     * {@link Database#ensureForeignKeyIndexes()}), scanning only when the
+     * parent cannot answer lookups.
+     */
+    private boolean referencedValueExists(Column fk, Object value) {
+        Table refTable = database.table(fk.referencesTable());
+        if (refTable == null) {
             throw new IllegalStateException(
-                    "Table " + name + " loaded twice"
+                    "Referenced table does not exist: " + fk.referencesTable()
             );
         }
 
-        resetData();
+        return refTable.lookupByColumn(fk.referencesColumn(), value)
+                .map(matches -> !matches.isEmpty())
+                .orElseGet(() -> refTable.selectAll().stream()
+                        .anyMatch(r -> Objects.equals(r.get(fk.referencesColumn()), value)));
+    }
 
-        try {
-            for (Map<String, Object> row : heap.readAll()) {
-                rows.add(row);
+    /**
+     * Rejects deleting ({@code newValues == null}) or re-keying rows that
+     * child tables still reference, using the child's index on its
+     * foreign key column.
+     *
+     * Runs before any row lock of this table is taken, so a writer never
+     * waits on another table while holding one of its own stripes.
+     */
+    private void enforceNotReferenced(
+            List<Row> targets,
+            Map<String, Object> newValues
+    ) {
+        if (targets.isEmpty()) {
+            return;
+        }
+
+        Set<Object> targetIds = new HashSet<>();
+        for (Row target : targets) {
+            targetIds.add(target.get("id"));
+        }
+
+        for (Table t : database.allTables()) {
+            if (!(t instanceof PersistentTable child)) {
+                continue;
+            }
+
+            for (Column fk : child.foreignKeyColumns()) {
+                if (!name.equals(fk.referencesTable())) {
+                    continue;
+                }
+
+                String refColumn = fk.referencesColumn();
+                if (newValues != null && !newValues.containsKey(refColumn)) {
+                    continue;
+                }
+
+                for (Row target : targets) {
+                    Object value = target.get(refColumn);
+
+                    if (newValues != null && Objects.equals(value, newValues.get(refColumn))) {
+                        continue;
+                    }
 
-                for (Column c : uniqueColumns) {
-                    Object val = row.get(c.name());
-                    if (!uniqueIndexes.get(c.name()).add(val)) {
+                    boolean referenced = child.matchingRows(fk.name(), value, Snapshot.LATEST)
+                            .stream()
+                            .anyMatch(r -> child != this || !targetIds.contains(r.get("id")));
+
+                    if (referenced) {
                         throw new IllegalStateException(
-                                "Corrupt data: duplicate " + c.name() + " table " + name
+                                "Foreign key violation: " +
+                                        child.getName() + "." + fk.name() +
+                                        " still references " + name + "(" +
+                                        refColumn + ") = " + value
                         );
                     }
                 }
             }
+        }
+    }
+
+    public List<Column> foreignKeyColumns() {
+        return foreignKeyColumns;
+    }
+
+    /* =========================
+       RECOVERY
+       ========================= */
+
+    public void loadFromDisk() {
+        tableLock.writeLock().lock();
+        try {
+            if (loaded) {
+                throw new IllegalStateException(
+                        "Table " + name + " loaded twice"
+                );
+            }
+
+            resetData();
+
+            List<RecordId> selfDescribing = new ArrayList<>();
+
+            // 📸 rows are decoded straight out of the mapped table file
+            heap.scanMapped((rid, data) -> {
+                Row row = decode(data);
+                locations.put(row.get("id"), rid);
+                if (!paged) {
+                    chains.put(row.get("id"), new RowVersion(row, 0, null));
+                }
+
+                if (RowSerializer.isSelfDescribing(data)) {
+                    selfDescribing.add(rid);
+                }
+            });
+
+            // 🔁 migrate rows of the old format; written at the next checkpoint
+            for (RecordId rid : selfDescribing) {
+                heap.update(rid, encode(freeze(RowSerializer.deserialize(heap.read(rid)))));
+            }
 
+            rebuildKeys();
             rebuildIdGenerator();
+            rebuildStatistics();
             loaded = true;
 
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Re-applies logged changes on top of the rows loaded from disk.
+     * Records carry full row images keyed by {@code id}, so replaying a
+     * change that already reached the table file is harmless. Recovered
+     * rows have a single version, visible to everyone.
+     */
+    public void redo(List<WalRecord> records) {
+        tableLock.writeLock().lock();
+        try {
+            for (WalRecord record : records) {
+                Object id = record.row().get("id");
+                RecordId rid = locations.get(id);
+
+                switch (record.type()) {
+                    case INSERT, UPDATE -> {
+                        Row row = freeze(record.row());
+                        byte[] data = encode(row);
+
+                        if (rid == null) {
+                            locations.put(id, heap.insert(data));
+                        } else {
+                            heap.update(rid, data);
+                        }
+                        if (paged) {
+                            chains.remove(id);
+                        } else {
+                            chains.put(id, new RowVersion(row, 0, null));
+                        }
+                    }
+                    case DELETE -> {
+                        if (rid != null) {
+                            heap.delete(rid);
+                            locations.remove(id);
+                            chains.remove(id);
+                        }
+                    }
+                }
+            }
+
+            rebuildKeys();
+            rebuildIdGenerator();
+            indexes.values().forEach(this::build);
+            rebuildStatistics();
+            columnar = null;
+
+        } catch (IOException e) {
+            throw new IllegalStateException(
+                    "Redo failed for table " + name, e
+            );
+        } finally {
+            tableLock.writeLock().unlock();
         }
     }
 
+    private void rebuildKeys() {
+        uniqueKeys.values().forEach(Map::clear);
+        releasedKeys.values().forEach(Map::clear);
+
+        forEachChain((id, chain) -> {
+            try {
+                claimKeys(id, null, chain.data);
+            } catch (IllegalStateException e) {
+                throw new IllegalStateException(
+                        "Corrupt data in table " + name + ": " + e.getMessage()
+                );
+            }
+        });
+    }
+
+    private void rebuildStatistics() {
+        statistics.rebuild(selectAll(Snapshot.LATEST));
+    }
+
     private void rebuildIdGenerator() {
-        int maxId = rows.stream()
-                .map(r -> (Integer) r.get("id"))
+        int maxId = Stream.concat(chains.keySet().stream(), locations.keySet().stream())
+                .map(id -> (Integer) id)
                 .max(Integer::compareTo)
                 .orElse(0);
         idGenerator.set(maxId);
@@ -300,67 +893,413 @@ public class PersistentTable extends Table {
        ========================= */
 
     @Override
-    public synchronized void deleteWhere(String column, Object value) {
-
-        boolean deleted = false;
+    public void deleteWhere(String column, Object value) {
+        deleteWhere(null, column, value);
+    }
 
-        Iterator<Map<String, Object>> it = rows.iterator();
+    @Override
+    public void deleteWhere(Transaction tx, String column, Object value) {
+        Predicate<Row> matches = row -> Objects.equals(row.get(column), value);
+        List<Row> targets = withContendedRows(
+                tx, matchingRows(column, value, Snapshot.LATEST), matches);
+        enforceNotReferenced(targets, null);
 
-        while (it.hasNext()) {
-            Map<String, Object> row = it.next();
+        boolean deleted = false;
 
-            if (Objects.equals(row.get(column), value)) {
-                it.remove();
-                deleted = true;
-            }
+        for (Row target : targets) {
+            deleted |= deleteLocked(tx, target.get("id"), matches);
         }
 
-        if (deleted) {
-            rewriteHeapFromMemory();
-            rebuildUniqueIndexes(); // 🔑 CRITICAL
+        if (deleted && tx == null) {
+            awaitDurable();
         }
     }
 
-    /* =========================
-       HEAP REWRITE
-       ========================= */
+    /**
+     * Deletes row {@code id} if its newest version still satisfies
+     * {@code matches} once the row is locked (see {@link #updateRowIf}).
+     */
+    public boolean deleteRowIf(Transaction tx, Object id, Predicate<Row> matches) {
+        RowVersion head = liveHead(id);
+        if (head != null) {
+            enforceNotReferenced(List.of(head.data), null);
+        }
 
-    private void rewriteHeapFromMemory() {
-        Path original = heap.getPath();
-        Path temp = original.resolveSibling(original.getFileName() + ".tmp");
+        boolean deleted = deleteLocked(tx, id, matches);
 
-        try (
-                RandomAccessFile tmpFile =
-                        new RandomAccessFile(temp.toFile(), "rw")
-        ) {
-            // 1️⃣ Write ALL rows to temp file
-            for (Map<String, Object> row : rows) {
-                byte[] data = RowSerializer.serialize(row);
-                tmpFile.writeInt(data.length);
-                tmpFile.write(data);
-            }
+        if (deleted && tx == null) {
+            awaitDurable();
+        }
+        return deleted;
+    }
 
-            // 2️⃣ Force data to disk
-            tmpFile.getFD().sync();
+    private boolean deleteLocked(Transaction tx, Object id, Predicate<Row> matches) {
+        lockRow(tx, id);
 
+        tableLock.readLock().lock();
+        Lock rowLock = rowLock(id);
+        rowLock.lock();
+        try {
+            return deleteRow(tx, id, matches);
+        } finally {
+            rowLock.unlock();
+            tableLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Marks row {@code id} deleted if it still matches. Its versions stay
+     * readable by older snapshots. Caller holds its stripe.
+     */
+    private boolean deleteRow(Transaction tx, Object id, Predicate<Row> matches) {
+        RowVersion head = liveHead(id);
+
+        if (head == null || !matches.test(head.data)) {
+            return false;
+        }
+
+        writeWal(tx, WalRecord.Type.DELETE, head.data);
+        touchColumnar(id);
+        head.deletedBy = txId(tx);
+        statistics.remove(head.data);
+
+        if (tx != null) {
+            // the slot and the unique values are given up at commit
+            tx.changed(this, id);
+            return true;
+        }
+
+        unstore(id);
+        releaseKeys(id, head.data, keyedColumns(head.data));
+        prune(id, database.transactions().horizon());
+        return true;
+    }
+
+    /* =========================
+       TRANSACTIONS
+       ========================= */
+
+    /**
+     * Takes the write lock on row {@code id} for {@code tx} until it ends,
+     * waiting for the transaction that holds it. Runs before any lock of
+     * this table is taken, so waiting never stalls a checkpoint. System
+     * operations (no transaction) do not lock rows.
+     */
+    private void lockRow(Transaction tx, Object id) {
+        if (tx == null) {
+            return;
+        }
+
+        long timeout = database.options().getLockWaitTimeoutMillis();
+        long deadline = System.currentTimeMillis() + timeout;
+
+        while (true) {
+            Transaction owner = writers.putIfAbsent(id, tx);
+
+            if (owner == null) {
+                tx.locked(this, id);
+                return;
+            }
+            if (owner == tx) {
+                return;
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+            try {
+                if (remaining <= 0 || !owner.awaitEnd(remaining)) {
+                    throw new IllegalStateException(
+                            "Lock wait timeout: row " + id + " of table " + name +
+                                    " is locked by transaction " + owner.getId()
+                    );
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(
+                        "Interrupted waiting for row " + id + " of table " + name, e
+                );
+            }
+        }
+    }
+
+    /**
+     * {@code candidates} (rows picked from the newest versions) plus the
+     * rows another transaction is writing whose version before its change
+     * satisfies {@code matches}. Such a row may not match now and match
+     * again if that transaction rolls back, so the statement has to wait
+     * for its lock and check it again (see {@link #updateRowIf}) rather
+     * than skip it.
+     */
+    public List<Row> withContendedRows(
+            Transaction tx,
+            List<Row> candidates,
+            Predicate<Row> matches
+    ) {
+        Set<Object> picked = null;
+        List<Row> rows = candidates;
+
+        for (var e : writers.entrySet()) {
+            Transaction owner = e.getValue();
+            if (owner == tx) {
+                continue;
+            }
+
+            // the newest version the writer did not create (none: it inserted the row)
+            RowVersion before = chains.get(e.getKey());
+            while (before != null && before.createdBy == owner.getId()) {
+                before = before.older;
+            }
+            if (before == null || !matches.test(before.data)) {
+                continue;
+            }
+
+            if (picked == null) {
+                picked = new HashSet<>();
+                // candidates may be a superset: only a matching one stands in for the row
+                for (Row row : candidates) {
+                    if (matches.test(row)) {
+                        picked.add(row.get("id"));
+                    }
+                }
+                rows = new ArrayList<>(candidates);
+            }
+            if (picked.add(e.getKey())) {
+                rows.add(before.data);
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public void unlock(Transaction tx, Object id) {
+        writers.remove(id, tx);
+    }
+
+    /**
+     * Writes the final version {@code tx} made of row {@code id} to the
+     * table file and gives up the unique values it replaced. Runs after the
+     * COMMIT record is durable.
+     */
+    @Override
+    public void commit(Transaction tx, Object id) {
+        tableLock.readLock().lock();
+        Lock rowLock = rowLock(id);
+        rowLock.lock();
+        try {
+            RowVersion head = chains.get(id);
+            if (head == null) {
+                return;
+            }
+
+            if (head.deletedBy == tx.getId()) {
+                unstore(id);
+                releaseSuperseded(tx, id, head, null);
+            } else if (head.createdBy == tx.getId()) {
+                store(id, head.data);
+                releaseSuperseded(tx, id, head, head.data);
+            }
+        } finally {
+            rowLock.unlock();
+            tableLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Releases the unique values held by the versions {@code tx} created
+     * and the one it started from, except those of {@code kept}.
+     */
+    private void releaseSuperseded(
+            Transaction tx,
+            Object id,
+            RowVersion head,
+            Map<String, Object> kept
+    ) {
+        for (RowVersion v = head; v != null; v = v.older) {
+            for (Column c : uniqueColumns) {
+                Object value = v.data.get(c.name());
+                if (value != null && (kept == null || !value.equals(kept.get(c.name())))) {
+                    releaseKey(c, value, id);
+                }
+            }
+
+            if (v.createdBy != tx.getId()) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Undoes the latest change {@code tx} made to row {@code id}: revives
+     * a row it deleted, or drops the version it added. Nothing of an open
+     * transaction is in the table file, so only memory changes.
+     */
+    @Override
+    public void rollback(Transaction tx, Object id, boolean compensate) {
+        tableLock.readLock().lock();
+        Lock rowLock = rowLock(id);
+        rowLock.lock();
+        try {
+            touchColumnar(id);
+            RowVersion head = chains.get(id);
+
+            if (head != null && head.deletedBy == tx.getId()) {
+                // undo a delete
+                head.deletedBy = RowVersion.LIVE;
+                statistics.add(head.data);
+
+                if (compensate) {
+                    writeWal(tx, WalRecord.Type.INSERT, head.data);
+                }
+
+            } else if (head != null && head.createdBy == tx.getId()) {
+                // undo an insert or update
+                RowVersion older = head.older;
+
+                if (older == null) {
+                    chains.remove(id, head);
+                } else {
+                    chains.put(id, older);
+                    if (older.replaced && older.deletedBy == tx.getId()) {
+                        older.deletedBy = RowVersion.LIVE;
+                        older.replaced = false;
+                    }
+                }
+                dropVersion(tx, id, head, older);
+
+                statistics.remove(head.data);
+                if (older != null && older.deletedBy == RowVersion.LIVE) {
+                    statistics.add(older.data);
+                }
+
+                if (compensate) {
+                    if (older != null && older.deletedBy == RowVersion.LIVE) {
+                        writeWal(tx, WalRecord.Type.UPDATE, older.data);
+                    } else {
+                        writeWal(tx, WalRecord.Type.DELETE, head.data);
+                    }
+                }
+            }
+        } finally {
+            rowLock.unlock();
+            tableLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Forgets a version {@code tx} created: its index entries for keys the
+     * rest of the chain does not hold, and unique values no longer held by
+     * the versions from {@code older} down to the one {@code tx} started
+     * from.
+     */
+    private void dropVersion(Transaction tx, Object id, RowVersion dropped, RowVersion older) {
+        for (Index index : indexes.values()) {
+            Object key = dropped.data.get(index.column());
+            if (!chainHasKey(older, index.column(), key)) {
+                index.remove(key, id);
+            }
+        }
+
+        for (Column c : uniqueColumns) {
+            Object value = dropped.data.get(c.name());
+            if (value != null && !heldByTransaction(tx, older, c.name(), value)) {
+                uniqueKeys.get(c.name()).remove(value, id);
+            }
+        }
+    }
+
+    private static boolean heldByTransaction(
+            Transaction tx,
+            RowVersion chain,
+            String column,
+            Object value
+    ) {
+        for (RowVersion v = chain; v != null; v = v.older) {
+            boolean live = v.deletedBy == RowVersion.LIVE || v.deletedBy == tx.getId();
+
+            if (live && value.equals(v.data.get(column))) {
+                return true;
+            }
+            if (v.createdBy != tx.getId()) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /* =========================
+       HEAP
+       ========================= */
+
+    /** Writes {@code row} to its slot, or to a new one. */
+    private void store(Object id, Row row) {
+        try {
+            byte[] data = encode(row);
+            RecordId rid = locations.get(id);
+
+            if (rid == null) {
+                locations.put(id, heap.insert(data));
+            } else {
+                // 🔑 rewrite only this row's page
+                heap.update(rid, data);
+            }
         } catch (IOException e) {
-            throw new RuntimeException(
-                    "Failed to write temp heap file for table " + name, e
+            throw new IllegalStateException(
+                    "Failed to write row to table " + name, e
             );
         }
+    }
+
+    /** Frees the slot of row {@code id}, if it has one. */
+    private void unstore(Object id) {
+        RecordId rid = locations.remove(id);
+        if (rid == null) {
+            return;
+        }
 
+        // 🔑 tombstone only this row's slot
         try {
-            // 3️⃣ ATOMIC replace
-            Files.move(
-                    temp,
-                    original,
-                    StandardCopyOption.REPLACE_EXISTING,
-                    StandardCopyOption.ATOMIC_MOVE
+            heap.delete(rid);
+        } catch (IOException e) {
+            throw new IllegalStateException(
+                    "Failed to delete row from table " + name, e
             );
+        }
+    }
+
+    /* =========================
+       DURABILITY
+       ========================= */
+
+    /**
+     * Waits for the log records of this call to reach disk. Runs after
+     * every lock is released so concurrent writers can share one fsync.
+     */
+    private void awaitDurable() {
+        try {
+            database.wal().awaitDurable();
+        } catch (IOException e) {
+            throw new IllegalStateException(
+                    "Failed to sync WAL for table " + name, e
+            );
+        }
+    }
+
+    /**
+     * Writes this table's dirty pages to its file. Writers log before they
+     * touch a page and hold the table lock shared while doing both, so
+     * with the lock held exclusively every change on the pages is already
+     * in the log, and forcing the log first keeps the write-ahead rule.
+     */
+    public void flush() {
+        tableLock.writeLock().lock();
+        try {
+            database.wal().force();
+            heap.flush();
         } catch (IOException e) {
-            throw new RuntimeException(
-                    "Failed to atomically replace heap file for table " + name, e
+            throw new IllegalStateException(
+                    "Failed to flush table " + name, e
             );
+        } finally {
+            tableLock.writeLock().unlock();
         }
     }
 
@@ -370,52 +1309,752 @@ public class PersistentTable extends Table {
 
     public void deleteFiles() {
         heap.delete();
-        wal.delete();
+    }
+
+    public void close() {
+        try {
+            heap.close();
+        } catch (IOException e) {
+            throw new IllegalStateException(
+                    "Failed to close table " + name, e
+            );
+        }
+    }
+
+    /* =========================
+       SECONDARY INDEXES
+       ========================= */
+
+    /**
+     * Builds an index on {@code column} from the current rows. Called for
+     * CREATE INDEX and, after loading, for every index in the catalog.
+     */
+    public void createIndex(String indexName, String column) {
+        if (columns.stream().noneMatch(c -> c.name().equals(column))) {
+            throw new IllegalArgumentException(
+                    "Column does not exist: " + name + "." + column
+            );
+        }
+
+        tableLock.writeLock().lock();
+        try {
+            Index existing = indexes.get(column);
+            if (existing != null && !existing.implicit()) {
+                throw new IllegalStateException(
+                        "Column already indexed: " + name + "." + column
+                );
+            }
+
+            // a named index takes over from an implicit one on the same column
+            indexes.put(column, build(new Index(indexName, column)));
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Makes {@code column} answer {@link #lookupByColumn} without a scan,
+     * adding an implicit index unless it is a key or already indexed.
+     */
+    public void ensureIndex(String column) {
+        tableLock.writeLock().lock();
+        try {
+            if (isUniqueKey(column) || indexes.containsKey(column)) {
+                return;
+            }
+            indexes.put(column, build(new Index(name + "_" + column + "_auto", column, true)));
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    /** (Re)fills {@code index} with one entry per distinct key of each chain. */
+    private Index build(Index index) {
+        index.clear();
+
+        forEachChain((id, chain) -> {
+            Set<Object> keys = new HashSet<>();
+            for (RowVersion v = chain; v != null; v = v.older) {
+                Object key = v.data.get(index.column());
+                if (keys.add(key)) {
+                    index.put(key, id);
+                }
+            }
+        });
+        return index;
+    }
+
+    @Override
+    public boolean hasIndex(String column) {
+        return indexes.containsKey(column);
+    }
+
+    /* =========================
+       VERSION BOOKKEEPING
+       ========================= */
+
+    /** The row as stored: laid out by this table's {@link RowLayout}. */
+    private Row freeze(Map<String, Object> row) {
+        return Row.of(layout, row);
+    }
+
+    private Lock rowLock(Object id) {
+        return rowLocks[Math.floorMod(Objects.hashCode(id), rowLocks.length)];
+    }
+
+    /**
+     * Makes {@code data} the newest version of row {@code id}, replacing
+     * the live head if there is one. Index entries are added for keys the
+     * chain does not hold yet; entries of replaced versions stay until the
+     * versions are pruned, so older snapshots still find them. Caller
+     * holds the row's stripe.
+     */
+    private void install(Object id, Row data, long txId) {
+        touchColumnar(id);
+
+        RowVersion head = chains.get(id);
+        RowVersion version = new RowVersion(data, txId, head);
+
+        for (Index index : indexes.values()) {
+            Object key = data.get(index.column());
+            if (!chainHasKey(head, index.column(), key)) {
+                index.put(key, id);
+            }
+        }
+
+        chains.put(id, version);
+
+        if (head != null && head.deletedBy == RowVersion.LIVE) {
+            head.deletedBy = txId;
+            head.replaced = true;
+        }
+
+        prune(id, database.transactions().horizon());
+    }
+
+    /* =========================
+       PAGED MODE
+       ========================= */
+
+    /**
+     * The version chain of row {@code id}, or null. In paged mode a row
+     * that is not resident is read from the table file as a single
+     * version visible to everyone; that image is only ever written while
+     * the row is resident, so if it is not resident after the read either,
+     * the image is one every snapshot sees.
+     */
+    private RowVersion chainOf(Object id) {
+        RowVersion chain = chains.get(id);
+        if (chain != null || !paged) {
+            return chain;
+        }
+
+        RowVersion stored = fetch(id);
+        RowVersion resident = chains.get(id);
+        return resident != null ? resident : stored;
+    }
+
+    /** Like {@link #chainOf}, keeping the row in memory. Caller holds its stripe. */
+    private RowVersion residentChain(Object id) {
+        RowVersion chain = chains.get(id);
+        if (chain == null && paged) {
+            chain = fetch(id);
+            if (chain != null) {
+                chains.put(id, chain);
+            }
+        }
+        return chain;
+    }
+
+    /** Reads row {@code id} from the table file, or null if it has no slot. */
+    private RowVersion fetch(Object id) {
+        RecordId rid = locations.get(id);
+        if (rid == null) {
+            return null;
+        }
+
+        try {
+            Row row = decode(ByteBuffer.wrap(heap.read(rid)));
+
+            // the slot may have been freed (and reused) since the lookup
+            return Objects.equals(row.get("id"), id)
+                    ? new RowVersion(row, 0, null)
+                    : null;
+        } catch (IllegalStateException e) {
+            return null;
+        } catch (IOException e) {
+            throw new IllegalStateException(
+                    "Failed to read row " + id + " of table " + name, e
+            );
+        }
+    }
+
+    /**
+     * Visits the chain of every row. Resident rows come first, in id
+     * order; in paged mode the rows of the table file follow, each as its
+     * resident chain if it became resident meanwhile.
+     *
+     * 🔑 Only the ids of the resident rows are remembered, to skip them in
+     * the file: the file scan itself meets each row once, since a moved
+     * row's body is skipped and only its home slot's forward pointer is
+     * followed (see {@link SlottedHeapFile#scanMapped}).
+     */
+    private void forEachChain(BiConsumer<Object, RowVersion> action) {
+        if (!paged) {
+            chains.forEach(action);
+            return;
+        }
+
+        Set<Object> reported = new HashSet<>();
+        chains.forEach((id, chain) -> {
+            reported.add(id);
+            action.accept(id, chain);
+        });
+
+        try {
+            heap.scanMapped((rid, data) -> {
+                Row row = decode(data);
+                Object id = row.get("id");
+
+                if (!reported.contains(id)) {
+                    RowVersion resident = chains.get(id);
+                    action.accept(id, resident != null
+                            ? resident
+                            : new RowVersion(row, 0, null));
+                }
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException(
+                    "Failed to scan table " + name, e
+            );
+        }
+    }
+
+    private static boolean chainHasKey(RowVersion chain, String column, Object key) {
+        for (RowVersion v = chain; v != null; v = v.older) {
+            if (Objects.equals(v.data.get(column), key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops the versions of row {@code id} that no running or future
+     * snapshot can see: everything older than the newest version created
+     * below {@code horizon}, and the whole chain once its deletion is
+     * below it too. Caller holds the row's stripe.
+     */
+    private void prune(Object id, long horizon) {
+        RowVersion head = chains.get(id);
+
+        RowVersion base = head;
+        while (base != null && base.createdBy >= horizon) {
+            base = base.older;
+        }
+        if (base == null) {
+            return;
+        }
+
+        List<RowVersion> dropped = new ArrayList<>();
+        for (RowVersion v = base.older; v != null; v = v.older) {
+            dropped.add(v);
+        }
+        base.older = null;
+
+        RowVersion retained = head;
+        if (base == head
+                && head.deletedBy != RowVersion.LIVE
+                && head.deletedBy < horizon) {
+            chains.remove(id, head);
+            dropped.add(head);
+            retained = null;
+        }
+
+        for (Index index : indexes.values()) {
+            for (RowVersion v : dropped) {
+                Object key = v.data.get(index.column());
+                if (!chainHasKey(retained, index.column(), key)) {
+                    index.remove(key, id);
+                }
+            }
+        }
+
+        for (Column c : uniqueColumns) {
+            for (RowVersion v : dropped) {
+                Object value = v.data.get(c.name());
+                if (value != null && !chainHasKey(retained, c.name(), value)) {
+                    forgetReleasedKey(c.name(), value, id);
+                }
+            }
+        }
+
+        // 📸 everyone sees the file image now: read it back when needed
+        if (paged
+                && retained != null
+                && head.older == null
+                && head.createdBy < horizon
+                && head.deletedBy == RowVersion.LIVE
+                && locations.containsKey(id)
+                && !writers.containsKey(id)) {
+            chains.remove(id, head);
+        }
+    }
+
+    /** Row versions held in memory, current and old; for tests. */
+    int retainedVersions() {
+        int versions = 0;
+        for (RowVersion head : chains.values()) {
+            for (RowVersion v = head; v != null; v = v.older) {
+                versions++;
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Prunes every row. Run at checkpoints so rows that are not written
+     * again still give back their old versions.
+     */
+    public void vacuum() {
+        long horizon = database.transactions().horizon();
+
+        tableLock.readLock().lock();
+        try {
+            for (Object id : chains.keySet()) {
+                Lock rowLock = rowLock(id);
+                rowLock.lock();
+                try {
+                    prune(id, horizon);
+                } finally {
+                    rowLock.unlock();
+                }
+            }
+        } finally {
+            tableLock.readLock().unlock();
+        }
+
+        // distinct counts and min / max only shrink on a rebuild
+        if (statistics.stale()) {
+            tableLock.writeLock().lock();
+            try {
+                rebuildStatistics();
+            } finally {
+                tableLock.writeLock().unlock();
+            }
+        }
+
+        // a scan would rebuild it anyway; until then give back the memory
+        ColumnarSegment segment = columnar;
+        if (segment != null && segment.sealed() && tooStale(segment)) {
+            columnar = null;
+        }
     }
 
     /* =========================
-       INDEX LOOKUP (JOIN)
+       COLUMNAR SCANS
        ========================= */
 
+    /**
+     * Rows as of {@code snapshot} satisfying every term of {@code where}:
+     * the matches of the columnar segment for the comparison and BETWEEN
+     * terms, checked against the other terms, except rows changed since
+     * it was built, which are checked through their chains. Empty when
+     * columnar scans are off or no term can use the segment.
+     *
+     * 🔑 With {@code columns} given, rows from the segment read only those
+     * and the WHERE columns; a column store pays per column read.
+     */
     @Override
-    public Optional<List<Map<String, Object>>> lookupByColumn(
+    public Optional<List<Row>> filter(List<Condition> where, Set<String> columns, Snapshot snapshot) {
+        List<Comparison> vectorized = new ArrayList<>();
+        List<Condition> rest = new ArrayList<>();
+        for (Condition term : where) {
+            if (term instanceof Comparison c) {
+                vectorized.add(c);
+            } else if (term instanceof Condition.Between b && !b.negated()) {
+                vectorized.addAll(b.bounds());
+            } else {
+                rest.add(term);
+            }
+        }
+
+        ColumnarSegment segment = vectorized.isEmpty() ? null : columnar();
+        if (segment == null) {
+            return Optional.empty();
+        }
+
+        boolean[] read = columns == null ? null : columnsToRead(columns, rest);
+
+        // a change touched after this copy is newer than the snapshot
+        Set<Object> touched = new HashSet<>(segment.touched());
+        long[] matches = segment.filter(vectorized);
+
+        List<Row> result = new ArrayList<>();
+        for (int w = 0; w < matches.length; w++) {
+            for (long bits = matches[w]; bits != 0; bits &= bits - 1) {
+                int position = (w << 6) + Long.numberOfTrailingZeros(bits);
+
+                if (!touched.contains(segment.id(position))) {
+                    Row row = new Row(layout, segment.values(position, read), null);
+                    if (rest.stream().allMatch(c -> c.test(row))) {
+                        result.add(row);
+                    }
+                }
+            }
+        }
+
+        if (touched.isEmpty()) {
+            return Optional.of(result);
+        }
+
+        for (Object id : touched) {
+            RowVersion chain = chainOf(id);
+            Row row = chain == null ? null : visible(chain, snapshot);
+
+            if (row != null && where.stream().allMatch(c -> c.test(row))) {
+                result.add(row);
+            }
+        }
+        result.sort((a, b) -> BPlusTree.compareKeys(a.get("id"), b.get("id")));
+        return Optional.of(result);
+    }
+
+    /** Layout positions of {@code id}, {@code columns} and the columns of {@code terms}. */
+    private boolean[] columnsToRead(Set<String> columns, List<Condition> terms) {
+        Set<String> names = new HashSet<>(columns);
+        names.add("id");
+        terms.forEach(term -> names.addAll(term.columns()));
+
+        boolean[] read = new boolean[layout.size()];
+        for (String name : names) {
+            int position = layout.position(name);
+            if (position >= 0) {
+                read[position] = true;
+            }
+        }
+        return read;
+    }
+
+    /** The columnar segment, (re)built when missing or too stale; null when off. */
+    private ColumnarSegment columnar() {
+        if (!columnarScans) {
+            return null;
+        }
+
+        ColumnarSegment segment = columnar;
+        if (segment != null && segment.sealed() && !tooStale(segment)) {
+            return segment;
+        }
+
+        synchronized (columnarBuild) {
+            segment = columnar;
+            if (segment == null || !segment.sealed() || tooStale(segment)) {
+                segment = buildColumnar();
+            }
+            return segment;
+        }
+    }
+
+    private static boolean tooStale(ColumnarSegment segment) {
+        return segment.touched().size() > Math.max(COLUMNAR_MIN_SLACK, segment.size() / 8);
+    }
+
+    /**
+     * Copies every row whose newest version all snapshots see; other rows
+     * are touched from the start. The new segment is published before the
+     * copy so writers touch it from then on, and every stripe is taken
+     * once so writers that still saw the old one have finished.
+     */
+    private ColumnarSegment buildColumnar() {
+        ColumnarSegment segment = new ColumnarSegment(layout.names(), intColumns);
+        columnar = segment;
+
+        for (Lock rowLock : rowLocks) {
+            rowLock.lock();
+            rowLock.unlock();
+        }
+
+        long horizon = database.transactions().horizon();
+
+        forEachChain((id, chain) -> {
+            // older versions behind such a head are invisible to everyone
+            boolean settled = chain.createdBy < horizon
+                    && chain.deletedBy == RowVersion.LIVE
+                    && chain.data.extras() == null;
+
+            if (!settled || !segment.add(chain.data.valueArray())) {
+                segment.touch(id);
+            }
+        });
+
+        segment.seal();
+        return segment;
+    }
+
+    /** Marks row {@code id} changed for the columnar segment. Caller holds its stripe. */
+    private void touchColumnar(Object id) {
+        ColumnarSegment segment = columnar;
+        if (segment != null) {
+            segment.touch(id);
+        }
+    }
+
+    /* =========================
+       UNIQUE KEYS
+       ========================= */
+
+    /** Unique columns that hold a value in {@code row}; NULLs never collide. */
+    private List<Column> keyedColumns(Map<String, Object> row) {
+        return uniqueColumns.stream()
+                .filter(c -> row.get(c.name()) != null)
+                .toList();
+    }
+
+    /**
+     * Claims the unique values of {@code next} that differ from
+     * {@code previous} for row {@code id}, all or nothing, and returns the
+     * columns claimed. The values the row gives up stay claimed until the
+     * change is installed (see {@link #releaseReplacedKeys}).
+     */
+    private List<Column> claimKeys(
+            Object id,
+            Map<String, Object> previous,
+            Map<String, Object> next
+    ) {
+        List<Column> claimed = new ArrayList<>();
+
+        for (Column c : keyedColumns(next)) {
+            Object value = next.get(c.name());
+
+            if (previous != null && Objects.equals(previous.get(c.name()), value)) {
+                continue;
+            }
+
+            Object owner = uniqueKeys.get(c.name()).putIfAbsent(value, id);
+
+            if (owner != null && !owner.equals(id)) {
+                releaseKeys(id, next, claimed);
+                throw new IllegalStateException(
+                        "Unique constraint violation on " + c.name() + " = " + value
+                );
+            }
+            claimed.add(c);
+        }
+
+        return claimed;
+    }
+
+    private void releaseReplacedKeys(
+            Object id,
+            Map<String, Object> previous,
+            Map<String, Object> next
+    ) {
+        for (Column c : uniqueColumns) {
+            Object old = previous.get(c.name());
+            if (old != null && !Objects.equals(old, next.get(c.name()))) {
+                releaseKey(c, old, id);
+            }
+        }
+    }
+
+    /**
+     * Gives up row {@code id}'s claim on {@code value}. 📸 Older versions
+     * of the row may still hold it for a snapshot, so the row is
+     * remembered as a former holder until {@link #prune} drops them.
+     */
+    private void releaseKey(Column c, Object value, Object id) {
+        if (uniqueKeys.get(c.name()).remove(value, id)) {
+            releasedKeys.get(c.name())
+                    .computeIfAbsent(value, k -> ConcurrentHashMap.newKeySet())
+                    .add(id);
+        }
+    }
+
+    private void forgetReleasedKey(String column, Object value, Object id) {
+        releasedKeys.get(column).computeIfPresent(value, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private void releaseKeys(Object id, Map<String, Object> row, List<Column> columns) {
+        for (Column c : columns) {
+            uniqueKeys.get(c.name()).remove(row.get(c.name()), id);
+        }
+    }
+
+    /* =========================
+       INDEX LOOKUP
+       ========================= */
+
+    /**
+     * Rows as of {@code snapshot} whose {@code column} equals
+     * {@code value}, through the key maps or a secondary index when there
+     * is one.
+     *
+     * Unique keys map to the row holding the value now. A snapshot from
+     * before the value moved (or was deleted) does not see that row's
+     * value, so the rows that gave it up are tried next: at most one of
+     * them holds it in a version the snapshot sees.
+     */
+    private List<Row> matchingRows(
+            String column,
+            Object value,
+            Snapshot snapshot
+    ) {
+        if (value == null) {
+            return List.of();
+        }
+
+        if ("id".equals(column)) {
+            return versionsOf(List.of(value), column, value, snapshot);
+        }
+
+        Map<Object, Object> keys = uniqueKeys.get(column);
+        if (keys != null) {
+            Object id = keys.get(value);
+            List<Row> current = id == null ? List.of() : versionsOf(List.of(id), column, value, snapshot);
+            if (!current.isEmpty()) {
+                return current;
+            }
+
+            Set<Object> former = releasedKeys.get(column).get(value);
+            if (former == null) {
+                return current;
+            }
+            return versionsOf(List.copyOf(former), column, value, snapshot);
+        }
+
+        Index index = indexes.get(column);
+        if (index != null) {
+            return versionsOf(index.get(value), column, value, snapshot);
+        }
+
+        return selectAll(snapshot).stream()
+                .filter(r -> Objects.equals(r.get(column), value))
+                .toList();
+    }
+
+    /** Visible versions of {@code ids} that still have {@code column = value}. */
+    private List<Row> versionsOf(
+            List<Object> ids,
+            String column,
+            Object value,
+            Snapshot snapshot
+    ) {
+        List<Row> result = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            RowVersion chain = chainOf(id);
+            Row row = chain == null ? null : visible(chain, snapshot);
+
+            if (row != null && Objects.equals(row.get(column), value)) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<List<Row>> lookupByColumn(
             String column,
             Object value
     ) {
-        if (!uniqueIndexes.containsKey(column)) {
+        return lookupByColumn(column, value, Snapshot.LATEST);
+    }
+
+    @Override
+    public Optional<List<Row>> lookupByColumn(
+            String column,
+            Object value,
+            Snapshot snapshot
+    ) {
+        if (!isUniqueKey(column) && !indexes.containsKey(column)) {
             return Optional.empty();
         }
+        return Optional.of(matchingRows(column, value, snapshot));
+    }
 
-        if (!uniqueIndexes.get(column).contains(value)) {
-            return Optional.of(List.of());
-        }
+    @Override
+    public boolean isUniqueKey(String column) {
+        return "id".equals(column) || uniqueKeys.containsKey(column);
+    }
 
-        return Optional.of(
-                rows.stream()
-                        .filter(r -> Objects.equals(r.get(column), value))
-                        .toList()
-        );
+    /** Resident rows are kept in id order; paged scans follow the file. */
+    @Override
+    public boolean scansInOrderOf(String column) {
+        return "id".equals(column) && !paged;
     }
 
-    public void resetData() {
-        rows.clear();
-        uniqueIndexes.values().forEach(Set::clear);
+    @Override
+    public TableStatistics statistics() {
+        return statistics;
     }
 
+    @Override
+    public Optional<List<Row>> rangeByColumn(
+            String column,
+            Object lo, boolean loInclusive,
+            Object hi, boolean hiInclusive
+    ) {
+        return rangeByColumn(column, lo, loInclusive, hi, hiInclusive, Snapshot.LATEST);
+    }
 
-    private void rebuildUniqueIndexes() {
-        uniqueIndexes.values().forEach(Set::clear);
+    @Override
+    public Optional<List<Row>> rangeByColumn(
+            String column,
+            Object lo, boolean loInclusive,
+            Object hi, boolean hiInclusive,
+            Snapshot snapshot
+    ) {
+        Index index = indexes.get(column);
+        if (index == null) {
+            return Optional.empty();
+        }
 
-        for (Map<String, Object> row : rows) {
-            for (Column c : uniqueColumns) {
-                Object val = row.get(c.name());
-                if (!uniqueIndexes.get(c.name()).add(val)) {
-                    throw new IllegalStateException(
-                            "Unique constraint violated during rebuild on column " + c.name()
-                    );
-                }
+        // an id may sit under several keys (one per retained version):
+        // 🔑 a row is taken under the key its visible version has, so the
+        //    result stays in key order
+        List<Object> keys = new ArrayList<>();
+        List<Object> ids = new ArrayList<>();
+        index.rangeWithKeys(lo, loInclusive, hi, hiInclusive, (key, id) -> {
+            keys.add(key);
+            ids.add(id);
+        });
+
+        List<Row> result = new ArrayList<>(ids.size());
+        Set<Object> taken = new HashSet<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Object id = ids.get(i);
+            RowVersion chain = chainOf(id);
+            Row row = chain == null ? null : visible(chain, snapshot);
+
+            if (row != null
+                    && Objects.equals(row.get(column), keys.get(i))
+                    && taken.add(id)) {
+                result.add(row);
             }
         }
+        return Optional.of(result);
+    }
+
+    /** Number of rows, each counted once whatever its versions. */
+    int rowCount() {
+        return paged ? locations.size() : chains.size();
+    }
+
+    public void resetData() {
+        tableLock.writeLock().lock();
+        try {
+            columnar = null;
+            chains.clear();
+            locations.clear();
+            indexes.values().forEach(Index::clear);
+            uniqueKeys.values().forEach(Map::clear);
+            releasedKeys.values().forEach(Map::clear);
+        } finally {
+            tableLock.writeLock().unlock();
+        }
     }
 
 }
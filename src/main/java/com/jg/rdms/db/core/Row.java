@@ -0,0 +1,203 @@
+package com.jg.rdms.db.core;
+
+import java.util.*;
+
+/**
+ * Immutable table row: values in an array by column position of a shared
+ * {@link RowLayout}, instead of a hash map with its own keys per row.
+ * Columns a table does not declare (INSERT does not reject them) are kept
+ * in a small side map.
+ *
+ * A row is also a read-only {@code Map} from column name to value, which
+ * is what the REPL and the web layer get: every layout column is a key,
+ * {@code null} when the column is NULL.
+ */
+public final class Row extends AbstractMap<String, Object> {
+
+    private final RowLayout layout;
+    private final Object[] values;
+    private final Map<String, Object> extras; // null when there are none
+
+    Row(RowLayout layout, Object[] values, Map<String, Object> extras) {
+        this.layout = layout;
+        this.values = values;
+        this.extras = extras == null || extras.isEmpty() ? null : extras;
+    }
+
+    /** Lays out {@code data} by {@code layout}; NULL entries are dropped from extras. */
+    public static Row of(RowLayout layout, Map<String, Object> data) {
+        if (data instanceof Row row && row.layout == layout) {
+            return row;
+        }
+
+        Object[] values = new Object[layout.size()];
+        Map<String, Object> extras = null;
+
+        for (var e : data.entrySet()) {
+            int position = layout.position(e.getKey());
+
+            if (position >= 0) {
+                values[position] = e.getValue();
+            } else if (e.getValue() != null) {
+                if (extras == null) {
+                    extras = new HashMap<>(4);
+                }
+                extras.put(e.getKey(), e.getValue());
+            }
+        }
+        return new Row(layout, values, extras);
+    }
+
+    /** A row of {@code layout} with every column NULL. */
+    public static Row empty(RowLayout layout) {
+        return new Row(layout, new Object[layout.size()], null);
+    }
+
+    public RowLayout layout() {
+        return layout;
+    }
+
+    /** Value of the column at {@code position} of the layout. */
+    public Object value(int position) {
+        return values[position];
+    }
+
+    Object[] valueArray() {
+        return values;
+    }
+
+    Map<String, Object> extras() {
+        return extras;
+    }
+
+    /** A copy with {@code changes} applied. */
+    public Row with(Map<String, Object> changes) {
+        Object[] next = values.clone();
+        Map<String, Object> nextExtras = extras == null ? null : new HashMap<>(extras);
+
+        for (var e : changes.entrySet()) {
+            int position = layout.position(e.getKey());
+
+            if (position >= 0) {
+                next[position] = e.getValue();
+            } else {
+                if (nextExtras == null) {
+                    nextExtras = new HashMap<>(4);
+                }
+                if (e.getValue() == null) {
+                    nextExtras.remove(e.getKey());
+                } else {
+                    nextExtras.put(e.getKey(), e.getValue());
+                }
+            }
+        }
+        return new Row(layout, next, nextExtras);
+    }
+
+    /**
+     * This row and {@code right} side by side in {@code joined} (see
+     * {@link RowLayout#join}); a missing {@code right} leaves its columns
+     * NULL. Extras keep their table prefix.
+     */
+    public Row join(String leftName, RowLayout joined, String rightName, Row right) {
+        Object[] both = new Object[joined.size()];
+        System.arraycopy(values, 0, both, 0, values.length);
+
+        if (right != null) {
+            System.arraycopy(right.values, 0, both, values.length, right.values.length);
+        }
+
+        // 🔑 only undeclared columns need a map and a qualified name per row
+        Map<String, Object> bothExtras = null;
+        bothExtras = qualify(bothExtras, leftName, extras);
+        bothExtras = qualify(bothExtras, rightName, right == null ? null : right.extras);
+
+        return new Row(joined, both, bothExtras);
+    }
+
+    private static Map<String, Object> qualify(Map<String, Object> into, String table, Map<String, Object> extras) {
+        if (extras == null) {
+            return into;
+        }
+        Map<String, Object> qualified = into == null ? new HashMap<>(4) : into;
+        extras.forEach((k, v) -> qualified.put(table + "." + k, v));
+        return qualified;
+    }
+
+    /**
+     * The row in {@code projected}: value {@code i} is taken from position
+     * {@code from[i]} of this row, or looked up by name when that is -1
+     * (a column only the extras may have).
+     */
+    public Row project(RowLayout projected, int[] from) {
+        Object[] picked = new Object[from.length];
+        for (int i = 0; i < from.length; i++) {
+            picked[i] = from[i] >= 0 ? values[from[i]] : get(projected.name(i));
+        }
+        return new Row(projected, picked, null);
+    }
+
+    /* =========================
+       Map view
+       ========================= */
+
+    @Override
+    public Object get(Object key) {
+        if (!(key instanceof String column)) {
+            return null;
+        }
+        int position = layout.position(column);
+        if (position >= 0) {
+            return values[position];
+        }
+        return extras == null ? null : extras.get(column);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof String column)) {
+            return false;
+        }
+        return layout.position(column) >= 0 || (extras != null && extras.containsKey(column));
+    }
+
+    @Override
+    public int size() {
+        return values.length + (extras == null ? 0 : extras.size());
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return Row.this.size();
+            }
+
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                Iterator<Entry<String, Object>> more = extras == null
+                        ? Collections.emptyIterator()
+                        : Collections.unmodifiableMap(extras).entrySet().iterator();
+
+                return new Iterator<>() {
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < values.length || more.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (next < values.length) {
+                            int position = next++;
+                            return new SimpleImmutableEntry<>(layout.name(position), values[position]);
+                        }
+                        return more.next();
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,75 @@
+package com.jg.rdms.db.core;
+
+import java.util.*;
+
+/**
+ * Column names of a {@link Row} by position. One layout is shared by every
+ * row of a table (and of a join result), so a row only carries its values.
+ */
+public final class RowLayout {
+
+    private final String[] names;
+    private final Map<String, Integer> positions;
+
+    private RowLayout(String[] names) {
+        this.names = names;
+        this.positions = new HashMap<>(names.length * 2);
+
+        for (int i = 0; i < names.length; i++) {
+            if (positions.putIfAbsent(names[i], i) != null) {
+                throw new IllegalArgumentException("Duplicate column: " + names[i]);
+            }
+        }
+    }
+
+    public static RowLayout of(List<String> names) {
+        return new RowLayout(names.toArray(String[]::new));
+    }
+
+    /**
+     * Storage layout of a table: its columns in declaration order, with
+     * {@code id} first when it is not declared (every row has one).
+     */
+    public static RowLayout forColumns(List<Column> columns) {
+        List<String> names = new ArrayList<>(columns.size() + 1);
+
+        if (columns.stream().noneMatch(c -> c.name().equals("id"))) {
+            names.add("id");
+        }
+        for (Column c : columns) {
+            names.add(c.name());
+        }
+        return of(names);
+    }
+
+    /** Layout of a joined row: both sides' columns, qualified by table. */
+    public static RowLayout join(String leftName, RowLayout left, String rightName, RowLayout right) {
+        String[] joined = new String[left.size() + right.size()];
+
+        for (int i = 0; i < left.size(); i++) {
+            joined[i] = leftName + "." + left.name(i);
+        }
+        for (int i = 0; i < right.size(); i++) {
+            joined[left.size() + i] = rightName + "." + right.name(i);
+        }
+        return new RowLayout(joined);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String name(int position) {
+        return names[position];
+    }
+
+    public List<String> names() {
+        return List.of(names);
+    }
+
+    /** Position of {@code column}, or -1 if the layout does not have it. */
+    public int position(String column) {
+        Integer position = positions.get(column);
+        return position == null ? -1 : position;
+    }
+}
@@ -0,0 +1,24 @@
+package com.jg.rdms.db.core;
+
+/**
+ * One version of a row, tagged with the transaction that created it and
+ * the one that replaced or deleted it. Versions of a row are chained
+ * newest first; a reader walks the chain to the newest version its
+ * snapshot can see.
+ */
+final class RowVersion {
+
+    static final long LIVE = -1;
+
+    final Row data;
+    final long createdBy;
+    volatile long deletedBy = LIVE;
+    volatile boolean replaced;   // deletedBy set by a newer version, not a DELETE
+    volatile RowVersion older;
+
+    RowVersion(Row data, long createdBy, RowVersion older) {
+        this.data = data;
+        this.createdBy = createdBy;
+        this.older = older;
+    }
+}
@@ -1,11 +1,20 @@
 package com.jg.rdms.db.core;
 
 import java.util.List;
+import java.util.Map;
 
 public final class SystemTables {
 
     public static final String TABLES = "__tables__";
 
+    /**
+     * Catalog rows describe either a column of a table or, when
+     * {@code index_name} is set, a secondary index on one of its columns.
+     */
+    public static boolean isIndexRow(Map<String, Object> row) {
+        return row.get("index_name") != null;
+    }
+
     public static List<Column> tablesSchema() {
         return List.of(
                 new Column(
@@ -64,6 +73,15 @@ public final class SystemTables {
                         false,
                         null,
                         null
+                ),
+                // 🔑 SECONDARY INDEX METADATA (set only on index rows)
+                new Column(
+                        "index_name",
+                        DataType.TEXT,
+                        false,
+                        false,
+                        null,
+                        null
                 )
         );
     }
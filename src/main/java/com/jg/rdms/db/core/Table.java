@@ -1,38 +1,147 @@
 package com.jg.rdms.db.core;
 
+import com.jg.rdms.db.sql.Condition;
+import com.jg.rdms.db.stats.TableStatistics;
+import com.jg.rdms.db.tx.Snapshot;
 import com.jg.rdms.db.tx.Transaction;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
 
 import java.util.*;
+import java.util.function.Consumer;
 
-@AllArgsConstructor
 @Setter
 @Getter
 public class Table {
     protected final String name;
     protected final List<Column> columns;
-    protected final List<Map<String, Object>> rows = new ArrayList<>();
+    protected final RowLayout layout;
+    protected final List<Row> rows = new ArrayList<>();
+
+    public Table(String name, List<Column> columns) {
+        this.name = name;
+        this.columns = columns;
+        this.layout = RowLayout.forColumns(columns);
+    }
 
     public void insert(Transaction tx, Map<String, Object> row) {
         throw new UnsupportedOperationException("Not persistent");
     }
 
 
-    public List<Map<String, Object>> selectAll() {
+    public List<Row> selectAll() {
         return rows;
     }
 
+    /** The rows as {@code snapshot} sees them; unversioned tables ignore it. */
+    public List<Row> selectAll(Snapshot snapshot) {
+        return selectAll();
+    }
+
+    /**
+     * Hands each row {@code snapshot} sees to {@code action}, in the order
+     * of {@link #selectAll(Snapshot)}, without collecting them first.
+     */
+    public void scan(Snapshot snapshot, Consumer<Row> action) {
+        selectAll(snapshot).forEach(action);
+    }
+
+    /**
+     * The rows of {@link #scan}, pulled one at a time: the table holds
+     * at most a small batch of them for the caller.
+     */
+    public Iterator<Row> iterator(Snapshot snapshot) {
+        return selectAll(snapshot).iterator();
+    }
+
+    /**
+     * The rows of {@link #scan} as a spliterator that splits into
+     * disjoint parts for threads to scan side by side, or empty if the
+     * table cannot split its scans.
+     */
+    public Optional<Spliterator<Row>> splitScan(Snapshot snapshot) {
+        return Optional.empty();
+    }
+
     public void deleteWhere(String column, Object value) {
         rows.removeIf(row -> value.equals(row.get(column)));
     }
 
-    public Optional<List<Map<String, Object>>> lookupByColumn(
+    public void deleteWhere(Transaction tx, String column, Object value) {
+        deleteWhere(column, value);
+    }
+
+    public Optional<List<Row>> lookupByColumn(
             String column,
             Object value
     ) {
         return Optional.empty();
     }
 
+    public Optional<List<Row>> lookupByColumn(
+            String column,
+            Object value,
+            Snapshot snapshot
+    ) {
+        return lookupByColumn(column, value);
+    }
+
+    /** Whether {@link #lookupByColumn} on {@code column} hits at most one row. */
+    public boolean isUniqueKey(String column) {
+        return false;
+    }
+
+    /** Whether {@code column} has a secondary index (lookups and ranges). */
+    public boolean hasIndex(String column) {
+        return false;
+    }
+
+    /** Whether {@link #selectAll} returns the rows ordered by {@code column}. */
+    public boolean scansInOrderOf(String column) {
+        return false;
+    }
+
+    /** Row count and column statistics for the planner. */
+    public TableStatistics statistics() {
+        return TableStatistics.of(layout.names(), rows);
+    }
+
+    /**
+     * Rows whose {@code column} lies between {@code lo} and {@code hi}
+     * ({@code null} = unbounded), or empty if the column is not indexed.
+     */
+    public Optional<List<Row>> rangeByColumn(
+            String column,
+            Object lo, boolean loInclusive,
+            Object hi, boolean hiInclusive
+    ) {
+        return Optional.empty();
+    }
+
+    public Optional<List<Row>> rangeByColumn(
+            String column,
+            Object lo, boolean loInclusive,
+            Object hi, boolean hiInclusive,
+            Snapshot snapshot
+    ) {
+        return rangeByColumn(column, lo, loInclusive, hi, hiInclusive);
+    }
+
+    /**
+     * Rows as of {@code snapshot} satisfying every term of {@code where},
+     * or empty if the table has no faster way than checking each row.
+     */
+    public Optional<List<Row>> filter(List<Condition> where, Snapshot snapshot) {
+        return filter(where, null, snapshot);
+    }
+
+    /**
+     * Like {@link #filter(List, Snapshot)}, for a caller that only reads
+     * {@code columns} (and the columns of {@code where}); the table may
+     * leave the other columns NULL. {@code null} means every column.
+     */
+    public Optional<List<Row>> filter(List<Condition> where, Set<String> columns, Snapshot snapshot) {
+        return Optional.empty();
+    }
+
 }
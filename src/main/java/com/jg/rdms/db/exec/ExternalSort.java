@@ -0,0 +1,229 @@
+package com.jg.rdms.db.exec;
+
+import com.jg.rdms.db.core.Row;
+import com.jg.rdms.db.core.RowLayout;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Sorts rows that need not fit in memory. Rows are buffered until their
+ * estimated size passes the memory budget; the buffer is then sorted and
+ * written to a run file. {@link #sorted()} merges the runs (at most
+ * {@link #MAX_FAN_IN} at a time, in several passes if needed) with what
+ * is still buffered.
+ *
+ * With a limit only the first {@code limit} rows of each run are kept, and
+ * a buffer that shrinks well below the budget that way stays in memory, so
+ * ORDER BY ... LIMIT n is a top-n in memory for small n.
+ *
+ * Runs are {@link SpillFile}s, deleted on {@link #close()}.
+ */
+public final class ExternalSort implements Closeable {
+
+    private static final int MAX_FAN_IN = 64;
+
+    private final RowLayout layout;
+    private final Comparator<Row> order;
+    private final long memoryBudget;
+    private final Path spillDir;
+    private final int limit;
+
+    private List<Row> buffer = new ArrayList<>();
+    private long buffered = 0;
+
+    private final List<SpillFile> runs = new ArrayList<>();
+    private final List<SpillFile.Reader> readers = new ArrayList<>();
+    private boolean sorted = false;
+
+    /**
+     * @param memoryBudget bytes of rows buffered before a run is spilled
+     * @param spillDir     where run files go, created if needed
+     * @param limit        rows wanted, or {@code -1} for all
+     */
+    public ExternalSort(
+            RowLayout layout,
+            Comparator<Row> order,
+            long memoryBudget,
+            Path spillDir,
+            int limit
+    ) {
+        this.layout = layout;
+        this.order = order;
+        this.memoryBudget = Math.max(1, memoryBudget);
+        this.spillDir = spillDir;
+        this.limit = limit < 0 ? Integer.MAX_VALUE : limit;
+    }
+
+    public void add(Row row) {
+        if (sorted) {
+            throw new IllegalStateException("Rows added after the sort");
+        }
+
+        buffer.add(row);
+        buffered += estimateSize(row);
+
+        if (buffered > memoryBudget) {
+            spill();
+        }
+    }
+
+    /** Runs written to disk so far. */
+    public int spilledRuns() {
+        return runs.size();
+    }
+
+    /* =========================
+       SPILL
+       ========================= */
+
+    private void spill() {
+        buffer.sort(order);
+
+        if (buffer.size() > limit) {
+            buffer = new ArrayList<>(buffer.subList(0, limit));
+            buffered = buffer.stream().mapToLong(ExternalSort::estimateSize).sum();
+
+            // 🔑 top-n: what is left fits comfortably, keep sorting in memory
+            if (buffered <= memoryBudget / 2) {
+                return;
+            }
+        }
+
+        runs.add(writeRun(buffer.iterator()));
+        buffer = new ArrayList<>();
+        buffered = 0;
+    }
+
+    private SpillFile writeRun(Iterator<Row> rows) {
+        SpillFile run = SpillFile.create(spillDir, "sort-");
+
+        for (int n = 0; n < limit && rows.hasNext(); n++) {
+            run.write(rows.next());
+        }
+        return run.finish();
+    }
+
+    /* =========================
+       MERGE
+       ========================= */
+
+    /** The rows in order (the first {@code limit} of them). Call once. */
+    public Iterator<Row> sorted() {
+        if (sorted) {
+            throw new IllegalStateException("Sort already consumed");
+        }
+        sorted = true;
+
+        buffer.sort(order);
+        if (runs.isEmpty()) {
+            return buffer.subList(0, Math.min(limit, buffer.size())).iterator();
+        }
+
+        if (!buffer.isEmpty()) {
+            runs.add(writeRun(buffer.iterator()));
+        }
+        buffer = List.of();
+
+        // 🔁 too many runs to open at once: merge them in groups first
+        while (runs.size() > MAX_FAN_IN) {
+            List<SpillFile> group = new ArrayList<>(runs.subList(0, MAX_FAN_IN));
+            runs.subList(0, MAX_FAN_IN).clear();
+
+            Iterator<Row> merged = merge(group);
+            runs.add(writeRun(merged));
+            closeReaders();
+            deleteAll(group);
+        }
+
+        return limited(merge(runs));
+    }
+
+    private Iterator<Row> merge(List<SpillFile> inputs) {
+        PriorityQueue<SpillFile.Reader> heads =
+                new PriorityQueue<>((a, b) -> order.compare(a.peek(), b.peek()));
+
+        for (SpillFile run : inputs) {
+            SpillFile.Reader reader = run.read(layout);
+            readers.add(reader);
+            if (reader.hasNext()) {
+                heads.add(reader);
+            }
+        }
+
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Row next() {
+                SpillFile.Reader smallest = heads.poll();
+                if (smallest == null) {
+                    throw new NoSuchElementException();
+                }
+
+                Row row = smallest.next();
+                if (smallest.hasNext()) {
+                    heads.add(smallest);
+                }
+                return row;
+            }
+        };
+    }
+
+    private Iterator<Row> limited(Iterator<Row> rows) {
+        return new Iterator<>() {
+            private int returned = 0;
+
+            @Override
+            public boolean hasNext() {
+                return returned < limit && rows.hasNext();
+            }
+
+            @Override
+            public Row next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                returned++;
+                return rows.next();
+            }
+        };
+    }
+
+    /* =========================
+       CLEANUP
+       ========================= */
+
+    private void closeReaders() {
+        readers.forEach(SpillFile.Reader::close);
+        readers.clear();
+    }
+
+    private static void deleteAll(List<SpillFile> files) {
+        files.forEach(SpillFile::delete);
+    }
+
+    @Override
+    public void close() {
+        closeReaders();
+        deleteAll(runs);
+        runs.clear();
+    }
+
+    /** Rough heap footprint of a row: the array plus boxed values. */
+    static long estimateSize(Row row) {
+        long size = 32 + 8L * row.size();
+        for (Object value : row.values()) {
+            if (value instanceof String s) {
+                size += 40 + 2L * s.length();
+            } else if (value != null) {
+                size += 16;
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,68 @@
+package com.jg.rdms.db.exec;
+
+import com.jg.rdms.db.core.Row;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+/**
+ * The input rows that pass a predicate. Given a pool, it pulls the input
+ * in batches and tests each batch on several threads (see
+ * {@link ParallelScan}); rows still come out in input order.
+ */
+public final class FilterOperator implements Operator {
+
+    private static final int BATCH_PER_THREAD = 4096;
+
+    private final Operator input;
+    private final Predicate<Row> predicate;
+    private final ForkJoinPool pool;
+
+    private final ArrayDeque<Row> passed = new ArrayDeque<>();
+    private boolean exhausted = false;
+
+    /** @param pool threads to test batches on, or {@code null} to test one row at a time */
+    public FilterOperator(Operator input, Predicate<Row> predicate, ForkJoinPool pool) {
+        this.input = input;
+        this.predicate = predicate;
+        this.pool = pool;
+    }
+
+    @Override
+    public void open() {
+        input.open();
+    }
+
+    @Override
+    public Row next() {
+        if (pool == null) {
+            for (Row row = input.next(); row != null; row = input.next()) {
+                if (predicate.test(row)) {
+                    return row;
+                }
+            }
+            return null;
+        }
+
+        while (passed.isEmpty() && !exhausted) {
+            List<Row> batch = new ArrayList<>(BATCH_PER_THREAD);
+            int size = BATCH_PER_THREAD * pool.getParallelism();
+
+            for (Row row = input.next(); row != null; row = batch.size() < size ? input.next() : null) {
+                batch.add(row);
+            }
+            exhausted = batch.size() < size;
+            passed.addAll(ParallelScan.filter(pool, batch.spliterator(), predicate));
+        }
+        return passed.poll();
+    }
+
+    @Override
+    public void close() {
+        passed.clear();
+        input.close();
+    }
+}
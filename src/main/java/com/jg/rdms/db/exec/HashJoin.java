@@ -0,0 +1,363 @@
+package com.jg.rdms.db.exec;
+
+import com.jg.rdms.db.core.Row;
+import com.jg.rdms.db.core.RowLayout;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Equi-join of a build and a probe input on one key each. The build rows
+ * go into a hash table while they fit the memory budget; past it the
+ * join becomes a grace hash join: build rows, and then probe rows, are
+ * partitioned by key hash into spill files, and each pair of partitions
+ * is joined on its own at the end. A build partition that is still too
+ * big is split again with another hash, up to {@link #MAX_DEPTH} levels;
+ * below that (one key with more rows than the budget) it is joined in
+ * memory regardless.
+ *
+ * NULL keys match nothing. Rows go out through {@link Output} as soon as
+ * they are known, so the join itself never holds its result, and the end
+ * phase can run a row at a time ({@link #finishStep()}) for a caller
+ * that pulls.
+ */
+public final class HashJoin implements Closeable {
+
+    /** Where joined rows go. */
+    public interface Output {
+        void matched(Row build, Row probe);
+
+        /** A build row no probe row matched; reported at the end. */
+        void buildOnly(Row build);
+
+        void probeOnly(Row probe);
+    }
+
+    static final int FAN_OUT = 16;
+    static final int MAX_DEPTH = 3;
+
+    private final RowLayout buildLayout;
+    private final String buildColumn;
+    private final RowLayout probeLayout;
+    private final String probeColumn;
+    private final long memoryBudget;
+    private final Path spillDir;
+    private final Output output;
+
+    // in memory: key -> build rows of that key
+    private Map<Object, Bucket> table = new HashMap<>();
+    private List<Row> nullKeys = new ArrayList<>();
+    private long held = 0;
+
+    // spilled: one file per partition, null until needed
+    private SpillFile[] buildParts;
+    private SpillFile[] probeParts;
+    private SpillFile nullKeyPart;
+    private final List<SpillFile> spilled = new ArrayList<>();
+
+    private boolean probing = false;
+
+    // end phase: partition pairs still to join, and the file being read
+    private Deque<Pair> work;
+    private SpillFile.Reader reading;
+    private Consumer<Row> perRow;
+    private Runnable afterReading;
+
+    public HashJoin(
+            RowLayout buildLayout, String buildColumn,
+            RowLayout probeLayout, String probeColumn,
+            long memoryBudget,
+            Path spillDir,
+            Output output
+    ) {
+        this.buildLayout = buildLayout;
+        this.buildColumn = buildColumn;
+        this.probeLayout = probeLayout;
+        this.probeColumn = probeColumn;
+        this.memoryBudget = Math.max(1, memoryBudget);
+        this.spillDir = spillDir;
+        this.output = output;
+    }
+
+    /** Build rows partitioned to disk so far (0 while the join runs in memory). */
+    public int spilledPartitions() {
+        return buildParts == null ? 0 : buildParts.length;
+    }
+
+    /* =========================
+       BUILD
+       ========================= */
+
+    public void build(Row row) {
+        if (probing) {
+            throw new IllegalStateException("Build row after probing started");
+        }
+
+        Object key = row.get(buildColumn);
+
+        if (buildParts != null) {
+            if (key == null) {
+                nullKeyPart.write(row);
+            } else {
+                buildParts[partition(key, 0)].write(row);
+            }
+            return;
+        }
+
+        // NULL keys match nothing, but an outer join still reports them at the end
+        if (key == null) {
+            nullKeys.add(row);
+        } else {
+            table.computeIfAbsent(key, k -> new Bucket()).rows.add(row);
+        }
+        held += ExternalSort.estimateSize(row);
+
+        if (held > memoryBudget) {
+            spillBuild();
+        }
+    }
+
+    /** Over budget: everything built so far moves to partition files. */
+    private void spillBuild() {
+        buildParts = newPartitions("join-build-");
+        nullKeyPart = newPartition("join-build-");
+
+        table.forEach((key, bucket) -> {
+            SpillFile part = buildParts[partition(key, 0)];
+            bucket.rows.forEach(part::write);
+        });
+        nullKeys.forEach(nullKeyPart::write);
+
+        table = new HashMap<>();
+        nullKeys = new ArrayList<>();
+        held = 0;
+    }
+
+    /* =========================
+       PROBE
+       ========================= */
+
+    public void probe(Row row) {
+        probing = true;
+
+        Object key = row.get(probeColumn);
+        if (key == null) {
+            output.probeOnly(row);
+            return;
+        }
+
+        if (buildParts == null) {
+            probe(table, key, row);
+            return;
+        }
+
+        if (probeParts == null) {
+            probeParts = newPartitions("join-probe-");
+        }
+        probeParts[partition(key, 0)].write(row);
+    }
+
+    private void probe(Map<Object, Bucket> table, Object key, Row row) {
+        Bucket bucket = table.get(key);
+        if (bucket == null) {
+            output.probeOnly(row);
+            return;
+        }
+
+        bucket.matched = true;
+        for (Row build : bucket.rows) {
+            output.matched(build, row);
+        }
+    }
+
+    /* =========================
+       END PHASE
+       ========================= */
+
+    /**
+     * Joins the partitions left on disk, if any, and reports the build
+     * rows nothing matched. Call once, after the last probe row.
+     */
+    public void finish() {
+        while (finishStep()) {
+            // each step outputs a few rows at most
+        }
+    }
+
+    /**
+     * One step of {@link #finish()}: one row of a spilled partition, or
+     * the setup of the next partition pair. In memory the unmatched build
+     * rows go out in one step; they are held anyway. False once done.
+     */
+    public boolean finishStep() {
+        probing = true;
+
+        if (work == null) {
+            work = new ArrayDeque<>();
+
+            if (buildParts == null) {
+                reportUnmatched(table);
+                nullKeys.forEach(output::buildOnly);
+                table = Map.of();
+                nullKeys = List.of();
+                return true;
+            }
+
+            for (int p = 0; p < buildParts.length; p++) {
+                work.add(new Pair(buildParts[p], probeParts == null ? null : probeParts[p], 1));
+            }
+            read(nullKeyPart, buildLayout, output::buildOnly, nullKeyPart::delete);
+            return true;
+        }
+
+        if (reading != null) {
+            if (reading.hasNext()) {
+                perRow.accept(reading.next());
+            } else {
+                reading.close();
+                reading = null;
+                afterReading.run();
+            }
+            return true;
+        }
+
+        Pair next = work.poll();
+        if (next == null) {
+            return false;
+        }
+        start(next);
+        return true;
+    }
+
+    /** Sets up the join of one partition pair; its rows then go out one per step. */
+    private void start(Pair pair) {
+        SpillFile build = pair.build();
+        SpillFile probe = pair.probe() == null || pair.probe().rows() == 0 ? null : pair.probe();
+        Runnable cleanup = () -> {
+            build.delete();
+            if (pair.probe() != null) {
+                pair.probe().delete();
+            }
+        };
+
+        if (build.rows() == 0) {
+            read(probe, probeLayout, output::probeOnly, cleanup);
+            return;
+        }
+        if (probe == null) {
+            read(build, buildLayout, output::buildOnly, cleanup);
+            return;
+        }
+
+        // 🔁 still too big: split both sides again with a different hash
+        if (build.memory() > memoryBudget && pair.depth() < MAX_DEPTH) {
+            SpillFile[] builds = split(build, buildLayout, buildColumn, pair.depth(), "join-build-");
+            SpillFile[] probes = split(probe, probeLayout, probeColumn, pair.depth(), "join-probe-");
+            cleanup.run();
+
+            for (int p = FAN_OUT - 1; p >= 0; p--) {
+                work.addFirst(new Pair(builds[p], probes[p], pair.depth() + 1));
+            }
+            return;
+        }
+
+        Map<Object, Bucket> partition = new HashMap<>();
+        try (SpillFile.Reader rows = build.read(buildLayout)) {
+            rows.forEachRemaining(row ->
+                    partition.computeIfAbsent(row.get(buildColumn), k -> new Bucket()).rows.add(row));
+        }
+
+        read(probe, probeLayout, row -> probe(partition, row.get(probeColumn), row), () -> {
+            reportUnmatched(partition);
+            cleanup.run();
+        });
+    }
+
+    /** Hands the rows of {@code file} to {@code action}, one per step, then runs {@code after}. */
+    private void read(SpillFile file, RowLayout layout, Consumer<Row> action, Runnable after) {
+        if (file == null) {
+            after.run();
+            return;
+        }
+        reading = file.read(layout);
+        perRow = action;
+        afterReading = after;
+    }
+
+    private SpillFile[] split(SpillFile file, RowLayout layout, String column, int depth, String prefix) {
+        SpillFile[] parts = newPartitions(prefix);
+
+        try (SpillFile.Reader rows = file.read(layout)) {
+            rows.forEachRemaining(row -> parts[partition(row.get(column), depth)].write(row));
+        }
+        for (SpillFile part : parts) {
+            part.finish();
+        }
+        return parts;
+    }
+
+    private void reportUnmatched(Map<Object, Bucket> table) {
+        for (Bucket bucket : table.values()) {
+            if (!bucket.matched) {
+                bucket.rows.forEach(output::buildOnly);
+            }
+        }
+    }
+
+    /* =========================
+       HELPERS
+       ========================= */
+
+    private SpillFile[] newPartitions(String prefix) {
+        SpillFile[] parts = new SpillFile[FAN_OUT];
+        for (int p = 0; p < FAN_OUT; p++) {
+            parts[p] = newPartition(prefix);
+        }
+        return parts;
+    }
+
+    private SpillFile newPartition(String prefix) {
+        SpillFile part = SpillFile.create(spillDir, prefix);
+        spilled.add(part);
+        return part;
+    }
+
+    /** Partition of {@code key} at {@code depth}. */
+    static int partition(Object key, int depth) {
+        return Math.floorMod(hash(key, depth), FAN_OUT);
+    }
+
+    /** Hash of a join key, mixed differently at each partitioning {@code depth}. */
+    static int hash(Object key, int depth) {
+        int h = key.hashCode() + depth * 0x61C88647;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /** A build partition and the probe partition of the same keys. */
+    private record Pair(SpillFile build, SpillFile probe, int depth) {
+    }
+
+    /** Build rows of one key, and whether any probe row matched them. */
+    static final class Bucket {
+        final List<Row> rows = new ArrayList<>(1);
+        boolean matched = false;
+    }
+
+    @Override
+    public void close() {
+        if (reading != null) {
+            reading.close();
+            reading = null;
+        }
+        spilled.forEach(SpillFile::delete);
+        spilled.clear();
+        table = Map.of();
+    }
+}
@@ -0,0 +1,177 @@
+package com.jg.rdms.db.exec;
+
+import com.jg.rdms.db.core.Row;
+import com.jg.rdms.db.core.RowLayout;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Hash join: {@link #open()} reads the build side into a hash table, and
+ * rows then come out as probe rows are pulled, followed by the build
+ * rows nothing matched. Past the memory budget it runs as a grace hash
+ * join (see {@link HashJoin}). Given a pool, a build side that fits is
+ * hashed on several threads and the probe rows are pulled in batches,
+ * each probed in parallel (see {@link ParallelHashJoin}).
+ */
+public final class HashJoinOperator implements Operator {
+
+    private static final int BATCH_PER_THREAD = 4096;
+
+    private final Operator build;
+    private final String buildColumn;
+    private final RowLayout buildLayout;
+    private final Operator probe;
+    private final String probeColumn;
+    private final RowLayout probeLayout;
+    private final boolean buildLeft;
+    private final long memoryBudget;
+    private final Path spillDir;
+    private final ForkJoinPool pool;
+
+    private final ArrayDeque<Row> pending = new ArrayDeque<>();
+    private final HashJoin.Output output;
+
+    private HashJoin join;
+    private ParallelHashJoin parallel;
+    private boolean probed = false;
+    private int partition = 0;
+
+    /**
+     * @param buildLeft whether the build side is the left side of the join
+     * @param pool      threads for a build side that fits, or {@code null}
+     */
+    public HashJoinOperator(
+            Operator build, String buildColumn, RowLayout buildLayout,
+            Operator probe, String probeColumn, RowLayout probeLayout,
+            JoinRows rows,
+            boolean buildLeft,
+            long memoryBudget,
+            Path spillDir,
+            ForkJoinPool pool
+    ) {
+        this.build = build;
+        this.buildColumn = buildColumn;
+        this.buildLayout = buildLayout;
+        this.probe = probe;
+        this.probeColumn = probeColumn;
+        this.probeLayout = probeLayout;
+        this.buildLeft = buildLeft;
+        this.memoryBudget = memoryBudget;
+        this.spillDir = spillDir;
+        this.pool = pool;
+
+        this.output = new HashJoin.Output() {
+            @Override
+            public void matched(Row buildRow, Row probeRow) {
+                add(buildLeft ? rows.both(buildRow, probeRow) : rows.both(probeRow, buildRow));
+            }
+
+            @Override
+            public void buildOnly(Row buildRow) {
+                add(buildLeft ? rows.leftOnly(buildRow) : rows.rightOnly(buildRow));
+            }
+
+            @Override
+            public void probeOnly(Row probeRow) {
+                add(buildLeft ? rows.rightOnly(probeRow) : rows.leftOnly(probeRow));
+            }
+        };
+    }
+
+    private void add(Row row) {
+        if (row != null) {
+            pending.add(row);
+        }
+    }
+
+    /* =========================
+       BUILD
+       ========================= */
+
+    @Override
+    public void open() {
+        build.open();
+        probe.open();
+
+        List<Row> held = new ArrayList<>();
+        Row row = build.next();
+
+        if (pool != null) {
+            // 🔁 hold the build rows while they fit, then hash them on several threads
+            long size = 0;
+            for (; row != null && size <= memoryBudget; row = build.next()) {
+                held.add(row);
+                size += ExternalSort.estimateSize(row);
+            }
+            if (row == null) {
+                parallel = ParallelHashJoin.build(pool, held.spliterator(), buildColumn, memoryBudget);
+            }
+            if (parallel != null) {
+                return;
+            }
+        }
+
+        join = new HashJoin(buildLayout, buildColumn, probeLayout, probeColumn, memoryBudget, spillDir, output);
+        held.forEach(join::build);
+        for (; row != null; row = build.next()) {
+            join.build(row);
+        }
+    }
+
+    /* =========================
+       PROBE
+       ========================= */
+
+    @Override
+    public Row next() {
+        while (pending.isEmpty()) {
+            if (!probed) {
+                probeSome();
+            } else if (parallel != null) {
+                // build rows nothing matched, a partition at a time
+                if (partition == parallel.partitions()) {
+                    return null;
+                }
+                parallel.unmatched(partition++, output::buildOnly);
+            } else if (!join.finishStep()) {
+                return null;
+            }
+        }
+        return pending.poll();
+    }
+
+    private void probeSome() {
+        if (parallel == null) {
+            Row row = probe.next();
+            if (row == null) {
+                probed = true;
+            } else {
+                join.probe(row);
+            }
+            return;
+        }
+
+        int size = BATCH_PER_THREAD * pool.getParallelism();
+        List<Row> batch = new ArrayList<>(Math.min(size, 1024));
+        for (Row row = probe.next(); row != null; row = batch.size() < size ? probe.next() : null) {
+            batch.add(row);
+        }
+        probed = batch.size() < size;
+        parallel.probe(batch, probeColumn, output);
+    }
+
+    @Override
+    public void close() {
+        if (join != null) {
+            join.close();
+        }
+        parallel = null;
+        pending.clear();
+        build.close();
+        probe.close();
+    }
+}
@@ -0,0 +1,78 @@
+package com.jg.rdms.db.exec;
+
+import com.jg.rdms.db.core.Row;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Index nested loop join: the join key of each outer row is looked up on
+ * the inner side, so only the matches of the current outer row are held.
+ */
+public final class IndexJoinOperator implements Operator {
+
+    private final Operator outer;
+    private final String outerColumn;
+    private final Function<Object, List<Row>> lookup;
+    private final JoinRows rows;
+    private final boolean outerIsLeft;
+
+    private Row current;
+    private Iterator<Row> matches = Collections.emptyIterator();
+
+    /**
+     * @param lookup      the inner rows of a (non-NULL) key
+     * @param outerIsLeft whether the outer rows are the left side of the join
+     */
+    public IndexJoinOperator(
+            Operator outer,
+            String outerColumn,
+            Function<Object, List<Row>> lookup,
+            JoinRows rows,
+            boolean outerIsLeft
+    ) {
+        this.outer = outer;
+        this.outerColumn = outerColumn;
+        this.lookup = lookup;
+        this.rows = rows;
+        this.outerIsLeft = outerIsLeft;
+    }
+
+    @Override
+    public void open() {
+        outer.open();
+    }
+
+    @Override
+    public Row next() {
+        while (true) {
+            if (matches.hasNext()) {
+                Row inner = matches.next();
+                return outerIsLeft ? rows.both(current, inner) : rows.both(inner, current);
+            }
+
+            current = outer.next();
+            if (current == null) {
+                return null;
+            }
+
+            Object key = current.get(outerColumn);
+            List<Row> found = key == null ? List.of() : lookup.apply(key);
+
+            if (found.isEmpty()) {
+                Row unmatched = outerIsLeft ? rows.leftOnly(current) : rows.rightOnly(current);
+                if (unmatched != null) {
+                    return unmatched;
+                }
+            }
+            matches = found.iterator();
+        }
+    }
+
+    @Override
+    public void close() {
+        outer.close();
+    }
+}
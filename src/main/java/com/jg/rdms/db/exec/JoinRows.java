@@ -0,0 +1,31 @@
+package com.jg.rdms.db.exec;
+
+import com.jg.rdms.db.core.Row;
+import com.jg.rdms.db.core.RowLayout;
+
+/**
+ * How a join puts its result rows together (see {@link RowLayout#join}):
+ * a matched pair side by side, and an unmatched row NULL-extended if the
+ * join type keeps that side, or {@code null} if it does not.
+ */
+public record JoinRows(
+        String leftName,
+        RowLayout leftLayout,
+        String rightName,
+        RowLayout joined,
+        boolean keepLeft,
+        boolean keepRight
+) {
+
+    public Row both(Row left, Row right) {
+        return left.join(leftName, joined, rightName, right);
+    }
+
+    public Row leftOnly(Row left) {
+        return keepLeft ? left.join(leftName, joined, rightName, null) : null;
+    }
+
+    public Row rightOnly(Row right) {
+        return keepRight ? Row.empty(leftLayout).join(leftName, joined, rightName, right) : null;
+    }
+}
@@ -0,0 +1,38 @@
+package com.jg.rdms.db.exec;
+
+import com.jg.rdms.db.core.Row;
+
+/** The first {@code limit} rows of the input; pulls no further. */
+public final class LimitOperator implements Operator {
+
+    private final Operator input;
+    private final int limit;
+    private int returned = 0;
+
+    public LimitOperator(Operator input, int limit) {
+        this.input = input;
+        this.limit = limit;
+    }
+
+    @Override
+    public void open() {
+        input.open();
+    }
+
+    @Override
+    public Row next() {
+        if (returned >= limit) {
+            return null;
+        }
+        Row row = input.next();
+        if (row != null) {
+            returned++;
+        }
+        return row;
+    }
+
+    @Override
+    public void close() {
+        input.close();
+    }
+}
@@ -0,0 +1,140 @@
+package com.jg.rdms.db.exec;
+
+import com.jg.rdms.db.core.Row;
+import com.jg.rdms.db.index.BPlusTree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sort-merge join of two inputs in join key order. Only the rows of one
+ * key of the right side are held at a time. Rows with a NULL key match
+ * nothing and may come anywhere in an input.
+ */
+public final class MergeJoinOperator implements Operator {
+
+    private final Operator left;
+    private final String leftColumn;
+    private final Operator right;
+    private final String rightColumn;
+    private final JoinRows rows;
+
+    private final ArrayDeque<Row> pending = new ArrayDeque<>();
+    private boolean started = false;
+    private Row l;
+    private Row r;
+
+    // right rows of the key being joined, while left rows of it remain
+    private List<Row> group;
+    private Object groupKey;
+
+    public MergeJoinOperator(
+            Operator left, String leftColumn,
+            Operator right, String rightColumn,
+            JoinRows rows
+    ) {
+        this.left = left;
+        this.leftColumn = leftColumn;
+        this.right = right;
+        this.rightColumn = rightColumn;
+        this.rows = rows;
+    }
+
+    @Override
+    public void open() {
+        left.open();
+        right.open();
+    }
+
+    @Override
+    public Row next() {
+        if (!started) {
+            started = true;
+            l = nextLeft();
+            r = nextRight();
+        }
+
+        while (pending.isEmpty()) {
+            if (group != null) {
+                if (l != null && BPlusTree.compareKeys(l.get(leftColumn), groupKey) == 0) {
+                    // 🔗 one left row of the key, paired with each right row of it
+                    for (Row match : group) {
+                        pending.add(rows.both(l, match));
+                    }
+                    l = nextLeft();
+                } else {
+                    group = null;
+                }
+                continue;
+            }
+
+            if (l == null && r == null) {
+                return null;
+            }
+            if (l == null) {
+                add(rows.rightOnly(r));
+                r = nextRight();
+                continue;
+            }
+            if (r == null) {
+                add(rows.leftOnly(l));
+                l = nextLeft();
+                continue;
+            }
+
+            Object key = r.get(rightColumn);
+            int c = BPlusTree.compareKeys(l.get(leftColumn), key);
+
+            if (c < 0) {
+                add(rows.leftOnly(l));
+                l = nextLeft();
+            } else if (c > 0) {
+                add(rows.rightOnly(r));
+                r = nextRight();
+            } else {
+                group = new ArrayList<>();
+                groupKey = key;
+                while (r != null && BPlusTree.compareKeys(r.get(rightColumn), key) == 0) {
+                    group.add(r);
+                    r = nextRight();
+                }
+            }
+        }
+        return pending.poll();
+    }
+
+    /** The next left row with a key; those without go out as unmatched. */
+    private Row nextLeft() {
+        for (Row row = left.next(); row != null; row = left.next()) {
+            if (row.get(leftColumn) != null) {
+                return row;
+            }
+            add(rows.leftOnly(row));
+        }
+        return null;
+    }
+
+    private Row nextRight() {
+        for (Row row = right.next(); row != null; row = right.next()) {
+            if (row.get(rightColumn) != null) {
+                return row;
+            }
+            add(rows.rightOnly(row));
+        }
+        return null;
+    }
+
+    private void add(Row row) {
+        if (row != null) {
+            pending.add(row);
+        }
+    }
+
+    @Override
+    public void close() {
+        pending.clear();
+        left.close();
+        right.close();
+    }
+}
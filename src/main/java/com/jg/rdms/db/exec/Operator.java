@@ -0,0 +1,25 @@
+package com.jg.rdms.db.exec;
+
+import com.jg.rdms.db.core.Row;
+
+/**
+ * One step of a query plan in the iterator ("Volcano") model: the caller
+ * pulls rows one at a time with {@link #next()}, and each operator pulls
+ * from its inputs only as far as it needs to. A LIMIT therefore stops
+ * the scans under it, and a result is never held as a whole unless an
+ * operator has to (a sort, the build side of a hash join).
+ *
+ * {@link #open()} once, {@link #next()} until it returns {@code null},
+ * then {@link #close()}, which may also come early and releases inputs
+ * and temp files.
+ */
+public interface Operator extends AutoCloseable {
+
+    void open();
+
+    /** The next row, or {@code null} when there are no more. */
+    Row next();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,238 @@
+package com.jg.rdms.db.exec;
+
+import com.jg.rdms.db.core.Row;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * In-memory hash join on a {@link ForkJoinPool}, for inputs that split
+ * (see {@link ParallelScan}):
+ * <ol>
+ *   <li>build chunks are scanned in parallel, each into partition lists
+ *       of its own, by key hash;</li>
+ *   <li>one task per partition builds that partition's hash table from
+ *       the lists of every chunk, so no table is shared while written;</li>
+ *   <li>probe chunks run in parallel, each row looking in the table of
+ *       its key's partition;</li>
+ *   <li>each partition reports the build rows nothing matched.</li>
+ * </ol>
+ * The build gives up once its rows pass the memory budget, before
+ * anything is output; the caller then runs a {@link HashJoin}, which can
+ * spill. Probing is done either in one go ({@link #run}), with the
+ * output called from pool threads, or a batch at a time
+ * ({@link #probe(List, String, HashJoin.Output)}), with the output
+ * called on the caller's thread in batch order.
+ */
+public final class ParallelHashJoin {
+
+    private static final int PARTITIONS_PER_THREAD = 4;
+    private static final int CHECK_EVERY = 1024;
+
+    private final ForkJoinPool pool;
+    private final List<Map<Object, HashJoin.Bucket>> tables;
+    private final List<Row> nullKeys;
+
+    private ParallelHashJoin(ForkJoinPool pool, List<Map<Object, HashJoin.Bucket>> tables, List<Row> nullKeys) {
+        this.pool = pool;
+        this.tables = tables;
+        this.nullKeys = nullKeys;
+    }
+
+    /**
+     * Runs the whole join; false (and nothing output) if the build side
+     * does not fit in memory. {@code output} must be thread-safe.
+     */
+    public static boolean run(
+            ForkJoinPool pool,
+            Spliterator<Row> build, String buildColumn,
+            Spliterator<Row> probe, String probeColumn,
+            long memoryBudget,
+            HashJoin.Output output
+    ) {
+        ParallelHashJoin join = build(pool, build, buildColumn, memoryBudget);
+        if (join == null) {
+            return false;
+        }
+
+        // 3️⃣ probe; a bucket is only ever marked matched, and read after the join
+        ParallelScan.chunks(pool, probe, rows -> {
+            rows.forEachRemaining(row -> join.probe(row, probeColumn, output));
+            return null;
+        });
+
+        // 4️⃣ build rows nothing matched, for an outer join on the build side
+        join.forEachPartition(p -> join.unmatched(p, output::buildOnly));
+        return true;
+    }
+
+    /** The hash tables of {@code build}, or null if its rows pass {@code memoryBudget}. */
+    public static ParallelHashJoin build(
+            ForkJoinPool pool,
+            Spliterator<Row> build, String buildColumn,
+            long memoryBudget
+    ) {
+        int partitions = PARTITIONS_PER_THREAD * pool.getParallelism();
+
+        // 1️⃣ partition the build rows, chunk by chunk
+        LongAdder held = new LongAdder();
+        AtomicBoolean tooBig = new AtomicBoolean();
+
+        List<BuildChunk> chunks = ParallelScan.chunks(pool, build, rows -> {
+            BuildChunk chunk = new BuildChunk(partitions);
+            long size = 0;
+            int seen = 0;
+
+            while (!tooBig.get() && rows.tryAdvance(row -> chunk.add(row, buildColumn))) {
+                size += ExternalSort.estimateSize(chunk.last);
+
+                if (++seen % CHECK_EVERY == 0) {
+                    held.add(size);
+                    size = 0;
+                    if (held.sum() > memoryBudget) {
+                        tooBig.set(true);
+                    }
+                }
+            }
+            held.add(size);
+            return chunk;
+        });
+
+        if (tooBig.get() || held.sum() > memoryBudget) {
+            return null;
+        }
+
+        // 2️⃣ one hash table per partition, each built by a single task
+        List<Map<Object, HashJoin.Bucket>> tables = new ArrayList<>(partitions);
+        List<Row> nullKeys = new ArrayList<>();
+        for (int p = 0; p < partitions; p++) {
+            tables.add(null);
+        }
+        for (BuildChunk chunk : chunks) {
+            nullKeys.addAll(chunk.nullKeys);
+        }
+
+        ParallelHashJoin join = new ParallelHashJoin(pool, tables, nullKeys);
+        join.forEachPartition(p -> {
+            Map<Object, HashJoin.Bucket> table = new HashMap<>();
+            for (BuildChunk chunk : chunks) {
+                for (Row row : chunk.parts[p]) {
+                    table.computeIfAbsent(row.get(buildColumn), k -> new HashJoin.Bucket()).rows.add(row);
+                }
+            }
+            tables.set(p, table);
+        });
+        return join;
+    }
+
+    /**
+     * Probes with a batch of rows in parallel; the results go to
+     * {@code output} afterwards, on this thread, in batch order.
+     */
+    public void probe(List<Row> batch, String probeColumn, HashJoin.Output output) {
+        List<List<Consumer<HashJoin.Output>>> chunks = ParallelScan.chunks(pool, batch.spliterator(), rows -> {
+            List<Consumer<HashJoin.Output>> results = new ArrayList<>();
+            HashJoin.Output held = new HashJoin.Output() {
+                @Override
+                public void matched(Row build, Row probe) {
+                    results.add(out -> out.matched(build, probe));
+                }
+
+                @Override
+                public void buildOnly(Row build) {
+                    results.add(out -> out.buildOnly(build));
+                }
+
+                @Override
+                public void probeOnly(Row probe) {
+                    results.add(out -> out.probeOnly(probe));
+                }
+            };
+            rows.forEachRemaining(row -> probe(row, probeColumn, held));
+            return results;
+        });
+
+        for (List<Consumer<HashJoin.Output>> results : chunks) {
+            results.forEach(result -> result.accept(output));
+        }
+    }
+
+    private void probe(Row row, String probeColumn, HashJoin.Output output) {
+        Object key = row.get(probeColumn);
+        HashJoin.Bucket bucket = key == null
+                ? null
+                : tables.get(partition(key, tables.size())).get(key);
+
+        if (bucket == null) {
+            output.probeOnly(row);
+            return;
+        }
+        bucket.matched = true;
+        for (Row match : bucket.rows) {
+            output.matched(match, row);
+        }
+    }
+
+    /** Hash tables the build rows are split over. */
+    public int partitions() {
+        return tables.size();
+    }
+
+    /**
+     * The build rows of partition {@code p} nothing matched, after the
+     * last probe. Rows with a NULL key come with the last partition.
+     */
+    public void unmatched(int p, Consumer<Row> action) {
+        for (HashJoin.Bucket bucket : tables.get(p).values()) {
+            if (!bucket.matched) {
+                bucket.rows.forEach(action);
+            }
+        }
+        if (p == tables.size() - 1) {
+            nullKeys.forEach(action);
+        }
+    }
+
+    private static int partition(Object key, int partitions) {
+        return Math.floorMod(HashJoin.hash(key, 0), partitions);
+    }
+
+    private void forEachPartition(IntConsumer action) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(tables.size());
+        for (int p = 0; p < tables.size(); p++) {
+            int partition = p;
+            tasks.add(ForkJoinTask.adapt(() -> action.accept(partition)));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
+
+    /** The build rows of one chunk, split by partition. */
+    private static final class BuildChunk {
+        final List<Row>[] parts;
+        final List<Row> nullKeys = new ArrayList<>();
+        Row last;
+
+        @SuppressWarnings("unchecked")
+        BuildChunk(int partitions) {
+            parts = new List[partitions];
+            for (int p = 0; p < partitions; p++) {
+                parts[p] = new ArrayList<>();
+            }
+        }
+
+        void add(Row row, String column) {
+            Object key = row.get(column);
+            if (key == null) {
+                nullKeys.add(row);
+            } else {
+                parts[partition(key, parts.length)].add(row);
+            }
+            last = row;
+        }
+    }
+}
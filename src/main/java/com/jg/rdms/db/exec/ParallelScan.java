@@ -0,0 +1,94 @@
+package com.jg.rdms.db.exec;
+
+import com.jg.rdms.db.core.Row;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Scans rows on a {@link ForkJoinPool}. The input is split into chunks,
+ * a few per thread so that a slow chunk does not hold the others up,
+ * and each chunk is handled on its own with nothing shared between
+ * threads. Results come back in input order.
+ */
+public final class ParallelScan {
+
+    private static final long MIN_CHUNK = 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private ParallelScan() {
+    }
+
+    /** The rows that pass {@code filter}, in input order. */
+    public static List<Row> filter(ForkJoinPool pool, Spliterator<Row> rows, Predicate<Row> filter) {
+        List<List<Row>> chunks = chunks(pool, rows, chunk -> {
+            List<Row> passed = new ArrayList<>();
+            chunk.forEachRemaining(row -> {
+                if (filter.test(row)) {
+                    passed.add(row);
+                }
+            });
+            return passed;
+        });
+
+        List<Row> result = new ArrayList<>(chunks.stream().mapToInt(List::size).sum());
+        chunks.forEach(result::addAll);
+        return result;
+    }
+
+    /** Runs {@code task} on each chunk of {@code rows}; its results in input order. */
+    public static <T> List<T> chunks(
+            ForkJoinPool pool,
+            Spliterator<Row> rows,
+            Function<Spliterator<Row>, T> task
+    ) {
+        long chunk = Math.max(MIN_CHUNK,
+                rows.estimateSize() / ((long) CHUNKS_PER_THREAD * pool.getParallelism()));
+
+        return pool.invoke(new Chunk<>(rows, chunk, task));
+    }
+
+    private static final class Chunk<T> extends RecursiveTask<List<T>> {
+        private final Spliterator<Row> rows;
+        private final long size;
+        private final Function<Spliterator<Row>, T> task;
+
+        Chunk(Spliterator<Row> rows, long size, Function<Spliterator<Row>, T> task) {
+            this.rows = rows;
+            this.size = size;
+            this.task = task;
+        }
+
+        @Override
+        protected List<T> compute() {
+            // 🔑 each split hands the front part to another thread, so
+            // the forked parts come before what is left here
+            List<Chunk<T>> front = new ArrayList<>();
+            Spliterator<Row> rest = rows;
+
+            while (rest.estimateSize() > size) {
+                Spliterator<Row> prefix = rest.trySplit();
+                if (prefix == null) {
+                    break;
+                }
+                Chunk<T> forked = new Chunk<>(prefix, size, task);
+                forked.fork();
+                front.add(forked);
+            }
+
+            T own = task.apply(rest);
+
+            List<T> results = new ArrayList<>();
+            for (Chunk<T> forked : front) {
+                results.addAll(forked.join());
+            }
+            results.add(own);
+            return results;
+        }
+    }
+}
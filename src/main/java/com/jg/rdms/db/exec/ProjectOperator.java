@@ -0,0 +1,60 @@
+package com.jg.rdms.db.exec;
+
+import com.jg.rdms.db.core.Row;
+import com.jg.rdms.db.core.RowLayout;
+
+/**
+ * The input rows cut down to the columns of {@code output}, in its order.
+ * Positions are looked up once, so each row is one array copy. Placed
+ * low in a plan it keeps sorts, hash tables and spill files narrow.
+ */
+public final class ProjectOperator implements Operator {
+
+    private final Operator input;
+    private final RowLayout output;
+    private final int[] from;
+
+    /**
+     * @param layout layout of the input rows
+     * @param output the columns to keep; a name {@code layout} does not
+     *               have is read from the row's extras, if anywhere
+     */
+    public ProjectOperator(Operator input, RowLayout layout, RowLayout output) {
+        this(input, output, positions(layout, output));
+    }
+
+    /**
+     * @param from for each column of {@code output}, its position in the
+     *             input rows, or -1 to read it by name from their extras
+     */
+    public ProjectOperator(Operator input, RowLayout output, int[] from) {
+        this.input = input;
+        this.output = output;
+        this.from = from;
+    }
+
+    /** Where each column of {@code output} is in {@code layout}, -1 if nowhere. */
+    public static int[] positions(RowLayout layout, RowLayout output) {
+        int[] from = new int[output.size()];
+        for (int i = 0; i < from.length; i++) {
+            from[i] = layout.position(output.name(i));
+        }
+        return from;
+    }
+
+    @Override
+    public void open() {
+        input.open();
+    }
+
+    @Override
+    public Row next() {
+        Row row = input.next();
+        return row == null ? null : row.project(output, from);
+    }
+
+    @Override
+    public void close() {
+        input.close();
+    }
+}
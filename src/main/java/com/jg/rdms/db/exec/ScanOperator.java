@@ -0,0 +1,33 @@
+package com.jg.rdms.db.exec;
+
+import com.jg.rdms.db.core.Row;
+
+import java.util.Iterator;
+import java.util.function.Supplier;
+
+/** Rows of an access path (a table scan, an index lookup or range), as they come. */
+public final class ScanOperator implements Operator {
+
+    private final Supplier<Iterator<Row>> source;
+    private Iterator<Row> rows;
+
+    /** {@code source} is only asked for its rows on {@link #open()}. */
+    public ScanOperator(Supplier<Iterator<Row>> source) {
+        this.source = source;
+    }
+
+    @Override
+    public void open() {
+        rows = source.get();
+    }
+
+    @Override
+    public Row next() {
+        return rows.hasNext() ? rows.next() : null;
+    }
+
+    @Override
+    public void close() {
+        rows = null;
+    }
+}
@@ -0,0 +1,139 @@
+package com.jg.rdms.db.exec;
+
+import com.jg.rdms.db.core.Row;
+import com.jg.rdms.db.core.RowLayout;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The input rows in order. The first {@link #next()} pulls the whole
+ * input into an {@link ExternalSort}, which spills runs to disk past its
+ * memory budget; a limit keeps only the top rows.
+ *
+ * An input that should already be in order ({@link #presorted}) is
+ * streamed instead, each row checked against the one before. With a
+ * limit only the first {@code limit} rows are pulled, held back until
+ * they are all there: if one is out of order they and the rest of the
+ * input go through the {@link ExternalSort} after all. Without a limit
+ * rows are returned as they arrive, so a stray row can no longer be
+ * placed and fails the query.
+ */
+public final class SortOperator implements Operator {
+
+    private final Operator input;
+    private final Comparator<Row> order;
+    private final ExternalSort sort;
+    private final boolean presorted;
+    private final int limit;
+
+    private Iterator<Row> sorted;
+    private Row last;
+
+    /** @param limit rows wanted, or {@code -1} for all */
+    public SortOperator(
+            Operator input,
+            RowLayout layout,
+            Comparator<Row> order,
+            long memoryBudget,
+            Path spillDir,
+            int limit
+    ) {
+        this(input, layout, order, memoryBudget, spillDir, limit, false);
+    }
+
+    private SortOperator(
+            Operator input,
+            RowLayout layout,
+            Comparator<Row> order,
+            long memoryBudget,
+            Path spillDir,
+            int limit,
+            boolean presorted
+    ) {
+        this.input = input;
+        this.order = order;
+        this.sort = new ExternalSort(layout, order, memoryBudget, spillDir, limit);
+        this.presorted = presorted;
+        this.limit = limit;
+    }
+
+    /**
+     * Rows the input should already return in {@code order}; the sort
+     * arguments are only used if a row says otherwise.
+     *
+     * @param limit rows wanted, or {@code -1} for all
+     */
+    public static SortOperator presorted(
+            Operator input,
+            RowLayout layout,
+            Comparator<Row> order,
+            long memoryBudget,
+            Path spillDir,
+            int limit
+    ) {
+        return new SortOperator(input, layout, order, memoryBudget, spillDir, limit, true);
+    }
+
+    @Override
+    public void open() {
+        input.open();
+    }
+
+    @Override
+    public Row next() {
+        if (presorted && limit < 0) {
+            return streamed();
+        }
+        if (sorted == null) {
+            sorted = presorted ? firstRows() : sorted();
+        }
+        return sorted.hasNext() ? sorted.next() : null;
+    }
+
+    private Iterator<Row> sorted() {
+        for (Row row = input.next(); row != null; row = input.next()) {
+            sort.add(row);
+        }
+        return sort.sorted();
+    }
+
+    private Row streamed() {
+        Row row = input.next();
+
+        if (row != null && last != null && order.compare(last, row) > 0) {
+            throw new IllegalStateException("Rows of a presorted input out of order: " + last + " before " + row);
+        }
+        last = row;
+        return row;
+    }
+
+    // 🔑 pulls no more than the limit unless a row is out of order
+    private Iterator<Row> firstRows() {
+        List<Row> rows = new ArrayList<>(Math.min(limit, 1024));
+
+        while (rows.size() < limit) {
+            Row row = input.next();
+            if (row == null) {
+                return rows.iterator();
+            }
+
+            if (!rows.isEmpty() && order.compare(rows.get(rows.size() - 1), row) > 0) {
+                rows.forEach(sort::add);
+                sort.add(row);
+                return sorted();
+            }
+            rows.add(row);
+        }
+        return rows.iterator();
+    }
+
+    @Override
+    public void close() {
+        sort.close();
+        input.close();
+    }
+}
@@ -0,0 +1,165 @@
+package com.jg.rdms.db.exec;
+
+import com.jg.rdms.db.core.Row;
+import com.jg.rdms.db.core.RowLayout;
+import com.jg.rdms.db.storage.RowSerializer;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A temporary file of rows, written once and then read back in order:
+ * a sort run or a hash join partition. Each row is a length and its
+ * self-describing bytes ({@link RowSerializer#serialize}); a length of
+ * -1 ends the file.
+ */
+final class SpillFile {
+
+    private static final int IO_BUFFER = 64 * 1024;
+
+    private final Path path;
+    private DataOutputStream out;
+    private long rows = 0;
+    private long memory = 0;
+
+    private SpillFile(Path path, DataOutputStream out) {
+        this.path = path;
+        this.out = out;
+    }
+
+    /** A new, empty file in {@code dir} (created if needed). */
+    static SpillFile create(Path dir, String prefix) {
+        try {
+            Files.createDirectories(dir);
+            Path path = Files.createTempFile(dir, prefix, ".spill");
+
+            return new SpillFile(path, new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(path), IO_BUFFER)));
+
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to create spill file in " + dir, e);
+        }
+    }
+
+    void write(Row row) {
+        try {
+            byte[] data = RowSerializer.serialize(row);
+            out.writeInt(data.length);
+            out.write(data);
+
+            rows++;
+            memory += ExternalSort.estimateSize(row);
+
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write spill file " + path, e);
+        }
+    }
+
+    /** Ends writing; the file can be read from then on. */
+    SpillFile finish() {
+        if (out != null) {
+            try (DataOutputStream closing = out) {
+                closing.writeInt(-1);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to write spill file " + path, e);
+            }
+            out = null;
+        }
+        return this;
+    }
+
+    long rows() {
+        return rows;
+    }
+
+    /** Estimated heap footprint of the rows once read back. */
+    long memory() {
+        return memory;
+    }
+
+    /** Reads the rows back into {@code layout}. Close it unless read to the end. */
+    Reader read(RowLayout layout) {
+        finish();
+        return new Reader(layout);
+    }
+
+    void delete() {
+        try {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // left for the startup sweep of the temp directory
+        }
+    }
+
+    /** Reads one spill file a row at a time. */
+    final class Reader implements Iterator<Row>, Closeable {
+        private final RowLayout layout;
+        private final DataInputStream in;
+        private Row next;
+
+        private Reader(RowLayout layout) {
+            this.layout = layout;
+            try {
+                this.in = new DataInputStream(
+                        new BufferedInputStream(Files.newInputStream(path), IO_BUFFER));
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to open spill file " + path, e);
+            }
+            advance();
+        }
+
+        /** The row {@link #next()} returns, without moving on; null at the end. */
+        Row peek() {
+            return next;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Row next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Row row = next;
+            advance();
+            return row;
+        }
+
+        private void advance() {
+            try {
+                int length = in.readInt();
+                if (length < 0) {
+                    next = null;
+                    in.close();
+                    return;
+                }
+
+                byte[] data = new byte[length];
+                in.readFully(data);
+                next = Row.of(layout, RowSerializer.deserialize(data));
+
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to read spill file " + path, e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // read-only: nothing to lose
+            }
+        }
+    }
+}
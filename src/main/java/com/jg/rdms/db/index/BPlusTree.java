@@ -0,0 +1,280 @@
+package com.jg.rdms.db.index;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * In-memory B+Tree from column values to row ids.
+ *
+ * Duplicate keys are stored once in the leaf with a posting list of all
+ * values for that key. Leaves are chained left to right for range scans.
+ * {@code null} keys are not indexed (they never match a comparison).
+ *
+ * Deletes remove entries but do not merge underfull nodes; the tree is
+ * rebuilt from the table on every load, which keeps it compact.
+ */
+public class BPlusTree<V> {
+
+    private static final int ORDER = 64; // max keys per node
+
+    private Node root = new Leaf<V>();
+    private int size = 0;
+
+    private abstract static class Node {
+        final List<Object> keys = new ArrayList<>();
+    }
+
+    private static final class Inner extends Node {
+        final List<Node> children = new ArrayList<>();
+    }
+
+    private static final class Leaf<V> extends Node {
+        final List<List<V>> postings = new ArrayList<>();
+        Leaf<V> next;
+    }
+
+    private record Split(Object separator, Node right) {}
+
+    /* =========================
+       Key order
+       ========================= */
+
+    /**
+     * Natural order for values of the same type. Values of different types
+     * (e.g. an INT column probed with a TEXT literal) never compare equal.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static int compareKeys(Object a, Object b) {
+        if (a.getClass() == b.getClass() && a instanceof Comparable c) {
+            return c.compareTo(b);
+        }
+        return a.getClass().getName().compareTo(b.getClass().getName());
+    }
+
+    /** Index of the first key ≥ {@code key}. */
+    private static int lowerBound(List<Object> keys, Object key) {
+        int lo = 0;
+        int hi = keys.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareKeys(keys.get(mid), key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Index of the first key > {@code key}. */
+    private static int upperBound(List<Object> keys, Object key) {
+        int lo = 0;
+        int hi = keys.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareKeys(keys.get(mid), key) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /* =========================
+       INSERT
+       ========================= */
+
+    public void insert(Object key, V value) {
+        if (key == null) {
+            return;
+        }
+
+        Split split = insert(root, key, value);
+        if (split != null) {
+            Inner newRoot = new Inner();
+            newRoot.keys.add(split.separator());
+            newRoot.children.add(root);
+            newRoot.children.add(split.right());
+            root = newRoot;
+        }
+        size++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Split insert(Node node, Object key, V value) {
+        if (node instanceof Inner inner) {
+            int idx = upperBound(inner.keys, key);
+            Split split = insert(inner.children.get(idx), key, value);
+            if (split == null) {
+                return null;
+            }
+
+            inner.keys.add(idx, split.separator());
+            inner.children.add(idx + 1, split.right());
+            return inner.keys.size() > ORDER ? splitInner(inner) : null;
+        }
+
+        Leaf<V> leaf = (Leaf<V>) node;
+        int pos = lowerBound(leaf.keys, key);
+
+        if (pos < leaf.keys.size() && compareKeys(leaf.keys.get(pos), key) == 0) {
+            leaf.postings.get(pos).add(value);
+            return null;
+        }
+
+        List<V> posting = new ArrayList<>(1);
+        posting.add(value);
+        leaf.keys.add(pos, key);
+        leaf.postings.add(pos, posting);
+
+        return leaf.keys.size() > ORDER ? splitLeaf(leaf) : null;
+    }
+
+    private Split splitLeaf(Leaf<V> leaf) {
+        int mid = leaf.keys.size() / 2;
+        Leaf<V> right = new Leaf<>();
+
+        right.keys.addAll(leaf.keys.subList(mid, leaf.keys.size()));
+        right.postings.addAll(leaf.postings.subList(mid, leaf.postings.size()));
+        leaf.keys.subList(mid, leaf.keys.size()).clear();
+        leaf.postings.subList(mid, leaf.postings.size()).clear();
+
+        right.next = leaf.next;
+        leaf.next = right;
+
+        return new Split(right.keys.get(0), right);
+    }
+
+    private Split splitInner(Inner inner) {
+        int mid = inner.keys.size() / 2;
+        Object separator = inner.keys.get(mid);
+        Inner right = new Inner();
+
+        right.keys.addAll(inner.keys.subList(mid + 1, inner.keys.size()));
+        right.children.addAll(inner.children.subList(mid + 1, inner.children.size()));
+        inner.keys.subList(mid, inner.keys.size()).clear();
+        inner.children.subList(mid + 1, inner.children.size()).clear();
+
+        return new Split(separator, right);
+    }
+
+    /* =========================
+       DELETE
+       ========================= */
+
+    public boolean remove(Object key, V value) {
+        if (key == null) {
+            return false;
+        }
+
+        Leaf<V> leaf = findLeaf(key);
+        int pos = lowerBound(leaf.keys, key);
+
+        if (pos == leaf.keys.size() || compareKeys(leaf.keys.get(pos), key) != 0) {
+            return false;
+        }
+
+        List<V> posting = leaf.postings.get(pos);
+        if (!posting.remove(value)) {
+            return false;
+        }
+
+        if (posting.isEmpty()) {
+            leaf.keys.remove(pos);
+            leaf.postings.remove(pos);
+        }
+        size--;
+        return true;
+    }
+
+    /* =========================
+       LOOKUP
+       ========================= */
+
+    public List<V> get(Object key) {
+        if (key == null) {
+            return List.of();
+        }
+
+        Leaf<V> leaf = findLeaf(key);
+        int pos = lowerBound(leaf.keys, key);
+
+        if (pos < leaf.keys.size() && compareKeys(leaf.keys.get(pos), key) == 0) {
+            return List.copyOf(leaf.postings.get(pos));
+        }
+        return List.of();
+    }
+
+    /**
+     * Visits values whose key lies between {@code lo} and {@code hi} in key
+     * order. A {@code null} bound is unbounded on that side.
+     */
+    public void range(
+            Object lo, boolean loInclusive,
+            Object hi, boolean hiInclusive,
+            Consumer<V> consumer
+    ) {
+        rangeWithKeys(lo, loInclusive, hi, hiInclusive, (key, value) -> consumer.accept(value));
+    }
+
+    /** Like {@link #range(Object, boolean, Object, boolean, Consumer)}, with each value's key. */
+    public void rangeWithKeys(
+            Object lo, boolean loInclusive,
+            Object hi, boolean hiInclusive,
+            BiConsumer<Object, V> consumer
+    ) {
+        Leaf<V> leaf = lo == null ? leftmostLeaf() : findLeaf(lo);
+        int pos = lo == null
+                ? 0
+                : loInclusive ? lowerBound(leaf.keys, lo) : upperBound(leaf.keys, lo);
+
+        while (leaf != null) {
+            for (; pos < leaf.keys.size(); pos++) {
+                Object key = leaf.keys.get(pos);
+
+                if (hi != null) {
+                    int c = compareKeys(key, hi);
+                    if (c > 0 || (c == 0 && !hiInclusive)) {
+                        return;
+                    }
+                }
+
+                for (V value : leaf.postings.get(pos)) {
+                    consumer.accept(key, value);
+                }
+            }
+
+            leaf = leaf.next;
+            pos = 0;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Leaf<V> findLeaf(Object key) {
+        Node node = root;
+        while (node instanceof Inner inner) {
+            node = inner.children.get(upperBound(inner.keys, key));
+        }
+        return (Leaf<V>) node;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Leaf<V> leftmostLeaf() {
+        Node node = root;
+        while (node instanceof Inner inner) {
+            node = inner.children.get(0);
+        }
+        return (Leaf<V>) node;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        root = new Leaf<V>();
+        size = 0;
+    }
+}
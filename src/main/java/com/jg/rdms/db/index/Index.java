@@ -1,24 +1,80 @@
 package com.jg.rdms.db.index;
 
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
+/**
+ * Secondary index on one column: an ordered B+Tree from column value to
+ * the ids of the rows holding it. Kept in memory and rebuilt from
+ * the table on load; only its definition is stored in the catalog.
+ *
+ * The tree itself is not thread-safe, so access goes through this
+ * object's monitor.
+ */
 public class Index {
 
-    private final Map<Object, Long> map = new HashMap<>();
+    private final String name;
+    private final String column;
+    private final boolean implicit;
+    private final BPlusTree<Object> tree = new BPlusTree<>();
 
-    public void put(Object key, long offset) {
-        map.put(key, offset);
+    public Index(String name, String column) {
+        this(name, column, false);
     }
 
-    public Long get(Object key) {
-        return map.get(key);
+    /**
+     * @param implicit created by the engine (e.g. for a foreign key) rather
+     *                 than by CREATE INDEX; not recorded in the catalog
+     */
+    public Index(String name, String column, boolean implicit) {
+        this.name = name;
+        this.column = column;
+        this.implicit = implicit;
     }
 
-    public void remove(Object key) {
-        map.remove(key);
+    public String name() {
+        return name;
     }
 
-    public Set<Object> keys() {
-        return map.keySet();
+    public boolean implicit() {
+        return implicit;
+    }
+
+    public String column() {
+        return column;
+    }
+
+    public synchronized void put(Object key, Object rowId) {
+        tree.insert(key, rowId);
+    }
+
+    public synchronized void remove(Object key, Object rowId) {
+        tree.remove(key, rowId);
+    }
+
+    public synchronized List<Object> get(Object key) {
+        return tree.get(key);
+    }
+
+    public synchronized void range(
+            Object lo, boolean loInclusive,
+            Object hi, boolean hiInclusive,
+            Consumer<Object> consumer
+    ) {
+        tree.range(lo, loInclusive, hi, hiInclusive, consumer);
+    }
+
+    /** Like {@link #range(Object, boolean, Object, boolean, Consumer)}, with each id's key. */
+    public synchronized void rangeWithKeys(
+            Object lo, boolean loInclusive,
+            Object hi, boolean hiInclusive,
+            BiConsumer<Object, Object> consumer
+    ) {
+        tree.rangeWithKeys(lo, loInclusive, hi, hiInclusive, consumer);
+    }
+
+    public synchronized void clear() {
+        tree.clear();
     }
 }
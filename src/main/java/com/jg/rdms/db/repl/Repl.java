@@ -1,6 +1,9 @@
 package com.jg.rdms.db.repl;
 
+import com.jg.rdms.db.sql.Cursor;
+import com.jg.rdms.db.sql.PreparedStatement;
 import com.jg.rdms.db.sql.QueryExecutor;
+import com.jg.rdms.db.sql.Session;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
@@ -18,12 +21,16 @@ public class Repl {
     public void start() {
         System.out.println("RDMS REPL — type 'exit' to quit");
 
+        // one session for the whole REPL: BEGIN ... COMMIT spans lines
+        Session session = executor.openSession();
+
         try (BufferedReader reader =
                      new BufferedReader(new InputStreamReader(System.in))) {
 
             String line;
             while (true) {
-                System.out.print("rdms> ");
+                // "*" while a transaction is open
+                System.out.print(session.transaction() == null ? "rdms> " : "rdms*> ");
                 line = reader.readLine();
 
                 if (line == null) {
@@ -43,7 +50,17 @@ public class Repl {
                 }
 
                 try {
-                    Object result = executor.execute(line);
+                    PreparedStatement statement = executor.prepare(line);
+
+                    // 🔑 query rows are printed as they are read
+                    if (statement.isQuery()) {
+                        try (Cursor rows = executor.query(session, statement.bind())) {
+                            ResultPrinter.print(rows);
+                        }
+                        continue;
+                    }
+
+                    Object result = executor.execute(session, statement.bind());
 
                     if (result instanceof List<?> rows) {
                         ResultPrinter.printRows(
@@ -64,6 +81,9 @@ public class Repl {
 
         } catch (Exception e) {
             throw new RuntimeException(e);
+        } finally {
+            // an unfinished transaction is rolled back
+            session.close();
         }
     }
 }
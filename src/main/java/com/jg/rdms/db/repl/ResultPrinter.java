@@ -4,22 +4,38 @@ import java.util.*;
 
 public class ResultPrinter {
 
+    // rows read before the column widths are fixed
+    private static final int WIDTH_SAMPLE = 100;
+
     public static void printRows(List<Map<String, Object>> rows) {
+        print(rows.iterator());
+    }
 
-        if (rows.isEmpty()) {
+    /**
+     * Prints rows as they come: column widths are taken from the first
+     * rows, and a longer value further down just pushes its line out.
+     */
+    public static void print(Iterator<? extends Map<String, Object>> rows) {
+
+        List<Map<String, Object>> first = new ArrayList<>();
+        while (first.size() < WIDTH_SAMPLE && rows.hasNext()) {
+            first.add(rows.next());
+        }
+
+        if (first.isEmpty()) {
             System.out.println("(empty result)");
             return;
         }
 
         // Preserve column order
-        List<String> columns = new ArrayList<>(rows.get(0).keySet());
+        List<String> columns = new ArrayList<>(first.get(0).keySet());
 
         Map<String, Integer> widths = new HashMap<>();
         for (String col : columns) {
             widths.put(col, col.length());
         }
 
-        for (Map<String, Object> row : rows) {
+        for (Map<String, Object> row : first) {
             for (String col : columns) {
                 Object val = row.get(col);
                 widths.put(
@@ -36,17 +52,24 @@ public class ResultPrinter {
         printRow(columns, widths, columns);
         printSeparator(columns, widths);
 
-        for (Map<String, Object> row : rows) {
-            List<String> values = new ArrayList<>();
-            for (String col : columns) {
-                values.add(String.valueOf(row.get(col)));
-            }
-            printRow(columns, widths, values);
-        }
+        first.forEach(row -> printValues(columns, widths, row));
+        rows.forEachRemaining(row -> printValues(columns, widths, row));
 
         printSeparator(columns, widths);
     }
 
+    private static void printValues(
+            List<String> columns,
+            Map<String, Integer> widths,
+            Map<String, Object> row
+    ) {
+        List<String> values = new ArrayList<>();
+        for (String col : columns) {
+            values.add(String.valueOf(row.get(col)));
+        }
+        printRow(columns, widths, values);
+    }
+
     private static void printSeparator(
             List<String> cols,
             Map<String, Integer> widths
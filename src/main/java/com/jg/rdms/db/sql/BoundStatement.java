@@ -0,0 +1,31 @@
+package com.jg.rdms.db.sql;
+
+/**
+ * A {@link PreparedStatement} with its parameters filled in, ready for
+ * {@link QueryExecutor#execute(Session, BoundStatement)} or
+ * {@link QueryExecutor#query(Session, BoundStatement)}. Run it as often
+ * as needed.
+ */
+public final class BoundStatement {
+
+    private final PreparedStatement statement;
+    private final Object command;
+
+    BoundStatement(PreparedStatement statement, Object command) {
+        this.statement = statement;
+        this.command = command;
+    }
+
+    public PreparedStatement statement() {
+        return statement;
+    }
+
+    Object command() {
+        return command;
+    }
+
+    @Override
+    public String toString() {
+        return statement.sql();
+    }
+}
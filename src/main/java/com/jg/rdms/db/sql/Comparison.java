@@ -0,0 +1,98 @@
+package com.jg.rdms.db.sql;
+
+import com.jg.rdms.db.index.BPlusTree;
+
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * One {@code column op value} term of a WHERE clause (see {@link Condition}).
+ */
+public record Comparison(
+        String column,
+        Op op,
+        Object value
+) implements Condition {
+
+    public enum Op {
+        EQ("="), NE("<>"), LT("<"), LE("<="), GT(">"), GE(">=");
+
+        private final String symbol;
+
+        Op(String symbol) {
+            this.symbol = symbol;
+        }
+
+        public String symbol() {
+            return symbol;
+        }
+
+        /** The operator true exactly where this one is false. */
+        public Op complement() {
+            return switch (this) {
+                case EQ -> NE;
+                case NE -> EQ;
+                case LT -> GE;
+                case LE -> GT;
+                case GT -> LE;
+                case GE -> LT;
+            };
+        }
+
+        /** Whether this operator bounds a range (not = or &lt;&gt;). */
+        public boolean isRange() {
+            return this != EQ && this != NE;
+        }
+
+        public static Op of(String symbol) {
+            if (symbol.equals("!=")) {
+                return NE;
+            }
+            for (Op op : values()) {
+                if (op.symbol.equals(symbol)) {
+                    return op;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operator: " + symbol);
+        }
+    }
+
+    /**
+     * Whether {@code row} satisfies this term. Missing columns, {@code null}
+     * values and values of another type never match.
+     */
+    @Override
+    public boolean test(Map<String, Object> row) {
+        Object actual = row.get(column);
+
+        if (!Condition.sameType(actual, value)) {
+            return false;
+        }
+
+        int c = BPlusTree.compareKeys(actual, value);
+
+        return switch (op) {
+            case EQ -> c == 0;
+            case NE -> c != 0;
+            case LT -> c < 0;
+            case LE -> c <= 0;
+            case GT -> c > 0;
+            case GE -> c >= 0;
+        };
+    }
+
+    @Override
+    public Condition negate() {
+        return new Comparison(column, op.complement(), value);
+    }
+
+    @Override
+    public Condition map(UnaryOperator<String> columns, UnaryOperator<Object> values) {
+        return new Comparison(columns.apply(column), op, values.apply(value));
+    }
+
+    @Override
+    public String sql() {
+        return column + " " + op.symbol() + " " + Condition.literal(value);
+    }
+}
@@ -0,0 +1,311 @@
+package com.jg.rdms.db.sql;
+
+import com.jg.rdms.db.index.BPlusTree;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+/**
+ * One term of a WHERE clause. A WHERE clause is a list of terms that must
+ * all hold; OR and parenthesized AND nest inside a term.
+ *
+ * NOT never appears as a node: the parser pushes it down with
+ * {@link #negate()}. Every term but IS NULL is false on a NULL or a value
+ * of another type, so the negated term is false there too, which is what
+ * SQL's three-valued logic gives in a WHERE clause.
+ *
+ * {@link #test} interprets a term over a map of values; queries run it
+ * through {@link Conditions#compile} instead.
+ */
+public sealed interface Condition
+        permits Comparison, Condition.Between, Condition.In, Condition.IsNull,
+        Condition.Like, Condition.Or, Condition.And {
+
+    /** Whether {@code row} satisfies the term; missing columns read as NULL. */
+    boolean test(Map<String, Object> row);
+
+    /** The term that holds exactly where this one is false (NULLs aside). */
+    Condition negate();
+
+    /** The term with every column and value passed through the functions. */
+    Condition map(UnaryOperator<String> columns, UnaryOperator<Object> values);
+
+    /** The term as SQL, for EXPLAIN. */
+    String sql();
+
+    /** The columns the term reads. */
+    default Set<String> columns() {
+        Set<String> columns = new LinkedHashSet<>();
+        map(c -> {
+            columns.add(c);
+            return c;
+        }, v -> v);
+        return columns;
+    }
+
+    /* =========================
+       TERMS
+       ========================= */
+
+    /** {@code column [NOT] BETWEEN low AND high}, both bounds inclusive. */
+    record Between(String column, Object low, Object high, boolean negated) implements Condition {
+
+        @Override
+        public boolean test(Map<String, Object> row) {
+            Object actual = row.get(column);
+
+            if (!sameType(actual, low) || !sameType(actual, high)) {
+                return false;
+            }
+            boolean between = BPlusTree.compareKeys(actual, low) >= 0
+                    && BPlusTree.compareKeys(actual, high) <= 0;
+            return between != negated;
+        }
+
+        @Override
+        public Condition negate() {
+            return new Between(column, low, high, !negated);
+        }
+
+        @Override
+        public Condition map(UnaryOperator<String> columns, UnaryOperator<Object> values) {
+            return new Between(columns.apply(column), values.apply(low), values.apply(high), negated);
+        }
+
+        /** The bounds as {@code >=} and {@code <=} comparisons. */
+        public List<Comparison> bounds() {
+            return List.of(
+                    new Comparison(column, Comparison.Op.GE, low),
+                    new Comparison(column, Comparison.Op.LE, high)
+            );
+        }
+
+        @Override
+        public String sql() {
+            return column + (negated ? " NOT" : "") + " BETWEEN "
+                    + literal(low) + " AND " + literal(high);
+        }
+    }
+
+    /** {@code column [NOT] IN (values...)}. */
+    record In(String column, List<Object> values, boolean negated) implements Condition {
+
+        @Override
+        public boolean test(Map<String, Object> row) {
+            Object actual = row.get(column);
+            if (actual == null) {
+                return false;
+            }
+
+            if (!negated) {
+                return values.contains(actual);
+            }
+            // NOT IN is a <> per value, each false across types
+            for (Object value : values) {
+                if (!sameType(actual, value) || actual.equals(value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Condition negate() {
+            return new In(column, values, !negated);
+        }
+
+        @Override
+        public Condition map(UnaryOperator<String> columns, UnaryOperator<Object> values) {
+            List<Object> mapped = new ArrayList<>(this.values.size());
+            this.values.forEach(v -> mapped.add(values.apply(v)));
+            return new In(columns.apply(column), mapped, negated);
+        }
+
+        @Override
+        public String sql() {
+            StringJoiner list = new StringJoiner(", ", "(", ")");
+            values.forEach(v -> list.add(literal(v)));
+            return column + (negated ? " NOT IN " : " IN ") + list;
+        }
+    }
+
+    /** {@code column IS [NOT] NULL}. */
+    record IsNull(String column, boolean negated) implements Condition {
+
+        @Override
+        public boolean test(Map<String, Object> row) {
+            return (row.get(column) == null) != negated;
+        }
+
+        @Override
+        public Condition negate() {
+            return new IsNull(column, !negated);
+        }
+
+        @Override
+        public Condition map(UnaryOperator<String> columns, UnaryOperator<Object> values) {
+            return new IsNull(columns.apply(column), negated);
+        }
+
+        @Override
+        public String sql() {
+            return column + (negated ? " IS NOT NULL" : " IS NULL");
+        }
+    }
+
+    /**
+     * {@code column [NOT] LIKE pattern}: {@code %} matches any run of
+     * characters, {@code _} exactly one. Only TEXT values match.
+     */
+    record Like(String column, Object pattern, boolean negated) implements Condition {
+
+        @Override
+        public boolean test(Map<String, Object> row) {
+            return row.get(column) instanceof String actual
+                    && pattern instanceof String p
+                    && matcher(p).test(actual) != negated;
+        }
+
+        @Override
+        public Condition negate() {
+            return new Like(column, pattern, !negated);
+        }
+
+        @Override
+        public Condition map(UnaryOperator<String> columns, UnaryOperator<Object> values) {
+            return new Like(columns.apply(column), values.apply(pattern), negated);
+        }
+
+        @Override
+        public String sql() {
+            return column + (negated ? " NOT LIKE " : " LIKE ") + literal(pattern);
+        }
+
+        /**
+         * A test for {@code pattern}. The usual shapes (no wildcard, a
+         * prefix, a suffix, a substring) skip the regular expression.
+         */
+        public static java.util.function.Predicate<String> matcher(String pattern) {
+            String inner = pattern.length() >= 2 && pattern.startsWith("%") && pattern.endsWith("%")
+                    ? pattern.substring(1, pattern.length() - 1)
+                    : null;
+
+            if (!hasWildcard(pattern)) {
+                return pattern::equals;
+            }
+            if (pattern.endsWith("%") && !hasWildcard(pattern.substring(0, pattern.length() - 1))) {
+                String prefix = pattern.substring(0, pattern.length() - 1);
+                return s -> s.startsWith(prefix);
+            }
+            if (pattern.startsWith("%") && !hasWildcard(pattern.substring(1))) {
+                String suffix = pattern.substring(1);
+                return s -> s.endsWith(suffix);
+            }
+            if (inner != null && !hasWildcard(inner)) {
+                return s -> s.contains(inner);
+            }
+
+            StringBuilder regex = new StringBuilder();
+            StringBuilder literal = new StringBuilder();
+            for (char ch : pattern.toCharArray()) {
+                if (ch == '%' || ch == '_') {
+                    if (!literal.isEmpty()) {
+                        regex.append(Pattern.quote(literal.toString()));
+                        literal.setLength(0);
+                    }
+                    regex.append(ch == '%' ? ".*" : ".");
+                } else {
+                    literal.append(ch);
+                }
+            }
+            if (!literal.isEmpty()) {
+                regex.append(Pattern.quote(literal.toString()));
+            }
+            Pattern compiled = Pattern.compile(regex.toString(), Pattern.DOTALL);
+            return s -> compiled.matcher(s).matches();
+        }
+
+        private static boolean hasWildcard(String s) {
+            return s.indexOf('%') >= 0 || s.indexOf('_') >= 0;
+        }
+    }
+
+    /** Terms of which at least one holds. */
+    record Or(List<Condition> terms) implements Condition {
+
+        @Override
+        public boolean test(Map<String, Object> row) {
+            for (Condition term : terms) {
+                if (term.test(row)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Condition negate() {
+            return new And(terms.stream().map(Condition::negate).toList());
+        }
+
+        @Override
+        public Condition map(UnaryOperator<String> columns, UnaryOperator<Object> values) {
+            return new Or(terms.stream().map(t -> t.map(columns, values)).toList());
+        }
+
+        @Override
+        public String sql() {
+            StringJoiner joined = new StringJoiner(" OR ", "(", ")");
+            terms.forEach(t -> joined.add(t.sql()));
+            return joined.toString();
+        }
+    }
+
+    /** Terms that all hold, where they nest inside an OR. */
+    record And(List<Condition> terms) implements Condition {
+
+        @Override
+        public boolean test(Map<String, Object> row) {
+            for (Condition term : terms) {
+                if (!term.test(row)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Condition negate() {
+            return new Or(terms.stream().map(Condition::negate).toList());
+        }
+
+        @Override
+        public Condition map(UnaryOperator<String> columns, UnaryOperator<Object> values) {
+            return new And(terms.stream().map(t -> t.map(columns, values)).toList());
+        }
+
+        @Override
+        public String sql() {
+            StringJoiner joined = new StringJoiner(" AND ", "(", ")");
+            terms.forEach(t -> joined.add(t.sql()));
+            return joined.toString();
+        }
+    }
+
+    /* =========================
+       HELPERS
+       ========================= */
+
+    /** Whether a non-NULL {@code actual} can be compared with {@code value}. */
+    static boolean sameType(Object actual, Object value) {
+        return actual != null && value != null && actual.getClass() == value.getClass();
+    }
+
+    static String literal(Object value) {
+        if (value instanceof Parameter) {
+            return "?";
+        }
+        return value instanceof String s ? "'" + s.replace("'", "''") + "'" : String.valueOf(value);
+    }
+}
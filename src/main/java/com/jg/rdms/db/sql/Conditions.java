@@ -0,0 +1,236 @@
+package com.jg.rdms.db.sql;
+
+import com.jg.rdms.db.core.Row;
+import com.jg.rdms.db.core.RowLayout;
+import com.jg.rdms.db.index.BPlusTree;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Compiles WHERE terms into row predicates, once per statement instead of
+ * interpreting the tree for every row: column positions are looked up in
+ * the layout up front, each operator gets its own small lambda, INT
+ * values are compared as {@code int}s, IN lists become a sorted
+ * {@code int[]} or a hash set and LIKE patterns a prepared matcher.
+ *
+ * The compiled predicate agrees with {@link Condition#test}.
+ */
+final class Conditions {
+
+    private Conditions() {
+    }
+
+    /**
+     * A predicate for rows of {@code layout} satisfying every term of
+     * {@code where}; {@code resolve} maps each column as written to its
+     * name in the layout.
+     */
+    static Predicate<Row> compile(List<Condition> where, RowLayout layout, UnaryOperator<String> resolve) {
+        if (where.isEmpty()) {
+            return row -> true;
+        }
+        if (where.size() == 1) {
+            return compile(where.get(0), layout, resolve);
+        }
+        return all(where.stream().map(c -> compile(c, layout, resolve)).toList());
+    }
+
+    static Predicate<Row> compile(List<Condition> where, RowLayout layout) {
+        return compile(where, layout, UnaryOperator.identity());
+    }
+
+    private static Predicate<Row> compile(Condition condition, RowLayout layout, UnaryOperator<String> resolve) {
+        if (condition instanceof Comparison c) {
+            return comparison(new Column(layout, resolve.apply(c.column())), c.op(), c.value());
+        }
+        if (condition instanceof Condition.Between b) {
+            return between(new Column(layout, resolve.apply(b.column())), b);
+        }
+        if (condition instanceof Condition.In in) {
+            return in(new Column(layout, resolve.apply(in.column())), in);
+        }
+        if (condition instanceof Condition.IsNull n) {
+            Column column = new Column(layout, resolve.apply(n.column()));
+            return n.negated()
+                    ? row -> column.read(row) != null
+                    : row -> column.read(row) == null;
+        }
+        if (condition instanceof Condition.Like like) {
+            return like(new Column(layout, resolve.apply(like.column())), like);
+        }
+        if (condition instanceof Condition.Or or) {
+            return any(or.terms().stream().map(t -> compile(t, layout, resolve)).toList());
+        }
+        if (condition instanceof Condition.And and) {
+            return all(and.terms().stream().map(t -> compile(t, layout, resolve)).toList());
+        }
+        throw new IllegalArgumentException("Unsupported condition: " + condition);
+    }
+
+    /* =========================
+       TERMS
+       ========================= */
+
+    private static Predicate<Row> comparison(Column column, Comparison.Op op, Object value) {
+        if (value == null) {
+            return row -> false;
+        }
+
+        // 🔑 INT against INT: unbox once, compare primitives
+        if (value instanceof Integer boxed) {
+            int x = boxed;
+            return switch (op) {
+                case EQ -> row -> column.read(row) instanceof Integer v && v == x;
+                case NE -> row -> column.read(row) instanceof Integer v && v != x;
+                case LT -> row -> column.read(row) instanceof Integer v && v < x;
+                case LE -> row -> column.read(row) instanceof Integer v && v <= x;
+                case GT -> row -> column.read(row) instanceof Integer v && v > x;
+                case GE -> row -> column.read(row) instanceof Integer v && v >= x;
+            };
+        }
+
+        if (value instanceof String s) {
+            return switch (op) {
+                case EQ -> row -> column.read(row) instanceof String v && v.equals(s);
+                case NE -> row -> column.read(row) instanceof String v && !v.equals(s);
+                case LT -> row -> column.read(row) instanceof String v && v.compareTo(s) < 0;
+                case LE -> row -> column.read(row) instanceof String v && v.compareTo(s) <= 0;
+                case GT -> row -> column.read(row) instanceof String v && v.compareTo(s) > 0;
+                case GE -> row -> column.read(row) instanceof String v && v.compareTo(s) >= 0;
+            };
+        }
+
+        Comparison interpreted = new Comparison(column.name, op, value);
+        return interpreted::test;
+    }
+
+    private static Predicate<Row> between(Column column, Condition.Between b) {
+        if (b.low() instanceof Integer lo && b.high() instanceof Integer hi) {
+            int low = lo;
+            int high = hi;
+            return b.negated()
+                    ? row -> column.read(row) instanceof Integer v && (v < low || v > high)
+                    : row -> column.read(row) instanceof Integer v && v >= low && v <= high;
+        }
+
+        return row -> {
+            Object v = column.read(row);
+            if (!Condition.sameType(v, b.low()) || !Condition.sameType(v, b.high())) {
+                return false;
+            }
+            boolean between = BPlusTree.compareKeys(v, b.low()) >= 0
+                    && BPlusTree.compareKeys(v, b.high()) <= 0;
+            return between != b.negated();
+        };
+    }
+
+    private static Predicate<Row> in(Column column, Condition.In in) {
+        List<Object> values = in.values();
+        boolean allInts = values.stream().allMatch(v -> v instanceof Integer);
+
+        if (in.negated()) {
+            // NOT IN is a <> per value: a value of another type in the list fails every row
+            Class<?> type = values.isEmpty() || values.get(0) == null ? null : values.get(0).getClass();
+            if (type == null || values.stream().anyMatch(v -> v == null || v.getClass() != type)) {
+                return values.isEmpty() ? row -> column.read(row) != null : row -> false;
+            }
+            Set<Object> excluded = new HashSet<>(values);
+            return row -> {
+                Object v = column.read(row);
+                return v != null && v.getClass() == type && !excluded.contains(v);
+            };
+        }
+
+        if (allInts) {
+            int[] keys = values.stream().mapToInt(v -> (Integer) v).sorted().distinct().toArray();
+            return row -> column.read(row) instanceof Integer v && Arrays.binarySearch(keys, v) >= 0;
+        }
+        Set<Object> accepted = new HashSet<>(values);
+        return row -> {
+            Object v = column.read(row);
+            return v != null && accepted.contains(v);
+        };
+    }
+
+    private static Predicate<Row> like(Column column, Condition.Like like) {
+        if (!(like.pattern() instanceof String pattern)) {
+            return row -> false;
+        }
+        Predicate<String> matcher = Condition.Like.matcher(pattern);
+
+        return like.negated()
+                ? row -> column.read(row) instanceof String v && !matcher.test(v)
+                : row -> column.read(row) instanceof String v && matcher.test(v);
+    }
+
+    /* =========================
+       COMBINATIONS
+       ========================= */
+
+    @SuppressWarnings("unchecked")
+    private static Predicate<Row> all(List<Predicate<Row>> terms) {
+        if (terms.size() == 1) {
+            return terms.get(0);
+        }
+        if (terms.size() == 2) {
+            Predicate<Row> a = terms.get(0);
+            Predicate<Row> b = terms.get(1);
+            return row -> a.test(row) && b.test(row);
+        }
+
+        Predicate<Row>[] array = terms.toArray(new Predicate[0]);
+        return row -> {
+            for (Predicate<Row> term : array) {
+                if (!term.test(row)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Predicate<Row> any(List<Predicate<Row>> terms) {
+        if (terms.size() == 1) {
+            return terms.get(0);
+        }
+        if (terms.size() == 2) {
+            Predicate<Row> a = terms.get(0);
+            Predicate<Row> b = terms.get(1);
+            return row -> a.test(row) || b.test(row);
+        }
+
+        Predicate<Row>[] array = terms.toArray(new Predicate[0]);
+        return row -> {
+            for (Predicate<Row> term : array) {
+                if (term.test(row)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    /**
+     * A column read by position when the row has the layout compiled
+     * against, by name otherwise.
+     */
+    private static final class Column {
+
+        private final RowLayout layout;
+        private final int position;
+        private final String name;
+
+        Column(RowLayout layout, String name) {
+            this.layout = layout;
+            this.position = layout.position(name);
+            this.name = name;
+        }
+
+        Object read(Row row) {
+            return position >= 0 && row.layout() == layout ? row.value(position) : row.get(name);
+        }
+    }
+}
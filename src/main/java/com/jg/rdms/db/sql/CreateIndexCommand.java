@@ -0,0 +1,7 @@
+package com.jg.rdms.db.sql;
+
+public record CreateIndexCommand(
+        String indexName,
+        String table,
+        String column
+) {}
@@ -0,0 +1,82 @@
+package com.jg.rdms.db.sql;
+
+import com.jg.rdms.db.core.Row;
+import com.jg.rdms.db.exec.Operator;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The result of a query, pulled a row or a batch at a time (see
+ * {@link QueryExecutor#query(Session, String)}). Rows are produced as
+ * they are asked for, from the snapshot the query started with.
+ *
+ * A cursor closes itself once its last row is read; close it before
+ * that to stop the query early. Closing ends the query's transaction if
+ * it had one of its own.
+ */
+public final class Cursor implements Iterator<Row>, AutoCloseable {
+
+    private final Operator root;
+    private final Runnable onClose;
+
+    private Row next;
+    private boolean closed = false;
+
+    Cursor(Operator root, Runnable onClose) {
+        this.root = root;
+        this.onClose = onClose;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !closed) {
+            try {
+                next = root.next();
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+            if (next == null) {
+                close();
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Row next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Row row = next;
+        next = null;
+        return row;
+    }
+
+    /** Up to {@code max} more rows; fewer (or none) once the result runs out. */
+    public List<Row> fetch(int max) {
+        List<Row> rows = new ArrayList<>(Math.min(max, 1024));
+        while (rows.size() < max && hasNext()) {
+            rows.add(next());
+        }
+        return rows;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        next = null;
+
+        try {
+            root.close();
+        } finally {
+            onClose.run();
+        }
+    }
+}
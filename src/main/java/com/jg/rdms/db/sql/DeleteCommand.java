@@ -1,8 +1,8 @@
 package com.jg.rdms.db.sql;
 
-import java.util.Map;
+import java.util.List;
 
 public record DeleteCommand(
         String table,
-        Map<String, Object> whereEquals
+        List<Condition> where
 ) {}
@@ -0,0 +1,6 @@
+package com.jg.rdms.db.sql;
+
+/** EXPLAIN of a {@link SelectCommand} or {@link JoinCommand}. */
+public record ExplainCommand(
+        Object query
+) {}
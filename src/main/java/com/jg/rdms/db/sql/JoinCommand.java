@@ -1,12 +1,19 @@
 package com.jg.rdms.db.sql;
 
-import java.util.Map;
+import java.util.List;
 
+/**
+ * {@code columns} is the select list, empty for {@code *}; {@code limit}
+ * is null without a LIMIT clause.
+ */
 public record JoinCommand(
         JoinType type,
+        List<String> columns,
         String leftTable,
         String rightTable,
         String leftColumn,
         String rightColumn,
-        Map<String, Object> whereEquals
+        List<Condition> where,
+        List<SortKey> orderBy,
+        Integer limit
 ) {}
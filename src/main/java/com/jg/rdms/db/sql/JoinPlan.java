@@ -0,0 +1,59 @@
+package com.jg.rdms.db.sql;
+
+import java.util.List;
+
+/**
+ * How a join is executed.
+ *
+ * @param strategy  the join algorithm
+ * @param leftFirst index nested loop: the left side drives and the right
+ *                  is probed; hash join: the left side is built
+ * @param leftOrder  sort-merge join: how the left rows come in key order
+ * @param rightOrder sort-merge join: how the right rows come in key order
+ * @param left      the left table's own WHERE terms and how it is read
+ * @param right     the right table's own WHERE terms and how it is read
+ * @param where     the WHERE terms left to check on the joined rows
+ * @param leftRows  estimated rows of the left side, after its terms
+ * @param rightRows estimated rows of the right side, after its terms
+ * @param joined    estimated rows of the join before {@code where}
+ * @param rows      estimated rows of the result
+ * @param cost      estimated cost (see {@link QueryPlanner})
+ */
+public record JoinPlan(
+        Strategy strategy,
+        boolean leftFirst,
+        InputOrder leftOrder,
+        InputOrder rightOrder,
+        Input left,
+        Input right,
+        List<Condition> where,
+        double leftRows,
+        double rightRows,
+        double joined,
+        double rows,
+        double cost
+) {
+
+    public enum Strategy {
+        INDEX_NESTED_LOOP, HASH, SORT_MERGE
+    }
+
+    /** How one input of a sort-merge join is put in key order. */
+    public enum InputOrder {
+        /** a full scan already returns the rows in key order */
+        SCAN,
+        /** the rows are read through an index on the key */
+        INDEX,
+        /** the rows are sorted, spilling to disk if they do not fit */
+        SORT
+    }
+
+    /**
+     * One side of the join before it is joined.
+     *
+     * @param where  WHERE terms on this table alone, columns without the table
+     * @param access how the table is read for them
+     */
+    public record Input(List<Condition> where, ScanPlan access) {
+    }
+}
@@ -0,0 +1,118 @@
+package com.jg.rdms.db.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a statement into {@link Token}s in one pass over the text, with
+ * no upper-cased or whitespace-collapsed copy of it. Keywords stay words;
+ * the parser compares them ignoring case.
+ */
+final class Lexer {
+
+    private final String sql;
+    private int pos = 0;
+
+    private Lexer(String sql) {
+        this.sql = sql;
+    }
+
+    /** The tokens of {@code sql}, ending with one {@link Token.Kind#END}. */
+    static List<Token> tokenize(String sql) {
+        return new Lexer(sql).tokens();
+    }
+
+    private List<Token> tokens() {
+        List<Token> tokens = new ArrayList<>();
+
+        while (true) {
+            while (pos < sql.length() && Character.isWhitespace(sql.charAt(pos))) {
+                pos++;
+            }
+            if (pos == sql.length()) {
+                tokens.add(new Token(Token.Kind.END, "", pos));
+                return tokens;
+            }
+            tokens.add(next());
+        }
+    }
+
+    private Token next() {
+        int start = pos;
+        char c = sql.charAt(pos);
+
+        if (Character.isLetter(c) || c == '_') {
+            while (pos < sql.length() && isWordChar(sql.charAt(pos))) {
+                pos++;
+            }
+            return new Token(Token.Kind.WORD, sql.substring(start, pos), start);
+        }
+
+        if (Character.isDigit(c)) {
+            while (pos < sql.length() && Character.isDigit(sql.charAt(pos))) {
+                pos++;
+            }
+            return new Token(Token.Kind.NUMBER, sql.substring(start, pos), start);
+        }
+
+        if (c == '\'') {
+            return string(start);
+        }
+
+        pos++;
+        if (c == '?') {
+            return new Token(Token.Kind.PARAMETER, "?", start);
+        }
+        if (c == '<' || c == '>' || c == '!') {
+            // <=, >=, <>, !=
+            if (pos < sql.length() && (sql.charAt(pos) == '=' || (c == '<' && sql.charAt(pos) == '>'))) {
+                pos++;
+                return new Token(Token.Kind.SYMBOL, sql.substring(start, pos), start);
+            }
+            if (c != '!') {
+                return new Token(Token.Kind.SYMBOL, String.valueOf(c), start);
+            }
+        }
+        if ("(),.*;=-".indexOf(c) >= 0) {
+            return new Token(Token.Kind.SYMBOL, String.valueOf(c), start);
+        }
+
+        throw new IllegalArgumentException(
+                "Unexpected character '" + c + "' at position " + start
+        );
+    }
+
+    /** A string literal; {@code ''} inside it is one quote. */
+    private Token string(int start) {
+        StringBuilder value = null;
+        int from = ++pos;
+
+        while (true) {
+            int quote = sql.indexOf('\'', pos);
+            if (quote < 0) {
+                throw new IllegalArgumentException(
+                        "Unterminated string literal at position " + start
+                );
+            }
+
+            if (quote + 1 < sql.length() && sql.charAt(quote + 1) == '\'') {
+                if (value == null) {
+                    value = new StringBuilder();
+                }
+                value.append(sql, from, quote + 1);
+                pos = from = quote + 2;
+                continue;
+            }
+
+            pos = quote + 1;
+            String text = value == null
+                    ? sql.substring(from, quote)
+                    : value.append(sql, from, quote).toString();
+            return new Token(Token.Kind.STRING, text, start);
+        }
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+}
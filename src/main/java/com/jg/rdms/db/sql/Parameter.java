@@ -0,0 +1,8 @@
+package com.jg.rdms.db.sql;
+
+/**
+ * A {@code ?} placeholder in a prepared statement, standing where a
+ * literal would; {@code index} counts from 0 in order of appearance.
+ */
+record Parameter(int index) {
+}
@@ -0,0 +1,116 @@
+package com.jg.rdms.db.sql;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A parsed statement (see {@link QueryExecutor#prepare}) that may have
+ * {@code ?} placeholders where literal values would go: WHERE and SET
+ * values and INSERT values. Immutable, so one instance is shared by
+ * every caller of the same SQL; {@link #bind} fills the placeholders in
+ * without parsing again, and a bound value is never read as SQL.
+ */
+public final class PreparedStatement {
+
+    private final String sql;
+    private final Object command;
+    private final int parameterCount;
+
+    PreparedStatement(String sql, Object command, int parameterCount) {
+        this.sql = sql;
+        this.command = command;
+        this.parameterCount = parameterCount;
+    }
+
+    /** The normalized SQL text. */
+    public String sql() {
+        return sql;
+    }
+
+    public int parameterCount() {
+        return parameterCount;
+    }
+
+    /** Whether the statement returns rows: a SELECT, join or EXPLAIN. */
+    public boolean isQuery() {
+        return command instanceof SelectCommand
+                || command instanceof JoinCommand
+                || command instanceof ExplainCommand;
+    }
+
+    /**
+     * The statement with {@code values} in place of its placeholders, in
+     * order. Values are {@code Integer} or {@code String}, like the INT
+     * and TEXT literals they stand for.
+     */
+    public BoundStatement bind(Object... values) {
+        if (values.length != parameterCount) {
+            throw new IllegalArgumentException(
+                    "Expected " + parameterCount + " parameter(s), got " + values.length + ": " + sql
+            );
+        }
+        for (Object value : values) {
+            if (!(value instanceof Integer) && !(value instanceof String)) {
+                throw new IllegalArgumentException(
+                        "Unsupported parameter value: " + value
+                );
+            }
+        }
+
+        return new BoundStatement(this, parameterCount == 0 ? command : bind(command, values));
+    }
+
+    /* =========================
+       BINDING
+       ========================= */
+
+    private static Object bind(Object command, Object[] values) {
+        if (command instanceof SelectCommand cmd) {
+            return new SelectCommand(cmd.table(), cmd.columns(), bind(cmd.where(), values),
+                    cmd.orderBy(), cmd.limit());
+        }
+        if (command instanceof JoinCommand cmd) {
+            return new JoinCommand(cmd.type(), cmd.columns(), cmd.leftTable(), cmd.rightTable(),
+                    cmd.leftColumn(), cmd.rightColumn(),
+                    bind(cmd.where(), values), cmd.orderBy(), cmd.limit());
+        }
+        if (command instanceof InsertCommand cmd) {
+            List<Object> bound = new ArrayList<>(cmd.values().size());
+            for (Object value : cmd.values()) {
+                bound.add(value(value, values));
+            }
+            return new InsertCommand(cmd.table(), cmd.columns(), bound);
+        }
+        if (command instanceof UpdateCommand cmd) {
+            Map<String, Object> bound = new LinkedHashMap<>();
+            cmd.setValues().forEach((column, value) -> bound.put(column, value(value, values)));
+            return new UpdateCommand(cmd.table(), bound, bind(cmd.where(), values));
+        }
+        if (command instanceof DeleteCommand cmd) {
+            return new DeleteCommand(cmd.table(), bind(cmd.where(), values));
+        }
+        if (command instanceof ExplainCommand cmd) {
+            return new ExplainCommand(bind(cmd.query(), values));
+        }
+        return command;
+    }
+
+    private static List<Condition> bind(List<Condition> where, Object[] values) {
+        List<Condition> bound = new ArrayList<>(where.size());
+        for (Condition c : where) {
+            bound.add(c.map(column -> column, value -> value(value, values)));
+        }
+        return bound;
+    }
+
+    private static Object value(Object value, Object[] values) {
+        return value instanceof Parameter p ? values[p.index()] : value;
+    }
+
+    @Override
+    public String toString() {
+        return sql;
+    }
+}
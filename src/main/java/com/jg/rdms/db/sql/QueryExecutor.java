@@ -1,155 +1,354 @@
 package com.jg.rdms.db.sql;
 
-import com.jg.rdms.db.core.Column;
 import com.jg.rdms.db.core.Database;
 import com.jg.rdms.db.core.PersistentTable;
+import com.jg.rdms.db.core.Row;
+import com.jg.rdms.db.core.RowLayout;
 import com.jg.rdms.db.core.Table;
+import com.jg.rdms.db.exec.*;
+import com.jg.rdms.db.index.BPlusTree;
+import com.jg.rdms.db.tx.Snapshot;
 import com.jg.rdms.db.tx.Transaction;
 import com.jg.rdms.db.tx.TransactionManager;
 
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 public class QueryExecutor {
 
     private final Database db;
     private final TransactionManager txManager;
+    private final QueryPlanner planner = new QueryPlanner();
+    private final StatementCache statements;
 
     public QueryExecutor(Database db, TransactionManager txManager) {
         this.db = db;
         this.txManager = txManager;
+        this.statements = new StatementCache(db.options().getStatementCacheSize());
     }
 
+    /** A new client session, with no transaction open. */
+    public Session openSession() {
+        return new Session(txManager);
+    }
+
+    /**
+     * Parses {@code sql} once and returns it ready to {@link PreparedStatement#bind bind}
+     * and run, any number of times. {@code ?} stands for a value bound
+     * later. Statements are cached by their normalized text (the last
+     * {@code rdbms.statement-cache-size} used), so preparing the same SQL
+     * again costs a map lookup; the access path is still chosen on each
+     * run, from the bound values and the current statistics.
+     */
+    public PreparedStatement prepare(String sql) {
+        return statements.get(SqlParser.normalize(sql), this::parse);
+    }
+
+    /** Statements in the cache. */
+    public int cachedStatements() {
+        return statements.size();
+    }
+
+    private PreparedStatement parse(String sql) {
+        SqlParser parser = new SqlParser(sql);
+        Object command = parser.statement();
+        return new PreparedStatement(sql, command, parser.parameterCount());
+    }
+
+    /**
+     * Runs one statement in a transaction of its own. Use
+     * {@link #execute(Session, String)} for BEGIN, COMMIT and ROLLBACK.
+     */
     public Object execute(String sql) {
-        sql = sql.trim();
-        String upper = sql.toUpperCase();
+        BoundStatement statement = prepare(sql).bind();
 
-        if (upper.startsWith("CREATE TABLE")) {
-            executeCreateTable(
-                    SqlParser.parseCreateTable(sql)
+        if (statement.command() instanceof TransactionCommand) {
+            throw new IllegalStateException(
+                    "Transaction control needs a session: " + statement
             );
-            return "OK";
         }
+        return execute(new Session(txManager), statement);
+    }
+
+    /**
+     * Runs one statement of {@code session}: inside its open transaction
+     * if it has one, otherwise as a transaction of its own.
+     */
+    public Object execute(Session session, String sql) {
+        return execute(session, prepare(sql).bind());
+    }
+
+    /** Runs a prepared statement of {@code session}, like {@link #execute(Session, String)}. */
+    public Object execute(Session session, BoundStatement statement) {
+        return session.exclusive(() -> run(session, statement.command()));
+    }
+
+    /**
+     * Starts a SELECT, join or EXPLAIN of {@code session} and returns its
+     * rows as a cursor, produced as the caller reads them. The query runs
+     * in the session's open transaction, or in a read-only one of its own
+     * that ends when the cursor is closed.
+     */
+    public Cursor query(Session session, String sql) {
+        return query(session, prepare(sql).bind());
+    }
+
+    /** Starts a prepared query of {@code session}, like {@link #query(Session, String)}. */
+    public Cursor query(Session session, BoundStatement statement) {
+        if (!statement.statement().isQuery()) {
+            throw new UnsupportedOperationException("Not a query: " + statement);
+        }
+        return query(session, statement.command());
+    }
+
+    private Cursor query(Session session, Object command) {
+        return session.exclusive(() -> {
+            if (command instanceof ExplainCommand explain) {
+                List<Row> plan = explain(explain.query());
+                return open(new ScanOperator(plan::iterator), () -> {
+                });
+            }
+
+            Transaction open = session.transaction();
+            Transaction tx = open != null ? open : txManager.begin();
+
+            try {
+                // 📸 the transaction's snapshot: never blocks writers
+                Operator root = queryPlan(command, tx.getSnapshot());
+                return open(root, open != null ? () -> {
+                } : () -> txManager.commit(tx));
+            } catch (RuntimeException e) {
+                if (open == null) {
+                    txManager.rollback(tx);
+                }
+                throw e;
+            }
+        });
+    }
+
+    private static Cursor open(Operator root, Runnable onClose) {
+        try {
+            root.open();
+        } catch (RuntimeException e) {
+            root.close();
+            throw e;
+        }
+        return new Cursor(root, onClose);
+    }
 
-        if (upper.contains(" JOIN ")) {
-            return executeJoin(SqlParser.parseJoin(sql));
+    private Object run(Session session, Object command) {
+
+        if (command instanceof TransactionCommand control) {
+            switch (control) {
+                case BEGIN -> session.begin();
+                case COMMIT -> session.commit();
+                case ROLLBACK -> session.rollback();
+            }
+            return control.name();
         }
 
-        if (upper.startsWith("INSERT")) {
-            return executeInsert(SqlParser.parseInsert(sql));
+        if (command instanceof ExplainCommand cmd) {
+            return explain(cmd.query());
         }
 
-        if (sql.startsWith("UPDATE")) {
-            return executeUpdate(
-                    SqlParser.parseUpdate(sql)
-            );
+        if (command instanceof CreateIndexCommand cmd) {
+            db.execute(cmd);
+            return "OK";
         }
 
-        if (upper.startsWith("SELECT")) {
-            return executeSelect(
-                    SqlParser.parseSelect(sql)
-            );
+        if (command instanceof CreateTableCommand cmd) {
+            executeCreateTable(cmd);
+            return "OK";
         }
 
-        if (upper.startsWith("DELETE")) {
-            return executeDelete(
-                    SqlParser.parseDelete(sql)
-            );
+        if (command instanceof InsertCommand cmd) {
+            return inTransaction(session, tx -> executeInsert(tx, cmd));
         }
 
-        throw new UnsupportedOperationException(
-                "Unsupported SQL: " + sql
-        );
+        if (command instanceof UpdateCommand cmd) {
+            return inTransaction(session, tx -> executeUpdate(tx, cmd));
+        }
+
+        if (command instanceof DeleteCommand cmd) {
+            return inTransaction(session, tx -> executeDelete(tx, cmd));
+        }
+
+        // SELECT or join: the rows, collected
+        try (Cursor cursor = query(session, command)) {
+            return cursor.fetch(Integer.MAX_VALUE);
+        }
     }
 
     /* -------------------------
-       UPDATE execution
+       Transactions
        ------------------------- */
 
-    private int executeUpdate(UpdateCommand cmd) {
-
-        PersistentTable table =
-                (PersistentTable) db.table(cmd.table());
+    /**
+     * Runs one statement. Inside an open transaction a failing statement
+     * is undone on its own and the transaction stays open; otherwise the
+     * statement commits (one log flush for all its rows) or rolls back.
+     */
+    private <T> T inTransaction(Session session, Function<Transaction, T> statement) {
+        Transaction open = session.transaction();
+
+        if (open != null) {
+            int savepoint = open.savepoint();
+            try {
+                return statement.apply(open);
+            } catch (RuntimeException e) {
+                txManager.rollbackTo(open, savepoint);
+                throw e;
+            }
+        }
 
         Transaction tx = txManager.begin();
-
+        T result;
         try {
-            int updated = 0;
+            result = statement.apply(tx);
+        } catch (RuntimeException e) {
+            txManager.rollback(tx);
+            throw e;
+        }
 
-            // Multi-condition WHERE implemented here
-            for (Map<String, Object> row : table.selectAll()) {
+        txManager.commit(tx);
+        return result;
+    }
 
-                if (!matches(row, cmd.whereEquals())) {
-                    continue;
-                }
+    /* -------------------------
+       UPDATE execution
+       ------------------------- */
 
-                updated += table.updateWhere(
-                        tx,
-                        "id",                // anchor update by PK
-                        row.get("id"),
-                        cmd.setValues()
-                );
-            }
+    private int executeUpdate(Transaction tx, UpdateCommand cmd) {
 
-            txManager.commit(tx);
-            return updated;
+        PersistentTable table = persistent(cmd.table());
+        requireColumns(table.getLayout(), cmd.setValues().keySet());
+        requireColumns(table.getLayout(), cmd.where(), List.of());
 
-        } catch (Exception e) {
-            // rollback will be added later
-            throw e;
+        int updated = 0;
+        Predicate<Row> matches = Conditions.compile(cmd.where(), table.getLayout());
+
+        // Multi-condition WHERE, checked again once each row is locked
+        List<Row> rows = table.withContendedRows(
+                tx, candidates(table, cmd.where(), Snapshot.LATEST), matches);
+
+        for (Row row : rows) {
+
+            if (matches.test(row)
+                    && table.updateRowIf(tx, row.get("id"), matches, cmd.setValues())) {
+                updated++;
+            }
         }
+
+        return updated;
     }
 
-    private boolean matches(
-            Map<String, Object> row,
-            Map<String, Object> conditions
+    /* -------------------------
+       Access path
+       ------------------------- */
+
+    /**
+     * Rows that may satisfy {@code where}, read the way the planner finds
+     * cheapest: a key or index lookup, an index range or a full scan
+     * (filtered by the table itself if it can, see {@link Table#filter}).
+     * Callers still check all conditions on the result.
+     */
+    private List<Row> candidates(
+            Table table,
+            List<Condition> where,
+            Snapshot snapshot
     ) {
-        for (var entry : conditions.entrySet()) {
-            if (!row.containsKey(entry.getKey())) {
-                return false;
+        ScanPlan plan = planner.planScan(table, where);
+
+        return switch (plan.access()) {
+            case UNIQUE_LOOKUP, INDEX_LOOKUP ->
+                    table.lookupByColumn(plan.column(), plan.value(), snapshot).orElseThrow();
+            case MULTI_LOOKUP -> {
+                List<Row> rows = new ArrayList<>();
+                for (Object key : (List<?>) plan.value()) {
+                    rows.addAll(table.lookupByColumn(plan.column(), key, snapshot).orElseThrow());
+                }
+                yield rows;
             }
-            if (!row.get(entry.getKey()).equals(entry.getValue())) {
-                return false;
+            case INDEX_RANGE ->
+                    rangeScan(table, plan.column(), where, snapshot).orElseThrow();
+            case FULL_SCAN ->
+                    table.filter(where, snapshot).orElseGet(() -> table.selectAll(snapshot));
+        };
+    }
+
+    private Optional<List<Row>> rangeScan(
+            Table table,
+            String column,
+            List<Condition> where,
+            Snapshot snapshot
+    ) {
+        Object lo = null;
+        Object hi = null;
+        boolean loInclusive = true;
+        boolean hiInclusive = true;
+
+        for (Comparison c : QueryPlanner.rangeBounds(where, column)) {
+            switch (c.op()) {
+                case GT, GE -> {
+                    boolean inclusive = c.op() == Comparison.Op.GE;
+                    int cmp = lo == null ? 1 : BPlusTree.compareKeys(c.value(), lo);
+                    if (cmp > 0 || (cmp == 0 && !inclusive)) {
+                        lo = c.value();
+                        loInclusive = inclusive;
+                    }
+                }
+                case LT, LE -> {
+                    boolean inclusive = c.op() == Comparison.Op.LE;
+                    int cmp = hi == null ? -1 : BPlusTree.compareKeys(c.value(), hi);
+                    if (cmp < 0 || (cmp == 0 && !inclusive)) {
+                        hi = c.value();
+                        hiInclusive = inclusive;
+                    }
+                }
+                default -> {
+                }
             }
         }
-        return true;
-    }
 
-    private int executeDelete(DeleteCommand cmd) {
+        return table.rangeByColumn(column, lo, loInclusive, hi, hiInclusive, snapshot);
+    }
 
-        PersistentTable table =
-                (PersistentTable) db.table(cmd.table());
+    private int executeDelete(Transaction tx, DeleteCommand cmd) {
 
-        Transaction tx = txManager.begin();
+        PersistentTable table = persistent(cmd.table());
+        requireColumns(table.getLayout(), cmd.where(), List.of());
 
-        try {
-            int deleted = 0;
+        int deleted = 0;
+        Predicate<Row> matches = Conditions.compile(cmd.where(), table.getLayout());
 
-            // Copy to avoid concurrent modification
-            for (var row : List.copyOf(table.selectAll())) {
+        List<Row> rows = table.withContendedRows(
+                tx, candidates(table, cmd.where(), Snapshot.LATEST), matches);
 
-                if (!matches(row, cmd.whereEquals())) {
-                    continue;
-                }
-
-                table.deleteWhere(
-                        "id",
-                        row.get("id")
-                );
+        for (var row : rows) {
 
+            if (matches.test(row) && table.deleteRowIf(tx, row.get("id"), matches)) {
                 deleted++;
             }
+        }
 
-            txManager.commit(tx);
-            return deleted;
+        return deleted;
+    }
 
-        } catch (Exception e) {
-            // rollback later
-            throw e;
+    /* -------------------------
+       Query plans
+       ------------------------- */
+
+    /** The operator tree of a SELECT or join, not yet opened. */
+    private Operator queryPlan(Object query, Snapshot snapshot) {
+        if (query instanceof JoinCommand cmd) {
+            return joinPlan(cmd, snapshot);
         }
+        return selectPlan((SelectCommand) query, snapshot);
     }
 
-    @SuppressWarnings("unchecked")
-    private List<Map<String, Object>> executeSelect(SelectCommand cmd) {
+    private Operator selectPlan(SelectCommand cmd, Snapshot snapshot) {
 
         Table table = db.table(cmd.table());
 
@@ -159,22 +358,258 @@ public class QueryExecutor {
             );
         }
 
-        List<Map<String, Object>> result = new ArrayList<>();
+        requireColumns(table.getLayout(), cmd.columns());
+        requireColumns(table.getLayout(), cmd.where(), cmd.orderBy());
+
+        ScanPlan plan = planner.planScan(table, cmd.where());
+        boolean presorted = planner.deliversOrder(table, plan, cmd.orderBy());
+
+        // the columns anything above the scan reads; null for SELECT *
+        Set<String> needed = cmd.columns().isEmpty()
+                ? null
+                : needed(cmd.columns(), cmd.where(), cmd.orderBy(), UnaryOperator.identity());
+
+        RowLayout layout = table.getLayout();
+        Predicate<Row> filter = Conditions.compile(cmd.where(), layout);
+        boolean parallel = !cmd.where().isEmpty()
+                && plan.access() == ScanPlan.Access.FULL_SCAN
+                && parallel(table);
+
+        // rows are immutable: handed out as they are
+        Operator rows;
+        if (parallel && (cmd.limit() == null || !cmd.orderBy().isEmpty())
+                && table.splitScan(snapshot).isPresent()) {
+            // 🔑 nothing stops early: the whole table is split across threads
+            rows = new ScanOperator(() -> splitFilter(table, cmd.where(), needed, filter, snapshot));
+        } else {
+            rows = new ScanOperator(() -> access(table, plan, cmd.where(), needed, snapshot));
+            if (!cmd.where().isEmpty()) {
+                rows = new FilterOperator(rows, filter, parallel ? db.queryPool() : null);
+            }
+        }
+
+        // 🔑 a sort buffers and spills only the columns still needed
+        if (needed != null && !cmd.orderBy().isEmpty()) {
+            RowLayout narrow = narrow(layout, needed);
+            if (narrow.size() < layout.size()) {
+                rows = new ProjectOperator(rows, layout, narrow);
+                layout = narrow;
+            }
+        }
 
-        for (Map<String, Object> row : table.selectAll()) {
+        rows = orderAndLimit(rows, layout, cmd.orderBy(), cmd.limit(), presorted);
+        return project(rows, layout, cmd.columns());
+    }
 
-            if (!matches(row, cmd.whereEquals())) {
-                continue;
+    /**
+     * The rows {@link #candidates} would return, but a full scan the
+     * table cannot filter itself is read as it goes instead of collected
+     * first, so a LIMIT stops it early and a big table is never held as
+     * a whole.
+     */
+    private Iterator<Row> access(
+            Table table,
+            ScanPlan plan,
+            List<Condition> where,
+            Set<String> columns,
+            Snapshot snapshot
+    ) {
+        if (plan.access() != ScanPlan.Access.FULL_SCAN) {
+            return candidates(table, where, snapshot).iterator();
+        }
+        return table.filter(where, columns, snapshot)
+                .map(List::iterator)
+                .orElseGet(() -> table.iterator(snapshot));
+    }
+
+    /**
+     * A full scan filtered on the query pool: the rows the table filters
+     * itself, or else its whole scan split into chunks (see
+     * {@link Table#splitScan}), tested side by side. The passing rows
+     * come back in scan order.
+     */
+    private Iterator<Row> splitFilter(
+            Table table,
+            List<Condition> where,
+            Set<String> columns,
+            Predicate<Row> filter,
+            Snapshot snapshot
+    ) {
+        Spliterator<Row> rows = table.filter(where, columns, snapshot)
+                .map(List::spliterator)
+                .or(() -> table.splitScan(snapshot))
+                .orElseThrow();
+
+        return ParallelScan.filter(db.queryPool(), rows, filter).iterator();
+    }
+
+    /**
+     * Whether scans and joins of {@code table} are worth splitting across
+     * the query pool: parallelism is on and the table has at least
+     * {@code rdbms.parallel-threshold} rows.
+     */
+    private boolean parallel(Table table) {
+        return db.queryPool() != null
+                && table.statistics().rowCount() >= db.options().getParallelThreshold();
+    }
+
+    /* -------------------------
+       ORDER BY / LIMIT
+       ------------------------- */
+
+    /**
+     * {@code input} in the order and up to the limit asked for. ORDER BY
+     * goes through a {@link SortOperator}, which spills to the temp
+     * directory past {@code rdbms.sort-memory}; when the access path
+     * already returns rows in that order ({@code presorted}) they are
+     * streamed and only checked.
+     */
+    private Operator orderAndLimit(
+            Operator input,
+            RowLayout layout,
+            List<SortKey> orderBy,
+            Integer limit,
+            boolean presorted
+    ) {
+        if (!orderBy.isEmpty()) {
+            Comparator<Row> order = ordering(layout, orderBy);
+            long memory = db.options().getSortMemoryBytes();
+            int top = limit == null ? -1 : limit;
+
+            // both keep only the top rows themselves
+            return presorted
+                    ? SortOperator.presorted(input, layout, order, memory, db.tempDir(), top)
+                    : new SortOperator(input, layout, order, memory, db.tempDir(), top);
+        }
+        return limit == null ? input : new LimitOperator(input, limit);
+    }
+
+    /**
+     * Row order of {@code orderBy}: NULLs last ascending, first
+     * descending. In a join a column may be given without its table when
+     * only one side has it.
+     */
+    private static Comparator<Row> ordering(RowLayout layout, List<SortKey> orderBy) {
+        Comparator<Row> order = null;
+
+        for (SortKey key : orderBy) {
+            String column = resolve(layout, key.column());
+            Comparator<Row> next = Comparator.comparing(
+                    (Row row) -> row.get(column),
+                    Comparator.nullsLast(BPlusTree::compareKeys)
+            );
+            if (key.descending()) {
+                next = next.reversed();
             }
+            order = order == null ? next : order.thenComparing(next);
+        }
+        return order;
+    }
 
-            // defensive copy
-            result.add(new HashMap<>(row));
+    private static String resolve(RowLayout layout, String column) {
+        if (layout.position(column) >= 0) {
+            return column;
         }
 
-        return result;
+        String found = null;
+        for (String name : layout.names()) {
+            if (name.endsWith("." + column)) {
+                if (found != null) {
+                    throw new IllegalArgumentException("Ambiguous column: " + column);
+                }
+                found = name;
+            }
+        }
+        return found == null ? column : found;
+    }
+
+    /* -------------------------
+       Projection
+       ------------------------- */
+
+    /**
+     * Every column the select list, WHERE and ORDER BY read, each as
+     * {@code resolve} names it.
+     */
+    private static Set<String> needed(
+            List<String> columns,
+            List<Condition> where,
+            List<SortKey> orderBy,
+            UnaryOperator<String> resolve
+    ) {
+        Set<String> needed = new LinkedHashSet<>();
+        columns.forEach(c -> needed.add(resolve.apply(c)));
+        where.forEach(term -> term.columns().forEach(c -> needed.add(resolve.apply(c))));
+        orderBy.forEach(key -> needed.add(resolve.apply(key.column())));
+        return needed;
     }
 
-    private int executeInsert(InsertCommand cmd) {
+    /**
+     * The columns of {@code layout} in {@code needed}, in layout order,
+     * then the needed ones it does not have (read from extras).
+     */
+    private static RowLayout narrow(RowLayout layout, Set<String> needed) {
+        List<String> names = new ArrayList<>(needed.size());
+        for (String name : layout.names()) {
+            if (needed.contains(name)) {
+                names.add(name);
+            }
+        }
+        for (String name : needed) {
+            if (layout.position(name) < 0) {
+                names.add(name);
+            }
+        }
+        return RowLayout.of(names);
+    }
+
+    /**
+     * Fails on a column {@code layout} has no place for, instead of reading
+     * NULLs (or, in a WHERE clause, silently matching nothing).
+     */
+    private static void requireColumns(RowLayout layout, Collection<String> columns) {
+        for (String column : columns) {
+            if (layout.position(resolve(layout, column)) < 0) {
+                throw new IllegalArgumentException("Unknown column: " + column);
+            }
+        }
+    }
+
+    private static void requireColumns(RowLayout layout, List<Condition> where, List<SortKey> orderBy) {
+        for (Condition term : where) {
+            requireColumns(layout, term.columns());
+        }
+        for (SortKey key : orderBy) {
+            requireColumns(layout, List.of(key.column()));
+        }
+    }
+
+    /** The stored table {@code name} an UPDATE or DELETE writes to. */
+    private PersistentTable persistent(String name) {
+        Table table = db.table(name);
+
+        if (table == null) {
+            throw new IllegalArgumentException(
+                    "Table does not exist: " + name
+            );
+        }
+        return (PersistentTable) table;
+    }
+
+    /** {@code input} cut down to the select list; unchanged for {@code *}. */
+    private static Operator project(Operator input, RowLayout layout, List<String> columns) {
+        if (columns.isEmpty()) {
+            return input;
+        }
+
+        int[] from = new int[columns.size()];
+        for (int i = 0; i < from.length; i++) {
+            from[i] = layout.position(resolve(layout, columns.get(i)));
+        }
+        return new ProjectOperator(input, RowLayout.of(columns), from);
+    }
+
+    private int executeInsert(Transaction tx, InsertCommand cmd) {
 
         Table table = db.table(cmd.table());
 
@@ -193,171 +628,274 @@ public class QueryExecutor {
             );
         }
 
-        Transaction tx = txManager.begin();
-
-        try {
-            table.insert(tx, row);
-            txManager.commit(tx);
-            return 1;
-        } catch (Exception e) {
-            // rollback later
-            throw e;
-        }
+        table.insert(tx, row);
+        return 1;
     }
 
-    private List<Map<String, Object>> executeJoin(JoinCommand cmd) {
+    /* -------------------------
+       JOIN execution
+       ------------------------- */
+
+    /**
+     * The join with the algorithm the planner picks. Both sides are read
+     * from the same {@code snapshot}. Whatever the algorithm, NULL keys
+     * match nothing. WHERE terms on one side alone filter that side before
+     * the join; the rest apply to every result row, including the
+     * NULL-extended rows of an outer join.
+     */
+    private Operator joinPlan(JoinCommand cmd, Snapshot snapshot) {
 
         Table left = db.table(cmd.leftTable());
         Table right = db.table(cmd.rightTable());
 
-        // Try index-based join first
-        Optional<List<Map<String, Object>>> indexed;
+        if (left == null || right == null) {
+            throw new IllegalArgumentException("Table not found");
+        }
 
-        indexed = right.lookupByColumn(cmd.rightColumn(), null);
+        JoinPlan plan = planner.planJoin(cmd, left, right);
 
-        if (indexed.isPresent()) {
-            return executeIndexJoin(cmd, left, right);
-        }
+        // 🔗 with a select list each side keeps only the columns read above
+        //    the join, so hash tables, sorts and spill files stay narrow
+        RowLayout leftLayout = left.getLayout();
+        RowLayout rightLayout = right.getLayout();
+        RowLayout all = RowLayout.join(cmd.leftTable(), leftLayout, cmd.rightTable(), rightLayout);
+        requireColumns(all, cmd.columns());
+        requireColumns(all, cmd.where(), cmd.orderBy());
 
-        if (left == null) {
-            throw new IllegalArgumentException("Table not found");
-        }
+        if (!cmd.columns().isEmpty()) {
+            Set<String> needed = needed(cmd.columns(), plan.where(), cmd.orderBy(), c -> resolve(all, c));
+            needed.add(cmd.leftTable() + "." + cmd.leftColumn());
+            needed.add(cmd.rightTable() + "." + cmd.rightColumn());
 
-        // Choose smaller table as build side
-        boolean buildLeft = left.selectAll().size() <= right.selectAll().size();
+            leftLayout = side(leftLayout, cmd.leftTable(), needed);
+            rightLayout = side(rightLayout, cmd.rightTable(), needed);
+        }
 
-        Table buildTable = buildLeft ? left : right;
-        Table probeTable = buildLeft ? right : left;
+        RowLayout joined = RowLayout.join(cmd.leftTable(), leftLayout, cmd.rightTable(), rightLayout);
 
-        String buildColumn = buildLeft ? cmd.leftColumn() : cmd.rightColumn();
-        String probeColumn = buildLeft ? cmd.rightColumn() : cmd.leftColumn();
+        JoinRows rows = new JoinRows(
+                cmd.leftTable(), leftLayout, cmd.rightTable(), joined,
+                cmd.type() == JoinType.LEFT, cmd.type() == JoinType.RIGHT
+        );
 
-        String buildName = buildLeft ? cmd.leftTable() : cmd.rightTable();
-        String probeName = buildLeft ? cmd.rightTable() : cmd.leftTable();
+        Side l = Side.of(left, cmd.leftColumn(), leftLayout, plan.left());
+        Side r = Side.of(right, cmd.rightColumn(), rightLayout, plan.right());
 
-        // 1️⃣ Build phase
-        Map<Object, List<Map<String, Object>>> hashTable = new HashMap<>();
+        Operator join = switch (plan.strategy()) {
+            case INDEX_NESTED_LOOP -> indexJoin(l, r, plan.leftFirst(), snapshot, rows);
+            case HASH -> hashJoin(l, r, plan.leftFirst(), snapshot, rows);
+            case SORT_MERGE -> mergeJoin(l, r, plan, snapshot, rows);
+        };
 
-        for (Map<String, Object> row : buildTable.selectAll()) {
-            Object key = row.get(buildColumn);
-            hashTable.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+        if (!plan.where().isEmpty()) {
+            // a column may be given without its table when only one side has it
+            join = new FilterOperator(join,
+                    Conditions.compile(plan.where(), joined, column -> resolve(joined, column)), null);
         }
 
-        // 2️⃣ Probe phase
-        List<Map<String, Object>> result = new ArrayList<>();
+        join = orderAndLimit(join, joined, cmd.orderBy(), cmd.limit(), false);
+        return project(join, joined, cmd.columns());
+    }
 
-        for (Map<String, Object> probeRow : probeTable.selectAll()) {
+    /**
+     * One input of a join: its table, join column, the columns kept, and
+     * its own WHERE terms ({@code filter} null without any) with the
+     * access path planned for them.
+     */
+    private record Side(
+            Table table,
+            String column,
+            RowLayout layout,
+            JoinPlan.Input input,
+            Predicate<Row> filter
+    ) {
 
-            Object key = probeRow.get(probeColumn);
-            List<Map<String, Object>> matches = hashTable.get(key);
+        static Side of(Table table, String column, RowLayout layout, JoinPlan.Input input) {
+            Predicate<Row> filter = input.where().isEmpty()
+                    ? null
+                    : Conditions.compile(input.where(), table.getLayout());
+            return new Side(table, column, layout, input, filter);
+        }
 
-            if (matches == null) {
-                // LEFT / RIGHT join handling
-                if ((cmd.type() == JoinType.LEFT && !buildLeft) ||
-                        (cmd.type() == JoinType.RIGHT && buildLeft)) {
+        /** The table's rows that pass the side's terms, cut down to {@code layout}. */
+        Operator pruned(Operator rows) {
+            if (filter != null) {
+                rows = new FilterOperator(rows, filter, null);
+            }
+            return layout == table.getLayout() ? rows : new ProjectOperator(rows, table.getLayout(), layout);
+        }
 
-                    result.add(joinWithNulls(
-                            probeName,
-                            probeRow,
-                            buildName,
-                            buildTable
-                    ));
+        List<Row> pruned(List<Row> rows) {
+            if (filter == null && layout == table.getLayout()) {
+                return rows;
+            }
+            int[] from = ProjectOperator.positions(table.getLayout(), layout);
+            List<Row> pruned = new ArrayList<>(rows.size());
+            for (Row row : rows) {
+                if (filter == null || filter.test(row)) {
+                    pruned.add(layout == table.getLayout() ? row : row.project(layout, from));
                 }
-                continue;
             }
+            return pruned;
+        }
+    }
 
-            for (Map<String, Object> buildRow : matches) {
-                Map<String, Object> joined =
-                        buildLeft
-                                ? joinRows(buildName, buildRow, probeName, probeRow)
-                                : joinRows(probeName, probeRow, buildName, buildRow);
-
-                if (matches(joined, cmd.whereEquals())) {
-                    result.add(joined);
-                }
+    /**
+     * The columns of one side's {@code layout} named in {@code needed}
+     * (qualified by {@code table}), in layout order, then the needed ones
+     * of that table it does not have; {@code layout} itself if that is all.
+     */
+    private static RowLayout side(RowLayout layout, String table, Set<String> needed) {
+        String prefix = table + ".";
+        Set<String> columns = new LinkedHashSet<>();
+        for (String name : needed) {
+            if (name.startsWith(prefix)) {
+                columns.add(name.substring(prefix.length()));
             }
         }
 
-        return result;
+        RowLayout narrow = narrow(layout, columns);
+        return narrow.names().equals(layout.names()) ? layout : narrow;
     }
 
-    private Map<String, Object> joinRows(
-            String leftName,
-            Map<String, Object> left,
-            String rightName,
-            Map<String, Object> right
-    ) {
-        Map<String, Object> row = new HashMap<>();
+    private static Operator scan(Side side, Snapshot snapshot) {
+        return side.pruned(new ScanOperator(() -> side.table().iterator(snapshot)));
+    }
 
-        for (var e : left.entrySet()) {
-            row.put(leftName + "." + e.getKey(), e.getValue());
-        }
-        for (var e : right.entrySet()) {
-            row.put(rightName + "." + e.getKey(), e.getValue());
+    /** A side's rows through the access path planned for its terms, in no particular order. */
+    private Operator read(Side side, Snapshot snapshot) {
+        if (side.filter() == null) {
+            return scan(side, snapshot);
         }
-
-        return row;
+        List<Condition> where = side.input().where();
+        return side.pruned(new ScanOperator(
+                () -> access(side.table(), side.input().access(), where, null, snapshot)));
     }
 
-    private Map<String, Object> joinWithNulls(
-            String presentTable,
-            Map<String, Object> presentRow,
-            String nullTable,
-            Table nullTableRef
+    /** Looks the join key of each row of the driving side up in the other side. */
+    private Operator indexJoin(
+            Side left,
+            Side right,
+            boolean driveLeft,
+            Snapshot snapshot,
+            JoinRows rows
     ) {
-        Map<String, Object> row = new HashMap<>();
+        Side outer = driveLeft ? left : right;
+        Side inner = driveLeft ? right : left;
 
-        for (var e : presentRow.entrySet()) {
-            row.put(presentTable + "." + e.getKey(), e.getValue());
-        }
+        return new IndexJoinOperator(
+                read(outer, snapshot), outer.column(),
+                key -> inner.pruned(inner.table().lookupByColumn(inner.column(), key, snapshot).orElseThrow()),
+                rows, driveLeft
+        );
+    }
 
-        for (Column c : nullTableRef.getColumns()) {
-            row.put(nullTable + "." + c.name(), null);
-        }
+    /**
+     * Builds a hash table of one side and probes it with the other, both
+     * read through their own access paths. Past
+     * {@code rdbms.hash-join-memory} of build rows the join partitions
+     * both sides to disk (see {@link HashJoin});
+     * big tables are joined on several threads when the build side fits.
+     */
+    private Operator hashJoin(
+            Side left,
+            Side right,
+            boolean buildLeft,
+            Snapshot snapshot,
+            JoinRows rows
+    ) {
+        Side build = buildLeft ? left : right;
+        Side probe = buildLeft ? right : left;
+
+        // 🔁 several threads while the build side fits in memory
+        boolean split = parallel(build.table()) || parallel(probe.table());
+
+        return new HashJoinOperator(
+                read(build, snapshot), build.column(), build.layout(),
+                read(probe, snapshot), probe.column(), probe.layout(),
+                rows, buildLeft,
+                db.options().getHashJoinMemoryBytes(), db.tempDir(),
+                split ? db.queryPool() : null
+        );
+    }
 
-        return row;
+    /**
+     * Merges both sides in join key order. Each side comes in that order
+     * from its scan, from its index, or through a sort; only the rows of
+     * one key of the right side are held at a time.
+     */
+    private Operator mergeJoin(
+            Side left,
+            Side right,
+            JoinPlan plan,
+            Snapshot snapshot,
+            JoinRows rows
+    ) {
+        return new MergeJoinOperator(
+                mergeInput(left, plan.leftOrder(), snapshot), left.column(),
+                mergeInput(right, plan.rightOrder(), snapshot), right.column(),
+                rows
+        );
     }
 
-    private List<Map<String, Object>> executeIndexJoin(
-            JoinCommand cmd,
-            Table left,
-            Table right
+    /** The rows of one merge input in key order; NULL keys may come anywhere. */
+    private Operator mergeInput(
+            Side side,
+            JoinPlan.InputOrder order,
+            Snapshot snapshot
     ) {
-        List<Map<String, Object>> result = new ArrayList<>();
+        Table table = side.table();
+        String column = side.column();
+
+        return switch (order) {
+            case SCAN -> scan(side, snapshot);
+            // the index has no NULL keys; planned only where those rows are not needed
+            case INDEX -> SortOperator.presorted(
+                    side.pruned(new ScanOperator(() -> table.rangeByColumn(column, null, true, null, true, snapshot)
+                            .orElseThrow().iterator())),
+                    side.layout(), byKey(column), db.options().getSortMemoryBytes(), db.tempDir(), -1);
+            case SORT -> new SortOperator(read(side, snapshot), side.layout(), byKey(column),
+                    db.options().getSortMemoryBytes(), db.tempDir(), -1);
+        };
+    }
 
-        for (Map<String, Object> lrow : left.selectAll()) {
+    private static Comparator<Row> byKey(String column) {
+        return Comparator.comparing(
+                (Row row) -> row.get(column),
+                Comparator.nullsFirst(BPlusTree::compareKeys)
+        );
+    }
 
-            Object key = lrow.get(cmd.leftColumn());
+    /* -------------------------
+       EXPLAIN
+       ------------------------- */
 
-            List<Map<String, Object>> matches =
-                    right.lookupByColumn(cmd.rightColumn(), key)
-                            .orElse(List.of());
+    /** The plan the planner picks for a SELECT or join, without running it. */
+    private List<Row> explain(Object query) {
+        if (query instanceof JoinCommand cmd) {
+            Table left = db.table(cmd.leftTable());
+            Table right = db.table(cmd.rightTable());
 
-            if (matches.isEmpty()) {
-                if (cmd.type() == JoinType.LEFT) {
-                    result.add(joinWithNulls(
-                            cmd.leftTable(), lrow,
-                            cmd.rightTable(), right
-                    ));
-                }
-                continue;
+            if (left == null || right == null) {
+                throw new IllegalArgumentException("Table not found");
             }
+            RowLayout all = RowLayout.join(cmd.leftTable(), left.getLayout(), cmd.rightTable(), right.getLayout());
+            requireColumns(all, cmd.columns());
+            requireColumns(all, cmd.where(), cmd.orderBy());
+            return planner.explain(cmd, left, right);
+        }
 
-            for (Map<String, Object> rrow : matches) {
-
-                Map<String, Object> joined =
-                        joinRows(
-                                cmd.leftTable(), lrow,
-                                cmd.rightTable(), rrow
-                        );
+        SelectCommand cmd = (SelectCommand) query;
+        Table table = db.table(cmd.table());
 
-                if (matches(joined, cmd.whereEquals())) {
-                    result.add(joined);
-                }
-            }
+        if (table == null) {
+            throw new IllegalArgumentException(
+                    "Table does not exist: " + cmd.table()
+            );
         }
-
-        return result;
+        requireColumns(table.getLayout(), cmd.columns());
+        requireColumns(table.getLayout(), cmd.where(), cmd.orderBy());
+        return planner.explain(cmd, table);
     }
 
     private void executeCreateTable(CreateTableCommand cmd) {
@@ -0,0 +1,703 @@
+package com.jg.rdms.db.sql;
+
+import com.jg.rdms.db.core.Row;
+import com.jg.rdms.db.core.RowLayout;
+import com.jg.rdms.db.core.Table;
+import com.jg.rdms.db.index.BPlusTree;
+import com.jg.rdms.db.stats.ColumnStatistics;
+import com.jg.rdms.db.stats.TableStatistics;
+
+import java.util.*;
+
+/**
+ * Picks access paths and join algorithms from {@link TableStatistics}.
+ *
+ * Estimates follow the textbook model: terms are independent, values are
+ * spread evenly over {@code [min, max]}, an equality hits
+ * {@code rows / distinct} rows and an equi-join produces
+ * {@code |L| * |R| / max(distinct(L.col), distinct(R.col))} rows. Costs
+ * are in rows touched, weighted per operation below.
+ */
+public class QueryPlanner {
+
+    /* =========================
+       COST MODEL
+       ========================= */
+
+    // reading one row in a scan
+    private static final double SCAN_ROW = 1.0;
+    // one index descent, and each row it leads to
+    private static final double INDEX_PROBE = 4.0;
+    private static final double INDEX_ROW = 1.5;
+    // inserting into / probing the hash table of a hash join
+    private static final double HASH_BUILD_ROW = 2.0;
+    private static final double HASH_PROBE_ROW = 1.0;
+    // per row and level of a sort; per row of the merge
+    private static final double SORT_ROW = 1.0;
+    private static final double MERGE_ROW = 1.0;
+
+    // no statistics to go by (a qualified column of neither side, TEXT ranges)
+    private static final double DEFAULT_EQ_SELECTIVITY = 0.1;
+    private static final double DEFAULT_RANGE_SELECTIVITY = 1.0 / 3;
+
+    /* =========================
+       SINGLE TABLE
+       ========================= */
+
+    /**
+     * The cheapest way to read the rows of {@code table} that may satisfy
+     * {@code where}: a unique or index lookup, one lookup per value of an
+     * IN list, an index range (comparisons and BETWEEN) or a full scan.
+     */
+    public ScanPlan planScan(Table table, List<Condition> where) {
+        TableStatistics stats = table.statistics();
+        double n = stats.rowCount();
+        double rows = n * selectivity(stats, where);
+
+        ScanPlan best = new ScanPlan(ScanPlan.Access.FULL_SCAN, null, null, n, rows, n * SCAN_ROW);
+
+        for (Condition term : where) {
+            ScanPlan candidate = null;
+
+            if (term instanceof Comparison c && c.op() == Comparison.Op.EQ && table.isUniqueKey(c.column())) {
+                double hits = Math.min(1, n);
+                candidate = new ScanPlan(ScanPlan.Access.UNIQUE_LOOKUP, c.column(), c.value(),
+                        hits, Math.min(rows, hits), INDEX_PROBE + hits * INDEX_ROW);
+
+            } else if (term instanceof Comparison c && c.op() == Comparison.Op.EQ && table.hasIndex(c.column())) {
+                double hits = n * selectivity(stats, c);
+                candidate = new ScanPlan(ScanPlan.Access.INDEX_LOOKUP, c.column(), c.value(),
+                        hits, rows, INDEX_PROBE + hits * INDEX_ROW);
+
+            } else if (term instanceof Condition.In in && lookupable(table, in.column())) {
+                List<Object> keys = lookupKeys(in);
+                if (keys != null) {
+                    double hits = table.isUniqueKey(in.column())
+                            ? Math.min(keys.size(), n)
+                            : n * selectivity(stats, in);
+                    candidate = new ScanPlan(ScanPlan.Access.MULTI_LOOKUP, in.column(), keys,
+                            hits, Math.min(rows, hits), keys.size() * INDEX_PROBE + hits * INDEX_ROW);
+                }
+
+            } else if (rangeColumn(term) != null && table.hasIndex(rangeColumn(term))) {
+                // every range term on the column bounds the range
+                String column = rangeColumn(term);
+                double hits = n * rangeSelectivity(stats, column, rangeBounds(where, column));
+                candidate = new ScanPlan(ScanPlan.Access.INDEX_RANGE, column, null,
+                        hits, rows, INDEX_PROBE + hits * INDEX_ROW);
+            }
+
+            if (candidate != null && candidate.cost() < best.cost()) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The terms of {@code where} bounding a range of {@code column}:
+     * comparisons other than {@code =} and {@code <>}, and each
+     * BETWEEN as its two bounds.
+     */
+    static List<Comparison> rangeBounds(List<Condition> where, String column) {
+        List<Comparison> bounds = new ArrayList<>();
+        for (Condition term : where) {
+            if (column.equals(rangeColumn(term))) {
+                if (term instanceof Condition.Between b) {
+                    bounds.addAll(b.bounds());
+                } else {
+                    bounds.add((Comparison) term);
+                }
+            }
+        }
+        return bounds;
+    }
+
+    /** The column a term bounds a range of, or null. */
+    private static String rangeColumn(Condition term) {
+        if (term instanceof Comparison c && c.op().isRange()) {
+            return c.column();
+        }
+        if (term instanceof Condition.Between b && !b.negated()) {
+            return b.column();
+        }
+        return null;
+    }
+
+    /**
+     * The distinct values of an IN list in key order, to look up one by
+     * one; null for NOT IN or values of mixed types.
+     */
+    private static List<Object> lookupKeys(Condition.In in) {
+        if (in.negated() || in.values().isEmpty()) {
+            return null;
+        }
+        Class<?> type = in.values().get(0).getClass();
+        if (in.values().stream().anyMatch(v -> v.getClass() != type)) {
+            return null;
+        }
+
+        TreeSet<Object> keys = new TreeSet<>(BPlusTree::compareKeys);
+        keys.addAll(in.values());
+        return List.copyOf(keys);
+    }
+
+    /* =========================
+       JOIN
+       ========================= */
+
+    /**
+     * The cheapest of index nested loop (either side driving, when the
+     * other can look its join column up and the outer join allows it),
+     * hash join (smaller side built) and sort-merge join (sides already
+     * in key order are not sorted).
+     *
+     * 🔑 WHERE terms on one table alone are checked on that side before
+     * the join, through its own access path (see {@link #splitWhere}), and
+     * every algorithm is costed on the rows left after them: a key lookup
+     * on one side drives an index nested loop of a handful of probes.
+     */
+    public JoinPlan planJoin(JoinCommand cmd, Table left, Table right) {
+        TableStatistics ls = left.statistics();
+        TableStatistics rs = right.statistics();
+
+        List<List<Condition>> split = splitWhere(cmd, left, right);
+        JoinPlan.Input li = new JoinPlan.Input(split.get(0), planScan(left, split.get(0)));
+        JoinPlan.Input ri = new JoinPlan.Input(split.get(1), planScan(right, split.get(1)));
+        List<Condition> where = split.get(2);
+
+        double l = li.access().rows();
+        double r = ri.access().rows();
+
+        ColumnStatistics lc = ls.column(cmd.leftColumn());
+        ColumnStatistics rc = rs.column(cmd.rightColumn());
+
+        // matches per pair of rows
+        double perPair = nonNull(lc) * nonNull(rc) / Math.max(1, Math.max(distinct(lc), distinct(rc)));
+        double matched = l * r * perPair;
+
+        double joined = switch (cmd.type()) {
+            case INNER -> matched;
+            case LEFT -> Math.max(matched, l);
+            case RIGHT -> Math.max(matched, r);
+        };
+        double rows = joined * joinSelectivity(cmd, where, ls, rs);
+
+        List<JoinPlan> options = new ArrayList<>();
+
+        // 1️⃣ index nested loop, probing the indexed side once per outer row;
+        //    a probe reads every row of the key, the inner side's terms come after
+        if (cmd.type() != JoinType.RIGHT && lookupable(right, cmd.rightColumn())) {
+            double perProbe = rs.rowCount() * perPair;
+            options.add(new JoinPlan(JoinPlan.Strategy.INDEX_NESTED_LOOP, true, null, null, li, ri, where,
+                    l, r, joined, rows, li.access().cost() + l * (INDEX_PROBE + perProbe * INDEX_ROW)));
+        }
+        if (cmd.type() != JoinType.LEFT && lookupable(left, cmd.leftColumn())) {
+            double perProbe = ls.rowCount() * perPair;
+            options.add(new JoinPlan(JoinPlan.Strategy.INDEX_NESTED_LOOP, false, null, null, li, ri, where,
+                    l, r, joined, rows, ri.access().cost() + r * (INDEX_PROBE + perProbe * INDEX_ROW)));
+        }
+
+        // 2️⃣ hash join, building the smaller side
+        boolean buildLeft = l <= r;
+        double build = buildLeft ? l : r;
+        double probe = buildLeft ? r : l;
+        options.add(new JoinPlan(JoinPlan.Strategy.HASH, buildLeft, null, null, li, ri, where,
+                l, r, joined, rows,
+                li.access().cost() + ri.access().cost() + build * HASH_BUILD_ROW + probe * HASH_PROBE_ROW));
+
+        // 3️⃣ sort-merge join, sorting only inputs not already in key order;
+        //    an index leaves out NULL keys, so not on a side an outer join keeps
+        JoinPlan.InputOrder leftOrder = inputOrder(left, cmd.leftColumn(), cmd.type() != JoinType.LEFT, li);
+        JoinPlan.InputOrder rightOrder = inputOrder(right, cmd.rightColumn(), cmd.type() != JoinType.RIGHT, ri);
+        options.add(new JoinPlan(JoinPlan.Strategy.SORT_MERGE, true, leftOrder, rightOrder, li, ri, where,
+                l, r, joined, rows,
+                inputCost(leftOrder, left, li) + inputCost(rightOrder, right, ri) + (l + r) * MERGE_ROW));
+
+        // ties go to the earlier option
+        JoinPlan best = options.get(0);
+        for (JoinPlan option : options) {
+            if (option.cost() < best.cost()) {
+                best = option;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The WHERE terms of {@code cmd} that read the left table alone, those
+     * that read the right table alone (both with the table dropped from
+     * their columns) and the rest. A column without its table belongs to
+     * the one side that has it.
+     *
+     * Terms on the side an outer join fills with NULLs stay above the
+     * join, where they also drop the rows that found no match; so do all
+     * terms of a table joined with itself.
+     */
+    private static List<List<Condition>> splitWhere(JoinCommand cmd, Table left, Table right) {
+        List<Condition> onLeft = new ArrayList<>();
+        List<Condition> onRight = new ArrayList<>();
+        List<Condition> rest = new ArrayList<>();
+
+        for (Condition term : cmd.where()) {
+            Set<String> sides = new HashSet<>();
+            for (String column : term.columns()) {
+                sides.add(sideOf(cmd, left, right, column));
+            }
+
+            if (sides.equals(Set.of("left")) && cmd.type() != JoinType.RIGHT) {
+                onLeft.add(bare(term));
+            } else if (sides.equals(Set.of("right")) && cmd.type() != JoinType.LEFT) {
+                onRight.add(bare(term));
+            } else {
+                rest.add(term);
+            }
+        }
+        return List.of(onLeft, onRight, rest);
+    }
+
+    /** {@code "left"}, {@code "right"}, or {@code "?"} when it is not one side's. */
+    private static String sideOf(JoinCommand cmd, Table left, Table right, String column) {
+        if (cmd.leftTable().equals(cmd.rightTable())) {
+            return "?";
+        }
+
+        int dot = column.indexOf('.');
+        if (dot >= 0) {
+            String table = column.substring(0, dot);
+            String name = column.substring(dot + 1);
+
+            if (table.equals(cmd.leftTable()) && left.getLayout().position(name) >= 0) {
+                return "left";
+            }
+            if (table.equals(cmd.rightTable()) && right.getLayout().position(name) >= 0) {
+                return "right";
+            }
+            return "?";
+        }
+
+        boolean inLeft = left.getLayout().position(column) >= 0;
+        boolean inRight = right.getLayout().position(column) >= 0;
+        return inLeft == inRight ? "?" : inLeft ? "left" : "right";
+    }
+
+    private static Condition bare(Condition term) {
+        return term.map(column -> column.substring(column.indexOf('.') + 1), value -> value);
+    }
+
+    private static boolean lookupable(Table table, String column) {
+        return table.isUniqueKey(column) || table.hasIndex(column);
+    }
+
+    /** The cheapest way to get one side's rows in key order. */
+    private static JoinPlan.InputOrder inputOrder(
+            Table table,
+            String column,
+            boolean indexAllowed,
+            JoinPlan.Input input
+    ) {
+        JoinPlan.InputOrder best = JoinPlan.InputOrder.SORT;
+
+        // a full scan keeps its order under a filter; a lookup does not
+        if (table.scansInOrderOf(column)
+                && input.access().access() == ScanPlan.Access.FULL_SCAN
+                && inputCost(JoinPlan.InputOrder.SCAN, table, input) <= inputCost(best, table, input)) {
+            best = JoinPlan.InputOrder.SCAN;
+        }
+        if (indexAllowed && table.hasIndex(column)
+                && inputCost(JoinPlan.InputOrder.INDEX, table, input) < inputCost(best, table, input)) {
+            best = JoinPlan.InputOrder.INDEX;
+        }
+        return best;
+    }
+
+    private static double inputCost(JoinPlan.InputOrder order, Table table, JoinPlan.Input input) {
+        double n = table.statistics().rowCount();
+        return switch (order) {
+            case SCAN -> n * SCAN_ROW;
+            case INDEX -> INDEX_PROBE + n * INDEX_ROW;
+            case SORT -> input.access().cost() + sortCost(input.access().rows());
+        };
+    }
+
+    private static double sortCost(double n) {
+        return n * (Math.log(Math.max(n, 2)) / Math.log(2)) * SORT_ROW;
+    }
+
+    /* =========================
+       ORDER BY
+       ========================= */
+
+    /**
+     * Whether {@code plan} already returns rows in the order of
+     * {@code orderBy}: one ascending key that the scan or index follows.
+     * An index holds a row under the key of every retained version; range
+     * reads take it only under the key its visible version has, so it
+     * comes out in place. Callers still check as they stream the rows.
+     */
+    public boolean deliversOrder(Table table, ScanPlan plan, List<SortKey> orderBy) {
+        if (orderBy.size() != 1 || orderBy.get(0).descending()) {
+            return false;
+        }
+        String column = orderBy.get(0).column();
+
+        return switch (plan.access()) {
+            case UNIQUE_LOOKUP -> true;
+            case INDEX_LOOKUP, MULTI_LOOKUP, INDEX_RANGE -> column.equals(plan.column());
+            case FULL_SCAN -> table.scansInOrderOf(column);
+        };
+    }
+
+    /** Selectivity of WHERE terms over a join, their columns qualified by table. */
+    private static double joinSelectivity(
+            JoinCommand cmd,
+            List<Condition> where,
+            TableStatistics ls,
+            TableStatistics rs
+    ) {
+        double selectivity = 1;
+
+        for (Condition term : where) {
+            Set<String> tables = new HashSet<>();
+            Condition bare = term.map(column -> {
+                int dot = column.indexOf('.');
+                tables.add(dot < 0 ? "" : column.substring(0, dot));
+                return column.substring(dot + 1);
+            }, value -> value);
+
+            if (tables.equals(Set.of(cmd.leftTable()))) {
+                selectivity *= selectivity(ls, bare);
+            } else if (tables.equals(Set.of(cmd.rightTable()))) {
+                selectivity *= selectivity(rs, bare);
+            } else {
+                selectivity *= term instanceof Comparison c && c.op() == Comparison.Op.EQ
+                        ? DEFAULT_EQ_SELECTIVITY
+                        : DEFAULT_RANGE_SELECTIVITY;
+            }
+        }
+        return selectivity;
+    }
+
+    /* =========================
+       SELECTIVITY
+       ========================= */
+
+    /** Fraction of rows satisfying every term of {@code where}. */
+    private static double selectivity(TableStatistics stats, List<? extends Condition> where) {
+        double selectivity = 1;
+        for (Condition term : where) {
+            selectivity *= selectivity(stats, term);
+        }
+        return selectivity;
+    }
+
+    private static double selectivity(TableStatistics stats, Condition term) {
+        if (term instanceof Condition.And and) {
+            return selectivity(stats, and.terms());
+        }
+        if (term instanceof Condition.Or or) {
+            double none = 1;
+            for (Condition t : or.terms()) {
+                none *= 1 - selectivity(stats, t);
+            }
+            return 1 - none;
+        }
+
+        ColumnStatistics column = stats.column(term.columns().iterator().next());
+
+        // a missing column reads as NULL
+        if (term instanceof Condition.IsNull n) {
+            double nulls = column == null ? 1 : column.rows() == 0 ? 0 : column.nullFraction();
+            return n.negated() ? 1 - nulls : nulls;
+        }
+
+        // an unknown column never matches; an empty table has nothing to filter
+        if (column == null) {
+            return 0;
+        }
+        if (column.rows() == 0) {
+            return 1;
+        }
+        if (term instanceof Comparison c) {
+            return selectivity(column, c);
+        }
+        if (term instanceof Condition.Between b) {
+            if (!comparable(column, b.low()) || !comparable(column, b.high())) {
+                return 0;
+            }
+            double between = column.min() instanceof Integer && b.low() instanceof Integer
+                    && b.high() instanceof Integer
+                    ? Math.max(0, rangeFraction(column, b.bounds().get(0))
+                    + rangeFraction(column, b.bounds().get(1)) - 1)
+                    : DEFAULT_RANGE_SELECTIVITY;
+            return nonNull(column) * (b.negated() ? 1 - between : between);
+        }
+        if (term instanceof Condition.In in) {
+            long distinctValues = in.values().stream().distinct().count();
+            double listed = Math.min(1, distinctValues / Math.max(1.0, column.distinct()));
+            return nonNull(column) * (in.negated() ? 1 - listed : listed);
+        }
+        // LIKE
+        return nonNull(column) * DEFAULT_RANGE_SELECTIVITY;
+    }
+
+    private static double selectivity(ColumnStatistics column, Comparison c) {
+        if (!comparable(column, c.value())) {
+            return 0; // values of another type never match
+        }
+
+        double eq = 1.0 / Math.max(1, column.distinct());
+        return nonNull(column) * switch (c.op()) {
+            case EQ -> eq;
+            case NE -> 1 - eq;
+            case LT, LE, GT, GE -> rangeFraction(column, c);
+        };
+    }
+
+    /**
+     * Fraction of rows within every bound: the tightest lower and upper
+     * bound taken together as one interval rather than as independent terms.
+     */
+    private static double rangeSelectivity(TableStatistics stats, String name, List<Comparison> bounds) {
+        ColumnStatistics column = stats.column(name);
+        if (column == null || column.rows() == 0) {
+            return column == null ? 0 : 1;
+        }
+
+        double below = 1;
+        double above = 1;
+        for (Comparison c : bounds) {
+            double s = selectivity(column, c) / Math.max(nonNull(column), Double.MIN_VALUE);
+            if (c.op() == Comparison.Op.LT || c.op() == Comparison.Op.LE) {
+                below = Math.min(below, s);
+            } else {
+                above = Math.min(above, s);
+            }
+        }
+        return nonNull(column) * Math.max(0, below + above - 1);
+    }
+
+    private static boolean comparable(ColumnStatistics column, Object value) {
+        return column.min() == null || value == null || column.min().getClass() == value.getClass();
+    }
+
+    /** Share of the non-NULL values on the matching side of {@code c.value()}. */
+    private static double rangeFraction(ColumnStatistics column, Comparison c) {
+        if (column.min() == null) {
+            return 0; // only NULLs
+        }
+        if (!(column.min() instanceof Integer min)
+                || !(column.max() instanceof Integer max)
+                || !(c.value() instanceof Integer value)) {
+            return DEFAULT_RANGE_SELECTIVITY;
+        }
+
+        if (min.equals(max)) {
+            return new Comparison("", c.op(), value).test(Map.of("", min)) ? 1 : 0;
+        }
+
+        double below = Math.max(0, Math.min(1, ((double) value - min) / ((double) max - min)));
+        return switch (c.op()) {
+            case LT, LE -> below;
+            default -> 1 - below;
+        };
+    }
+
+    private static double nonNull(ColumnStatistics column) {
+        return column == null ? 1 : 1 - column.nullFraction();
+    }
+
+    private static double distinct(ColumnStatistics column) {
+        return column == null ? 1 : column.distinct();
+    }
+
+    /* =========================
+       EXPLAIN
+       ========================= */
+
+    private static final RowLayout EXPLAIN_LAYOUT = RowLayout.of(List.of("plan", "rows", "cost"));
+
+    /** EXPLAIN of a single-table SELECT: one row per plan step. */
+    public List<Row> explain(SelectCommand cmd, Table table) {
+        ScanPlan plan = planScan(table, cmd.where());
+        List<Row> steps = new ArrayList<>();
+        String indent = project(steps, cmd.columns(), plan.rows());
+        indent = orderAndLimit(steps, indent, cmd.orderBy(), cmd.limit(), plan.rows(),
+                deliversOrder(table, plan, cmd.orderBy()));
+
+        if (!cmd.where().isEmpty()) {
+            steps.add(step(indent + "FILTER " + describe(cmd.where()), plan.rows(), plan.cost()));
+            indent += "  ";
+        }
+        steps.add(step(indent + access(cmd.table(), plan), plan.scanned(), plan.cost()));
+        return steps;
+    }
+
+    private static String access(String table, ScanPlan plan) {
+        return switch (plan.access()) {
+            case UNIQUE_LOOKUP -> "UNIQUE LOOKUP " + table + "." + plan.column()
+                    + " = " + literal(plan.value());
+            case INDEX_LOOKUP -> "INDEX LOOKUP " + table + "." + plan.column()
+                    + " = " + literal(plan.value());
+            case MULTI_LOOKUP -> "MULTI LOOKUP " + table + "." + plan.column()
+                    + " IN " + literal(plan.value());
+            case INDEX_RANGE -> "INDEX RANGE " + table + "." + plan.column();
+            case FULL_SCAN -> "FULL SCAN " + table;
+        };
+    }
+
+    /** EXPLAIN of a join: one row per plan step. */
+    public List<Row> explain(JoinCommand cmd, Table left, Table right) {
+        JoinPlan plan = planJoin(cmd, left, right);
+        List<Row> steps = new ArrayList<>();
+        String indent = project(steps, cmd.columns(), plan.rows());
+        indent = orderAndLimit(steps, indent, cmd.orderBy(), cmd.limit(), plan.rows(), false);
+
+        if (!plan.where().isEmpty()) {
+            steps.add(step(indent + "FILTER " + describe(plan.where()), plan.rows(), plan.cost()));
+            indent += "  ";
+        }
+
+        String on = cmd.leftTable() + "." + cmd.leftColumn()
+                + " = " + cmd.rightTable() + "." + cmd.rightColumn();
+        String join = cmd.type() + " JOIN ON " + on;
+        String inner = indent + "  ";
+
+        switch (plan.strategy()) {
+            case INDEX_NESTED_LOOP -> {
+                boolean l = plan.leftFirst();
+                JoinPlan.Input probed = l ? plan.right() : plan.left();
+                String probedTable = l ? cmd.rightTable() : cmd.leftTable();
+                String probedColumn = l ? cmd.rightColumn() : cmd.leftColumn();
+                double outerRows = l ? plan.leftRows() : plan.rightRows();
+                double perRow = outerRows == 0 ? 0 : plan.joined() / outerRows;
+
+                steps.add(step(indent + "INDEX NESTED LOOP " + join, plan.joined(), plan.cost()));
+                input(steps, inner, "", l ? cmd.leftTable() : cmd.rightTable(), l ? plan.left() : plan.right());
+
+                String lookup = inner;
+                if (!probed.where().isEmpty()) {
+                    steps.add(step(inner + "FILTER " + describe(probedTable, probed.where()) + " (per row)",
+                            perRow, null));
+                    lookup += "  ";
+                }
+                steps.add(step(lookup + "INDEX LOOKUP " + probedTable + "." + probedColumn + " (per row)",
+                        perRow, null));
+            }
+            case HASH -> {
+                boolean l = plan.leftFirst();
+                steps.add(step(indent + "HASH " + join, plan.joined(), plan.cost()));
+                input(steps, inner, "BUILD ", l ? cmd.leftTable() : cmd.rightTable(), l ? plan.left() : plan.right());
+                input(steps, inner, "PROBE ", l ? cmd.rightTable() : cmd.leftTable(), l ? plan.right() : plan.left());
+            }
+            case SORT_MERGE -> {
+                steps.add(step(indent + "SORT-MERGE " + join, plan.joined(), plan.cost()));
+                mergeInput(steps, inner, plan.leftOrder(), cmd.leftTable(), cmd.leftColumn(),
+                        plan.left(), plan.leftRows(), left.statistics().rowCount());
+                mergeInput(steps, inner, plan.rightOrder(), cmd.rightTable(), cmd.rightColumn(),
+                        plan.right(), plan.rightRows(), right.statistics().rowCount());
+            }
+        }
+        return steps;
+    }
+
+    /** The steps reading one side of a join: its own filter, then its access path. */
+    private static void input(List<Row> steps, String indent, String role, String table, JoinPlan.Input input) {
+        ScanPlan plan = input.access();
+        if (!input.where().isEmpty()) {
+            steps.add(step(indent + role + "FILTER " + describe(table, input.where()), plan.rows(), null));
+            indent += "  ";
+            role = "";
+        }
+        steps.add(step(indent + role + access(table, plan), plan.scanned(), plan.cost()));
+    }
+
+    /** The PROJECT step of a select list; returns the indent for the steps below. */
+    private static String project(List<Row> steps, List<String> columns, double rows) {
+        if (columns.isEmpty()) {
+            return "";
+        }
+        steps.add(step("PROJECT " + String.join(", ", columns), rows, null));
+        return "  ";
+    }
+
+    /** LIMIT and SORT steps on top of a plan; returns the indent for the steps below. */
+    private static String orderAndLimit(
+            List<Row> steps,
+            String indent,
+            List<SortKey> orderBy,
+            Integer limit,
+            double rows,
+            boolean ordered
+    ) {
+        if (limit != null) {
+            steps.add(step(indent + "LIMIT " + limit, Math.min(limit, rows), null));
+            indent += "  ";
+        }
+        if (!orderBy.isEmpty()) {
+            StringJoiner keys = new StringJoiner(", ");
+            orderBy.forEach(k -> keys.add(k.column() + (k.descending() ? " DESC" : "")));
+
+            steps.add(step(indent + (ordered ? "ORDERED BY " : "SORT BY ") + keys,
+                    rows, ordered ? null : sortCost(rows)));
+            indent += "  ";
+        }
+        return indent;
+    }
+
+    private static void mergeInput(
+            List<Row> steps,
+            String indent,
+            JoinPlan.InputOrder order,
+            String table,
+            String column,
+            JoinPlan.Input input,
+            double rows,
+            double tableRows
+    ) {
+        if (order == JoinPlan.InputOrder.SORT) {
+            steps.add(step(indent + "SORT BY " + table + "." + column, rows, sortCost(rows)));
+            input(steps, indent + "  ", "", table, input);
+            return;
+        }
+
+        if (!input.where().isEmpty()) {
+            steps.add(step(indent + "FILTER " + describe(table, input.where()), rows, null));
+            indent += "  ";
+        }
+        double n = tableRows;
+        steps.add(order == JoinPlan.InputOrder.SCAN
+                ? step(indent + "FULL SCAN " + table + " (in " + column + " order)", n, n * SCAN_ROW)
+                : step(indent + "INDEX SCAN " + table + "." + column, n, INDEX_PROBE + n * INDEX_ROW));
+    }
+
+    private static Row step(String plan, double rows, Double cost) {
+        Map<String, Object> step = new HashMap<>();
+        step.put("plan", plan);
+        step.put("rows", Math.round(rows));
+        step.put("cost", cost == null ? null : Math.round(cost));
+        return Row.of(EXPLAIN_LAYOUT, step);
+    }
+
+    private static String describe(List<Condition> where) {
+        StringJoiner terms = new StringJoiner(" AND ");
+        for (Condition term : where) {
+            terms.add(term.sql());
+        }
+        return terms.toString();
+    }
+
+    /** One side's terms, their columns qualified by {@code table} again. */
+    private static String describe(String table, List<Condition> where) {
+        return describe(where.stream().map(t -> t.map(c -> table + "." + c, v -> v)).toList());
+    }
+
+    private static String literal(Object value) {
+        if (value instanceof List<?> values) {
+            StringJoiner list = new StringJoiner(", ", "(", ")");
+            values.forEach(v -> list.add(Condition.literal(v)));
+            return list.toString();
+        }
+        return Condition.literal(value);
+    }
+}
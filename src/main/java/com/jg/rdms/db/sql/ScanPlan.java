@@ -0,0 +1,26 @@
+package com.jg.rdms.db.sql;
+
+/**
+ * How one table is read for a WHERE clause.
+ *
+ * @param access  the access path
+ * @param column  column of the lookup or range, null for a full scan
+ * @param value   key of a lookup, the keys in order for a multi-lookup,
+ *                null otherwise
+ * @param scanned estimated rows the access path produces
+ * @param rows    estimated rows left after every term is checked
+ * @param cost    estimated cost (see {@link QueryPlanner})
+ */
+public record ScanPlan(
+        Access access,
+        String column,
+        Object value,
+        double scanned,
+        double rows,
+        double cost
+) {
+
+    public enum Access {
+        UNIQUE_LOOKUP, INDEX_LOOKUP, MULTI_LOOKUP, INDEX_RANGE, FULL_SCAN
+    }
+}
@@ -1,8 +1,15 @@
 package com.jg.rdms.db.sql;
 
-import java.util.Map;
+import java.util.List;
 
+/**
+ * {@code columns} is the select list, empty for {@code *}; {@code limit}
+ * is null without a LIMIT clause.
+ */
 public record SelectCommand(
         String table,
-        Map<String, Object> whereEquals
+        List<String> columns,
+        List<Condition> where,
+        List<SortKey> orderBy,
+        Integer limit
 ) {}
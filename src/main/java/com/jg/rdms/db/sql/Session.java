@@ -0,0 +1,96 @@
+package com.jg.rdms.db.sql;
+
+import com.jg.rdms.db.tx.Transaction;
+import com.jg.rdms.db.tx.TransactionManager;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * One client's connection state: the transaction opened with BEGIN, if
+ * any. Without one, every statement runs in a transaction of its own.
+ *
+ * Statements of a session run one at a time (see {@link #exclusive}).
+ * Between them an open transaction counts as idle, and is rolled back
+ * once idle for too long (see {@link TransactionManager#abortIdle}).
+ */
+public class Session {
+
+    private final TransactionManager txManager;
+    private final ReentrantLock statementLock = new ReentrantLock();
+    private Transaction transaction;
+
+    public Session(TransactionManager txManager) {
+        this.txManager = txManager;
+    }
+
+    /**
+     * Runs {@code statement} while no other statement of this session
+     * runs. 🔒 The lock is a field, never the session's monitor: the web
+     * layer hands out a scoped proxy shared by every HTTP session, which
+     * forwards this call to the real per-session object.
+     */
+    public <T> T exclusive(Supplier<T> statement) {
+        statementLock.lock();
+        try {
+            resume();
+            return statement.get();
+        } finally {
+            pause();
+            statementLock.unlock();
+        }
+    }
+
+    /** Fails once if the open transaction was rolled back for being idle. */
+    private synchronized void resume() {
+        if (transaction != null && !transaction.resume()) {
+            long id = transaction.getId();
+            transaction = null;
+            throw new IllegalStateException(
+                    "Transaction " + id + " was rolled back after being idle too long"
+            );
+        }
+    }
+
+    private synchronized void pause() {
+        if (transaction != null) {
+            transaction.pause();
+        }
+    }
+
+    public synchronized Transaction transaction() {
+        return transaction;
+    }
+
+    synchronized void begin() {
+        if (transaction != null) {
+            throw new IllegalStateException("A transaction is already open");
+        }
+        transaction = txManager.begin();
+    }
+
+    synchronized void commit() {
+        txManager.commit(end());
+    }
+
+    synchronized void rollback() {
+        txManager.rollback(end());
+    }
+
+    private Transaction end() {
+        if (transaction == null) {
+            throw new IllegalStateException("No transaction is open");
+        }
+        Transaction tx = transaction;
+        transaction = null;
+        return tx;
+    }
+
+    /** Rolls back the open transaction, e.g. when the client goes away. */
+    public synchronized void close() {
+        if (transaction != null && transaction.resume()) {
+            rollback();
+        }
+        transaction = null;
+    }
+}
@@ -0,0 +1,7 @@
+package com.jg.rdms.db.sql;
+
+/** One ORDER BY term. NULLs sort after every value (first when descending). */
+public record SortKey(
+        String column,
+        boolean descending
+) {}
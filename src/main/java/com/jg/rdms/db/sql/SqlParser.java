@@ -4,373 +4,634 @@ import com.jg.rdms.db.core.Column;
 import com.jg.rdms.db.core.DataType;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Recursive-descent parser over the tokens of one statement (see
+ * {@link Lexer}), one method per grammar rule. Keywords are matched
+ * ignoring case, names keep the case they are written in, and a value is
+ * only ever a literal token, so a keyword inside a string is just text.
+ *
+ * <pre>
+ * statement   := [EXPLAIN] query | insert | update | delete | create | transaction [;]
+ * query       := SELECT (* | column, ...) FROM name [join] [WHERE conditions]
+ *                [ORDER BY column [ASC|DESC], ...] [LIMIT number]
+ * join        := [INNER | LEFT [OUTER] | RIGHT [OUTER]] JOIN name ON column = column
+ * conditions  := and [OR and]...
+ * and         := not [AND not]...
+ * not         := NOT not | ( conditions ) | predicate
+ * predicate   := column op value | column IS [NOT] NULL
+ *              | column [NOT] BETWEEN value AND value
+ *              | column [NOT] IN (value, ...) | column [NOT] LIKE value
+ * op          := = | &lt;&gt; | != | &lt; | &lt;= | &gt; | &gt;=
+ * value       := 'text' | [-]number | ?
+ * </pre>
+ */
 public class SqlParser {
 
+    private final List<Token> tokens;
+    private int next = 0;
+    private int parameters = 0;
+
+    public SqlParser(String sql) {
+        this.tokens = Lexer.tokenize(sql);
+    }
+
     /* =========================
        ENTRY POINTS
        ========================= */
 
-    public static CreateTableCommand parseCreateTable(String sql) {
+    /** The command record of {@code sql}. */
+    public static Object parse(String sql) {
+        return new SqlParser(sql).statement();
+    }
 
-        sql = normalize(sql);
-        String upper = sql.toUpperCase();
+    public static CreateTableCommand parseCreateTable(String sql) {
+        return parse(sql, CreateTableCommand.class, "CREATE TABLE");
+    }
 
-        if (!upper.startsWith("CREATE TABLE")) {
-            throw new IllegalArgumentException("Not a CREATE TABLE statement");
-        }
+    public static CreateIndexCommand parseCreateIndex(String sql) {
+        return parse(sql, CreateIndexCommand.class, "CREATE INDEX");
+    }
 
-        String tableName = extractTableName(sql);
+    public static InsertCommand parseInsert(String sql) {
+        return parse(sql, InsertCommand.class, "INSERT");
+    }
 
-        String columnBlock = extractColumnBlock(sql);
+    public static UpdateCommand parseUpdate(String sql) {
+        return parse(sql, UpdateCommand.class, "UPDATE");
+    }
 
-        List<Column> columns = parseColumns(columnBlock);
+    public static DeleteCommand parseDelete(String sql) {
+        return parse(sql, DeleteCommand.class, "DELETE");
+    }
 
-        return new CreateTableCommand(tableName, columns);
+    public static SelectCommand parseSelect(String sql) {
+        return parse(sql, SelectCommand.class, "SELECT");
     }
 
-    public static UpdateCommand parseUpdate(String sql) {
+    public static JoinCommand parseJoin(String sql) {
+        return parse(sql, JoinCommand.class, "SELECT ... JOIN");
+    }
 
-        // Normalize
-        sql = sql.trim().replaceAll("\\s+", " ");
+    private static <T> T parse(String sql, Class<T> type, String what) {
+        Object command = parse(sql);
+        if (!type.isInstance(command)) {
+            throw new IllegalArgumentException("Not a " + what + " statement");
+        }
+        return type.cast(command);
+    }
 
-        // UPDATE users SET name='Bob' WHERE id=1 AND name='Jane'
-        String upper = sql.toUpperCase();
+    /** Parses the whole statement. */
+    public Object statement() {
+        Token first = peek();
+        Object command;
+
+        if (accept("EXPLAIN")) {
+            command = new ExplainCommand(query());
+        } else if (first.is("SELECT")) {
+            command = query();
+        } else if (first.is("INSERT")) {
+            command = insert();
+        } else if (first.is("UPDATE")) {
+            command = update();
+        } else if (first.is("DELETE")) {
+            command = delete();
+        } else if (first.is("CREATE")) {
+            command = create();
+        } else if (first.is("BEGIN") || first.is("START") || first.is("COMMIT") || first.is("ROLLBACK")) {
+            command = transaction();
+        } else {
+            throw new UnsupportedOperationException(
+                    "Unsupported SQL at " + first.describe()
+            );
+        }
 
-        if (!upper.startsWith("UPDATE")) {
-            throw new IllegalArgumentException("Not an UPDATE statement");
+        while (acceptSymbol(";")) {
+            // trailing semicolons
+        }
+        if (peek().kind() != Token.Kind.END) {
+            throw unexpected("end of statement");
         }
+        return command;
+    }
 
-        String table =
-                sql.split(" ")[1];
+    /** {@code ?} placeholders in the statement, numbered from 0 as they appear. */
+    public int parameterCount() {
+        return parameters;
+    }
 
-        String setPart =
-                sql.substring(
-                        upper.indexOf("SET") + 3,
-                        upper.contains("WHERE")
-                                ? upper.indexOf("WHERE")
-                                : sql.length()
-                ).trim();
+    /* =========================
+       SELECT / JOIN
+       ========================= */
 
-        String wherePart =
-                upper.contains("WHERE")
-                        ? sql.substring(upper.indexOf("WHERE") + 5).trim()
-                        : "";
+    private Object query() {
+        expect("SELECT");
+        List<String> columns = selectList();
+        expect("FROM");
+        String table = name();
+
+        JoinType type = joinType();
+        if (type == null) {
+            List<Condition> where = where();
+            List<SortKey> orderBy = orderBy();
+            return new SelectCommand(table, columns, where, orderBy, limit());
+        }
 
-        Map<String, Object> setValues =
-                parseAssignments(setPart);
+        String rightTable = name();
+        expect("ON");
+        String[] first = columnRef();
+        expectSymbol("=");
+        String[] second = columnRef();
+
+        // ON users.id = orders.user_id, with orders on the left: swap
+        boolean swap = second[0] != null && second[0].equalsIgnoreCase(table)
+                && (first[0] == null || first[0].equalsIgnoreCase(rightTable));
+        String leftColumn = swap ? second[1] : first[1];
+        String rightColumn = swap ? first[1] : second[1];
+
+        List<Condition> where = where();
+        List<SortKey> orderBy = orderBy();
+        return new JoinCommand(type, columns, table, rightTable, leftColumn, rightColumn, where, orderBy, limit());
+    }
 
-        Map<String, Object> whereEquals =
-                wherePart.isEmpty()
-                        ? Map.of()
-                        : parseConditions(wherePart);
+    /** The selected columns, empty for {@code *}. */
+    private List<String> selectList() {
+        if (acceptSymbol("*")) {
+            return List.of();
+        }
 
-        return new UpdateCommand(
-                table,
-                setValues,
-                whereEquals
-        );
+        List<String> columns = new ArrayList<>();
+        do {
+            columns.add(column());
+        } while (acceptSymbol(","));
+        return columns;
     }
 
-        /* -------------------------
-       Helpers
-       ------------------------- */
-
-    private static Map<String, Object> parseAssignments(String input) {
-        Map<String, Object> result = new HashMap<>();
+    /** The join type if a JOIN follows, else null. */
+    private JoinType joinType() {
+        JoinType type;
+        if (accept("LEFT")) {
+            type = JoinType.LEFT;
+        } else if (accept("RIGHT")) {
+            type = JoinType.RIGHT;
+        } else if (accept("INNER") || peek().is("JOIN")) {
+            type = JoinType.INNER;
+        } else {
+            return null;
+        }
 
-        // name='Bob', age=10
-        for (String part : input.split(",")) {
-            String[] kv = part.split("=");
-            result.put(
-                    kv[0].trim(),
-                    parseValue(kv[1].trim())
-            );
+        if (type != JoinType.INNER) {
+            accept("OUTER");
         }
-        return result;
+        expect("JOIN");
+        return type;
     }
 
-    private static Map<String, Object> parseConditions(String input) {
-        Map<String, Object> result = new HashMap<>();
-
-        // id=1 AND name='Jane'
-        for (String part : input.split("AND")) {
-            String[] kv = part.split("=");
-            result.put(
-                    kv[0].trim(),
-                    parseValue(kv[1].trim())
-            );
+    private List<SortKey> orderBy() {
+        if (!accept("ORDER")) {
+            return List.of();
         }
-        return result;
+        expect("BY");
+
+        List<SortKey> keys = new ArrayList<>();
+        do {
+            String column = column();
+            boolean descending = accept("DESC");
+            if (!descending) {
+                accept("ASC");
+            }
+            keys.add(new SortKey(column, descending));
+        } while (acceptSymbol(","));
+        return keys;
     }
 
-    private static Object parseValue(String raw) {
-        raw = raw.trim();
-
-        if (raw.startsWith("'") && raw.endsWith("'")) {
-            return raw.substring(1, raw.length() - 1);
+    private Integer limit() {
+        if (!accept("LIMIT")) {
+            return null;
         }
-
-        return Integer.valueOf(raw);
+        return number(expectKind(Token.Kind.NUMBER, "a row count"));
     }
 
     /* =========================
-       CREATE TABLE helpers
+       WHERE
        ========================= */
 
-    private static String extractTableName(String sql) {
-        // CREATE TABLE users (...
-        return sql.split(" ")[2];
+    /** The top-level AND terms of a WHERE clause, if there is one. */
+    private List<Condition> where() {
+        if (!accept("WHERE")) {
+            return List.of();
+        }
+
+        // id=1 AND (name='Jane' OR age >= 18): the outer AND becomes the list
+        Condition condition = or();
+        return condition instanceof Condition.And and ? and.terms() : List.of(condition);
     }
 
-    private static String extractColumnBlock(String sql) {
-        int start = sql.indexOf('(');
-        int end = sql.lastIndexOf(')');
+    private Condition or() {
+        List<Condition> terms = new ArrayList<>();
+        do {
+            terms.add(and());
+        } while (accept("OR"));
+        return terms.size() == 1 ? terms.get(0) : new Condition.Or(flatten(terms, Condition.Or.class));
+    }
 
-        if (start == -1 || end == -1 || end <= start) {
-            throw new IllegalArgumentException(
-                    "Invalid CREATE TABLE syntax: missing column definition block"
-            );
-        }
+    private Condition and() {
+        List<Condition> terms = new ArrayList<>();
+        do {
+            terms.add(not());
+        } while (accept("AND"));
+        return terms.size() == 1 ? terms.get(0) : new Condition.And(flatten(terms, Condition.And.class));
+    }
 
-        return sql.substring(start + 1, end).trim();
+    /** NOT is pushed into the term it applies to (see {@link Condition#negate}). */
+    private Condition not() {
+        if (accept("NOT")) {
+            return not().negate();
+        }
+        if (acceptSymbol("(")) {
+            Condition condition = or();
+            expectSymbol(")");
+            return condition;
+        }
+        return predicate();
     }
-    private static List<Column> parseColumns(String block) {
 
-        List<Column> columns = new ArrayList<>();
+    private Condition predicate() {
+        String column = column();
 
-        for (String rawCol : block.split(",")) {
+        if (accept("IS")) {
+            boolean negated = accept("NOT");
+            expect("NULL");
+            return new Condition.IsNull(column, negated);
+        }
 
-            String colDef = rawCol.trim();
-            String upper = colDef.toUpperCase();
+        boolean negated = accept("NOT");
+        if (accept("BETWEEN")) {
+            Object low = value();
+            expect("AND");
+            return new Condition.Between(column, low, value(), negated);
+        }
+        if (accept("IN")) {
+            expectSymbol("(");
+            List<Object> values = new ArrayList<>();
+            do {
+                values.add(value());
+            } while (acceptSymbol(","));
+            expectSymbol(")");
+            return new Condition.In(column, values, negated);
+        }
+        if (accept("LIKE")) {
+            return new Condition.Like(column, value(), negated);
+        }
+        if (negated) {
+            throw unexpected("BETWEEN, IN or LIKE");
+        }
 
-            String[] parts = colDef.split("\\s+");
+        Token op = advance();
+        if (op.kind() != Token.Kind.SYMBOL) {
+            throw unexpected(op, "a comparison operator");
+        }
+        return new Comparison(column, operator(op), value());
+    }
 
-            if (parts.length < 2) {
-                throw new IllegalArgumentException(
-                        "Invalid column definition: " + colDef
-                );
+    private Comparison.Op operator(Token op) {
+        if (op.isSymbol("!=")) {
+            return Comparison.Op.NE;
+        }
+        for (Comparison.Op candidate : Comparison.Op.values()) {
+            if (candidate.symbol().equals(op.text())) {
+                return candidate;
             }
+        }
+        throw unexpected(op, "a comparison operator");
+    }
 
-            String name = parts[0];
-            DataType type = DataType.valueOf(parts[1]);
+    /** {@code terms} with nested terms of the same kind (a AND (b AND c)) inlined. */
+    private static List<Condition> flatten(List<Condition> terms, Class<? extends Condition> kind) {
+        List<Condition> flat = new ArrayList<>(terms.size());
+        for (Condition term : terms) {
+            if (term instanceof Condition.And and && kind == Condition.And.class) {
+                flat.addAll(and.terms());
+            } else if (term instanceof Condition.Or or && kind == Condition.Or.class) {
+                flat.addAll(or.terms());
+            } else {
+                flat.add(term);
+            }
+        }
+        return flat;
+    }
 
-            boolean primary = upper.contains("PRIMARY KEY");
-            boolean unique  = upper.contains("UNIQUE");
+    /* =========================
+       INSERT / UPDATE / DELETE
+       ========================= */
 
-            String refTable = null;
-            String refColumn = null;
+    private InsertCommand insert() {
+        expect("INSERT");
+        expect("INTO");
+        String table = name();
 
-            if (upper.contains("REFERENCES")) {
-                int idx = upper.indexOf("REFERENCES") + "REFERENCES".length();
-                String ref = colDef.substring(idx).trim();
+        // INSERT INTO users (id, name) VALUES (1, 'Bob')
+        List<String> columns = new ArrayList<>();
+        expectSymbol("(");
+        do {
+            columns.add(name());
+        } while (acceptSymbol(","));
+        expectSymbol(")");
+
+        expect("VALUES");
+
+        List<Object> values = new ArrayList<>();
+        expectSymbol("(");
+        do {
+            values.add(value());
+        } while (acceptSymbol(","));
+        expectSymbol(")");
 
-                // users(id)
-                int open = ref.indexOf('(');
-                int close = ref.indexOf(')');
+        if (columns.size() != values.size()) {
+            throw new IllegalArgumentException(
+                    "Column count does not match value count"
+            );
+        }
+        return new InsertCommand(table, columns, values);
+    }
 
-                refTable = ref.substring(0, open).trim();
-                refColumn = ref.substring(open + 1, close).trim();
-            }
+    private UpdateCommand update() {
+        expect("UPDATE");
+        String table = name();
+        expect("SET");
 
-            columns.add(new Column(
-                    name,
-                    type,
-                    primary,
-                    unique,
-                    refTable,
-                    refColumn
-            ));
-        }
+        // name='Bob', age=10
+        Map<String, Object> setValues = new LinkedHashMap<>();
+        do {
+            String column = name();
+            expectSymbol("=");
+            setValues.put(column, value());
+        } while (acceptSymbol(","));
+
+        return new UpdateCommand(table, setValues, where());
+    }
 
-        return columns;
+    private DeleteCommand delete() {
+        expect("DELETE");
+        expect("FROM");
+        String table = name();
+        return new DeleteCommand(table, where());
     }
 
     /* =========================
-       Shared helpers
+       CREATE TABLE / INDEX
        ========================= */
 
-    private static String normalize(String sql) {
-        return sql
-                .trim()
-                .replaceAll("\\s+", " ")
-                .replaceAll(";+$", "");
-    }
+    private Object create() {
+        expect("CREATE");
+
+        if (accept("INDEX")) {
+            // CREATE INDEX idx_users_name ON users(name)
+            String index = name();
+            expect("ON");
+            String table = name();
+            expectSymbol("(");
+            String column = name();
+            expectSymbol(")");
+            return new CreateIndexCommand(index, table, column);
+        }
 
-    public static DeleteCommand parseDelete(String sql) {
+        expect("TABLE");
+        String table = name();
 
-        sql = normalize(sql);
-        String upper = sql.toUpperCase();
+        List<Column> columns = new ArrayList<>();
+        expectSymbol("(");
+        do {
+            columns.add(columnDefinition());
+        } while (acceptSymbol(","));
+        expectSymbol(")");
 
-        if (!upper.startsWith("DELETE FROM")) {
-            throw new IllegalArgumentException("Not a DELETE statement");
-        }
+        return new CreateTableCommand(table, columns);
+    }
 
-        // DELETE FROM users WHERE id=1 AND name='Bob'
-        String table =
-                sql.split(" ")[2];
+    /** name TYPE [PRIMARY KEY] [UNIQUE] [REFERENCES table(column)] */
+    private Column columnDefinition() {
+        String name = name();
+        Token typeName = expectKind(Token.Kind.WORD, "a column type");
 
-        String wherePart =
-                upper.contains("WHERE")
-                        ? sql.substring(upper.indexOf("WHERE") + 5).trim()
-                        : "";
+        DataType type;
+        try {
+            type = DataType.valueOf(typeName.text().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown column type: " + typeName.text());
+        }
 
-        Map<String, Object> whereEquals =
-                wherePart.isEmpty()
-                        ? Map.of()
-                        : parseConditions(wherePart);
+        boolean primary = false;
+        boolean unique = false;
+        String refTable = null;
+        String refColumn = null;
+
+        while (true) {
+            if (accept("PRIMARY")) {
+                expect("KEY");
+                primary = true;
+            } else if (accept("UNIQUE")) {
+                unique = true;
+            } else if (accept("REFERENCES")) {
+                // users(id)
+                refTable = name();
+                expectSymbol("(");
+                refColumn = name();
+                expectSymbol(")");
+            } else {
+                break;
+            }
+        }
 
-        return new DeleteCommand(table, whereEquals);
+        return new Column(name, type, primary, unique, refTable, refColumn);
     }
 
-    public static SelectCommand parseSelect(String sql) {
-
-        sql = normalize(sql);
-        String upper = sql.toUpperCase();
+    /* =========================
+       TRANSACTIONS
+       ========================= */
 
-        if (!upper.startsWith("SELECT * FROM")) {
-            throw new IllegalArgumentException("Only SELECT * FROM is supported");
+    // BEGIN [TRANSACTION] | START TRANSACTION | COMMIT [WORK] | ROLLBACK [WORK]
+    private TransactionCommand transaction() {
+        TransactionCommand command;
+
+        if (accept("START")) {
+            expect("TRANSACTION");
+            return TransactionCommand.BEGIN;
+        } else if (accept("BEGIN")) {
+            command = TransactionCommand.BEGIN;
+        } else if (accept("COMMIT")) {
+            command = TransactionCommand.COMMIT;
+        } else {
+            expect("ROLLBACK");
+            command = TransactionCommand.ROLLBACK;
         }
 
-        // SELECT * FROM users WHERE id=1 AND name='Bob'
-        String table =
-                sql.split(" ")[3];
-
-        String wherePart =
-                upper.contains("WHERE")
-                        ? sql.substring(upper.indexOf("WHERE") + 5).trim()
-                        : "";
+        if (!accept("TRANSACTION")) {
+            accept("WORK");
+        }
+        return command;
+    }
 
-        Map<String, Object> whereEquals =
-                wherePart.isEmpty()
-                        ? Map.of()
-                        : parseConditions(wherePart);
+    /* =========================
+       Terms
+       ========================= */
 
-        return new SelectCommand(table, whereEquals);
+    /** A literal or a {@code ?} placeholder. */
+    private Object value() {
+        Token token = advance();
+
+        return switch (token.kind()) {
+            case STRING -> token.text();
+            case NUMBER -> number(token);
+            case PARAMETER -> new Parameter(parameters++);
+            case SYMBOL -> {
+                if (!token.isSymbol("-")) {
+                    throw unexpected(token, "a value");
+                }
+                yield -number(expectKind(Token.Kind.NUMBER, "a number"));
+            }
+            default -> throw unexpected(token, "a value");
+        };
     }
 
-    private static List<String> parseColumnList(String input) {
-        List<String> cols = new ArrayList<>();
-        for (String part : input.split(",")) {
-            cols.add(part.trim());
+    private static int number(Token token) {
+        try {
+            return Integer.parseInt(token.text());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Number out of range: " + token.text());
         }
-        return cols;
     }
 
-    private static List<Object> parseValueList(String input) {
-        List<Object> vals = new ArrayList<>();
-        for (String part : input.split(",")) {
-            vals.add(parseValue(part.trim()));
+    /** A column, with its table if given ({@code users.id}). */
+    private String column() {
+        String[] ref = columnRef();
+        return ref[0] == null ? ref[1] : ref[0] + "." + ref[1];
+    }
+
+    /** {table or null, column}. */
+    private String[] columnRef() {
+        String first = name();
+        if (acceptSymbol(".")) {
+            return new String[]{first, name()};
         }
-        return vals;
+        return new String[]{null, first};
     }
 
+    private String name() {
+        return expectKind(Token.Kind.WORD, "a name").text();
+    }
 
-    public static InsertCommand parseInsert(String sql) {
+    /* =========================
+       Token helpers
+       ========================= */
 
-        sql = normalize(sql);
-        String upper = sql.toUpperCase();
+    private Token peek() {
+        return tokens.get(next);
+    }
 
-        if (!upper.startsWith("INSERT INTO")) {
-            throw new IllegalArgumentException("Not an INSERT statement");
+    private Token advance() {
+        Token token = tokens.get(next);
+        if (token.kind() != Token.Kind.END) {
+            next++;
         }
+        return token;
+    }
 
-        // INSERT INTO users (id, name) VALUES (1, 'Bob')
-        String table =
-                sql.split(" ")[2];
-
-        int colsStart = sql.indexOf('(');
-        int colsEnd   = sql.indexOf(')', colsStart);
-
-        int valsStart = upper.indexOf("VALUES", colsEnd) + 6;
-        int valsOpen  = sql.indexOf('(', valsStart);
-        int valsClose = sql.indexOf(')', valsOpen);
+    private boolean accept(String keyword) {
+        if (peek().is(keyword)) {
+            next++;
+            return true;
+        }
+        return false;
+    }
 
-        if (colsStart == -1 || valsOpen == -1) {
-            throw new IllegalArgumentException("Invalid INSERT syntax");
+    private boolean acceptSymbol(String symbol) {
+        if (peek().isSymbol(symbol)) {
+            next++;
+            return true;
         }
+        return false;
+    }
 
-        List<String> columns =
-                parseColumnList(
-                        sql.substring(colsStart + 1, colsEnd)
-                );
+    private void expect(String keyword) {
+        if (!accept(keyword)) {
+            throw unexpected(keyword);
+        }
+    }
 
-        List<Object> values =
-                parseValueList(
-                        sql.substring(valsOpen + 1, valsClose)
-                );
+    private void expectSymbol(String symbol) {
+        if (!acceptSymbol(symbol)) {
+            throw unexpected("'" + symbol + "'");
+        }
+    }
 
-        if (columns.size() != values.size()) {
-            throw new IllegalArgumentException(
-                    "Column count does not match value count"
-            );
+    private Token expectKind(Token.Kind kind, String what) {
+        if (peek().kind() != kind) {
+            throw unexpected(what);
         }
+        return advance();
+    }
 
-        return new InsertCommand(table, columns, values);
+    private IllegalArgumentException unexpected(String expected) {
+        return unexpected(peek(), expected);
     }
 
-    public static JoinCommand parseJoin(String sql) {
+    private static IllegalArgumentException unexpected(Token found, String expected) {
+        return new IllegalArgumentException(
+                "Expected " + expected + " but found " + found.describe()
+                        + " at position " + found.position()
+        );
+    }
 
-        sql = normalize(sql);
-        String upper = sql.toUpperCase();
+    /* =========================
+       Cache key
+       ========================= */
 
-        if (!upper.startsWith("SELECT * FROM")) {
-            throw new IllegalArgumentException("Only SELECT * FROM ... JOIN supported");
+    /**
+     * {@code sql} trimmed, without trailing semicolons, and with runs of
+     * whitespace outside string literals made one space; the same string
+     * when there is nothing to change.
+     */
+    static String normalize(String sql) {
+        int end = sql.length();
+        while (end > 0 && (Character.isWhitespace(sql.charAt(end - 1)) || sql.charAt(end - 1) == ';')) {
+            end--;
+        }
+        int start = 0;
+        while (start < end && Character.isWhitespace(sql.charAt(start))) {
+            start++;
         }
 
-        JoinType joinType;
-        if (upper.contains(" LEFT JOIN ")) {
-            joinType = JoinType.LEFT;
-        } else if (upper.contains(" RIGHT JOIN ")) {
-            joinType = JoinType.RIGHT;
-        } else if (upper.contains(" JOIN ")) {
-            joinType = JoinType.INNER;
-        } else {
-            throw new IllegalArgumentException("No JOIN clause found");
-        }
-
-        // SELECT * FROM orders LEFT JOIN users ON ...
-        String[] tokens = sql.split(" ");
-
-        String leftTable = tokens[3];
-        String rightTable =
-                joinType == JoinType.INNER
-                        ? tokens[5]
-                        : tokens[6];
-
-        int onIndex = upper.indexOf("ON") + 2;
-        int whereIndex =
-                upper.contains("WHERE")
-                        ? upper.indexOf("WHERE")
-                        : sql.length();
-
-        String onClause =
-                sql.substring(onIndex, whereIndex).trim();
-
-        // orders.user_id = users.id
-        String[] onParts = onClause.split("=");
-
-        String[] leftRef = onParts[0].trim().split("\\.");
-        String[] rightRef = onParts[1].trim().split("\\.");
-
-        Map<String, Object> whereEquals =
-                upper.contains("WHERE")
-                        ? parseConditions(
-                        sql.substring(whereIndex + 5).trim()
-                )
-                        : Map.of();
-
-        return new JoinCommand(
-                joinType,
-                leftTable,
-                rightTable,
-                leftRef[1],
-                rightRef[1],
-                whereEquals
-        );
-    }
+        StringBuilder out = null;
+        boolean quoted = false;
+
+        for (int i = start; i < end; i++) {
+            char c = sql.charAt(i);
+
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && Character.isWhitespace(c)) {
+                int last = i;
+                while (Character.isWhitespace(sql.charAt(last + 1))) {
+                    last++;
+                }
+                if (c != ' ' || last > i) {
+                    if (out == null) {
+                        out = new StringBuilder(end - start).append(sql, start, i);
+                    }
+                    out.append(' ');
+                    i = last;
+                    continue;
+                }
+            }
 
+            if (out != null) {
+                out.append(c);
+            }
+        }
+        return out == null ? sql.substring(start, end) : out.toString();
+    }
 }
@@ -0,0 +1,52 @@
+package com.jg.rdms.db.sql;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Parsed statements by normalized SQL text, least recently used first
+ * out. Parsing happens outside the lock, so two threads preparing the
+ * same new text may both parse it; the statements are equal anyway.
+ */
+final class StatementCache {
+
+    private final int capacity;
+    private final Map<String, PreparedStatement> statements;
+
+    StatementCache(int capacity) {
+        this.capacity = capacity;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                return size() > StatementCache.this.capacity;
+            }
+        };
+    }
+
+    PreparedStatement get(String sql, Function<String, PreparedStatement> parse) {
+        if (capacity <= 0) {
+            return parse.apply(sql);
+        }
+
+        synchronized (statements) {
+            PreparedStatement cached = statements.get(sql);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        PreparedStatement parsed = parse.apply(sql);
+
+        synchronized (statements) {
+            statements.put(sql, parsed);
+        }
+        return parsed;
+    }
+
+    int size() {
+        synchronized (statements) {
+            return statements.size();
+        }
+    }
+}
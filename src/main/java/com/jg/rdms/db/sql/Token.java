@@ -0,0 +1,32 @@
+package com.jg.rdms.db.sql;
+
+/**
+ * One lexical token of a SQL statement. {@code text} is the word, digits
+ * or symbol as written, or the value of a string literal (quotes removed,
+ * {@code ''} read as one quote); {@code position} is where it starts.
+ */
+record Token(Kind kind, String text, int position) {
+
+    enum Kind {
+        WORD,      // keyword or identifier
+        NUMBER,
+        STRING,
+        PARAMETER, // ?
+        SYMBOL,    // ( ) , . * ; = < > <= >= <> != -
+        END
+    }
+
+    /** Whether this is the keyword {@code keyword} (given in upper case). */
+    boolean is(String keyword) {
+        return kind == Kind.WORD && text.equalsIgnoreCase(keyword);
+    }
+
+    boolean isSymbol(String symbol) {
+        return kind == Kind.SYMBOL && text.equals(symbol);
+    }
+
+    /** How the token reads in an error message. */
+    String describe() {
+        return kind == Kind.END ? "end of statement" : "'" + text + "'";
+    }
+}
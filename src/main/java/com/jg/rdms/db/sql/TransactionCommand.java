@@ -0,0 +1,7 @@
+package com.jg.rdms.db.sql;
+
+public enum TransactionCommand {
+    BEGIN,
+    COMMIT,
+    ROLLBACK
+}
@@ -1,9 +1,10 @@
 package com.jg.rdms.db.sql;
 
+import java.util.List;
 import java.util.Map;
 
 public record UpdateCommand(
         String table,
         Map<String, Object> setValues,
-        Map<String, Object> whereEquals
+        List<Condition> where
 ) {}
\ No newline at end of file
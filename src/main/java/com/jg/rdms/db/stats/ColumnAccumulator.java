@@ -0,0 +1,86 @@
+package com.jg.rdms.db.stats;
+
+import com.jg.rdms.db.index.BPlusTree;
+
+/**
+ * Running statistics of one column. Counts are exact. Distinct values are
+ * estimated with a HyperLogLog sketch (1024 registers, about 3% error),
+ * and min / max only ever widen: neither can be taken back when a value
+ * goes away, so both stay an upper bound until the next rebuild.
+ */
+final class ColumnAccumulator {
+
+    private static final int REGISTER_BITS = 10;
+    private static final int REGISTERS = 1 << REGISTER_BITS;
+
+    private final byte[] registers = new byte[REGISTERS];
+
+    private long nonNull = 0;
+    private long nulls = 0;
+    private Object min;
+    private Object max;
+
+    void add(Object value) {
+        if (value == null) {
+            nulls++;
+            return;
+        }
+        nonNull++;
+
+        if (min == null || BPlusTree.compareKeys(value, min) < 0) {
+            min = value;
+        }
+        if (max == null || BPlusTree.compareKeys(value, max) > 0) {
+            max = value;
+        }
+
+        long hash = mix(value.hashCode());
+        int register = (int) (hash >>> (64 - REGISTER_BITS));
+        byte rank = (byte) (Long.numberOfLeadingZeros(hash << REGISTER_BITS | 1L << (REGISTER_BITS - 1)) + 1);
+        if (rank > registers[register]) {
+            registers[register] = rank;
+        }
+    }
+
+    void remove(Object value) {
+        if (value == null) {
+            nulls = Math.max(0, nulls - 1);
+        } else {
+            nonNull = Math.max(0, nonNull - 1);
+        }
+    }
+
+    ColumnStatistics summary(long rows) {
+        return new ColumnStatistics(rows, nulls, Math.min(estimateDistinct(), nonNull), min, max);
+    }
+
+    private long estimateDistinct() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : registers) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) {
+                zeros++;
+            }
+        }
+
+        double alpha = 0.7213 / (1 + 1.079 / REGISTERS);
+        double estimate = alpha * REGISTERS * REGISTERS / sum;
+
+        // few values: count the empty registers instead (linear counting)
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /** Spreads {@code hashCode()}s (an Integer hashes to itself) over 64 bits. */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
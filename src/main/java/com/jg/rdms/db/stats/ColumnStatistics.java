@@ -0,0 +1,23 @@
+package com.jg.rdms.db.stats;
+
+/**
+ * Statistics of one column at one moment, for the planner.
+ *
+ * @param rows     rows of the table
+ * @param nulls    rows where the column is NULL
+ * @param distinct distinct non-NULL values (estimated)
+ * @param min      smallest non-NULL value, or null
+ * @param max      largest non-NULL value, or null
+ */
+public record ColumnStatistics(
+        long rows,
+        long nulls,
+        long distinct,
+        Object min,
+        Object max
+) {
+
+    public double nullFraction() {
+        return rows == 0 ? 0 : (double) nulls / rows;
+    }
+}
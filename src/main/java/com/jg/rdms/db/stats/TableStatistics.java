@@ -0,0 +1,89 @@
+package com.jg.rdms.db.stats;
+
+import java.util.*;
+
+/**
+ * Row count and per-column statistics of a table, kept up to date as rows
+ * are inserted, updated and deleted. Describes the newest version of each
+ * row, committed or not, like the constraint checks do; a rolled back
+ * change is taken back.
+ *
+ * Distinct counts and min / max cannot shrink incrementally (see
+ * {@link ColumnAccumulator}), so the owner rebuilds the statistics from
+ * its rows when {@link #stale()}.
+ */
+public final class TableStatistics {
+
+    private final List<String> columns;
+    private Map<String, ColumnAccumulator> accumulators;
+
+    private long rows = 0;
+    private long changes = 0;
+
+    public TableStatistics(List<String> columns) {
+        this.columns = List.copyOf(columns);
+        this.accumulators = fresh(this.columns);
+    }
+
+    /** Statistics of {@code rows}, built in one pass. */
+    public static TableStatistics of(List<String> columns, Collection<? extends Map<String, Object>> rows) {
+        TableStatistics stats = new TableStatistics(columns);
+        rows.forEach(stats::add);
+        return stats;
+    }
+
+    public synchronized void add(Map<String, Object> row) {
+        rows++;
+        changes++;
+        accumulators.forEach((column, acc) -> acc.add(row.get(column)));
+    }
+
+    public synchronized void remove(Map<String, Object> row) {
+        rows = Math.max(0, rows - 1);
+        changes++;
+        accumulators.forEach((column, acc) -> acc.remove(row.get(column)));
+    }
+
+    public synchronized void replace(Map<String, Object> previous, Map<String, Object> next) {
+        remove(previous);
+        add(next);
+    }
+
+    /** Starts over from {@code rows}, e.g. after load or once stale. */
+    public synchronized void rebuild(Iterable<? extends Map<String, Object>> rows) {
+        Map<String, ColumnAccumulator> next = fresh(columns);
+        long count = 0;
+
+        for (Map<String, Object> row : rows) {
+            count++;
+            next.forEach((column, acc) -> acc.add(row.get(column)));
+        }
+
+        this.accumulators = next;
+        this.rows = count;
+        this.changes = 0;
+    }
+
+    /** Whether enough rows changed since the last rebuild to redo it. */
+    public synchronized boolean stale() {
+        return changes > Math.max(1_000, rows);
+    }
+
+    public synchronized long rowCount() {
+        return rows;
+    }
+
+    /** Statistics of {@code column}, or null if the table does not have it. */
+    public synchronized ColumnStatistics column(String column) {
+        ColumnAccumulator acc = accumulators.get(column);
+        return acc == null ? null : acc.summary(rows);
+    }
+
+    private static Map<String, ColumnAccumulator> fresh(List<String> columns) {
+        Map<String, ColumnAccumulator> accumulators = new HashMap<>();
+        for (String column : columns) {
+            accumulators.put(column, new ColumnAccumulator());
+        }
+        return accumulators;
+    }
+}
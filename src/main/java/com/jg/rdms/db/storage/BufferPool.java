@@ -0,0 +1,253 @@
+package com.jg.rdms.db.storage;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Page frames shared by every {@link SlottedHeapFile} of a database.
+ *
+ * A page is pinned while a heap file operation uses it and may only be
+ * evicted once unpinned. Changed pages are marked dirty and written back
+ * either by {@link SlottedHeapFile#flush()} or when evicted; before a
+ * dirty page is written the {@code beforeWrite} hook runs, which forces
+ * the write-ahead log so no page reaches disk ahead of its log records.
+ *
+ * <h3>Bounded ({@code capacity > 0})</h3>
+ * Keeps up to {@code capacity} pages, clean or dirty, and picks victims
+ * with the CLOCK algorithm: a frame that was used since the hand last
+ * passed gets a second chance. When every frame is pinned the pool grows
+ * past its capacity rather than failing, and shrinks back on later
+ * evictions.
+ *
+ * <h3>Unbounded ({@code capacity == 0})</h3>
+ * Only dirty pages are kept, until their file is flushed; clean pages are
+ * dropped as soon as they are unpinned and read again from the file.
+ */
+public class BufferPool {
+
+    @FunctionalInterface
+    public interface WriteGuard {
+        void beforeWrite() throws IOException;
+    }
+
+    private record PageKey(SlottedHeapFile file, int pageNo) {
+    }
+
+    private static final class Frame {
+        final PageKey key;
+        final SlottedPage page;
+        int pins;
+        boolean dirty;
+        boolean referenced;
+
+        Frame(PageKey key, SlottedPage page) {
+            this.key = key;
+            this.page = page;
+        }
+    }
+
+    private final int capacity;
+    private final WriteGuard beforeWrite;
+
+    private final Map<PageKey, Frame> frames = new HashMap<>();
+
+    // CLOCK ring, bounded pools only
+    private final List<Frame> ring = new ArrayList<>();
+    private int hand = 0;
+
+    /**
+     * @param capacity    pages kept in memory, 0 for unbounded
+     * @param beforeWrite runs before a dirty page is evicted to its file
+     */
+    public BufferPool(int capacity, WriteGuard beforeWrite) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Negative buffer pool capacity: " + capacity);
+        }
+        this.capacity = capacity;
+        this.beforeWrite = beforeWrite;
+    }
+
+    /** A pool that never evicts, for files without a write-ahead log. */
+    public static BufferPool unbounded() {
+        return new BufferPool(0, () -> { });
+    }
+
+    public boolean bounded() {
+        return capacity > 0;
+    }
+
+    /* =========================
+       PIN / UNPIN
+       ========================= */
+
+    /** Pins {@code pageNo} of {@code file} if it is in the pool. */
+    synchronized SlottedPage pinIfPresent(SlottedHeapFile file, int pageNo) {
+        Frame frame = frames.get(new PageKey(file, pageNo));
+        if (frame == null) {
+            return null;
+        }
+        frame.pins++;
+        frame.referenced = true;
+        return frame.page;
+    }
+
+    /**
+     * Pins {@code pageNo} of {@code file}, reading it from the file when it
+     * is not in the pool.
+     *
+     * The read happens outside the pool lock. That is safe because only
+     * {@code file} itself adds its pages, under its own monitor, and an
+     * evicted page is written back before its frame disappears.
+     */
+    SlottedPage pin(SlottedHeapFile file, int pageNo) throws IOException {
+        SlottedPage cached = pinIfPresent(file, pageNo);
+        if (cached != null) {
+            return cached;
+        }
+
+        SlottedPage page = file.readFromDisk(pageNo);
+        pinNew(file, page, false);
+        return page;
+    }
+
+    /** Adds a page that is not in the file yet (or was just read) and pins it. */
+    synchronized void pinNew(SlottedHeapFile file, SlottedPage page, boolean dirty) throws IOException {
+        Frame frame = new Frame(new PageKey(file, page.pageNo()), page);
+        frame.pins = 1;
+        frame.dirty = dirty;
+        frame.referenced = true;
+
+        if (bounded()) {
+            makeRoom();
+            ring.add(frame);
+        }
+        frames.put(frame.key, frame);
+    }
+
+    synchronized void unpin(SlottedHeapFile file, int pageNo) {
+        PageKey key = new PageKey(file, pageNo);
+        Frame frame = frames.get(key);
+        if (frame == null || frame.pins == 0) {
+            throw new IllegalStateException(
+                    "Page " + pageNo + " of " + file.getPath() + " is not pinned"
+            );
+        }
+
+        frame.pins--;
+        if (frame.pins == 0 && !frame.dirty && !bounded()) {
+            frames.remove(key);
+        }
+    }
+
+    /** Marks a pinned page as changed. */
+    synchronized void markDirty(SlottedHeapFile file, int pageNo) {
+        Frame frame = frames.get(new PageKey(file, pageNo));
+        if (frame == null || frame.pins == 0) {
+            throw new IllegalStateException(
+                    "Page " + pageNo + " of " + file.getPath() + " changed while not pinned"
+            );
+        }
+        frame.dirty = true;
+    }
+
+    /* =========================
+       EVICTION (CLOCK)
+       ========================= */
+
+    private void makeRoom() throws IOException {
+        while (ring.size() >= capacity) {
+            int victim = findVictim();
+            if (victim < 0) {
+                return; // every frame is pinned: grow past capacity
+            }
+            evict(victim);
+        }
+    }
+
+    private int findVictim() {
+        // two sweeps: the first may only clear reference bits
+        for (int step = 0; step < 2 * ring.size(); step++) {
+            if (hand >= ring.size()) {
+                hand = 0;
+            }
+
+            Frame frame = ring.get(hand);
+            if (frame.pins == 0) {
+                if (!frame.referenced) {
+                    return hand;
+                }
+                frame.referenced = false;
+            }
+            hand++;
+        }
+        return -1;
+    }
+
+    private void evict(int index) throws IOException {
+        Frame frame = ring.get(index);
+
+        if (frame.dirty) {
+            // 🔑 write-ahead rule: log records first, then the page
+            beforeWrite.beforeWrite();
+            frame.key.file().writeToDisk(frame.page);
+        }
+
+        // swap-remove keeps the ring dense; the hand moves on
+        Frame last = ring.remove(ring.size() - 1);
+        if (last != frame) {
+            ring.set(index, last);
+        }
+        frames.remove(frame.key);
+    }
+
+    /* =========================
+       FLUSH / DISCARD
+       ========================= */
+
+    /**
+     * Pins every dirty page of {@code file}, in page order. The caller
+     * writes them and hands them back to {@link #endFlush}.
+     */
+    synchronized List<SlottedPage> beginFlush(SlottedHeapFile file) {
+        List<SlottedPage> pages = new ArrayList<>();
+        for (Frame frame : frames.values()) {
+            if (frame.key.file() == file && frame.dirty) {
+                frame.pins++;
+                pages.add(frame.page);
+            }
+        }
+        pages.sort(Comparator.comparingInt(SlottedPage::pageNo));
+        return pages;
+    }
+
+    /** Unpins the pages of a flush, marking them clean if they were written. */
+    synchronized void endFlush(SlottedHeapFile file, List<SlottedPage> pages, boolean written) {
+        for (SlottedPage page : pages) {
+            if (written) {
+                frames.get(new PageKey(file, page.pageNo())).dirty = false;
+            }
+            unpin(file, page.pageNo());
+        }
+    }
+
+    /** Forgets every page of {@code file}, dirty or not. */
+    synchronized void discard(SlottedHeapFile file) {
+        frames.values().removeIf(frame -> frame.key.file() == file);
+        ring.removeIf(frame -> frame.key.file() == file);
+    }
+
+    synchronized int dirtyPageCount(SlottedHeapFile file) {
+        int count = 0;
+        for (Frame frame : frames.values()) {
+            if (frame.key.file() == file && frame.dirty) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /** Pages currently held, for all files. */
+    public synchronized int size() {
+        return frames.size();
+    }
+}
@@ -0,0 +1,107 @@
+package com.jg.rdms.db.storage;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Batches {@code fsync}s of a log or file across concurrent writers.
+ *
+ * A writer calls {@link #awaitDurable()} after its write reached the
+ * channel. The first waiter becomes the leader: it optionally waits up to
+ * {@code maxWait} for more writers (stopping early at {@code maxBatch}),
+ * then issues a single {@code fsync} that covers everyone who
+ * arrived before it. Writers arriving while a force is running wait for the
+ * next round, so batches form naturally under load even with no wait.
+ */
+public class GroupCommit {
+
+    @FunctionalInterface
+    public interface SyncAction {
+        void sync() throws IOException;
+    }
+
+    private final SyncAction syncAction;
+    private final int maxBatch;
+    private final long maxWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchFull = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+
+    private long written = 0;   // writes handed to awaitDurable()
+    private long durable = 0;   // writes covered by a completed force()
+    private boolean flushing = false;
+    private IOException failure;
+
+    public GroupCommit(SyncAction syncAction, int maxBatch, long maxWaitMicros) {
+        this.syncAction = syncAction;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, maxWaitMicros));
+    }
+
+    /**
+     * Blocks until every write issued by the caller so far is on disk.
+     */
+    public void awaitDurable() throws IOException {
+        lock.lock();
+        try {
+            long ticket = ++written;
+
+            while (durable < ticket) {
+                if (failure != null) {
+                    throw new IOException("Earlier fsync failed", failure);
+                }
+
+                if (flushing) {
+                    if (written - durable >= maxBatch) {
+                        batchFull.signal();
+                    }
+                    flushed.awaitUninterruptibly();
+                    continue;
+                }
+
+                lead();
+            }
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void lead() throws IOException {
+        flushing = true;
+        try {
+            // 1️⃣ gather followers
+            long remaining = maxWaitNanos;
+            while (remaining > 0 && written - durable < maxBatch) {
+                try {
+                    remaining = batchFull.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            long target = written;
+
+            // 2️⃣ one fsync for the whole batch, outside the lock
+            lock.unlock();
+            try {
+                syncAction.sync();
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            } finally {
+                lock.lock();
+            }
+
+            durable = target;
+
+        } finally {
+            flushing = false;
+            flushed.signalAll();
+        }
+    }
+}
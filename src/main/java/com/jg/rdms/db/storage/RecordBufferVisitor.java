@@ -0,0 +1,13 @@
+package com.jg.rdms.db.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Like {@link RecordVisitor}, but hands out the record in place: a
+ * read-only view into the page it lives on, valid only during the call.
+ */
+@FunctionalInterface
+public interface RecordBufferVisitor {
+    void visit(RecordId rid, ByteBuffer data) throws IOException;
+}
@@ -0,0 +1,19 @@
+package com.jg.rdms.db.storage;
+
+/**
+ * Physical location of a row inside a {@link SlottedHeapFile}.
+ * Stays stable for the lifetime of the row: updates that no longer fit
+ * on the home page leave a forwarding pointer behind instead of moving it.
+ */
+public record RecordId(
+        int pageNo,
+        int slot
+) implements Comparable<RecordId> {
+
+    /** Heap order: by page, then by slot. */
+    @Override
+    public int compareTo(RecordId other) {
+        int c = Integer.compare(pageNo, other.pageNo);
+        return c != 0 ? c : Integer.compare(slot, other.slot);
+    }
+}
@@ -0,0 +1,8 @@
+package com.jg.rdms.db.storage;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface RecordVisitor {
+    void visit(RecordId rid, byte[] data) throws IOException;
+}
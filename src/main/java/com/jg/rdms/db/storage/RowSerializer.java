@@ -1,11 +1,315 @@
 package com.jg.rdms.db.storage;
 
 import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Row encodings.
+ *
+ * <h3>Self-describing (static methods)</h3>
+ * Column count, then name, type tag and value per column. Used where rows
+ * have no fixed schema (the write-ahead log) and for table files written
+ * before the compact format.
+ *
+ * <h3>Compact (instances)</h3>
+ * Positional, in the column order of one table:
+ * <pre>
+ *   version    1 byte  (COMPACT_V1)
+ *   bitmap     ceil(n / 8) bytes, bit i set = column i has a value
+ *   values     per set bit: INT = 4 bytes, TEXT = varint length + UTF-8
+ *   extras     varint count, then name / tag / value per entry
+ * </pre>
+ * Extras hold what does not fit a slot: keys missing from the schema and
+ * values of the wrong type. Usually there are none, so a row costs one
+ * byte plus its bitmap on top of its data. NULLs are not stored: a NULL
+ * column decodes as an absent key.
+ *
+ * A self-describing row starts with the high byte of its column count,
+ * always 0, so {@link #decode} reads both formats and old table files
+ * migrate as their rows are rewritten.
+ */
 public class RowSerializer {
 
+    static final byte COMPACT_V1 = 1;
+
+    private static final byte NULL = 'N';
+    private static final byte INT = 'I';
+    private static final byte TEXT = 'S';
+
+    private final String[] columns;
+    private final boolean[] intColumns;
+    private final Map<String, Integer> positions = new HashMap<>();
+
+    /**
+     * @param columns    column names in storage order
+     * @param intColumns which of them are INT (the others are TEXT)
+     */
+    public RowSerializer(List<String> columns, List<Boolean> intColumns) {
+        this.columns = columns.toArray(String[]::new);
+        this.intColumns = new boolean[this.columns.length];
+
+        for (int i = 0; i < this.columns.length; i++) {
+            this.intColumns[i] = intColumns.get(i);
+            positions.put(this.columns[i], i);
+        }
+    }
+
+    /* =========================
+       COMPACT
+       ========================= */
+
+    public byte[] encode(Map<String, Object> row) {
+        Object[] values = new Object[columns.length];
+        Map<String, Object> others = new HashMap<>(0);
+
+        for (var entry : row.entrySet()) {
+            Integer pos = positions.get(entry.getKey());
+            if (pos != null) {
+                values[pos] = entry.getValue();
+            } else {
+                others.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return encode(values, others);
+    }
+
+    /**
+     * Encodes a row given by position: {@code values} in the column order
+     * of this serializer, {@code others} (may be null) for columns outside
+     * it.
+     */
+    public byte[] encode(Object[] values, Map<String, Object> others) {
+        int n = columns.length;
+        int bitmapBytes = (n + 7) / 8;
+
+        byte[][] text = new byte[n][];
+        int size = 1 + bitmapBytes;
+
+        List<byte[]> extras = new ArrayList<>(0);
+
+        for (int i = 0; i < n; i++) {
+            Object value = values[i];
+
+            if (value == null) {
+                continue;
+            }
+            if (!fitsSlot(i, value)) {
+                byte[] extra = encodeEntry(columns[i], value);
+                extras.add(extra);
+                size += extra.length;
+            } else if (intColumns[i]) {
+                size += 4;
+            } else {
+                text[i] = ((String) value).getBytes(StandardCharsets.UTF_8);
+                size += varintSize(text[i].length) + text[i].length;
+            }
+        }
+
+        if (others != null) {
+            for (var entry : others.entrySet()) {
+                if (entry.getValue() != null) {
+                    byte[] extra = encodeEntry(entry.getKey(), entry.getValue());
+                    extras.add(extra);
+                    size += extra.length;
+                }
+            }
+        }
+        size += varintSize(extras.size());
+
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.put(COMPACT_V1);
+
+        int bitmapAt = buf.position();
+        buf.position(bitmapAt + bitmapBytes);
+
+        for (int i = 0; i < n; i++) {
+            Object value = values[i];
+            if (value == null || !fitsSlot(i, value)) {
+                continue;
+            }
+
+            buf.put(bitmapAt + i / 8, (byte) (buf.get(bitmapAt + i / 8) | (1 << (i % 8))));
+
+            if (intColumns[i]) {
+                buf.putInt((Integer) value);
+            } else {
+                putVarint(buf, text[i].length);
+                buf.put(text[i]);
+            }
+        }
+
+        putVarint(buf, extras.size());
+        for (byte[] extra : extras) {
+            buf.put(extra);
+        }
+
+        return buf.array();
+    }
+
+    public Map<String, Object> decode(byte[] data) throws IOException {
+        return decode(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Decodes the row between {@code data}'s position and limit, e.g. a
+     * view into a mapped table file, without moving the position.
+     */
+    public Map<String, Object> decode(ByteBuffer data) throws IOException {
+        Object[] values = new Object[columns.length];
+        Map<String, Object> row = decodeInto(data, values);
+
+        for (int i = 0; i < columns.length; i++) {
+            if (values[i] != null) {
+                row.put(columns[i], values[i]);
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Positional form of {@link #decode(ByteBuffer)}: fills {@code values}
+     * in the column order of this serializer and returns the columns
+     * outside it (a new, possibly empty map). NULLs stay null.
+     */
+    public Map<String, Object> decodeInto(ByteBuffer data, Object[] values) throws IOException {
+        Map<String, Object> others = new HashMap<>(0);
+
+        if (isSelfDescribing(data)) {
+            byte[] copy = new byte[data.remaining()];
+            data.get(data.position(), copy);
+
+            for (var entry : deserialize(copy).entrySet()) {
+                place(entry.getKey(), entry.getValue(), values, others);
+            }
+            return others;
+        }
+
+        try {
+            ByteBuffer buf = data.slice();
+            buf.get();
+
+            int n = columns.length;
+            int bitmapAt = buf.position();
+            buf.position(bitmapAt + (n + 7) / 8);
+
+            for (int i = 0; i < n; i++) {
+                if ((buf.get(bitmapAt + i / 8) & (1 << (i % 8))) == 0) {
+                    continue;
+                }
+
+                if (intColumns[i]) {
+                    values[i] = buf.getInt();
+                } else {
+                    values[i] = new String(getBytes(buf), StandardCharsets.UTF_8);
+                }
+            }
+
+            // values of the wrong type come back to their own column
+            int extras = getVarint(buf);
+            for (int i = 0; i < extras; i++) {
+                String key = new String(getBytes(buf), StandardCharsets.UTF_8);
+                place(key, getValue(buf), values, others);
+            }
+
+            return others;
+
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt row", e);
+        }
+    }
+
+    private void place(String column, Object value, Object[] values, Map<String, Object> others) {
+        if (value == null) {
+            return;
+        }
+        Integer pos = positions.get(column);
+        if (pos != null) {
+            values[pos] = value;
+        } else {
+            others.put(column, value);
+        }
+    }
+
+    private boolean fitsSlot(int pos, Object value) {
+        return intColumns[pos] ? value instanceof Integer : value instanceof String;
+    }
+
+    private static byte[] encodeEntry(String key, Object value) {
+        byte[] name = key.getBytes(StandardCharsets.UTF_8);
+        byte[] text = value instanceof Integer ? null : value.toString().getBytes(StandardCharsets.UTF_8);
+
+        int size = varintSize(name.length) + name.length + 1
+                + (text == null ? 4 : varintSize(text.length) + text.length);
+
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        putVarint(buf, name.length);
+        buf.put(name);
+
+        if (text == null) {
+            buf.put(INT);
+            buf.putInt((Integer) value);
+        } else {
+            buf.put(TEXT);
+            putVarint(buf, text.length);
+            buf.put(text);
+        }
+        return buf.array();
+    }
+
+    private static Object getValue(ByteBuffer buf) throws IOException {
+        byte tag = buf.get();
+        return switch (tag) {
+            case NULL -> null;
+            case INT -> buf.getInt();
+            case TEXT -> new String(getBytes(buf), StandardCharsets.UTF_8);
+            default -> throw new IOException("Unknown column type marker: " + (char) tag);
+        };
+    }
+
+    private static byte[] getBytes(ByteBuffer buf) {
+        byte[] bytes = new byte[getVarint(buf)];
+        buf.get(bytes);
+        return bytes;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private static void putVarint(ByteBuffer buf, int value) {
+        while ((value & ~0x7F) != 0) {
+            buf.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buf.put((byte) value);
+    }
+
+    private static int getVarint(ByteBuffer buf) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buf.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    /* =========================
+       SELF-DESCRIBING
+       ========================= */
+
     public static byte[] serialize(Map<String, Object> row) throws IOException {
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         DataOutputStream out = new DataOutputStream(bos);
@@ -56,4 +360,14 @@ public class RowSerializer {
 
         return row;
     }
+
+    /** Whether {@code data} is in the self-describing format. */
+    public static boolean isSelfDescribing(byte[] data) {
+        return data.length == 0 || data[0] != COMPACT_V1;
+    }
+
+    /** Same as {@link #isSelfDescribing(byte[])} for the bytes remaining in {@code data}. */
+    public static boolean isSelfDescribing(ByteBuffer data) {
+        return !data.hasRemaining() || data.get(data.position()) != COMPACT_V1;
+    }
 }
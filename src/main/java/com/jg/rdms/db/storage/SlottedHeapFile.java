@@ -0,0 +1,483 @@
+package com.jg.rdms.db.storage;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Page-oriented table file made of {@link SlottedPage}s.
+ *
+ * Inserts, updates and deletes touch only the page(s) holding the row:
+ * a one-row change costs one page write (two when a grown row has to be
+ * forwarded to another page) instead of rewriting the whole table.
+ *
+ * Pages are held in a {@link BufferPool}, pinned for the duration of each
+ * operation. Changed pages stay there until {@link #flush()} or until the
+ * pool evicts them: durability comes from the write-ahead log, and a page
+ * is only written after the log records describing it are on disk.
+ *
+ * Whole-file passes (opening, {@link #scan}) read the file through
+ * memory-mapped windows instead of one read call per page, so loading a
+ * large table is bound by disk bandwidth rather than syscalls.
+ */
+public class SlottedHeapFile {
+
+    @Getter
+    private final Path path;
+    private final FileChannel channel;
+
+    private final BufferPool pool;
+
+    // pages pinned by the running operation (callers hold this monitor)
+    private final List<Integer> pinned = new ArrayList<>();
+
+    // pages per memory-mapped window of a full pass (64 MB)
+    private static final int WINDOW_PAGES = 8192;
+
+    private int pageCount;
+
+    // free bytes per page, rebuilt on open
+    private int[] freeSpace = new int[16];
+    private int insertHint = 0;
+
+    private SlottedHeapFile(Path path, BufferPool pool) throws IOException {
+        this.path = path;
+        this.pool = pool;
+        this.channel = FileChannel.open(path, CREATE, READ, WRITE);
+
+        long size = channel.size();
+        if (size % SlottedPage.PAGE_SIZE != 0) {
+            throw new IllegalStateException(
+                    "Corrupt table file " + path + ": size " + size
+                            + " is not a multiple of the page size"
+            );
+        }
+
+        this.pageCount = (int) (size / SlottedPage.PAGE_SIZE);
+        forEachPage(0, pageCount, this::recordFreeSpace);
+    }
+
+    /** Opens a page file with a pool of its own that never evicts. */
+    public static SlottedHeapFile open(String path) throws IOException {
+        return open(path, BufferPool.unbounded());
+    }
+
+    /**
+     * Opens (or creates) a page file whose pages live in {@code pool},
+     * migrating a legacy {@link HeapFile} (length-prefixed records) in
+     * place if found.
+     */
+    public static SlottedHeapFile open(String path, BufferPool pool) throws IOException {
+        Path p = Path.of(path);
+        Files.createDirectories(p.getParent());
+
+        if (isLegacyHeap(p)) {
+            migrateLegacyHeap(p);
+        }
+
+        return new SlottedHeapFile(p, pool);
+    }
+
+    /* =========================
+       LEGACY MIGRATION
+       ========================= */
+
+    private static boolean isLegacyHeap(Path p) throws IOException {
+        if (!Files.exists(p) || Files.size(p) < Integer.BYTES) {
+            return false;
+        }
+        try (FileChannel ch = FileChannel.open(p, READ)) {
+            ByteBuffer head = ByteBuffer.allocate(Integer.BYTES);
+            ch.read(head, 0);
+            return head.getInt(0) != SlottedPage.MAGIC;
+        }
+    }
+
+    private static void migrateLegacyHeap(Path original) throws IOException {
+        Path temp = original.resolveSibling(original.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+
+        SlottedHeapFile converted = new SlottedHeapFile(temp, BufferPool.unbounded());
+        try {
+            for (Map<String, Object> row : new HeapFile(original.toString()).readAll()) {
+                converted.insert(RowSerializer.serialize(row));
+            }
+            converted.flush();
+        } finally {
+            converted.close();
+        }
+
+        // 🔑 ATOMIC replace
+        Files.move(
+                temp,
+                original,
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE
+        );
+    }
+
+    /* =========================
+       INSERT
+       ========================= */
+
+    public synchronized RecordId insert(byte[] data) throws IOException {
+        try {
+            return place(SlottedPage.NORMAL, data);
+        } finally {
+            unpinAll();
+        }
+    }
+
+    private RecordId place(byte flag, byte[] data) throws IOException {
+        if (data.length > SlottedPage.MAX_PAYLOAD) {
+            throw new IllegalArgumentException(
+                    "Row of " + data.length + " bytes does not fit in a page"
+            );
+        }
+
+        SlottedPage page = pageWithRoomFor(data.length);
+        int slot = page.insert(flag, data);
+        writePage(page);
+
+        return new RecordId(page.pageNo(), slot);
+    }
+
+    private SlottedPage pageWithRoomFor(int length) throws IOException {
+        // most inserts land on the last page with room, so start there
+        for (int i = 0; i < pageCount; i++) {
+            int p = (insertHint + i) % pageCount;
+            if (freeSpace[p] > length) {
+                SlottedPage page = readPage(p);
+                if (page.canInsert(length)) {
+                    insertHint = p;
+                    return page;
+                }
+            }
+        }
+
+        SlottedPage page = SlottedPage.empty(pageCount++);
+        pool.pinNew(this, page, true);
+        pinned.add(page.pageNo());
+        insertHint = page.pageNo();
+        return page;
+    }
+
+    /* =========================
+       READ
+       ========================= */
+
+    public synchronized byte[] read(RecordId rid) throws IOException {
+        try {
+            SlottedPage home = readPage(rid.pageNo());
+
+            if (home.flag(rid.slot()) == SlottedPage.FORWARD) {
+                RecordId target = home.forwardTarget(rid.slot());
+                return readPage(target.pageNo()).payload(target.slot());
+            }
+
+            return home.payload(rid.slot());
+        } finally {
+            unpinAll();
+        }
+    }
+
+    /**
+     * Visits every live row in page order. Forwarded rows are reported
+     * under their home record id.
+     */
+    public synchronized void scan(RecordVisitor visitor) throws IOException {
+        scanMapped((rid, data) -> {
+            byte[] copy = new byte[data.remaining()];
+            data.get(copy);
+            visitor.visit(rid, copy);
+        });
+    }
+
+    /**
+     * Same as {@link #scan(RecordVisitor)}, without copying: rows are
+     * handed out as views into the mapped file (or the pooled page).
+     */
+    public synchronized void scanMapped(RecordBufferVisitor visitor) throws IOException {
+        scanMapped(0, pageCount, visitor);
+    }
+
+    /**
+     * {@link #scanMapped(RecordBufferVisitor)} over pages {@code fromPage}
+     * (inclusive) to {@code toPage} (exclusive) only, for scans that read
+     * the file a few pages at a time.
+     */
+    public synchronized void scanMapped(int fromPage, int toPage, RecordBufferVisitor visitor) throws IOException {
+        forEachPage(fromPage, Math.min(toPage, pageCount), page -> {
+            for (int slot = 0; slot < page.slotCount(); slot++) {
+                if (!page.isLive(slot)) {
+                    continue;
+                }
+
+                byte flag = page.flag(slot);
+                if (flag == SlottedPage.MOVED) {
+                    continue; // reached through its home slot
+                }
+
+                ByteBuffer data;
+                if (flag == SlottedPage.FORWARD) {
+                    RecordId target = page.forwardTarget(slot);
+                    data = readPage(target.pageNo()).payloadView(target.slot());
+                } else {
+                    data = page.payloadView(slot);
+                }
+
+                visitor.visit(new RecordId(page.pageNo(), slot), data);
+            }
+        });
+    }
+
+    /* =========================
+       UPDATE
+       ========================= */
+
+    public synchronized void update(RecordId rid, byte[] data) throws IOException {
+        try {
+            relocate(rid, data);
+        } finally {
+            unpinAll();
+        }
+    }
+
+    private void relocate(RecordId rid, byte[] data) throws IOException {
+        SlottedPage home = readPage(rid.pageNo());
+
+        if (home.flag(rid.slot()) != SlottedPage.FORWARD) {
+            // 1️⃣ fits on the home page
+            if (home.update(rid.slot(), SlottedPage.NORMAL, data)) {
+                writePage(home);
+                return;
+            }
+
+            // 2️⃣ move the body, leave a forwarding pointer behind
+            RecordId moved = place(SlottedPage.MOVED, data);
+            home.update(rid.slot(), SlottedPage.FORWARD, forwardPointer(moved));
+            writePage(home);
+            return;
+        }
+
+        RecordId target = home.forwardTarget(rid.slot());
+        SlottedPage away = readPage(target.pageNo());
+
+        // 3️⃣ already forwarded: update the moved body where it is
+        if (away.update(target.slot(), SlottedPage.MOVED, data)) {
+            writePage(away);
+            return;
+        }
+
+        // 4️⃣ relocate again, keeping at most one hop
+        away.delete(target.slot());
+        writePage(away);
+
+        home = readPage(rid.pageNo());
+        if (home.update(rid.slot(), SlottedPage.NORMAL, data)) {
+            writePage(home);
+        } else {
+            RecordId moved = place(SlottedPage.MOVED, data);
+            home = readPage(rid.pageNo());
+            home.update(rid.slot(), SlottedPage.FORWARD, forwardPointer(moved));
+            writePage(home);
+        }
+    }
+
+    private static byte[] forwardPointer(RecordId target) {
+        return ByteBuffer.allocate(SlottedPage.FORWARD_RECORD_SIZE - 1)
+                .putInt(target.pageNo())
+                .putShort((short) target.slot())
+                .array();
+    }
+
+    /* =========================
+       DELETE (tombstone)
+       ========================= */
+
+    public synchronized void delete(RecordId rid) throws IOException {
+        try {
+            SlottedPage home = readPage(rid.pageNo());
+
+            if (home.flag(rid.slot()) == SlottedPage.FORWARD) {
+                RecordId target = home.forwardTarget(rid.slot());
+                SlottedPage away = readPage(target.pageNo());
+                away.delete(target.slot());
+                writePage(away);
+                home = readPage(rid.pageNo());
+            }
+
+            home.delete(rid.slot());
+            writePage(home);
+        } finally {
+            unpinAll();
+        }
+    }
+
+    /* =========================
+       PAGE I/O
+       ========================= */
+
+    /** Pins page {@code pageNo} until the running operation ends. */
+    private SlottedPage readPage(int pageNo) throws IOException {
+        SlottedPage page = pool.pin(this, pageNo);
+        pinned.add(pageNo);
+        return page;
+    }
+
+    private void unpinAll() {
+        for (int pageNo : pinned) {
+            pool.unpin(this, pageNo);
+        }
+        pinned.clear();
+    }
+
+    /** Reads a page from the file, bypassing the pool. */
+    SlottedPage readFromDisk(int pageNo) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(SlottedPage.PAGE_SIZE);
+        long position = (long) pageNo * SlottedPage.PAGE_SIZE;
+
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new IllegalStateException(
+                        "Unexpected end of table file " + path + " at page " + pageNo
+                );
+            }
+        }
+
+        return SlottedPage.wrap(pageNo, buf);
+    }
+
+    /** Writes a page to the file without syncing it. */
+    void writeToDisk(SlottedPage page) throws IOException {
+        ByteBuffer buf = page.buffer();
+        long position = (long) page.pageNo() * SlottedPage.PAGE_SIZE;
+
+        while (buf.hasRemaining()) {
+            channel.write(buf, position + buf.position());
+        }
+    }
+
+    @FunctionalInterface
+    private interface PageVisitor {
+        void visit(SlottedPage page) throws IOException;
+    }
+
+    /**
+     * Visits the pages from {@code fromPage} to {@code toPage} (exclusive)
+     * in order. Pages held by the pool are used from
+     * there (they may be newer than the file), the others are read through
+     * read-only mapped windows; the pages handed out must not be modified.
+     * Only the pool pages are pinned, one at a time, so a scan neither
+     * fills nor flushes the pool.
+     */
+    private void forEachPage(int fromPage, int toPage, PageVisitor visitor) throws IOException {
+        long filePages = channel.size() / SlottedPage.PAGE_SIZE;
+
+        for (int first = fromPage; first < toPage; first += WINDOW_PAGES) {
+            int count = Math.min(WINDOW_PAGES, toPage - first);
+            long onDisk = Math.max(0, Math.min(count, filePages - first));
+
+            MappedByteBuffer window = onDisk == 0 ? null : channel.map(
+                    FileChannel.MapMode.READ_ONLY,
+                    (long) first * SlottedPage.PAGE_SIZE,
+                    onDisk * SlottedPage.PAGE_SIZE
+            );
+
+            for (int i = 0; i < count; i++) {
+                int pageNo = first + i;
+
+                SlottedPage page = pool.pinIfPresent(this, pageNo);
+                if (page != null) {
+                    pinned.add(pageNo);
+                } else if (i < onDisk) {
+                    page = SlottedPage.wrap(
+                            pageNo,
+                            window.slice(i * SlottedPage.PAGE_SIZE, SlottedPage.PAGE_SIZE)
+                    );
+                } else {
+                    // 🔑 written past the mapped end by an eviction since
+                    page = readPage(pageNo);
+                }
+
+                try {
+                    visitor.visit(page);
+                } finally {
+                    unpinAll();
+                }
+            }
+        }
+    }
+
+    private void writePage(SlottedPage page) {
+        pool.markDirty(this, page.pageNo());
+        recordFreeSpace(page);
+    }
+
+    private void recordFreeSpace(SlottedPage page) {
+        if (page.pageNo() >= freeSpace.length) {
+            freeSpace = Arrays.copyOf(
+                    freeSpace,
+                    Math.max(freeSpace.length * 2, page.pageNo() + 1)
+            );
+        }
+        freeSpace[page.pageNo()] = page.freeSpace();
+    }
+
+    public synchronized int pageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Writes every dirty page to the file and fsyncs it. The caller must
+     * make sure the log covering these pages is durable first.
+     */
+    public synchronized void flush() throws IOException {
+        List<SlottedPage> pages = pool.beginFlush(this);
+        if (pages.isEmpty()) {
+            return;
+        }
+
+        boolean written = false;
+        try {
+            for (SlottedPage page : pages) {
+                writeToDisk(page);
+            }
+            channel.force(false);
+            written = true;
+        } finally {
+            pool.endFlush(this, pages, written);
+        }
+    }
+
+    public synchronized int dirtyPageCount() {
+        return pool.dirtyPageCount(this);
+    }
+
+    /* =========================
+       CLOSE / DELETE
+       ========================= */
+
+    public synchronized void close() throws IOException {
+        pool.discard(this);
+        if (channel.isOpen()) {
+            channel.close();
+        }
+    }
+
+    public synchronized void delete() {
+        try {
+            close();
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.jg.rdms.db.storage;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-size page with a slot directory.
+ *
+ * <pre>
+ * +--------+---------+-----------+---------+------------------+-----------+
+ * | magic  | pageLsn | slotCount | freeEnd | slot directory → | ← records |
+ * | int    | long    | short     | short   | (offset, length) |           |
+ * +--------+---------+-----------+---------+------------------+-----------+
+ * </pre>
+ *
+ * The slot directory grows from the header towards the end of the page,
+ * record bodies grow from the end of the page towards the header.
+ * A slot with offset 0 is a tombstone and may be reused by later inserts.
+ * Every record body starts with a one byte flag (see {@code NORMAL},
+ * {@code FORWARD}, {@code MOVED}).
+ */
+public class SlottedPage {
+
+    public static final int PAGE_SIZE = 8192;
+    public static final int MAGIC = 0x53504731; // "SPG1"
+
+    static final byte NORMAL = 0;   // row lives in its home slot
+    static final byte FORWARD = 1;  // home slot points to (pageNo, slot)
+    static final byte MOVED = 2;    // row body living away from its home slot
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int LSN_OFFSET = 4;
+    private static final int SLOT_COUNT_OFFSET = 12;
+    private static final int FREE_END_OFFSET = 14;
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 4;
+
+    /** flag + pageNo + slot: every record reserves at least this much space. */
+    static final int FORWARD_RECORD_SIZE = 1 + 4 + 2;
+
+    /** Largest payload that fits on an empty page. */
+    public static final int MAX_PAYLOAD =
+            PAGE_SIZE - HEADER_SIZE - SLOT_SIZE - 1;
+
+    private final int pageNo;
+    private final ByteBuffer buf;
+
+    private SlottedPage(int pageNo, ByteBuffer buf) {
+        this.pageNo = pageNo;
+        this.buf = buf;
+    }
+
+    public static SlottedPage empty(int pageNo) {
+        ByteBuffer buf = ByteBuffer.allocate(PAGE_SIZE);
+        buf.putInt(MAGIC_OFFSET, MAGIC);
+        buf.putLong(LSN_OFFSET, 0L);
+        buf.putShort(SLOT_COUNT_OFFSET, (short) 0);
+        buf.putShort(FREE_END_OFFSET, (short) PAGE_SIZE);
+        return new SlottedPage(pageNo, buf);
+    }
+
+    public static SlottedPage wrap(int pageNo, ByteBuffer buf) {
+        if (buf.capacity() != PAGE_SIZE || buf.getInt(MAGIC_OFFSET) != MAGIC) {
+            throw new IllegalStateException(
+                    "Corrupt page " + pageNo + ": bad header"
+            );
+        }
+        return new SlottedPage(pageNo, buf);
+    }
+
+    public int pageNo() {
+        return pageNo;
+    }
+
+    public ByteBuffer buffer() {
+        return buf.duplicate().clear();
+    }
+
+    public long lsn() {
+        return buf.getLong(LSN_OFFSET);
+    }
+
+    public void setLsn(long lsn) {
+        buf.putLong(LSN_OFFSET, lsn);
+    }
+
+    /* =========================
+       Slot directory
+       ========================= */
+
+    public int slotCount() {
+        return buf.getShort(SLOT_COUNT_OFFSET);
+    }
+
+    private int freeEnd() {
+        return Short.toUnsignedInt(buf.getShort(FREE_END_OFFSET));
+    }
+
+    private int slotOffset(int slot) {
+        return Short.toUnsignedInt(buf.getShort(HEADER_SIZE + slot * SLOT_SIZE));
+    }
+
+    private int slotLength(int slot) {
+        return Short.toUnsignedInt(buf.getShort(HEADER_SIZE + slot * SLOT_SIZE + 2));
+    }
+
+    private void setSlot(int slot, int offset, int length) {
+        buf.putShort(HEADER_SIZE + slot * SLOT_SIZE, (short) offset);
+        buf.putShort(HEADER_SIZE + slot * SLOT_SIZE + 2, (short) length);
+    }
+
+    public boolean isLive(int slot) {
+        return slot >= 0 && slot < slotCount() && slotOffset(slot) != 0;
+    }
+
+    byte flag(int slot) {
+        requireLive(slot);
+        return buf.get(slotOffset(slot));
+    }
+
+    byte[] payload(int slot) {
+        requireLive(slot);
+        byte[] data = new byte[slotLength(slot) - 1];
+        buf.get(slotOffset(slot) + 1, data);
+        return data;
+    }
+
+    /** Read-only view of the record body; no copy is made. */
+    ByteBuffer payloadView(int slot) {
+        requireLive(slot);
+        return buf.slice(slotOffset(slot) + 1, slotLength(slot) - 1)
+                .asReadOnlyBuffer();
+    }
+
+    RecordId forwardTarget(int slot) {
+        requireLive(slot);
+        int offset = slotOffset(slot);
+        return new RecordId(
+                buf.getInt(offset + 1),
+                Short.toUnsignedInt(buf.getShort(offset + 5))
+        );
+    }
+
+    private void requireLive(int slot) {
+        if (!isLive(slot)) {
+            throw new IllegalStateException(
+                    "No record at page " + pageNo + " slot " + slot
+            );
+        }
+    }
+
+    /* =========================
+       Space accounting
+       ========================= */
+
+    private static int allocSize(int recordLength) {
+        return Math.max(recordLength, FORWARD_RECORD_SIZE);
+    }
+
+    private int freeSlot() {
+        int count = slotCount();
+        for (int i = 0; i < count; i++) {
+            if (slotOffset(i) == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Bytes available for a new record (including its slot entry),
+     * counting fragmented space that a compaction would reclaim.
+     */
+    public int freeSpace() {
+        int used = HEADER_SIZE + slotCount() * SLOT_SIZE;
+        int count = slotCount();
+        for (int i = 0; i < count; i++) {
+            if (slotOffset(i) != 0) {
+                used += allocSize(slotLength(i));
+            }
+        }
+        return PAGE_SIZE - used;
+    }
+
+    /** Whether a payload of the given size can be inserted into this page. */
+    public boolean canInsert(int payloadLength) {
+        int needed = allocSize(payloadLength + 1)
+                + (freeSlot() == -1 ? SLOT_SIZE : 0);
+        return needed <= freeSpace();
+    }
+
+    /* =========================
+       Mutations
+       ========================= */
+
+    int insert(byte flag, byte[] payload) {
+        if (!canInsert(payload.length)) {
+            throw new IllegalStateException("Page " + pageNo + " is full");
+        }
+
+        int slot = freeSlot();
+        if (slot == -1) {
+            slot = slotCount();
+            buf.putShort(SLOT_COUNT_OFFSET, (short) (slot + 1));
+            setSlot(slot, 0, 0);
+        }
+
+        writeRecord(slot, flag, payload);
+        return slot;
+    }
+
+    /**
+     * Replaces the record in {@code slot}, keeping the slot number.
+     *
+     * @return false when the new record does not fit on this page
+     */
+    boolean update(int slot, byte flag, byte[] payload) {
+        requireLive(slot);
+
+        int length = payload.length + 1;
+        int offset = slotOffset(slot);
+
+        // 🔑 in place when the old allocation is large enough
+        if (allocSize(length) <= allocSize(slotLength(slot))) {
+            buf.put(offset, flag);
+            buf.put(offset + 1, payload);
+            setSlot(slot, offset, length);
+            return true;
+        }
+
+        int available = freeSpace() + allocSize(slotLength(slot));
+        if (allocSize(length) > available) {
+            return false;
+        }
+
+        setSlot(slot, 0, 0);
+        writeRecord(slot, flag, payload);
+        return true;
+    }
+
+    void delete(int slot) {
+        requireLive(slot);
+        setSlot(slot, 0, 0);
+
+        // drop trailing tombstones so the directory does not only grow
+        int count = slotCount();
+        while (count > 0 && slotOffset(count - 1) == 0) {
+            count--;
+        }
+        buf.putShort(SLOT_COUNT_OFFSET, (short) count);
+    }
+
+    private void writeRecord(int slot, byte flag, byte[] payload) {
+        int length = payload.length + 1;
+        int directoryEnd = HEADER_SIZE + slotCount() * SLOT_SIZE;
+
+        if (freeEnd() - allocSize(length) < directoryEnd) {
+            compact();
+        }
+
+        int offset = freeEnd() - allocSize(length);
+        buf.put(offset, flag);
+        buf.put(offset + 1, payload);
+        buf.putShort(FREE_END_OFFSET, (short) offset);
+        setSlot(slot, offset, length);
+    }
+
+    /**
+     * Packs all live records against the end of the page.
+     * Slot numbers do not change, so record ids stay valid.
+     */
+    private void compact() {
+        int count = slotCount();
+        List<byte[]> bodies = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            if (slotOffset(i) == 0) {
+                bodies.add(null);
+                continue;
+            }
+            byte[] body = new byte[slotLength(i)];
+            buf.get(slotOffset(i), body);
+            bodies.add(body);
+        }
+
+        int end = PAGE_SIZE;
+        for (int i = 0; i < count; i++) {
+            byte[] body = bodies.get(i);
+            if (body == null) {
+                continue;
+            }
+            end -= allocSize(body.length);
+            buf.put(end, body);
+            setSlot(i, end, body.length);
+        }
+
+        buf.putShort(FREE_END_OFFSET, (short) end);
+    }
+}
@@ -0,0 +1,270 @@
+package com.jg.rdms.db.tx;
+
+import com.jg.rdms.db.storage.RowSerializer;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * One file of the write-ahead log, named after the first LSN it may hold.
+ *
+ * <pre>
+ * file   := header frame*
+ * header := magic:int version:int
+ * frame  := length:int crc32c:int payload
+ * payload:= lsn:long txId:long type:byte table:utf rowLength:int row
+ * </pre>
+ */
+class LogSegment {
+
+    private static final int MAGIC = 0x5257414C; // "RWAL"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int FRAME_HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    private final Path path;
+    private final long startLsn;
+    private final FileChannel channel;
+
+    private long size;
+
+    private LogSegment(Path path, long startLsn, FileChannel channel) throws IOException {
+        this.path = path;
+        this.startLsn = startLsn;
+        this.channel = channel;
+        this.size = channel.size();
+    }
+
+    static String fileName(long startLsn) {
+        return String.format("wal-%016x.log", startLsn);
+    }
+
+    static long startLsnOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(4, name.length() - 4), 16);
+    }
+
+    static boolean isSegment(Path file) {
+        return file.getFileName().toString().matches("wal-[0-9a-f]{16}\\.log");
+    }
+
+    static LogSegment create(Path dir, long startLsn) throws IOException {
+        Path path = dir.resolve(fileName(startLsn));
+        FileChannel channel = FileChannel.open(path, CREATE_NEW, READ, WRITE);
+
+        channel.write(
+                ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip(),
+                0
+        );
+        channel.position(HEADER_SIZE);
+
+        return new LogSegment(path, startLsn, channel);
+    }
+
+    static LogSegment open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, READ, WRITE);
+        LogSegment segment = new LogSegment(path, startLsnOf(path), channel);
+
+        if (!segment.hasValidHeader()) {
+            channel.close();
+            throw new IllegalStateException("Not a WAL segment: " + path);
+        }
+        return segment;
+    }
+
+    /** Whether {@code file} starts with a valid segment header. */
+    static boolean hasValidHeader(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, READ)) {
+            if (ch.size() < HEADER_SIZE) {
+                return false;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            ch.read(header, 0);
+            return header.getInt(0) == MAGIC && header.getInt(4) == VERSION;
+        }
+    }
+
+    /** LSN of the first intact record in {@code file}, or -1 if none. */
+    static long firstLsnOf(Path file) throws IOException {
+        long[] first = {-1};
+        LogSegment segment = new LogSegment(file, 0, FileChannel.open(file, READ));
+        try {
+            segment.scan(r -> {
+                if (first[0] < 0) {
+                    first[0] = r.lsn();
+                }
+            });
+        } finally {
+            segment.close();
+        }
+        return first[0];
+    }
+
+    private boolean hasValidHeader() throws IOException {
+        return hasValidHeader(path);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long startLsn() {
+        return startLsn;
+    }
+
+    long size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size <= HEADER_SIZE;
+    }
+
+    /* =========================
+       APPEND
+       ========================= */
+
+    /** Appends one frame, returning its size in bytes. */
+    int append(WalRecord record) throws IOException {
+        ByteBuffer frame = encode(record);
+        int frameSize = frame.remaining();
+
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+
+        size += frameSize;
+        return frameSize;
+    }
+
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    /* =========================
+       READ
+       ========================= */
+
+    /**
+     * Feeds every intact record to {@code consumer} and returns the offset
+     * just past the last one. A short frame or checksum mismatch ends the
+     * segment (torn write at crash).
+     */
+    long scan(Consumer<WalRecord> consumer) throws IOException {
+        long fileSize = channel.size();
+        long position = HEADER_SIZE;
+
+        ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+
+        while (position + FRAME_HEADER_SIZE <= fileSize) {
+            frameHeader.clear();
+            readFully(frameHeader, position);
+
+            int length = frameHeader.getInt(0);
+            int crc = frameHeader.getInt(4);
+
+            if (length <= 0 || length > MAX_RECORD_SIZE
+                    || position + FRAME_HEADER_SIZE + length > fileSize) {
+                break; // torn tail
+            }
+
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + FRAME_HEADER_SIZE);
+
+            CRC32C checksum = new CRC32C();
+            checksum.update(payload.array());
+            if ((int) checksum.getValue() != crc) {
+                break; // torn tail
+            }
+
+            consumer.accept(decode(payload.array()));
+            position += FRAME_HEADER_SIZE + length;
+        }
+
+        return position;
+    }
+
+    /** Cuts the segment at {@code end} and positions appends there. */
+    void truncate(long end) throws IOException {
+        if (end < channel.size()) {
+            channel.truncate(end);
+            channel.force(false);
+        }
+        channel.position(end);
+        size = end;
+    }
+
+    private void readFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new EOFException("Unexpected end of WAL segment " + path);
+            }
+        }
+    }
+
+    /* =========================
+       ENCODING
+       ========================= */
+
+    private static ByteBuffer encode(WalRecord record) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bos);
+
+        out.writeLong(record.lsn());
+        out.writeLong(record.txId());
+        out.writeByte(record.type().ordinal());
+        out.writeUTF(record.table());
+
+        byte[] row = RowSerializer.serialize(record.row());
+        out.writeInt(row.length);
+        out.write(row);
+
+        byte[] payload = bos.toByteArray();
+
+        CRC32C checksum = new CRC32C();
+        checksum.update(payload);
+
+        return ByteBuffer.allocate(FRAME_HEADER_SIZE + payload.length)
+                .putInt(payload.length)
+                .putInt((int) checksum.getValue())
+                .put(payload)
+                .flip();
+    }
+
+    private static WalRecord decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+
+        long lsn = in.readLong();
+        long txId = in.readLong();
+        WalRecord.Type type = WalRecord.Type.values()[in.readByte()];
+        String table = in.readUTF();
+
+        byte[] row = new byte[in.readInt()];
+        in.readFully(row);
+
+        return new WalRecord(lsn, txId, type, table, RowSerializer.deserialize(row));
+    }
+
+    /* =========================
+       CLOSE / DELETE
+       ========================= */
+
+    void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.close();
+        }
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,21 @@
+package com.jg.rdms.db.tx;
+
+/**
+ * A table a transaction changes rows in. The transaction remembers which
+ * rows it locked and changed, and hands them back here when it ends.
+ */
+public interface Participant {
+
+    /** Makes the transaction's final version of {@code rowId} permanent. */
+    void commit(Transaction tx, Object rowId);
+
+    /**
+     * Undoes the transaction's latest change to {@code rowId}. With
+     * {@code compensate}, the restored row is logged under the transaction,
+     * so a later commit does not replay the undone change.
+     */
+    void rollback(Transaction tx, Object rowId, boolean compensate);
+
+    /** Releases the transaction's write lock on {@code rowId}. */
+    void unlock(Transaction tx, Object rowId);
+}
@@ -0,0 +1,41 @@
+package com.jg.rdms.db.tx;
+
+import java.util.Set;
+
+/**
+ * The set of changes a reader may see: those of transactions that had
+ * committed when the snapshot was taken, plus the reader's own.
+ * Transaction id 0 (recovered rows, system catalog writes) is always
+ * visible.
+ */
+public final class Snapshot {
+
+    /** Sees every change, committed or not: the newest version of each row. */
+    public static final Snapshot LATEST = new Snapshot(0, Long.MAX_VALUE, Set.of());
+
+    private final long txId;
+    private final long xmax;          // ids ≥ xmax started later
+    private final Set<Long> running;  // ids < xmax still running at the time
+
+    Snapshot(long txId, long xmax, Set<Long> running) {
+        this.txId = txId;
+        this.xmax = xmax;
+        this.running = running;
+    }
+
+    /** Whether changes made by transaction {@code id} are visible. */
+    public boolean sees(long id) {
+        return id == 0
+                || id == txId
+                || (id < xmax && !running.contains(id));
+    }
+
+    /** Smallest id this snapshot may not see as committed. */
+    long xmin() {
+        long min = xmax;
+        for (long id : running) {
+            min = Math.min(min, id);
+        }
+        return min;
+    }
+}
@@ -3,13 +3,93 @@ package com.jg.rdms.db.tx;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 @Getter
 @Setter
 public class Transaction {
     public final long id;
+    public final Snapshot snapshot;
     public boolean committed = false;
 
-    public Transaction(long id) {
+    /** A row of one table. */
+    public record RowRef(Participant table, Object rowId) {}
+
+    // 🔒 rows this transaction holds the write lock on, in lock order
+    private final Set<RowRef> locks = new LinkedHashSet<>();
+
+    // 📝 undo log: one entry per change, oldest first
+    private final List<RowRef> changes = new ArrayList<>();
+
+    // LSN of its first log record (0 = nothing logged yet)
+    volatile long firstLsn = 0;
+
+    private final CountDownLatch ended = new CountDownLatch(1);
+
+    // 💤 an explicit transaction between its client's statements
+    private boolean busy = true;
+    private long idleSince;
+    private boolean aborted = false;
+
+    public Transaction(long id, Snapshot snapshot) {
         this.id = id;
+        this.snapshot = snapshot;
+    }
+
+    /** Records a newly taken row lock; false if it was already held. */
+    public boolean locked(Participant table, Object rowId) {
+        return locks.add(new RowRef(table, rowId));
+    }
+
+    /** Records a change to a locked row, to be undone on rollback. */
+    public void changed(Participant table, Object rowId) {
+        changes.add(new RowRef(table, rowId));
+    }
+
+    /** Position in the undo log that {@link TransactionManager#rollbackTo} returns to. */
+    public int savepoint() {
+        return changes.size();
+    }
+
+    /**
+     * Waits up to {@code millis} for this transaction to commit or roll
+     * back; true if it did.
+     */
+    public boolean awaitEnd(long millis) throws InterruptedException {
+        return ended.await(millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Marks a statement of the transaction's client as running; false if
+     * the transaction was rolled back for being idle (see
+     * {@link TransactionManager#abortIdle}).
+     */
+    public synchronized boolean resume() {
+        if (aborted) {
+            return false;
+        }
+        busy = true;
+        return true;
+    }
+
+    /** Marks the transaction idle until its client's next statement. */
+    public synchronized void pause() {
+        busy = false;
+        idleSince = System.nanoTime();
+    }
+
+    /** Claims the transaction for rollback if it has been idle {@code nanos} or longer. */
+    synchronized boolean abortIfIdle(long now, long nanos) {
+        if (busy || aborted || now - idleSince < nanos) {
+            return false;
+        }
+        aborted = true;
+        return true;
+    }
+
+    void end() {
+        ended.countDown();
     }
 }
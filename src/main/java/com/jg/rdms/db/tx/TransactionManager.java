@@ -1,15 +1,172 @@
 package com.jg.rdms.db.tx;
 
-import java.util.concurrent.atomic.AtomicLong;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Hands out transaction ids and snapshots, and ends transactions.
+ * Ids increase, so a snapshot only needs the next id and the ids still
+ * running when it was taken.
+ *
+ * Changes reach the log as they are made but the table files only at
+ * commit, so recovery replays a transaction only if its COMMIT record
+ * made it to disk, and rollback only has to drop in-memory row versions.
+ */
 public class TransactionManager {
-    private final AtomicLong counter = new AtomicLong();
 
-    public Transaction begin() {
-        return new Transaction(counter.incrementAndGet());
+    private final WriteAheadLog wal;
+
+    private long lastId = 0;
+    private final Map<Long, Transaction> active = new HashMap<>();
+
+    public TransactionManager(WriteAheadLog wal) {
+        this.wal = wal;
+    }
+
+    public synchronized Transaction begin() {
+        long id = ++lastId;
+        Transaction tx = new Transaction(
+                id,
+                new Snapshot(id, id, Set.copyOf(active.keySet()))
+        );
+        active.put(id, tx);
+        return tx;
     }
 
+    /**
+     * Logs the COMMIT record and waits for it to reach disk: one fsync
+     * (shared with concurrent committers) for all of the transaction's
+     * changes. Then writes the changed rows to their tables and makes them
+     * visible to new snapshots.
+     */
     public void commit(Transaction tx) {
+        if (tx.firstLsn != 0) {
+            try {
+                wal.log(tx.getId(), WalRecord.Type.COMMIT, "", Map.of());
+                wal.awaitDurable();
+            } catch (IOException e) {
+                rollback(tx);
+                throw new IllegalStateException(
+                        "Commit of transaction " + tx.getId() + " failed", e
+                );
+            }
+        }
+
+        for (Transaction.RowRef row : tx.getLocks()) {
+            row.table().commit(tx, row.rowId());
+        }
+
         tx.committed = true;
+        end(tx);
+    }
+
+    /** Undoes every change of {@code tx}, newest first, and ends it. */
+    public void rollback(Transaction tx) {
+        undo(tx, 0, false);
+        end(tx);
+    }
+
+    /**
+     * Undoes the changes made since {@code savepoint}, e.g. by a failed
+     * statement. The transaction stays open and keeps its row locks.
+     */
+    public void rollbackTo(Transaction tx, int savepoint) {
+        undo(tx, savepoint, true);
+    }
+
+    private void undo(Transaction tx, int savepoint, boolean compensate) {
+        List<Transaction.RowRef> changes = tx.getChanges();
+
+        for (int i = changes.size() - 1; i >= savepoint; i--) {
+            Transaction.RowRef row = changes.get(i);
+            row.table().rollback(tx, row.rowId(), compensate);
+        }
+        changes.subList(savepoint, changes.size()).clear();
+    }
+
+    private void end(Transaction tx) {
+        synchronized (this) {
+            active.remove(tx.getId());
+        }
+
+        for (Transaction.RowRef row : tx.getLocks()) {
+            row.table().unlock(tx, row.rowId());
+        }
+        tx.getLocks().clear();
+        tx.end();
+    }
+
+    /**
+     * Called before {@code tx} appends a log record. Remembers a lower
+     * bound of its first LSN, which holds checkpoints back (see
+     * {@link #oldestLsn()}).
+     */
+    public synchronized void logging(Transaction tx) {
+        if (tx.firstLsn == 0) {
+            tx.firstLsn = wal.lastLsn() + 1;
+        }
+    }
+
+    /**
+     * Rolls back every explicit transaction whose client has not run a
+     * statement for {@code timeoutMillis}: one left open by a client that
+     * went away would otherwise keep its row locks, hold checkpoints back
+     * (see {@link #oldestLsn()}) and keep old row versions alive (see
+     * {@link #horizon()}). The client's next statement is told so.
+     * Transactions a statement opened for itself are never idle.
+     *
+     * @return how many were rolled back
+     */
+    public int abortIdle(long timeoutMillis) {
+        List<Transaction> running;
+        synchronized (this) {
+            running = new ArrayList<>(active.values());
+        }
+
+        long now = System.nanoTime();
+        long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        int aborted = 0;
+
+        for (Transaction tx : running) {
+            if (tx.abortIfIdle(now, nanos)) {
+                rollback(tx);
+                aborted++;
+                System.err.println(
+                        "Rolled back transaction " + tx.getId() + ": idle for over " + timeoutMillis + " ms");
+            }
+        }
+        return aborted;
+    }
+
+    /**
+     * Smallest LSN a running transaction may have logged, or
+     * {@code Long.MAX_VALUE}. Its changes are not in the table files yet,
+     * so a checkpoint must not cover them.
+     */
+    public synchronized long oldestLsn() {
+        long oldest = Long.MAX_VALUE;
+        for (Transaction tx : active.values()) {
+            if (tx.firstLsn != 0) {
+                oldest = Math.min(oldest, tx.firstLsn);
+            }
+        }
+        return oldest;
+    }
+
+    /**
+     * Every transaction below this id has finished and is visible to every
+     * running snapshot, so row versions it replaced can be dropped.
+     */
+    public synchronized long horizon() {
+        long horizon = lastId + 1;
+        for (Transaction tx : active.values()) {
+            horizon = Math.min(horizon, tx.getSnapshot().xmin());
+        }
+        return horizon;
     }
 }
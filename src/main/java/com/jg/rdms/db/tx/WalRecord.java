@@ -1,10 +1,32 @@
 package com.jg.rdms.db.tx;
 
-import java.io.Serializable;
 import java.util.Map;
 
+/**
+ * One logical change in the write-ahead log. {@code row} is always the
+ * full after-image (for DELETE: the deleted row), so replaying a record
+ * twice leaves the table in the same state.
+ *
+ * A COMMIT record (no table, empty row) marks {@code txId} committed;
+ * changes of transactions without one are never replayed. Transaction 0
+ * (system writes such as catalog updates) needs none.
+ *
+ * A DROP record (transaction 0, empty row) marks {@code table} dropped:
+ * its earlier records are never replayed, later ones belong to a table
+ * re-created under the same name.
+ */
 public record WalRecord(
+        long lsn,
         long txId,
+        Type type,
         String table,
         Map<String, Object> row
-) implements Serializable {}
\ No newline at end of file
+) {
+    public enum Type {
+        INSERT,
+        UPDATE,
+        DELETE,
+        COMMIT,
+        DROP
+    }
+}
@@ -1,21 +1,276 @@
 package com.jg.rdms.db.tx;
 
+import com.jg.rdms.db.storage.GroupCommit;
+
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardOpenOption.*;
 
+/**
+ * Append-only binary redo log shared by all tables of a database.
+ *
+ * The log is a directory of {@link LogSegment}s. LSNs are dense and
+ * increase by one per record across segments. When the active segment
+ * reaches the configured size, or at a checkpoint, a new segment is
+ * started; segments that only hold records covered by the last checkpoint
+ * are deleted by {@link #truncateBefore(long)}, so the log (and replay time
+ * on restart) stays bounded.
+ *
+ * The last checkpoint LSN lives next to the segments in a small control
+ * file: every change with a higher LSN may be missing from the table files
+ * and is replayed on startup.
+ */
 public class WriteAheadLog {
-    private final ObjectOutputStream out;
 
-    public WriteAheadLog(String path) throws IOException {
-        out = new ObjectOutputStream(new FileOutputStream(path, true));
+    private final Path dir;
+    private final Path checkpointPath;
+    private final long segmentSize;
+    private final GroupCommit groupCommit;
+
+    private final List<LogSegment> segments = new ArrayList<>();
+    private volatile LogSegment active;
+
+    private long lastLsn;
+    private long bytesWritten = 0;
+
+    public WriteAheadLog(
+            String dir,
+            long segmentSize,
+            int groupCommitMaxBatch,
+            long groupCommitMaxWaitMicros
+    ) throws IOException {
+        this.dir = Path.of(dir);
+        this.checkpointPath = this.dir.resolve("checkpoint");
+        this.segmentSize = segmentSize;
+        Files.createDirectories(this.dir);
+
+        // always forces the segment that is active when the batch flushes:
+        // older segments were forced when they were rotated out
+        this.groupCommit = new GroupCommit(
+                () -> active.force(),
+                groupCommitMaxBatch,
+                groupCommitMaxWaitMicros
+        );
+
+        adoptSingleFileLog();
+        openSegments();
     }
 
-    public synchronized void log(WalRecord record) throws IOException {
-        out.writeObject(record);
-        out.flush();
+    /* =========================
+       OPEN / VALIDATE
+       ========================= */
+
+    private void openSegments() throws IOException {
+        lastLsn = readCheckpointLsn();
+
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.filter(LogSegment::isSegment)
+                    .sorted()
+                    .toList();
+        }
+
+        for (Path file : files) {
+            LogSegment segment = LogSegment.open(file);
+            segments.add(segment);
+
+            long end = segment.scan(r -> lastLsn = Math.max(lastLsn, r.lsn()));
+            segment.truncate(end);
+        }
+
+        if (segments.isEmpty()) {
+            segments.add(LogSegment.create(dir, lastLsn + 1));
+        }
+
+        active = segments.get(segments.size() - 1);
     }
 
-    public void delete() {
-        // no-op for now
+    /**
+     * Moves a log written as a single {@code wal.log} next to the log
+     * directory into it as the first segment. A file without a valid
+     * header was written by the old Java-serialization logger, which was
+     * never replayed, and is dropped.
+     */
+    private void adoptSingleFileLog() throws IOException {
+        Path single = dir.resolveSibling("wal.log");
+        Path oldCheckpoint = dir.resolveSibling("checkpoint");
+
+        if (Files.exists(oldCheckpoint)) {
+            Files.move(oldCheckpoint, checkpointPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        if (!Files.exists(single)) {
+            return;
+        }
+
+        if (!LogSegment.hasValidHeader(single)) {
+            Files.delete(single);
+            return;
+        }
+
+        long firstLsn = LogSegment.firstLsnOf(single);
+        if (firstLsn < 0) {
+            Files.delete(single);
+            return;
+        }
+
+        Files.move(single, dir.resolve(LogSegment.fileName(firstLsn)));
     }
 
+    /* =========================
+       APPEND
+       ========================= */
+
+    /**
+     * Appends a record and returns its LSN. The record is not durable
+     * until {@link #awaitDurable()} returns.
+     */
+    public synchronized long log(
+            long txId,
+            WalRecord.Type type,
+            String table,
+            Map<String, Object> row
+    ) throws IOException {
+        if (active.size() >= segmentSize) {
+            rotate();
+        }
+
+        long lsn = lastLsn + 1;
+        bytesWritten += active.append(new WalRecord(lsn, txId, type, table, row));
+
+        lastLsn = lsn;
+        return lsn;
+    }
+
+    /**
+     * Starts a new segment. The old one is forced first, so a group commit
+     * that only syncs the new active segment still covers everything.
+     */
+    private void rotate() throws IOException {
+        if (active.isEmpty()) {
+            return;
+        }
+
+        active.force();
+        LogSegment next = LogSegment.create(dir, lastLsn + 1);
+        segments.add(next);
+        active = next;
+    }
+
+    /**
+     * Blocks until every record appended so far is on disk, sharing the
+     * fsync with concurrent callers.
+     */
+    public void awaitDurable() throws IOException {
+        groupCommit.awaitDurable();
+    }
+
+    public synchronized void force() throws IOException {
+        active.force();
+    }
+
+    public synchronized long lastLsn() {
+        return lastLsn;
+    }
+
+    /** Total bytes appended since this log was opened. */
+    public synchronized long bytesWritten() {
+        return bytesWritten;
+    }
+
+    /* =========================
+       READ (recovery)
+       ========================= */
+
+    /**
+     * All intact records with an LSN greater than {@code afterLsn}, in order.
+     */
+    public synchronized List<WalRecord> readAfter(long afterLsn) throws IOException {
+        List<WalRecord> records = new ArrayList<>();
+
+        for (int i = 0; i < segments.size(); i++) {
+            // skip segments that end before afterLsn
+            if (i + 1 < segments.size() && segments.get(i + 1).startLsn() <= afterLsn + 1) {
+                continue;
+            }
+            segments.get(i).scan(r -> {
+                if (r.lsn() > afterLsn) {
+                    records.add(r);
+                }
+            });
+        }
+
+        return records;
+    }
+
+    /* =========================
+       CHECKPOINT / TRUNCATION
+       ========================= */
+
+    public long readCheckpointLsn() throws IOException {
+        if (!Files.exists(checkpointPath)) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(checkpointPath)))) {
+            return in.readLong();
+        }
+    }
+
+    /**
+     * Records that every change up to {@code lsn} is in the table files.
+     */
+    public void writeCheckpointLsn(long lsn) throws IOException {
+        Path temp = dir.resolve("checkpoint.tmp");
+
+        try (FileChannel out = FileChannel.open(temp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            out.write(ByteBuffer.allocate(Long.BYTES).putLong(lsn).flip());
+            out.force(false);
+        }
+
+        // 🔑 ATOMIC replace
+        Files.move(
+                temp,
+                checkpointPath,
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE
+        );
+    }
+
+    /**
+     * Deletes segments whose records all have an LSN of at most
+     * {@code checkpointLsn}. The active segment is rotated first when it
+     * holds covered records, so a checkpoint can always reclaim it.
+     */
+    public synchronized void truncateBefore(long checkpointLsn) throws IOException {
+        if (active.startLsn() <= checkpointLsn) {
+            rotate();
+        }
+
+        while (segments.size() > 1 && segments.get(1).startLsn() <= checkpointLsn + 1) {
+            segments.remove(0).delete();
+        }
+    }
+
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    /* =========================
+       CLOSE
+       ========================= */
+
+    public synchronized void close() throws IOException {
+        active.force();
+        for (LogSegment segment : segments) {
+            segment.close();
+        }
+    }
 }
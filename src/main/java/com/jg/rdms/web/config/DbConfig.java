@@ -1,6 +1,9 @@
 package com.jg.rdms.web.config;
 
 import com.jg.rdms.db.core.Database;
+import com.jg.rdms.db.core.DatabaseOptions;
+import com.jg.rdms.db.sql.QueryExecutor;
+import com.jg.rdms.db.storage.SlottedPage;
 import com.jg.rdms.db.tx.TransactionManager;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -16,11 +19,41 @@ public class DbConfig {
     @Bean
     public Database database(RdbmsProperties props) throws IOException {
         Files.createDirectories(Path.of(props.getDataDir()));
-        return new Database();
+
+        DatabaseOptions options = new DatabaseOptions();
+        options.setDataDir(props.getDataDir());
+        options.setGroupCommitMaxBatch(props.getGroupCommitMaxBatch());
+        options.setGroupCommitMaxWaitMicros(props.getGroupCommitMaxWait().toNanos() / 1_000);
+        options.setWalSegmentBytes(props.getWalSegmentSize().toBytes());
+        options.setCheckpointIntervalMillis(props.getCheckpointInterval().toMillis());
+        options.setCheckpointWalBytes(props.getCheckpointWalSize().toBytes());
+        options.setLockWaitTimeoutMillis(props.getLockWaitTimeout().toMillis());
+        options.setIdleTransactionTimeoutMillis(props.getIdleTransactionTimeout().toMillis());
+        options.setBufferPoolPages(
+                (int) (props.getBufferPoolSize().toBytes() / SlottedPage.PAGE_SIZE)
+        );
+        options.setColumnarScans(props.isColumnarScans());
+        options.setSortMemoryBytes(props.getSortMemory().toBytes());
+        options.setHashJoinMemoryBytes(props.getHashJoinMemory().toBytes());
+        if (props.getLoadThreads() > 0) {
+            options.setLoadThreads(props.getLoadThreads());
+        }
+        if (props.getQueryParallelism() > 0) {
+            options.setQueryParallelism(props.getQueryParallelism());
+        }
+        options.setParallelThreshold(props.getParallelThreshold());
+        options.setStatementCacheSize(props.getStatementCacheSize());
+
+        return new Database(options);
+    }
+
+    @Bean
+    public TransactionManager transactionManager(Database database) {
+        return database.transactions();
     }
 
     @Bean
-    public TransactionManager transactionManager() {
-        return new TransactionManager();
+    public QueryExecutor queryExecutor(Database database, TransactionManager transactionManager) {
+        return new QueryExecutor(database, transactionManager);
     }
 }
@@ -4,10 +4,54 @@ package com.jg.rdms.web.config;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
 
 @Setter
 @Getter
 @ConfigurationProperties(prefix = "rdbms")
 public class RdbmsProperties {
     private String dataDir;
-}
\ No newline at end of file
+
+    // WAL fsync batching: at most this many commits per fsync ...
+    private int groupCommitMaxBatch = 64;
+    // ... and at most this long waiting for the batch to fill
+    private Duration groupCommitMaxWait = Duration.ZERO;
+
+    // a new WAL segment is started once the active one reaches this size
+    private DataSize walSegmentSize = DataSize.ofMegabytes(16);
+    // background checkpoint after this long, or this much WAL, whichever first
+    private Duration checkpointInterval = Duration.ofMinutes(1);
+    private DataSize checkpointWalSize = DataSize.ofMegabytes(64);
+
+    // a write to a row locked by another transaction fails after this long
+    private Duration lockWaitTimeout = Duration.ofSeconds(5);
+
+    // an explicit transaction whose client sends nothing for this long is rolled back
+    private Duration idleTransactionTimeout = Duration.ofMinutes(1);
+
+    // tables loaded concurrently on startup; 0 = one per CPU
+    private int loadThreads = 0;
+
+    // page cache for tables too large for the heap; 0 = keep every row in memory
+    private DataSize bufferPoolSize = DataSize.ofBytes(0);
+
+    // evaluate filtered full scans over a column-wise copy of each table
+    private boolean columnarScans = false;
+
+    // memory a sort may use before it spills runs to <data-dir>/tmp
+    private DataSize sortMemory = DataSize.ofMegabytes(64);
+
+    // build rows a hash join holds before it partitions both sides to <data-dir>/tmp
+    private DataSize hashJoinMemory = DataSize.ofMegabytes(64);
+
+    // threads one query may scan and join with; 0 = one per CPU, 1 = always serial
+    private int queryParallelism = 0;
+
+    // tables smaller than this many rows are scanned and joined on one thread
+    private long parallelThreshold = 50_000;
+
+    // parsed statements cached by their SQL text, least recently used dropped first
+    private int statementCacheSize = 256;
+}
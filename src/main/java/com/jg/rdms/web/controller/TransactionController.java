@@ -0,0 +1,29 @@
+package com.jg.rdms.web.controller;
+
+import com.jg.rdms.web.service.TransactionService;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/tx")
+@AllArgsConstructor
+public class TransactionController {
+
+    private final TransactionService service;
+
+    @PostMapping("/begin")
+    public ResponseEntity<Object> begin() {
+        return ResponseEntity.ok(service.begin());
+    }
+
+    @PostMapping("/commit")
+    public ResponseEntity<Object> commit() {
+        return ResponseEntity.ok(service.commit());
+    }
+
+    @PostMapping("/rollback")
+    public ResponseEntity<Object> rollback() {
+        return ResponseEntity.ok(service.rollback());
+    }
+}
@@ -1,10 +1,15 @@
 package com.jg.rdms.web.controller;
 
+import com.jg.rdms.db.sql.Cursor;
 import com.jg.rdms.web.domain.User;
 import com.jg.rdms.web.service.UserService;
 import lombok.AllArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.SequenceWriter;
+import tools.jackson.databind.json.JsonMapper;
 
 @RestController
 @RequestMapping("/api/users")
@@ -12,10 +17,22 @@ import org.springframework.web.bind.annotation.*;
 public class UserController {
 
     private final UserService service;
+    private final JsonMapper jsonMapper;
 
+    /** Writes the users out as they are read, never holding them all. */
     @GetMapping
-    public ResponseEntity<Object> all() {
-        return ResponseEntity.ok(service.findAll());
+    public ResponseEntity<StreamingResponseBody> all() {
+        StreamingResponseBody body = out -> {
+            try (Cursor users = service.openAll();
+                 SequenceWriter array = jsonMapper.writer().writeValuesAsArray(out)) {
+                while (users.hasNext()) {
+                    array.write(users.next());
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
     }
 
     @PostMapping
@@ -0,0 +1,61 @@
+package com.jg.rdms.web.service;
+
+import com.jg.rdms.db.sql.QueryExecutor;
+import com.jg.rdms.db.sql.Session;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpSessionBindingEvent;
+import jakarta.servlet.http.HttpSessionBindingListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * The SQL session a request runs in. Only an explicit BEGIN ties one to
+ * the HTTP session (see {@link #transactional()}), so BEGIN ... COMMIT can
+ * span requests; any other request gets a throwaway autocommit session
+ * and never creates an HTTP session.
+ *
+ * A transaction left open is rolled back once idle for
+ * {@code rdbms.idle-transaction-timeout}, or when the HTTP session expires.
+ */
+@Component
+public class SqlSessions {
+
+    private static final String ATTRIBUTE = SqlSessions.class.getName();
+
+    private final QueryExecutor executor;
+    private final HttpServletRequest request;
+
+    public SqlSessions(QueryExecutor executor, HttpServletRequest request) {
+        this.executor = executor;
+        this.request = request;
+    }
+
+    /** The HTTP session's SQL session if it has one, else a fresh autocommit one. */
+    public Session current() {
+        HttpSession http = request.getSession(false);
+        Bound bound = http == null ? null : (Bound) http.getAttribute(ATTRIBUTE);
+        return bound != null ? bound.session : executor.openSession();
+    }
+
+    /** The HTTP session's SQL session, creating both if needed. */
+    public Session transactional() {
+        HttpSession http = request.getSession(true);
+        synchronized (http) {
+            Bound bound = (Bound) http.getAttribute(ATTRIBUTE);
+            if (bound == null) {
+                bound = new Bound(executor.openSession());
+                http.setAttribute(ATTRIBUTE, bound);
+            }
+            return bound.session;
+        }
+    }
+
+    /** 🔒 Rolls back whatever is still open when the HTTP session ends. */
+    private record Bound(Session session) implements HttpSessionBindingListener {
+
+        @Override
+        public void valueUnbound(HttpSessionBindingEvent event) {
+            session.close();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.jg.rdms.web.service;
+
+import com.jg.rdms.db.sql.QueryExecutor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Explicit transactions for the current HTTP session. Requests made
+ * between {@link #begin()} and {@link #commit()} run in one transaction.
+ */
+@Service
+public class TransactionService {
+
+    private final QueryExecutor executor;
+    private final SqlSessions sessions;
+
+    public TransactionService(QueryExecutor executor, SqlSessions sessions) {
+        this.executor = executor;
+        this.sessions = sessions;
+    }
+
+    public Object begin() {
+        return executor.execute(sessions.transactional(), "BEGIN");
+    }
+
+    public Object commit() {
+        return executor.execute(sessions.current(), "COMMIT");
+    }
+
+    public Object rollback() {
+        return executor.execute(sessions.current(), "ROLLBACK");
+    }
+}
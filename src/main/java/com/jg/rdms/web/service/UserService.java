@@ -1,53 +1,69 @@
 package com.jg.rdms.web.service;
 
-import com.jg.rdms.db.core.Database;
+import com.jg.rdms.db.sql.Cursor;
+import com.jg.rdms.db.sql.PreparedStatement;
 import com.jg.rdms.db.sql.QueryExecutor;
-import com.jg.rdms.db.tx.TransactionManager;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Users through prepared statements: each is parsed once, and values go
+ * in as bound parameters, never into the SQL text.
+ */
 @Service
 public class UserService {
 
     private final QueryExecutor executor;
+    private final SqlSessions sessions;
 
-    public UserService(Database db, TransactionManager txManager) {
-        this.executor = new QueryExecutor(db, txManager);
+    private final PreparedStatement insert;
+    private final PreparedStatement update;
+    private final PreparedStatement delete;
+    private final PreparedStatement byId;
+    private final PreparedStatement all;
+
+    public UserService(QueryExecutor executor, SqlSessions sessions) {
+        this.executor = executor;
+        this.sessions = sessions;
+
+        this.insert = executor.prepare("INSERT INTO users (name) VALUES (?)");
+        this.update = executor.prepare("UPDATE users SET name=? WHERE id=?");
+        this.delete = executor.prepare("DELETE FROM users WHERE id=?");
+        this.byId = executor.prepare("SELECT * FROM users WHERE id=?");
+        this.all = executor.prepare("SELECT * FROM users");
     }
 
     public String create(String name) {
-        executor.execute(
-                String.format("INSERT INTO users (name) VALUES ('%s')", name)
-        );
+        executor.execute(sessions.current(), insert.bind(name));
         return name;
     }
 
     public String updateUser(String userId, String name) {
-        executor.execute(
-                String.format("UPDATE users SET name='%s' WHERE id=%s ", name, userId)
-        );
+        executor.execute(sessions.current(), update.bind(name, Integer.valueOf(userId)));
         return name;
     }
 
     public void deleteUser(String userId) {
-        executor.execute(
-                String.format("DELETE FROM users WHERE id=%s", userId)
-        );
+        executor.execute(sessions.current(), delete.bind(Integer.valueOf(userId)));
     }
 
     public Map<String, Object> getUser(int id) {
         List<Map<String, Object>> result = (List<Map<String, Object>>) executor.execute(
-                "SELECT * FROM users WHERE id=" + id
+                sessions.current(),
+                byId.bind(id)
         );
 
         return result.isEmpty() ? null : result.get(0);
     }
 
+    /** Every user, read as the cursor is; close it when done. */
+    public Cursor openAll() {
+        return executor.query(sessions.current(), all.bind());
+    }
+
     public Object findAll() {
-        return executor.execute(
-                "SELECT * FROM users"
-        );
+        return executor.execute(sessions.current(), all.bind());
     }
-}
\ No newline at end of file
+}
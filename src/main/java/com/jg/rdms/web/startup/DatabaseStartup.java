@@ -6,8 +6,10 @@ import lombok.AllArgsConstructor;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 
 @Configuration
+@Order(1)
 @AllArgsConstructor
 public class DatabaseStartup  implements ApplicationRunner{
     private final Database db;
@@ -3,18 +3,29 @@ package com.jg.rdms.web.startup;
 import com.jg.rdms.db.core.Database;
 import com.jg.rdms.db.sql.SqlParser;
 import lombok.AllArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
-import jakarta.annotation.PostConstruct;
-
+/**
+ * Creates the application schema on first start. Runs after
+ * {@link DatabaseStartup}: writing before recovery would log changes
+ * that the redo pass then replays over the recovered catalog.
+ */
 @Component
+@Order(2)
 @AllArgsConstructor
-public class SchemaInitializer {
+public class SchemaInitializer implements ApplicationRunner {
 
     private final Database db;
 
-    @PostConstruct
-    public void init() {
+    @Override
+    public void run(ApplicationArguments args) {
+        if (db.tableExists("users")) {
+            return;
+        }
+
         db.execute(
                 SqlParser.parseCreateTable("""
                 CREATE TABLE users (
@@ -0,0 +1,79 @@
+package com.jg.rdms.db.columnar;
+
+import com.jg.rdms.db.sql.Comparison;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarSegmentTests {
+
+    private static final List<String> COLUMNS = List.of("id", "age", "city");
+
+    @Test
+    void filterAgreesWithComparisonTestAcrossChunks() {
+        ColumnarSegment segment = new ColumnarSegment(COLUMNS, List.of(true, true, false));
+        List<Map<String, Object>> rows = new ArrayList<>();
+        Random random = new Random(16);
+        String[] cities = {"Nairobi", "Mombasa", "Kisumu", null};
+
+        // a bit over two chunks, so the last one is partial
+        for (int id = 1; id <= 2 * ColumnVector.CHUNK_SIZE + 123; id++) {
+            Object age = random.nextInt(10) == 0 ? null : random.nextInt(100);
+            Object city = cities[random.nextInt(cities.length)];
+
+            assertTrue(segment.add(new Object[]{id, age, city}));
+
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", id);
+            row.put("age", age);
+            row.put("city", city);
+            rows.add(row);
+        }
+        segment.seal();
+
+        List<List<Comparison>> queries = List.of(
+                List.of(new Comparison("age", Comparison.Op.GE, 30)),
+                List.of(new Comparison("age", Comparison.Op.LT, 30),
+                        new Comparison("city", Comparison.Op.EQ, "Kisumu")),
+                List.of(new Comparison("city", Comparison.Op.GT, "Kisumu")),
+                List.of(new Comparison("city", Comparison.Op.EQ, "Nakuru")),
+                List.of(new Comparison("age", Comparison.Op.EQ, "30")),
+                List.of(new Comparison("missing", Comparison.Op.EQ, 1))
+        );
+
+        for (List<Comparison> where : queries) {
+            List<Object> expected = rows.stream()
+                    .filter(r -> where.stream().allMatch(c -> c.test(r)))
+                    .map(r -> r.get("id"))
+                    .toList();
+
+            assertEquals(expected, ids(segment, segment.filter(where)), where.toString());
+        }
+    }
+
+    @Test
+    void rowsThatDoNotFitTheirColumnsAreLeftOut() {
+        ColumnarSegment segment = new ColumnarSegment(COLUMNS, List.of(true, true, false));
+
+        assertTrue(segment.add(new Object[]{1, 20, "Nairobi"}));
+        assertFalse(segment.add(new Object[]{2, "twenty", "Nairobi"}));
+        assertFalse(segment.add(new Object[]{null, 20, "Nairobi"}));
+        segment.seal();
+
+        assertEquals(1, segment.size());
+        assertArrayEquals(new Object[]{1, 20, "Nairobi"}, segment.values(0));
+        assertThrows(IllegalStateException.class, () -> segment.add(new Object[]{3, 1, "x"}));
+    }
+
+    private static List<Object> ids(ColumnarSegment segment, long[] matches) {
+        List<Object> ids = new ArrayList<>();
+        for (int i = 0; i < segment.size(); i++) {
+            if ((matches[i >>> 6] & (1L << i)) != 0) {
+                ids.add(segment.id(i));
+            }
+        }
+        return ids;
+    }
+}
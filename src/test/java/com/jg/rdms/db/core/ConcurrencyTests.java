@@ -0,0 +1,213 @@
+package com.jg.rdms.db.core;
+
+import com.jg.rdms.db.sql.QueryExecutor;
+import com.jg.rdms.db.sql.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyTests {
+
+    private static final long LOCK_WAIT = 500;
+
+    @TempDir
+    Path dir;
+
+    private Database db;
+    private QueryExecutor q;
+
+    @BeforeEach
+    void open() {
+        db = TestDatabases.open(dir, options -> options.setLockWaitTimeoutMillis(LOCK_WAIT));
+
+        q = new QueryExecutor(db, db.transactions());
+        q.execute("CREATE TABLE counters (id INT PRIMARY KEY, n INT)");
+        for (int id = 1; id <= 4; id++) {
+            q.execute("INSERT INTO counters (id, n) VALUES (" + id + ", 0)");
+        }
+    }
+
+    @AfterEach
+    void close() {
+        db.close();
+    }
+
+    @Test
+    void aConflictingWriterWaitsForTheOwnerToEnd() throws Exception {
+        Session owner = q.openSession();
+        Session other = q.openSession();
+
+        // an update waits out a rollback, then applies to the restored row
+        q.execute(owner, "BEGIN");
+        q.execute(owner, "UPDATE counters SET n=10 WHERE id=1");
+        CompletableFuture<Object> update = CompletableFuture.supplyAsync(
+                () -> q.execute(other, "UPDATE counters SET n=20 WHERE id=1"));
+
+        Thread.sleep(100);
+        assertFalse(update.isDone());
+        q.execute(owner, "ROLLBACK");
+        assertEquals(1, update.get(2, TimeUnit.SECONDS));
+        assertEquals(20, n(1));
+
+        // an insert of the same id waits out a commit, then finds the row taken
+        q.execute(owner, "BEGIN");
+        q.execute(owner, "INSERT INTO counters (id, n) VALUES (5, 1)");
+        CompletableFuture<Object> insert = CompletableFuture.supplyAsync(
+                () -> q.execute(other, "INSERT INTO counters (id, n) VALUES (5, 2)"));
+
+        Thread.sleep(100);
+        assertFalse(insert.isDone());
+        q.execute(owner, "COMMIT");
+        ExecutionException e = assertThrows(ExecutionException.class, () -> insert.get(2, TimeUnit.SECONDS));
+        assertTrue(e.getCause().getMessage().contains("Duplicate"), e.getCause().getMessage());
+        assertEquals(1, n(5));
+    }
+
+    @Test
+    void rowsAnUncommittedChangeHidesAreWaitedForNotSkipped() throws Exception {
+        Session owner = q.openSession();
+        Session other = q.openSession();
+
+        // row 1 no longer matches n=0 and row 2 is gone, both uncommitted
+        q.execute(owner, "BEGIN");
+        q.execute(owner, "UPDATE counters SET n=10 WHERE id=1");
+        q.execute(owner, "DELETE FROM counters WHERE id=2");
+
+        CompletableFuture<Object> update = CompletableFuture.supplyAsync(
+                () -> q.execute(other, "UPDATE counters SET n=20 WHERE n=0"));
+
+        Thread.sleep(100);
+        assertFalse(update.isDone());
+        q.execute(owner, "ROLLBACK");
+
+        assertEquals(4, update.get(2, TimeUnit.SECONDS));
+        for (int id = 1; id <= 4; id++) {
+            assertEquals(20, n(id));
+        }
+
+        // a commit makes the wait come back empty-handed
+        q.execute(owner, "BEGIN");
+        q.execute(owner, "UPDATE counters SET n=30 WHERE id=3");
+
+        CompletableFuture<Object> delete = CompletableFuture.supplyAsync(
+                () -> q.execute(other, "DELETE FROM counters WHERE n=20 AND id >= 3"));
+
+        Thread.sleep(100);
+        assertFalse(delete.isDone());
+        q.execute(owner, "COMMIT");
+
+        assertEquals(1, delete.get(2, TimeUnit.SECONDS));
+        assertEquals(30, n(3));
+    }
+
+    @Test
+    void writersOfRowsThatNeverMatchedAreNotWaitedFor() {
+        Session owner = q.openSession();
+        Session other = q.openSession();
+
+        q.execute(owner, "BEGIN");
+        q.execute(owner, "UPDATE counters SET n=7 WHERE id=3");
+
+        // neither version of row 3 has n=5: no wait, no timeout
+        assertEquals(0, q.execute(other, "UPDATE counters SET n=6 WHERE n=5"));
+        assertEquals(0, q.execute(other, "DELETE FROM counters WHERE n=5"));
+        q.execute(owner, "COMMIT");
+    }
+
+    @Test
+    void lockWaitTimesOutAndLeavesTheOwnerAlone() {
+        Session owner = q.openSession();
+        Session other = q.openSession();
+
+        q.execute(owner, "BEGIN");
+        q.execute(owner, "UPDATE counters SET n=1 WHERE id=2");
+
+        long start = System.nanoTime();
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> q.execute(other, "UPDATE counters SET n=2 WHERE id=2"));
+        long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(e.getMessage().contains("Lock wait timeout"), e.getMessage());
+        assertTrue(waited >= LOCK_WAIT - 50, "waited " + waited + " ms");
+
+        // rows the owner does not hold are still free
+        assertEquals(1, q.execute(other, "UPDATE counters SET n=3 WHERE id=3"));
+
+        q.execute(owner, "COMMIT");
+        assertEquals(1, n(2));
+        assertEquals(3, n(3));
+        assertEquals(1, q.execute(other, "UPDATE counters SET n=2 WHERE id=2"));
+    }
+
+    @Test
+    void concurrentIncrementsAreNotLost() throws Exception {
+        int threads = 8;
+        int increments = 50;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int worker = t;
+                workers.add(pool.submit(() -> increment(worker, increments)));
+            }
+            for (Future<?> w : workers) {
+                w.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // every thread hit counter 4, and one of 1..3 of its own
+        assertEquals(threads * increments, n(4));
+        assertEquals(threads * increments, n(1) + n(2) + n(3));
+    }
+
+    /**
+     * Adds one to counter 4 and to one other counter {@code times} times,
+     * each in a transaction: read, then update only if unchanged, retrying
+     * when another writer got there first. Every third attempt rolls back.
+     */
+    private void increment(int worker, int times) {
+        Session session = q.openSession();
+        int id = 1 + worker % 3;
+        int done = 0;
+
+        for (int attempt = 0; done < times; attempt++) {
+            q.execute(session, "BEGIN");
+            boolean applied = add(session, 4) && add(session, id);
+
+            if (applied && attempt % 3 != 0) {
+                q.execute(session, "COMMIT");
+                done++;
+            } else {
+                q.execute(session, "ROLLBACK");
+            }
+        }
+    }
+
+    private boolean add(Session session, int id) {
+        int n = n(session, id);
+        return (Integer) q.execute(session,
+                "UPDATE counters SET n=" + (n + 1) + " WHERE n=" + n + " AND id=" + id) == 1;
+    }
+
+    private int n(int id) {
+        return n(q.openSession(), id);
+    }
+
+    private int n(Session session, int id) {
+        @SuppressWarnings("unchecked")
+        List<Row> rows = (List<Row>) q.execute(session, "SELECT * FROM counters WHERE id=" + id);
+        assertEquals(1, rows.size());
+        return (Integer) rows.get(0).get("n");
+    }
+}
@@ -0,0 +1,88 @@
+package com.jg.rdms.db.core;
+
+import com.jg.rdms.db.sql.QueryExecutor;
+import com.jg.rdms.db.sql.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DropTableTests {
+
+    @TempDir
+    Path dir;
+
+    private Database db;
+    private QueryExecutor q;
+
+    @AfterEach
+    void close() {
+        db.close();
+    }
+
+    @Test
+    void recoveryNeverReplaysADroppedTablesRecords() {
+        open();
+        q.execute("CREATE TABLE users (id INT PRIMARY KEY, name TEXT)");
+        q.execute("CREATE TABLE audit (id INT PRIMARY KEY, note TEXT)");
+        q.execute("INSERT INTO users (id, name) VALUES (1, 'Ann')");
+
+        // an open transaction holds every checkpoint back: the log keeps it all
+        Session open = q.openSession();
+        q.execute(open, "BEGIN");
+        q.execute(open, "INSERT INTO audit (id, note) VALUES (1, 'pending')");
+
+        q.execute("INSERT INTO users (id, name) VALUES (2, 'Bob')");
+        db.dropTable("users");
+        q.execute("CREATE TABLE users (id INT PRIMARY KEY, name TEXT)");
+        q.execute("INSERT INTO users (id, name) VALUES (10, 'New')");
+        db.close();
+
+        open();
+        assertEquals(List.of(10), ids("SELECT * FROM users"));
+        assertEquals(List.of(), ids("SELECT * FROM audit"));
+
+        // the old ids are free in the new table
+        q.execute("INSERT INTO users (id, name) VALUES (2, 'Again')");
+        assertEquals(List.of(2, 10), ids("SELECT * FROM users ORDER BY id"));
+    }
+
+    @Test
+    void aDroppedTableStaysGoneAfterReopen() throws Exception {
+        open();
+        q.execute("CREATE TABLE users (id INT PRIMARY KEY, name TEXT)");
+        q.execute("CREATE TABLE audit (id INT PRIMARY KEY, note TEXT)");
+        q.execute("INSERT INTO users (id, name) VALUES (1, 'Ann')");
+
+        Session open = q.openSession();
+        q.execute(open, "BEGIN");
+        q.execute(open, "INSERT INTO audit (id, note) VALUES (1, 'pending')");
+        db.dropTable("users");
+
+        assertNull(db.table("users"));
+        assertFalse(Files.exists(dir.resolve("users.tbl")));
+        db.close();
+
+        // a file the drop left behind (a crash before it was deleted) is removed
+        Files.write(dir.resolve("users.tbl"), new byte[0]);
+        open();
+
+        assertNull(db.table("users"));
+        assertFalse(Files.exists(dir.resolve("users.tbl")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> ids(String sql) {
+        return ((List<Row>) q.execute(sql)).stream().map(r -> r.get("id")).toList();
+    }
+
+    private void open() {
+        db = TestDatabases.open(dir);
+        q = new QueryExecutor(db, db.transactions());
+    }
+}
@@ -0,0 +1,96 @@
+package com.jg.rdms.db.core;
+
+import com.jg.rdms.db.sql.QueryExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ForeignKeyTests {
+
+    @TempDir
+    Path dir;
+
+    private Database db;
+    private QueryExecutor q;
+
+    @BeforeEach
+    void open() {
+        db = TestDatabases.open(dir);
+        q = new QueryExecutor(db, db.transactions());
+        q.execute("CREATE TABLE teams (id INT PRIMARY KEY, code TEXT)");
+        q.execute("CREATE TABLE users (id INT PRIMARY KEY, team_id INT REFERENCES teams(id), team_code TEXT REFERENCES teams(code))");
+        q.execute("INSERT INTO teams (id, code) VALUES (1, 'red')");
+        q.execute("INSERT INTO teams (id, code) VALUES (2, 'blue')");
+        q.execute("INSERT INTO users (id, team_id, team_code) VALUES (10, 1, 'red')");
+    }
+
+    @AfterEach
+    void close() {
+        db.close();
+    }
+
+    @Test
+    void bothSidesOfAForeignKeyAreIndexed() {
+        assertIndexed();
+
+        db.close();
+        db = TestDatabases.open(dir);
+        q = new QueryExecutor(db, db.transactions());
+
+        // implicit indexes are not catalogued: they come back from the schema
+        assertIndexed();
+    }
+
+    @Test
+    void childRowsMustReferenceAnExistingParent() {
+        q.execute("INSERT INTO users (id, team_id, team_code) VALUES (11, 2, 'red')");
+
+        assertViolation(() -> q.execute("INSERT INTO users (id, team_id, team_code) VALUES (12, 3, 'red')"));
+        assertViolation(() -> q.execute("INSERT INTO users (id, team_id, team_code) VALUES (12, 1, 'green')"));
+        assertViolation(() -> q.execute("UPDATE users SET team_id=3 WHERE id=10"));
+
+        q.execute("UPDATE users SET team_code='blue' WHERE id=10");
+        assertEquals(List.of(10, 11), ids("SELECT * FROM users ORDER BY id"));
+    }
+
+    @Test
+    void referencedParentsCannotBeDeletedOrRekeyed() {
+        assertViolation(() -> q.execute("DELETE FROM teams WHERE id=1"));
+        assertViolation(() -> q.execute("UPDATE teams SET code='green' WHERE id=1"));
+
+        // unreferenced parents and unchanged keys are fine
+        q.execute("UPDATE teams SET code='red' WHERE id=1");
+        q.execute("UPDATE teams SET code='green' WHERE id=2");
+        q.execute("DELETE FROM teams WHERE id=2");
+
+        q.execute("DELETE FROM users WHERE id=10");
+        q.execute("DELETE FROM teams WHERE id=1");
+        assertEquals(List.of(), ids("SELECT * FROM teams"));
+    }
+
+    private void assertIndexed() {
+        Table teams = db.table("teams");
+        Table users = db.table("users");
+
+        assertTrue(teams.isUniqueKey("id"));
+        assertTrue(teams.hasIndex("code"));
+        assertTrue(users.hasIndex("team_id"));
+        assertTrue(users.hasIndex("team_code"));
+    }
+
+    private static void assertViolation(Runnable statement) {
+        IllegalStateException e = assertThrows(IllegalStateException.class, statement::run);
+        assertTrue(e.getMessage().contains("Foreign key violation"), e.getMessage());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> ids(String sql) {
+        return ((List<Row>) q.execute(sql)).stream().map(r -> r.get("id")).toList();
+    }
+}
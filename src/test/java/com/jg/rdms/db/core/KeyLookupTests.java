@@ -0,0 +1,112 @@
+package com.jg.rdms.db.core;
+
+import com.jg.rdms.db.sql.QueryExecutor;
+import com.jg.rdms.db.tx.Snapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyLookupTests {
+
+    private static final int ROWS = 500;
+
+    @TempDir
+    Path dir;
+
+    private Database db;
+    private QueryExecutor q;
+
+    @BeforeEach
+    void open() {
+        db = TestDatabases.open(dir);
+        q = new QueryExecutor(db, db.transactions());
+        q.execute("CREATE TABLE users (id INT PRIMARY KEY, email TEXT UNIQUE, name TEXT)");
+        for (int id = 1; id <= ROWS; id++) {
+            q.execute("INSERT INTO users (id, email, name) VALUES (" + id + ", 'u" + id + "@x', 'n" + id + "')");
+        }
+    }
+
+    @AfterEach
+    void close() {
+        db.close();
+    }
+
+    @Test
+    void keyEqualitiesAreAnsweredByOneProbe() {
+        PersistentTable users = users();
+
+        assertTrue(users.isUniqueKey("id"));
+        assertTrue(users.isUniqueKey("email"));
+        assertFalse(users.isUniqueKey("name"));
+
+        assertEquals(List.of("n7"), names(users.lookupByColumn("id", 7, Snapshot.LATEST).orElseThrow()));
+        assertEquals(List.of("n9"), names(users.lookupByColumn("email", "u9@x", Snapshot.LATEST).orElseThrow()));
+        assertEquals(List.of(), users.lookupByColumn("id", ROWS + 1, Snapshot.LATEST).orElseThrow());
+
+        assertTrue(q.execute("EXPLAIN SELECT * FROM users WHERE id=7").toString().contains("UNIQUE LOOKUP users.id = 7"));
+        assertTrue(q.execute("EXPLAIN SELECT * FROM users WHERE email='u7@x'").toString().contains("UNIQUE LOOKUP users.email"));
+        assertEquals(List.of("n7"), names(select("SELECT * FROM users WHERE id=7")));
+    }
+
+    @Test
+    void keysFollowUpdatesAndDeletes() {
+        q.execute("UPDATE users SET email='moved@x' WHERE id=3");
+        q.execute("DELETE FROM users WHERE id=4");
+
+        assertEquals(List.of(), select("SELECT * FROM users WHERE email='u3@x'"));
+        assertEquals(List.of("n3"), names(select("SELECT * FROM users WHERE email='moved@x'")));
+        assertEquals(List.of(), select("SELECT * FROM users WHERE id=4"));
+
+        // the freed values can be taken again, the held ones cannot
+        q.execute("INSERT INTO users (id, email, name) VALUES (4, 'u3@x', 'again')");
+        assertEquals(List.of("again"), names(select("SELECT * FROM users WHERE email='u3@x'")));
+
+        IllegalStateException unique = assertThrows(IllegalStateException.class,
+                () -> q.execute("INSERT INTO users (id, email, name) VALUES (900, 'moved@x', 'x')"));
+        assertTrue(unique.getMessage().contains("Unique constraint violation"), unique.getMessage());
+
+        IllegalStateException duplicate = assertThrows(IllegalStateException.class,
+                () -> q.execute("INSERT INTO users (id, email, name) VALUES (5, 'new@x', 'x')"));
+        assertTrue(duplicate.getMessage().contains("Duplicate row id 5"), duplicate.getMessage());
+    }
+
+    @Test
+    void keysAreRebuiltOnReopen() {
+        q.execute("UPDATE users SET email='moved@x' WHERE id=3");
+        q.execute("DELETE FROM users WHERE id=4");
+        db.checkpoint();
+        q.execute("UPDATE users SET email='late@x' WHERE id=5");
+        db.close();
+
+        // 5's change is only in the log: the keys come from load and redo
+        db = TestDatabases.open(dir);
+        q = new QueryExecutor(db, db.transactions());
+
+        assertEquals(List.of("n3"), names(select("SELECT * FROM users WHERE email='moved@x'")));
+        assertEquals(List.of("n5"), names(select("SELECT * FROM users WHERE email='late@x'")));
+        assertEquals(List.of(), select("SELECT * FROM users WHERE email='u5@x'"));
+        assertEquals(List.of(), select("SELECT * FROM users WHERE id=4"));
+        assertEquals(List.of("n" + ROWS), names(select("SELECT * FROM users WHERE id=" + ROWS)));
+        assertThrows(IllegalStateException.class,
+                () -> q.execute("INSERT INTO users (id, email, name) VALUES (900, 'late@x', 'x')"));
+    }
+
+    private PersistentTable users() {
+        return (PersistentTable) db.table("users");
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Row> select(String sql) {
+        return (List<Row>) q.execute(sql);
+    }
+
+    private static List<Object> names(List<Row> rows) {
+        return rows.stream().map(r -> r.get("name")).toList();
+    }
+}
@@ -0,0 +1,144 @@
+package com.jg.rdms.db.core;
+
+import com.jg.rdms.db.sql.QueryExecutor;
+import com.jg.rdms.db.sql.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MvccTests {
+
+    @TempDir
+    Path dir;
+
+    private Database db;
+    private QueryExecutor q;
+
+    @BeforeEach
+    void open() {
+        db = TestDatabases.open(dir);
+
+        q = new QueryExecutor(db, db.transactions());
+        q.execute("CREATE TABLE users (id INT PRIMARY KEY, email TEXT UNIQUE, name TEXT)");
+        q.execute("INSERT INTO users (id, email, name) VALUES (1, 'a@x', 'Ann')");
+        q.execute("INSERT INTO users (id, email, name) VALUES (2, 'b@x', 'Bob')");
+    }
+
+    @AfterEach
+    void close() {
+        db.close();
+    }
+
+    @Test
+    void aTransactionReadsTheSnapshotItStartedWith() {
+        Session reader = q.openSession();
+        q.execute(reader, "BEGIN");
+        assertEquals(List.of("Ann", "Bob"), names(reader, "SELECT * FROM users ORDER BY id"));
+
+        q.execute("UPDATE users SET name='Anna' WHERE id=1");
+        q.execute("DELETE FROM users WHERE id=2");
+        q.execute("INSERT INTO users (id, email, name) VALUES (3, 'c@x', 'Cy')");
+
+        assertEquals(List.of("Ann", "Bob"), names(reader, "SELECT * FROM users ORDER BY id"));
+        assertEquals(List.of("Ann"), names(reader, "SELECT * FROM users WHERE id=1"));
+        assertEquals(List.of(), names(reader, "SELECT * FROM users WHERE id=3"));
+
+        q.execute(reader, "COMMIT");
+        assertEquals(List.of("Anna", "Cy"), names(reader, "SELECT * FROM users ORDER BY id"));
+    }
+
+    @Test
+    void uniqueLookupFindsTheRowTheSnapshotSees() {
+        Session reader = q.openSession();
+        q.execute(reader, "BEGIN");
+        names(reader, "SELECT * FROM users");
+
+        // the key moves to a new row, and Bob's row goes away with its key
+        q.execute("UPDATE users SET email='z@x' WHERE id=1");
+        q.execute("INSERT INTO users (id, email, name) VALUES (3, 'a@x', 'Cy')");
+        q.execute("DELETE FROM users WHERE id=2");
+
+        assertEquals(List.of("Ann"), names(reader, "SELECT * FROM users WHERE email='a@x'"));
+        assertEquals(List.of("Bob"), names(reader, "SELECT * FROM users WHERE email='b@x'"));
+        assertEquals(List.of(), names(reader, "SELECT * FROM users WHERE email='z@x'"));
+
+        Session now = q.openSession();
+        assertEquals(List.of("Cy"), names(now, "SELECT * FROM users WHERE email='a@x'"));
+        assertEquals(List.of(), names(now, "SELECT * FROM users WHERE email='b@x'"));
+        assertEquals(List.of("Ann"), names(now, "SELECT * FROM users WHERE email='z@x'"));
+        q.execute(reader, "COMMIT");
+    }
+
+    @Test
+    void oldVersionsArePrunedOnceNoSnapshotNeedsThem() {
+        PersistentTable users = (PersistentTable) db.table("users");
+
+        Session reader = q.openSession();
+        q.execute(reader, "BEGIN");
+        names(reader, "SELECT * FROM users");
+
+        q.execute("UPDATE users SET email='z@x', name='Anna' WHERE id=1");
+        q.execute("DELETE FROM users WHERE id=2");
+
+        // the reader's snapshot holds the horizon back: Ann's two versions and deleted Bob
+        db.checkpoint();
+        assertEquals(3, users.retainedVersions());
+        assertEquals(List.of("Ann"), names(reader, "SELECT * FROM users WHERE email='a@x'"));
+
+        q.execute(reader, "COMMIT");
+        db.checkpoint();
+
+        assertEquals(1, users.retainedVersions());
+        Session now = q.openSession();
+        assertEquals(List.of(), names(now, "SELECT * FROM users WHERE email='a@x'"));
+        assertEquals(List.of("Anna"), names(now, "SELECT * FROM users WHERE email='z@x'"));
+
+        // the freed keys can be taken again
+        q.execute("INSERT INTO users (id, email, name) VALUES (3, 'a@x', 'Cy')");
+        assertEquals(List.of("Cy"), names(now, "SELECT * FROM users WHERE email='a@x'"));
+    }
+
+    @Test
+    void indexRangeKeepsKeyOrderWhileOldVersionsAreRetained() {
+        q.execute("CREATE TABLE items (id INT PRIMARY KEY, code TEXT)");
+        q.execute("CREATE INDEX items_code ON items (code)");
+        for (int i = 0; i < 200; i++) {
+            q.execute("INSERT INTO items (id, code) VALUES (" + i + ", '" + String.format("c%03d", i) + "')");
+        }
+
+        Session reader = q.openSession();
+        q.execute(reader, "BEGIN");
+        q.execute(reader, "SELECT * FROM items WHERE id=0");
+
+        // the index now holds row 6 under c006 and c0155
+        q.execute("UPDATE items SET code='c0155' WHERE id=6");
+
+        String range = "SELECT * FROM items WHERE code >= 'c005' AND code <= 'c020' ORDER BY code";
+        assertTrue(q.execute("EXPLAIN " + range).toString().contains("INDEX RANGE"));
+
+        Session now = q.openSession();
+        assertEquals(List.of(5, 7, 8, 9, 10, 11, 12, 13, 14, 15, 6, 16, 17, 18, 19, 20), ids(now, range));
+        assertEquals(List.of(5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20), ids(reader, range));
+        q.execute(reader, "COMMIT");
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> ids(Session session, String sql) {
+        return ((List<Row>) q.execute(session, sql)).stream()
+                .map(r -> r.get("id"))
+                .toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> names(Session session, String sql) {
+        return ((List<Row>) q.execute(session, sql)).stream()
+                .map(r -> (String) r.get("name"))
+                .toList();
+    }
+}
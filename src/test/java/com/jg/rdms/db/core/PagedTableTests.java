@@ -0,0 +1,93 @@
+package com.jg.rdms.db.core;
+
+import com.jg.rdms.db.sql.QueryExecutor;
+import com.jg.rdms.db.tx.Snapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PagedTableTests {
+
+    private static final int ROWS = 400;
+
+    @TempDir
+    Path dir;
+
+    private Database db;
+    private QueryExecutor q;
+
+    @BeforeEach
+    void open() {
+        db = TestDatabases.open(dir, options -> options.setBufferPoolPages(8));
+        q = new QueryExecutor(db, db.transactions());
+        q.execute("CREATE TABLE users (id INT PRIMARY KEY, name TEXT)");
+        for (int id = 1; id <= ROWS; id++) {
+            q.execute("INSERT INTO users (id, name) VALUES (" + id + ", 'u" + id + "')");
+        }
+    }
+
+    @AfterEach
+    void close() {
+        db.close();
+    }
+
+    @Test
+    void movedRowsAreScannedOnceWithTheirNewValue() {
+        db.checkpoint();
+
+        // grown rows no longer fit their page: moved, behind a forward pointer
+        String wide = "x".repeat(600);
+        for (int id = 1; id <= ROWS; id += 7) {
+            q.execute("UPDATE users SET name='" + wide + id + "' WHERE id=" + id);
+        }
+        // the other rows become resident again only if written
+        q.execute("UPDATE users SET name='again' WHERE id=2");
+        db.checkpoint();
+
+        PersistentTable users = (PersistentTable) db.table("users");
+        for (List<Row> rows : List.of(users.selectAll(Snapshot.LATEST), drain(users.iterator(Snapshot.LATEST)))) {
+            Map<Object, Object> names = new HashMap<>();
+            for (Row row : rows) {
+                assertNull(names.put(row.get("id"), row.get("name")), "row " + row.get("id") + " twice");
+            }
+
+            assertEquals(ROWS, names.size());
+            assertEquals(wide + 8, names.get(8));
+            assertEquals("again", names.get(2));
+            assertEquals("u3", names.get(3));
+        }
+    }
+
+    @Test
+    void rowsSurviveReopenAfterMoving() {
+        String wide = "y".repeat(600);
+        for (int id = 1; id <= ROWS; id += 3) {
+            q.execute("UPDATE users SET name='" + wide + "' WHERE id=" + id);
+        }
+        q.execute("DELETE FROM users WHERE id=4");
+        db.close();
+
+        db = TestDatabases.open(dir, options -> options.setBufferPoolPages(8));
+        q = new QueryExecutor(db, db.transactions());
+
+        @SuppressWarnings("unchecked")
+        List<Row> rows = (List<Row>) q.execute("SELECT * FROM users");
+        Set<Object> ids = new HashSet<>();
+        rows.forEach(r -> assertTrue(ids.add(r.get("id"))));
+
+        assertEquals(ROWS - 1, ids.size());
+        assertFalse(ids.contains(4));
+    }
+
+    private static List<Row> drain(Iterator<Row> rows) {
+        List<Row> list = new ArrayList<>();
+        rows.forEachRemaining(list::add);
+        return list;
+    }
+}
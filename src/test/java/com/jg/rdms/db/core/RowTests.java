@@ -0,0 +1,93 @@
+package com.jg.rdms.db.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowTests {
+
+    private final RowLayout users = RowLayout.of(List.of("id", "name", "age"));
+
+    @Test
+    void rowIsLaidOutByItsLayoutAndReadsAsAMap() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("name", "Ann");
+        data.put("id", 1);
+        data.put("note", "not declared");
+        data.put("gone", null);
+
+        Row row = Row.of(users, data);
+
+        assertEquals(1, row.value(0));
+        assertEquals("Ann", row.value(1));
+        assertNull(row.value(2));
+
+        // every layout column is a key, NULL ones too; undeclared NULLs are dropped
+        assertEquals(List.of("id", "name", "age", "note"), new ArrayList<>(row.keySet()));
+        assertTrue(row.containsKey("age"));
+        assertFalse(row.containsKey("gone"));
+        assertEquals("not declared", row.get("note"));
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("id", 1);
+        expected.put("name", "Ann");
+        expected.put("age", null);
+        expected.put("note", "not declared");
+        assertEquals(expected, row);
+        assertEquals(expected.hashCode(), row.hashCode());
+
+        assertThrows(UnsupportedOperationException.class, () -> row.put("age", 3));
+        assertSame(row, Row.of(users, row));
+    }
+
+    @Test
+    void withLeavesTheOriginalUntouched() {
+        Row before = Row.of(users, Map.of("id", 1, "name", "Ann", "note", "x"));
+
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("age", 30);
+        changes.put("note", null);
+        Row after = before.with(changes);
+
+        assertSame(users, after.layout());
+        assertEquals(30, after.get("age"));
+        assertFalse(after.containsKey("note"));
+
+        assertNull(before.get("age"));
+        assertEquals("x", before.get("note"));
+    }
+
+    @Test
+    void joinAndProjectWorkByPosition() {
+        RowLayout orders = RowLayout.of(List.of("id", "user_id"));
+        RowLayout joined = RowLayout.join("users", users, "orders", orders);
+
+        Row user = Row.of(users, Map.of("id", 1, "name", "Ann", "extra", "e"));
+        Row order = Row.of(orders, Map.of("id", 9, "user_id", 1));
+
+        Row both = user.join("users", joined, "orders", order);
+        assertEquals(Arrays.asList(1, "Ann", null, 9, 1),
+                Arrays.asList(both.value(0), both.value(1), both.value(2), both.value(3), both.value(4)));
+        assertEquals(9, both.get("orders.id"));
+        assertEquals("e", both.get("users.extra"));
+
+        Row unmatched = user.join("users", joined, "orders", null);
+        assertNull(unmatched.get("orders.id"));
+        assertEquals(joined.size(), unmatched.layout().size());
+
+        RowLayout picked = RowLayout.of(List.of("orders.id", "users.name", "users.extra"));
+        Row projected = both.project(picked, new int[]{3, 1, -1});
+        assertEquals(Map.of("orders.id", 9, "users.name", "Ann", "users.extra", "e"), projected);
+    }
+
+    @Test
+    void layoutRejectsDuplicateColumnsAndAddsAnId() {
+        assertThrows(IllegalArgumentException.class, () -> RowLayout.of(List.of("id", "id")));
+
+        RowLayout noId = RowLayout.forColumns(List.of(new Column("name", DataType.TEXT, false, false, null, null)));
+        assertEquals(List.of("id", "name"), noId.names());
+        assertEquals(-1, noId.position("age"));
+    }
+}
@@ -0,0 +1,104 @@
+package com.jg.rdms.db.core;
+
+import com.jg.rdms.db.sql.QueryExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TableLoadingTests {
+
+    private static final int TABLES = 8;
+    private static final int ROWS = 200;
+
+    @TempDir
+    Path dir;
+
+    private Database db;
+
+    @AfterEach
+    void close() {
+        if (db != null) {
+            db.close();
+        }
+    }
+
+    @Test
+    void tablesLoadedInParallelMatchASerialLoad() {
+        db = open(4);
+        QueryExecutor q = new QueryExecutor(db, db.transactions());
+
+        for (int t = 0; t < TABLES; t++) {
+            q.execute("CREATE TABLE t" + t + " (id INT PRIMARY KEY, code TEXT UNIQUE, grp INT)");
+            q.execute("CREATE INDEX t" + t + "_grp ON t" + t + " (grp)");
+            for (int id = 1; id <= ROWS; id++) {
+                q.execute("INSERT INTO t" + t + " (id, code, grp) VALUES (" + id + ", 'c" + id + "', " + id % 10 + ")");
+            }
+        }
+        db.checkpoint();
+
+        // changes only in the log: each table replays its own share
+        for (int t = 0; t < TABLES; t++) {
+            q.execute("UPDATE t" + t + " SET grp=" + (100 + t) + " WHERE id=" + (t + 1));
+            q.execute("DELETE FROM t" + t + " WHERE id=" + ROWS);
+        }
+        List<String> before = contents(q);
+        db.close();
+
+        db = open(4);
+        List<String> parallel = contents(new QueryExecutor(db, db.transactions()));
+        assertIndexed(new QueryExecutor(db, db.transactions()));
+        db.close();
+
+        db = open(1);
+        List<String> serial = contents(new QueryExecutor(db, db.transactions()));
+
+        assertEquals(before, parallel);
+        assertEquals(before, serial);
+    }
+
+    @Test
+    void oneTableLoadsWithMoreThreadsThanTables() {
+        db = open(16);
+        QueryExecutor q = new QueryExecutor(db, db.transactions());
+        q.execute("CREATE TABLE only (id INT PRIMARY KEY, code TEXT UNIQUE, grp INT)");
+        q.execute("INSERT INTO only (id, code, grp) VALUES (1, 'a', 1)");
+        db.close();
+
+        db = open(16);
+        q = new QueryExecutor(db, db.transactions());
+        assertEquals("[[1, a, 1]]", rows(q, "SELECT * FROM only").toString());
+    }
+
+    private void assertIndexed(QueryExecutor q) {
+        for (int t = 0; t < TABLES; t++) {
+            String plan = q.execute("EXPLAIN SELECT * FROM t" + t + " WHERE grp=" + (100 + t)).toString();
+            assertTrue(plan.contains("INDEX LOOKUP t" + t + ".grp"), plan);
+            assertEquals(1, rows(q, "SELECT * FROM t" + t + " WHERE grp=" + (100 + t)).size());
+        }
+    }
+
+    private static List<String> contents(QueryExecutor q) {
+        List<String> all = new ArrayList<>();
+        for (int t = 0; t < TABLES; t++) {
+            all.add("t" + t + rows(q, "SELECT * FROM t" + t + " ORDER BY id"));
+        }
+        return all;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<List<Object>> rows(QueryExecutor q, String sql) {
+        return ((List<Row>) q.execute(sql)).stream()
+                .map(r -> List.of(r.get("id"), r.get("code"), r.get("grp")))
+                .toList();
+    }
+
+    private Database open(int loadThreads) {
+        return TestDatabases.open(dir, options -> options.setLoadThreads(loadThreads));
+    }
+}
@@ -0,0 +1,30 @@
+package com.jg.rdms.db.core;
+
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Opens databases for tests: files under a temp directory, queries run
+ * serially unless a test asks otherwise.
+ */
+public final class TestDatabases {
+
+    private TestDatabases() {
+    }
+
+    public static Database open(Path dir) {
+        return open(dir, options -> {});
+    }
+
+    /** {@code tune} sets whatever else the test needs on the options. */
+    public static Database open(Path dir, Consumer<DatabaseOptions> tune) {
+        DatabaseOptions options = new DatabaseOptions();
+        options.setDataDir(dir.toString());
+        options.setQueryParallelism(1);
+        tune.accept(options);
+
+        Database db = new Database(options);
+        db.init();
+        return db;
+    }
+}
@@ -0,0 +1,70 @@
+package com.jg.rdms.db.exec;
+
+import com.jg.rdms.db.core.Row;
+import com.jg.rdms.db.core.RowLayout;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExternalSortTests {
+
+    private static final RowLayout LAYOUT = RowLayout.of(List.of("id", "name"));
+    private static final Comparator<Row> BY_ID = Comparator.comparing(r -> (Integer) r.get("id"));
+
+    @TempDir
+    Path spillDir;
+
+    @Test
+    void spilledRunsMergeBackInOrder() throws Exception {
+        List<Row> rows = shuffledRows(20_000);
+
+        // a few rows per run: more runs than one merge pass opens
+        try (ExternalSort sort = new ExternalSort(LAYOUT, BY_ID, 4 * 1024, spillDir, -1)) {
+            rows.forEach(sort::add);
+            assertTrue(sort.spilledRuns() > 64);
+
+            List<Row> sorted = new ArrayList<>();
+            sort.sorted().forEachRemaining(sorted::add);
+
+            assertEquals(rows.size(), sorted.size());
+            for (int i = 0; i < sorted.size(); i++) {
+                assertEquals(i, sorted.get(i).get("id"));
+                assertEquals("user-" + i, sorted.get(i).get("name"));
+            }
+        }
+
+        try (var left = Files.list(spillDir)) {
+            assertEquals(0, left.count(), "run files are deleted on close");
+        }
+    }
+
+    @Test
+    void limitKeepsOnlyTheFirstRows() {
+        try (ExternalSort sort = new ExternalSort(LAYOUT, BY_ID.reversed(), 4 * 1024, spillDir, 5)) {
+            shuffledRows(10_000).forEach(sort::add);
+
+            List<Object> ids = new ArrayList<>();
+            sort.sorted().forEachRemaining(r -> ids.add(r.get("id")));
+
+            assertEquals(List.of(9999, 9998, 9997, 9996, 9995), ids);
+            assertEquals(0, sort.spilledRuns(), "a small top-n stays in memory");
+        }
+    }
+
+    private static List<Row> shuffledRows(int n) {
+        List<Row> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", i);
+            row.put("name", "user-" + i);
+            rows.add(Row.of(LAYOUT, row));
+        }
+        Collections.shuffle(rows, new Random(18));
+        return rows;
+    }
+}
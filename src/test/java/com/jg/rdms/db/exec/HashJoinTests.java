@@ -0,0 +1,86 @@
+package com.jg.rdms.db.exec;
+
+import com.jg.rdms.db.core.Row;
+import com.jg.rdms.db.core.RowLayout;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashJoinTests {
+
+    private static final RowLayout USERS = RowLayout.of(List.of("id", "name"));
+    private static final RowLayout ORDERS = RowLayout.of(List.of("id", "user_id"));
+
+    @TempDir
+    Path spillDir;
+
+    @Test
+    void spilledJoinMatchesInMemoryJoin() throws Exception {
+        Random random = new Random(19);
+        List<Row> users = new ArrayList<>();
+        List<Row> orders = new ArrayList<>();
+
+        for (int id = 1; id <= 3000; id++) {
+            users.add(row(USERS, "id", id, "name", "user-" + id));
+        }
+        for (int id = 1; id <= 6000; id++) {
+            // NULL keys, keys with no user, and one key far bigger than the budget
+            Object userId = id % 50 == 0 ? null : id % 7 == 0 ? 42 : 1 + random.nextInt(3500);
+            orders.add(row(ORDERS, "id", id, "user_id", userId));
+        }
+
+        List<String> inMemory = join(users, orders, Long.MAX_VALUE, 0);
+        List<String> spilled = join(users, orders, 8 * 1024, HashJoin.FAN_OUT);
+
+        assertEquals(inMemory, spilled);
+        assertTrue(inMemory.stream().anyMatch(s -> s.startsWith("build-only")));
+        assertTrue(inMemory.stream().anyMatch(s -> s.startsWith("probe-only")));
+
+        try (var left = Files.list(spillDir)) {
+            assertEquals(0, left.count(), "partition files are deleted");
+        }
+    }
+
+    private List<String> join(List<Row> users, List<Row> orders, long budget, int partitions) {
+        List<String> out = new ArrayList<>();
+
+        HashJoin.Output output = new HashJoin.Output() {
+            @Override
+            public void matched(Row build, Row probe) {
+                out.add("matched " + build.get("id") + " " + probe.get("id"));
+            }
+
+            @Override
+            public void buildOnly(Row build) {
+                out.add("build-only " + build.get("id"));
+            }
+
+            @Override
+            public void probeOnly(Row probe) {
+                out.add("probe-only " + probe.get("id"));
+            }
+        };
+
+        try (HashJoin join = new HashJoin(USERS, "id", ORDERS, "user_id", budget, spillDir, output)) {
+            users.forEach(join::build);
+            orders.forEach(join::probe);
+            join.finish();
+            assertEquals(partitions, join.spilledPartitions());
+        }
+
+        Collections.sort(out);
+        return out;
+    }
+
+    private static Row row(RowLayout layout, String k1, Object v1, String k2, Object v2) {
+        Map<String, Object> values = new HashMap<>();
+        values.put(k1, v1);
+        values.put(k2, v2);
+        return Row.of(layout, values);
+    }
+}
@@ -0,0 +1,160 @@
+package com.jg.rdms.db.exec;
+
+import com.jg.rdms.db.core.Row;
+import com.jg.rdms.db.core.RowLayout;
+import com.jg.rdms.db.index.BPlusTree;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OperatorTests {
+
+    private static final RowLayout USERS = RowLayout.of(List.of("id", "name"));
+    private static final RowLayout ORDERS = RowLayout.of(List.of("id", "user_id"));
+
+    @TempDir
+    Path spillDir;
+
+    @Test
+    void limitStopsPullingItsInput() {
+        List<Row> users = new ArrayList<>();
+        for (int id = 1; id <= 1000; id++) {
+            users.add(row(USERS, "id", id, "name", "user-" + id));
+        }
+
+        int[] pulled = {0};
+        Operator scan = new ScanOperator(() -> users.stream().peek(r -> pulled[0]++).iterator());
+
+        List<Row> first = drain(new LimitOperator(new FilterOperator(scan, r -> (Integer) r.get("id") % 2 == 0, null), 3));
+
+        assertEquals(List.of(2, 4, 6), first.stream().map(r -> r.get("id")).toList());
+        assertEquals(6, pulled[0]);
+    }
+
+    @Test
+    void projectKeepsOnlyTheSelectedColumns() {
+        Map<String, Object> withExtra = new HashMap<>(Map.of("id", 2, "name", "b", "note", "extra"));
+        List<Row> users = List.of(row(USERS, "id", 1, "name", "a"), Row.of(USERS, withExtra));
+
+        RowLayout output = RowLayout.of(List.of("name", "note"));
+        List<Row> projected = drain(new ProjectOperator(scan(users), USERS, output));
+
+        assertEquals(List.of(output, output), projected.stream().map(Row::layout).toList());
+        assertEquals("a", projected.get(0).get("name"));
+        assertNull(projected.get(0).get("note"));
+        assertFalse(projected.get(0).containsKey("id"));
+        assertEquals(Map.of("name", "b", "note", "extra"), new HashMap<>(projected.get(1)));
+    }
+
+    @Test
+    void presortedInputIsStreamedUpToTheLimit() {
+        List<Row> users = new ArrayList<>();
+        for (int id = 1; id <= 1000; id++) {
+            users.add(row(USERS, "id", id, "name", "user-" + id));
+        }
+
+        int[] pulled = {0};
+        Operator scan = new ScanOperator(() -> users.stream().peek(r -> pulled[0]++).iterator());
+
+        List<Row> first = drain(SortOperator.presorted(scan, USERS, byId(), 1024, spillDir, 1));
+
+        assertEquals(List.of(1), first.stream().map(r -> r.get("id")).toList());
+        assertEquals(1, pulled[0]);
+        assertEquals(1000, drain(SortOperator.presorted(scan(users), USERS, byId(), 1024, spillDir, -1)).size());
+    }
+
+    @Test
+    void presortedInputOutOfOrderIsSortedAfterAll() {
+        List<Row> users = new ArrayList<>();
+        for (int id : new int[]{1, 2, 9, 3, 8, 4, 7, 5, 6}) {
+            users.add(row(USERS, "id", id, "name", "user-" + id));
+        }
+
+        List<Row> first = drain(SortOperator.presorted(scan(users), USERS, byId(), 64, spillDir, 4));
+        assertEquals(List.of(1, 2, 3, 4), first.stream().map(r -> r.get("id")).toList());
+
+        // without a limit the rows before the stray one are already out
+        assertThrows(IllegalStateException.class,
+                () -> drain(SortOperator.presorted(scan(users), USERS, byId(), 64, spillDir, -1)));
+    }
+
+    @Test
+    void mergeAndHashJoinAgree() {
+        Random random = new Random(21);
+        List<Row> users = new ArrayList<>();
+        List<Row> orders = new ArrayList<>();
+
+        for (int id = 1; id <= 500; id++) {
+            users.add(row(USERS, "id", id % 40 == 0 ? null : random.nextInt(400), "name", "user-" + id));
+        }
+        for (int id = 1; id <= 2000; id++) {
+            orders.add(row(ORDERS, "id", id, "user_id", id % 30 == 0 ? null : random.nextInt(450)));
+        }
+
+        RowLayout joined = RowLayout.join("users", USERS, "orders", ORDERS);
+
+        for (boolean[] keep : new boolean[][]{{false, false}, {true, false}, {false, true}}) {
+            JoinRows rows = new JoinRows("users", USERS, "orders", joined, keep[0], keep[1]);
+
+            List<String> merged = ids(drain(new MergeJoinOperator(
+                    sorted(users, USERS, "id"), "id",
+                    sorted(orders, ORDERS, "user_id"), "user_id",
+                    rows)));
+
+            List<String> hashed = ids(drain(new HashJoinOperator(
+                    scan(users), "id", USERS,
+                    scan(orders), "user_id", ORDERS,
+                    rows, true, 4 * 1024, spillDir, null)));
+
+            assertEquals(hashed, merged);
+            assertFalse(merged.isEmpty());
+        }
+    }
+
+    private Operator sorted(List<Row> rows, RowLayout layout, String column) {
+        Comparator<Row> order = Comparator.comparing(
+                (Row r) -> r.get(column), Comparator.nullsFirst(BPlusTree::compareKeys));
+        return new SortOperator(scan(rows), layout, order, 2 * 1024, spillDir, -1);
+    }
+
+    private static Comparator<Row> byId() {
+        return Comparator.comparing((Row r) -> (Integer) r.get("id"));
+    }
+
+    private static Operator scan(List<Row> rows) {
+        return new ScanOperator(rows::iterator);
+    }
+
+    private static List<Row> drain(Operator operator) {
+        List<Row> rows = new ArrayList<>();
+        operator.open();
+        try {
+            for (Row row = operator.next(); row != null; row = operator.next()) {
+                rows.add(row);
+            }
+        } finally {
+            operator.close();
+        }
+        return rows;
+    }
+
+    private static List<String> ids(List<Row> rows) {
+        List<String> ids = new ArrayList<>();
+        for (Row row : rows) {
+            ids.add(row.get("users.name") + " " + row.get("orders.id"));
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private static Row row(RowLayout layout, String k1, Object v1, String k2, Object v2) {
+        Map<String, Object> values = new HashMap<>();
+        values.put(k1, v1);
+        values.put(k2, v2);
+        return Row.of(layout, values);
+    }
+}
@@ -0,0 +1,96 @@
+package com.jg.rdms.db.exec;
+
+import com.jg.rdms.db.core.Row;
+import com.jg.rdms.db.core.RowLayout;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelHashJoinTests {
+
+    private static final RowLayout LAYOUT = RowLayout.of(List.of("id", "key"));
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @TempDir
+    Path spillDir;
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void parallelJoinMatchesSerialJoin() {
+        Random random = new Random(20);
+        List<Row> build = rows(random, 20_000, 15_000);
+        List<Row> probe = rows(random, 50_000, 20_000);
+
+        List<String> serial = Collections.synchronizedList(new ArrayList<>());
+        try (HashJoin join = new HashJoin(LAYOUT, "key", LAYOUT, "key", Long.MAX_VALUE, spillDir, collect(serial))) {
+            build.forEach(join::build);
+            probe.forEach(join::probe);
+            join.finish();
+        }
+
+        List<String> parallel = Collections.synchronizedList(new ArrayList<>());
+        assertTrue(ParallelHashJoin.run(pool, build.spliterator(), "key", probe.spliterator(), "key",
+                Long.MAX_VALUE, collect(parallel)));
+
+        Collections.sort(serial);
+        Collections.sort(parallel);
+        assertEquals(serial, parallel);
+
+        List<String> none = new ArrayList<>();
+        assertFalse(ParallelHashJoin.run(pool, build.spliterator(), "key", probe.spliterator(), "key",
+                64 * 1024, collect(none)), "build side over budget");
+        assertTrue(none.isEmpty());
+    }
+
+    @Test
+    void parallelFilterKeepsInputOrder() {
+        List<Row> rows = rows(new Random(20), 100_000, 1000);
+
+        List<Row> expected = rows.stream().filter(r -> r.get("key") != null && (Integer) r.get("key") < 100).toList();
+        List<Row> filtered = ParallelScan.filter(pool, rows.spliterator(),
+                r -> r.get("key") != null && (Integer) r.get("key") < 100);
+
+        assertEquals(expected, filtered);
+    }
+
+    private static List<Row> rows(Random random, int n, int keys) {
+        List<Row> rows = new ArrayList<>(n);
+        for (int id = 0; id < n; id++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", id);
+            row.put("key", random.nextInt(40) == 0 ? null : random.nextInt(keys));
+            rows.add(Row.of(LAYOUT, row));
+        }
+        return rows;
+    }
+
+    private static HashJoin.Output collect(List<String> out) {
+        return new HashJoin.Output() {
+            @Override
+            public void matched(Row build, Row probe) {
+                out.add("matched " + build.get("id") + " " + probe.get("id"));
+            }
+
+            @Override
+            public void buildOnly(Row build) {
+                out.add("build-only " + build.get("id"));
+            }
+
+            @Override
+            public void probeOnly(Row probe) {
+                out.add("probe-only " + probe.get("id"));
+            }
+        };
+    }
+}
@@ -0,0 +1,54 @@
+package com.jg.rdms.db.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BPlusTreeTests {
+
+    @Test
+    void duplicatesAndRangesAcrossManySplits() {
+        BPlusTree<Integer> tree = new BPlusTree<>();
+
+        // value v stored under key v % 1000, inserted out of order
+        for (int i = 0; i < 10_000; i++) {
+            int v = (i * 7919) % 10_000;
+            tree.insert(v % 1000, v);
+        }
+
+        assertEquals(10_000, tree.size());
+        assertEquals(10, tree.get(123).size());
+        assertTrue(tree.get(123).contains(5123));
+        assertEquals(List.of(), tree.get(1000));
+
+        List<Integer> keys = new ArrayList<>();
+        tree.range(10, false, 13, true, v -> keys.add(v % 1000));
+
+        assertEquals(30, keys.size());
+        assertEquals(11, keys.get(0));
+        assertEquals(13, keys.get(keys.size() - 1));
+    }
+
+    @Test
+    void removeDropsOnlyTheGivenValue() {
+        BPlusTree<String> tree = new BPlusTree<>();
+        tree.insert("bob", "r1");
+        tree.insert("bob", "r2");
+        tree.insert("jane", "r3");
+        tree.insert(null, "r4");
+
+        assertTrue(tree.remove("bob", "r1"));
+        assertFalse(tree.remove("bob", "r1"));
+        assertEquals(List.of("r2"), tree.get("bob"));
+
+        assertTrue(tree.remove("bob", "r2"));
+        List<String> all = new ArrayList<>();
+        tree.range(null, true, null, true, all::add);
+
+        assertEquals(List.of("r3"), all);
+        assertEquals(1, tree.size());
+    }
+}
@@ -0,0 +1,63 @@
+package com.jg.rdms.db.sql;
+
+import com.jg.rdms.db.core.Row;
+import com.jg.rdms.db.core.RowLayout;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConditionsTests {
+
+    private static final RowLayout LAYOUT = RowLayout.of(List.of("id", "name", "age"));
+
+    @Test
+    void compiledTermsAgreeWithInterpretedOnes() {
+        List<Row> rows = new ArrayList<>();
+        String[] names = {"Jane", "john", "Ann_e", "", null};
+        for (int i = 0; i < 40; i++) {
+            Map<String, Object> values = new HashMap<>();
+            values.put("id", i);
+            values.put("name", names[i % names.length]);
+            values.put("age", i % 7 == 0 ? null : i % 50);
+            rows.add(Row.of(LAYOUT, values));
+        }
+
+        List<String> wheres = List.of(
+                "age < 20", "age <> 13", "name >= 'J'", "age = 'x'",
+                "age BETWEEN 10 AND 20", "age NOT BETWEEN 10 AND 20",
+                "id IN (1, 5, 9, 5)", "id NOT IN (1, 2)", "id NOT IN (1, 'a')", "name IN ('Jane', 3)",
+                "age IS NULL", "name IS NOT NULL",
+                "name LIKE 'J%'", "name LIKE '%n'", "name LIKE '%nn%'", "name LIKE 'Ann_e'",
+                "name LIKE 'A_n%e'", "name NOT LIKE '%o%'",
+                "NOT (age > 10 AND name = 'Jane') OR id = 3",
+                "(age < 5 OR age > 40) AND NOT name LIKE 'j%'"
+        );
+
+        for (String where : wheres) {
+            List<Condition> terms = SqlParser.parseSelect("SELECT * FROM t WHERE " + where).where();
+            Predicate<Row> compiled = Conditions.compile(terms, LAYOUT);
+
+            for (Row row : rows) {
+                boolean expected = terms.stream().allMatch(c -> c.test(row));
+                assertEquals(expected, compiled.test(row), where + " on " + row);
+            }
+        }
+    }
+
+    @Test
+    void negationStaysFalseOnNull() {
+        Row row = Row.of(LAYOUT, Map.of("id", 1));
+        Condition lessThan = new Comparison("age", Comparison.Op.LT, 5);
+
+        assertFalse(lessThan.test(row));
+        assertFalse(lessThan.negate().test(row));
+        assertFalse(Conditions.compile(List.of(lessThan.negate()), LAYOUT).test(row));
+        assertTrue(Conditions.compile(List.of(new Condition.IsNull("age", false)), LAYOUT).test(row));
+    }
+}
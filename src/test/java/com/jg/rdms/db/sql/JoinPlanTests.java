@@ -0,0 +1,147 @@
+package com.jg.rdms.db.sql;
+
+import com.jg.rdms.db.core.Database;
+import com.jg.rdms.db.core.Row;
+import com.jg.rdms.db.core.TestDatabases;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JoinPlanTests {
+
+    @TempDir
+    Path dir;
+
+    private Database db;
+    private QueryExecutor q;
+
+    @BeforeEach
+    void open() {
+        db = TestDatabases.open(dir);
+
+        q = new QueryExecutor(db, db.transactions());
+        q.execute("CREATE TABLE users (id INT PRIMARY KEY, name TEXT, age INT)");
+        q.execute("CREATE TABLE orders (id INT PRIMARY KEY, user_id INT, total INT)");
+        q.execute("CREATE INDEX orders_user ON orders (user_id)");
+
+        for (int id = 1; id <= 300; id++) {
+            q.execute("INSERT INTO users (id, name, age) VALUES (" + id + ", 'user-" + id + "', " + (id % 50) + ")");
+        }
+        // users above 290 have no orders
+        for (int id = 1; id <= 3000; id++) {
+            q.execute("INSERT INTO orders (id, user_id, total) VALUES (" + id + ", " + (id % 290 + 1) + ", " + (id % 97) + ")");
+        }
+    }
+
+    @AfterEach
+    void close() {
+        db.close();
+    }
+
+    @Test
+    void keyLookupOnOneSideDrivesTheJoin() {
+        String sql = "SELECT * FROM users JOIN orders ON users.id = orders.user_id WHERE users.id = 7";
+        String plan = plan("EXPLAIN " + sql);
+
+        assertTrue(plan.contains("INDEX NESTED LOOP"), plan);
+        assertTrue(plan.contains("UNIQUE LOOKUP users.id = 7"), plan);
+        assertFalse(plan.contains("FULL SCAN users"), plan);
+
+        List<Row> rows = rows(sql);
+        assertFalse(rows.isEmpty());
+        assertTrue(rows.size() < 20, "estimated and actual rows stay small");
+        rows.forEach(r -> assertEquals(7, r.get("orders.user_id")));
+    }
+
+    @Test
+    void pushedTermsGiveTheSameRowsAsFilteringTheJoin() {
+        List<Row> users = rows("SELECT * FROM users");
+        List<Row> orders = rows("SELECT * FROM orders");
+
+        assertEquals(expected(users, orders, (u, o) -> (Integer) u.get("age") < 3 && (Integer) o.get("total") > 90),
+                ids(rows("SELECT * FROM users JOIN orders ON users.id = orders.user_id"
+                        + " WHERE users.age < 3 AND orders.total > 90")));
+
+        // an OR across both tables stays above the join
+        assertEquals(expected(users, orders, (u, o) -> (Integer) u.get("age") < 10
+                        && (Integer) o.get("total") > 90
+                        && ((Integer) u.get("age") < 1 || (Integer) o.get("total") > 95)),
+                ids(rows("SELECT * FROM users JOIN orders ON users.id = orders.user_id"
+                        + " WHERE age < 10 AND orders.total > 90 AND (users.age < 1 OR total > 95)")));
+
+        // no index on either join column: a hash or sort-merge join of the filtered sides
+        String unindexed = "SELECT * FROM users JOIN orders ON users.age = orders.total"
+                + " WHERE users.id < 40 AND orders.id > 2900";
+        assertFalse(plan("EXPLAIN " + unindexed).contains("INDEX NESTED LOOP"));
+
+        List<String> expected = new ArrayList<>();
+        for (Row u : users) {
+            for (Row o : orders) {
+                if (u.get("age").equals(o.get("total")) && (Integer) u.get("id") < 40 && (Integer) o.get("id") > 2900) {
+                    expected.add(u.get("id") + "/" + o.get("id"));
+                }
+            }
+        }
+        expected.sort(null);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, ids(rows(unindexed)));
+    }
+
+    @Test
+    void termsOnTheNullExtendedSideStayAboveAnOuterJoin() {
+        // only the users without orders: the right side's term must see the NULLs
+        List<Row> lonely = rows("SELECT * FROM users LEFT JOIN orders ON users.id = orders.user_id"
+                + " WHERE orders.id IS NULL AND users.age >= 41");
+
+        List<Object> ids = new ArrayList<>();
+        lonely.forEach(r -> ids.add(r.get("users.id")));
+        assertEquals(List.of(291, 292, 293, 294, 295, 296, 297, 298, 299), ids.stream().sorted().toList());
+
+        String plan = plan("EXPLAIN SELECT * FROM users LEFT JOIN orders ON users.id = orders.user_id"
+                + " WHERE orders.id IS NULL AND users.age >= 41");
+        assertTrue(plan.contains("FILTER orders.id IS NULL"), plan);
+        assertTrue(plan.contains("FILTER users.age >= 41"), plan);
+    }
+
+    private interface Match {
+        boolean test(Row user, Row order);
+    }
+
+    private static List<String> expected(List<Row> users, List<Row> orders, Match where) {
+        List<String> ids = new ArrayList<>();
+        for (Row u : users) {
+            for (Row o : orders) {
+                if (u.get("id").equals(o.get("user_id")) && where.test(u, o)) {
+                    ids.add(u.get("id") + "/" + o.get("id"));
+                }
+            }
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    private static List<String> ids(List<Row> rows) {
+        List<String> ids = new ArrayList<>();
+        rows.forEach(r -> ids.add(r.get("users.id") + "/" + r.get("orders.id")));
+        ids.sort(null);
+        return ids;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Row> rows(String sql) {
+        return (List<Row>) q.execute(sql);
+    }
+
+    private String plan(String sql) {
+        StringBuilder plan = new StringBuilder();
+        rows(sql).forEach(r -> plan.append(r.get("plan")).append(" rows=").append(r.get("rows")).append('\n'));
+        return plan.toString();
+    }
+}
@@ -0,0 +1,86 @@
+package com.jg.rdms.db.sql;
+
+import com.jg.rdms.db.core.Database;
+import com.jg.rdms.db.core.Row;
+import com.jg.rdms.db.core.Table;
+import com.jg.rdms.db.core.TestDatabases;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelSelectTests {
+
+    private static final int ROWS = 6_000;
+
+    @TempDir
+    Path dir;
+
+    private Database db;
+    private QueryExecutor q;
+
+    @BeforeEach
+    void open() {
+        db = TestDatabases.open(dir, options -> {
+            options.setQueryParallelism(4);
+            options.setParallelThreshold(1_000);
+        });
+
+        q = new QueryExecutor(db, db.transactions());
+        q.execute("CREATE TABLE items (id INT PRIMARY KEY, grp INT)");
+        for (int id = 1; id <= ROWS; id++) {
+            q.execute("INSERT INTO items (id, grp) VALUES (" + id + ", " + id % 7 + ")");
+        }
+    }
+
+    @AfterEach
+    void close() {
+        db.close();
+    }
+
+    @Test
+    void fullScansSplitAcrossChunksOfTheTable() {
+        Session reader = q.openSession();
+        q.execute(reader, "BEGIN");
+        q.execute(reader, "SELECT * FROM items WHERE id=1");
+        q.execute("DELETE FROM items WHERE id=7");
+
+        Spliterator<Row> rows = db.table("items").splitScan(reader.transaction().snapshot).orElseThrow();
+        Spliterator<Row> front = rows.trySplit();
+        assertNotNull(front);
+
+        // the parts are disjoint, in id order, and what the snapshot sees
+        List<Object> ids = new ArrayList<>();
+        front.forEachRemaining(r -> ids.add(r.get("id")));
+        rows.forEachRemaining(r -> ids.add(r.get("id")));
+        assertEquals(IntStream.rangeClosed(1, ROWS).boxed().toList(), ids);
+        q.execute(reader, "COMMIT");
+    }
+
+    @Test
+    void parallelFilteredScanKeepsIdOrder() {
+        List<Object> expected = IntStream.rangeClosed(1, ROWS)
+                .filter(id -> id % 7 == 3)
+                .boxed()
+                .map(Object.class::cast)
+                .toList();
+
+        assertEquals(expected, ids("SELECT * FROM items WHERE grp=3"));
+        assertEquals(expected, ids("SELECT * FROM items WHERE grp=3 ORDER BY id"));
+        assertEquals(expected.subList(0, 5), ids("SELECT * FROM items WHERE grp=3 ORDER BY id LIMIT 5"));
+        assertEquals(expected.subList(0, 5), ids("SELECT * FROM items WHERE grp=3 LIMIT 5"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> ids(String sql) {
+        return ((List<Row>) q.execute(sql)).stream().map(r -> r.get("id")).toList();
+    }
+}
@@ -0,0 +1,91 @@
+package com.jg.rdms.db.sql;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Times {@link SqlParser} against the regex parser it replaced
+ * ({@link RegexSqlParser}) over a few statement shapes. Not a test: run it
+ * on a warm, otherwise idle JVM after {@code mvn test-compile}:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes com.jg.rdms.db.sql.ParserBenchmark [iterations]
+ * </pre>
+ *
+ * Each shape is first checked to give the same command from both parsers,
+ * then parsed {@code iterations} times (default 100 000) by each, after as
+ * many warm-up rounds. Prints the mean time per statement.
+ */
+public final class ParserBenchmark {
+
+    private record Shape(
+            String name,
+            String sql,
+            Function<String, Object> current,
+            Function<String, Object> baseline
+    ) {
+    }
+
+    private static final List<Shape> SHAPES = List.of(
+            new Shape("point select",
+                    "SELECT * FROM users WHERE id = 42",
+                    SqlParser::parseSelect, RegexSqlParser::parseSelect),
+            new Shape("select, order, limit",
+                    "SELECT * FROM users WHERE age >= 18 AND city = 'Nairobi' ORDER BY name DESC LIMIT 10",
+                    SqlParser::parseSelect, RegexSqlParser::parseSelect),
+            new Shape("insert",
+                    "INSERT INTO users (id, name, age, city) VALUES (7, 'Jane', 30, 'Mombasa')",
+                    SqlParser::parseInsert, RegexSqlParser::parseInsert),
+            new Shape("update",
+                    "UPDATE users SET name = 'Ann', age = 31 WHERE id = 7",
+                    SqlParser::parseUpdate, RegexSqlParser::parseUpdate),
+            new Shape("delete",
+                    "DELETE FROM users WHERE id = 7 AND age < 18",
+                    SqlParser::parseDelete, RegexSqlParser::parseDelete),
+            new Shape("join, where, order, limit",
+                    "SELECT * FROM users JOIN orders ON users.id = orders.user_id "
+                            + "WHERE orders.total > 100 ORDER BY orders.total DESC LIMIT 5",
+                    SqlParser::parseJoin, RegexSqlParser::parseJoin)
+    );
+
+    private static int sink;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        checkAgreement();
+
+        System.out.printf("%-28s %12s %12s %8s%n", "statement", "regex ns", "current ns", "speedup");
+        for (Shape shape : SHAPES) {
+            time(shape.baseline(), shape.sql(), iterations);
+            time(shape.current(), shape.sql(), iterations);
+
+            double baseline = time(shape.baseline(), shape.sql(), iterations);
+            double current = time(shape.current(), shape.sql(), iterations);
+
+            System.out.printf("%-28s %12.0f %12.0f %7.1fx%n",
+                    shape.name(), baseline, current, baseline / current);
+        }
+        System.out.println("(" + iterations + " iterations, checksum " + sink + ")");
+    }
+
+    /** Fails unless both parsers build the same command for every shape. */
+    static void checkAgreement() {
+        for (Shape shape : SHAPES) {
+            Object current = shape.current().apply(shape.sql());
+            Object baseline = shape.baseline().apply(shape.sql());
+            if (!current.equals(baseline)) {
+                throw new IllegalStateException(
+                        "Parsers disagree on " + shape.name() + ":\n  " + current + "\n  " + baseline);
+            }
+        }
+    }
+
+    /** Mean nanoseconds per parse. */
+    private static double time(Function<String, Object> parser, String sql, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += parser.apply(sql).hashCode();
+        }
+        return (double) (System.nanoTime() - start) / iterations;
+    }
+}
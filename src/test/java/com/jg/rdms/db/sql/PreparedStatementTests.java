@@ -0,0 +1,49 @@
+package com.jg.rdms.db.sql;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PreparedStatementTests {
+
+    @Test
+    void boundValuesAreNeverReadAsSql() {
+        PreparedStatement update = prepare("UPDATE users SET name=? WHERE id=? AND name='who?'");
+        assertEquals(2, update.parameterCount());
+
+        UpdateCommand cmd = (UpdateCommand) update.bind("x' WHERE 1=1 --", 7).command();
+
+        assertEquals("x' WHERE 1=1 --", cmd.setValues().get("name"));
+        assertEquals(List.of(
+                new Comparison("id", Comparison.Op.EQ, 7),
+                new Comparison("name", Comparison.Op.EQ, "who?")
+        ), cmd.where());
+
+        assertThrows(IllegalArgumentException.class, () -> update.bind("only one"));
+        assertThrows(IllegalArgumentException.class, () -> update.bind("x", 7L));
+    }
+
+    @Test
+    void cacheDropsLeastRecentlyUsed() {
+        StatementCache cache = new StatementCache(2);
+        int[] parsed = {0};
+
+        for (String sql : List.of("SELECT * FROM a", "SELECT * FROM b", "SELECT * FROM a", "SELECT * FROM c", "SELECT * FROM a")) {
+            cache.get(sql, text -> {
+                parsed[0]++;
+                return prepare(text);
+            });
+        }
+
+        assertEquals(3, parsed[0], "a stays cached, b is dropped for c");
+        assertEquals(2, cache.size());
+    }
+
+    private static PreparedStatement prepare(String sql) {
+        SqlParser parser = new SqlParser(sql);
+        Object command = parser.statement();
+        return new PreparedStatement(SqlParser.normalize(sql), command, parser.parameterCount());
+    }
+}
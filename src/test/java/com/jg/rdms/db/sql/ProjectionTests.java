@@ -0,0 +1,100 @@
+package com.jg.rdms.db.sql;
+
+import com.jg.rdms.db.core.Database;
+import com.jg.rdms.db.core.Row;
+import com.jg.rdms.db.core.TestDatabases;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProjectionTests {
+
+    @TempDir
+    Path dir;
+
+    private Database db;
+    private QueryExecutor q;
+
+    @BeforeEach
+    void open() {
+        db = TestDatabases.open(dir);
+
+        q = new QueryExecutor(db, db.transactions());
+        q.execute("CREATE TABLE users (id INT PRIMARY KEY, name TEXT)");
+        q.execute("CREATE TABLE orders (id INT PRIMARY KEY, user_id INT, total INT)");
+        q.execute("INSERT INTO users (id, name) VALUES (1, 'Ann')");
+        q.execute("INSERT INTO orders (id, user_id, total) VALUES (10, 1, 99)");
+    }
+
+    @AfterEach
+    void close() {
+        db.close();
+    }
+
+    @Test
+    void selectListKeepsOnlyItsColumns() {
+        assertEquals(List.of(Map.of("name", "Ann")), rows("SELECT name FROM users WHERE id=1 ORDER BY id"));
+        assertEquals(List.of(Map.of("users.name", "Ann", "total", 99)),
+                rows("SELECT users.name, total FROM users JOIN orders ON users.id = orders.user_id"));
+    }
+
+    @Test
+    void unknownColumnInTheSelectListIsAnError() {
+        for (String sql : List.of(
+                "SELECT nme FROM users",
+                "SELECT id, nme FROM users WHERE id=1 ORDER BY id",
+                "SELECT users.nme FROM users JOIN orders ON users.id = orders.user_id",
+                "SELECT orders.name FROM users JOIN orders ON users.id = orders.user_id",
+                "EXPLAIN SELECT nme FROM users")) {
+
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> q.execute(sql), sql);
+            assertTrue(e.getMessage().startsWith("Unknown column: "), e.getMessage());
+        }
+    }
+
+    @Test
+    void unknownColumnAnywhereElseIsAnErrorToo() {
+        for (String sql : List.of(
+                "SELECT * FROM users WHERE nosuch = 1",
+                "SELECT name FROM users WHERE id = 1 OR nosuch IS NULL",
+                "SELECT * FROM users ORDER BY nosuch",
+                "SELECT * FROM users JOIN orders ON users.id = orders.user_id WHERE orders.nosuch > 1",
+                "SELECT * FROM users JOIN orders ON users.id = orders.user_id ORDER BY nosuch",
+                "EXPLAIN SELECT * FROM users WHERE nosuch = 1",
+                "UPDATE users SET name='Anna' WHERE nosuch = 1",
+                "UPDATE users SET nosuch=31 WHERE id = 1",
+                "DELETE FROM users WHERE nosuch = 1")) {
+
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> q.execute(sql), sql);
+            assertEquals("Unknown column: " + (sql.contains("orders.nosuch") ? "orders.nosuch" : "nosuch"),
+                    e.getMessage(), sql);
+        }
+        assertEquals(List.of(Map.of("id", 1, "name", "Ann")), rows("SELECT * FROM users"));
+    }
+
+    @Test
+    void writingToAMissingTableIsAnError() {
+        for (String sql : List.of(
+                "UPDATE nosuch SET name='Anna' WHERE id = 1",
+                "DELETE FROM nosuch WHERE id = 1")) {
+
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> q.execute(sql), sql);
+            assertEquals("Table does not exist: nosuch", e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> rows(String sql) {
+        return ((List<Row>) q.execute(sql)).stream()
+                .map(r -> (Map<String, Object>) new HashMap<String, Object>(r))
+                .toList();
+    }
+}
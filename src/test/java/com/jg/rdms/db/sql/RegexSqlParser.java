@@ -0,0 +1,523 @@
+package com.jg.rdms.db.sql;
+
+import com.jg.rdms.db.core.Column;
+import com.jg.rdms.db.core.DataType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The regex-based parser {@link SqlParser} replaced, kept as the baseline
+ * of {@link ParserBenchmark}. Taken from the tree before the switch, with
+ * only the command records it builds brought up to date (an empty select
+ * list, conditions typed as {@link Condition}).
+ */
+final class RegexSqlParser {
+
+    // column, operator, literal ("<=" and ">=" before "<" and ">")
+    private static final Pattern CONDITION =
+            Pattern.compile("([\\w.]+)\\s*(<=|>=|<|>|=)\\s*(.+)");
+
+    // BEGIN [TRANSACTION] | START TRANSACTION | COMMIT [WORK] | ROLLBACK [WORK]
+    private static final Pattern TRANSACTION =
+            Pattern.compile(
+                    "(BEGIN|START(?= TRANSACTION)|COMMIT|ROLLBACK)(?: (?:TRANSACTION|WORK))?",
+                    Pattern.CASE_INSENSITIVE
+            );
+
+    // statement [ORDER BY col [ASC|DESC], ...] [LIMIT n]
+    private static final Pattern ORDER_AND_LIMIT =
+            Pattern.compile(
+                    "(.*?)(?: ORDER BY (.+?))?(?: LIMIT (\\d+))?",
+                    Pattern.CASE_INSENSITIVE
+            );
+
+    private static final Pattern SORT_KEY =
+            Pattern.compile("([\\w.]+)(?: (ASC|DESC))?", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern CREATE_INDEX =
+            Pattern.compile(
+                    "CREATE INDEX (\\w+) ON (\\w+) ?\\( ?(\\w+) ?\\)",
+                    Pattern.CASE_INSENSITIVE
+            );
+
+    /* =========================
+       ENTRY POINTS
+       ========================= */
+
+    public static CreateTableCommand parseCreateTable(String sql) {
+
+        sql = normalize(sql);
+        String upper = sql.toUpperCase();
+
+        if (!upper.startsWith("CREATE TABLE")) {
+            throw new IllegalArgumentException("Not a CREATE TABLE statement");
+        }
+
+        String tableName = extractTableName(sql);
+
+        String columnBlock = extractColumnBlock(sql);
+
+        List<Column> columns = parseColumns(columnBlock);
+
+        return new CreateTableCommand(tableName, columns);
+    }
+
+    /** BEGIN, COMMIT or ROLLBACK, or null if {@code sql} is none of them. */
+    public static TransactionCommand parseTransactionCommand(String sql) {
+
+        Matcher m = TRANSACTION.matcher(normalize(sql));
+
+        if (!m.matches()) {
+            return null;
+        }
+
+        return switch (m.group(1).toUpperCase()) {
+            case "BEGIN", "START" -> TransactionCommand.BEGIN;
+            case "COMMIT" -> TransactionCommand.COMMIT;
+            default -> TransactionCommand.ROLLBACK;
+        };
+    }
+
+    public static CreateIndexCommand parseCreateIndex(String sql) {
+
+        sql = normalize(sql);
+
+        // CREATE INDEX idx_users_name ON users(name)
+        Matcher m = CREATE_INDEX.matcher(sql);
+
+        if (!m.matches()) {
+            throw new IllegalArgumentException(
+                    "Invalid CREATE INDEX syntax, expected: CREATE INDEX name ON table(column)"
+            );
+        }
+
+        return new CreateIndexCommand(m.group(1), m.group(2), m.group(3));
+    }
+
+    public static UpdateCommand parseUpdate(String sql) {
+
+        // Normalize
+        sql = sql.trim().replaceAll("\\s+", " ");
+
+        // UPDATE users SET name='Bob' WHERE id=1 AND name='Jane'
+        String upper = sql.toUpperCase();
+
+        if (!upper.startsWith("UPDATE")) {
+            throw new IllegalArgumentException("Not an UPDATE statement");
+        }
+
+        String table =
+                sql.split(" ")[1];
+
+        String setPart =
+                sql.substring(
+                        upper.indexOf("SET") + 3,
+                        upper.contains("WHERE")
+                                ? upper.indexOf("WHERE")
+                                : sql.length()
+                ).trim();
+
+        String wherePart =
+                upper.contains("WHERE")
+                        ? sql.substring(upper.indexOf("WHERE") + 5).trim()
+                        : "";
+
+        Map<String, Object> setValues =
+                parseAssignments(setPart);
+
+        List<Condition> where =
+                wherePart.isEmpty()
+                        ? List.of()
+                        : parseConditions(wherePart);
+
+        return new UpdateCommand(
+                table,
+                setValues,
+                where
+        );
+    }
+
+        /* -------------------------
+       Helpers
+       ------------------------- */
+
+    private static Map<String, Object> parseAssignments(String input) {
+        Map<String, Object> result = new HashMap<>();
+
+        // name='Bob', age=10
+        for (String part : input.split(",")) {
+            String[] kv = part.split("=");
+            result.put(
+                    kv[0].trim(),
+                    parseValue(kv[1].trim())
+            );
+        }
+        return result;
+    }
+
+    private static List<Condition> parseConditions(String input) {
+        List<Condition> result = new ArrayList<>();
+
+        // id=1 AND name='Jane' AND age >= 18
+        for (String part : input.split("(?i)\\s+AND\\s+")) {
+            Matcher m = CONDITION.matcher(part.trim());
+
+            if (!m.matches()) {
+                throw new IllegalArgumentException(
+                        "Invalid condition: " + part.trim()
+                );
+            }
+
+            result.add(new Comparison(
+                    m.group(1),
+                    Comparison.Op.of(m.group(2)),
+                    parseValue(m.group(3))
+            ));
+        }
+        return result;
+    }
+
+    private static Object parseValue(String raw) {
+        raw = raw.trim();
+
+        // ?1, ?2, ... (see numberParameters)
+        if (raw.startsWith("?")) {
+            return new Parameter(Integer.parseInt(raw.substring(1)) - 1);
+        }
+
+        if (raw.startsWith("'") && raw.endsWith("'")) {
+            return raw.substring(1, raw.length() - 1);
+        }
+
+        return Integer.valueOf(raw);
+    }
+
+    /* =========================
+       CREATE TABLE helpers
+       ========================= */
+
+    private static String extractTableName(String sql) {
+        // CREATE TABLE users (...
+        return sql.split(" ")[2];
+    }
+
+    private static String extractColumnBlock(String sql) {
+        int start = sql.indexOf('(');
+        int end = sql.lastIndexOf(')');
+
+        if (start == -1 || end == -1 || end <= start) {
+            throw new IllegalArgumentException(
+                    "Invalid CREATE TABLE syntax: missing column definition block"
+            );
+        }
+
+        return sql.substring(start + 1, end).trim();
+    }
+    private static List<Column> parseColumns(String block) {
+
+        List<Column> columns = new ArrayList<>();
+
+        for (String rawCol : block.split(",")) {
+
+            String colDef = rawCol.trim();
+            String upper = colDef.toUpperCase();
+
+            String[] parts = colDef.split("\\s+");
+
+            if (parts.length < 2) {
+                throw new IllegalArgumentException(
+                        "Invalid column definition: " + colDef
+                );
+            }
+
+            String name = parts[0];
+            DataType type = DataType.valueOf(parts[1]);
+
+            boolean primary = upper.contains("PRIMARY KEY");
+            boolean unique  = upper.contains("UNIQUE");
+
+            String refTable = null;
+            String refColumn = null;
+
+            if (upper.contains("REFERENCES")) {
+                int idx = upper.indexOf("REFERENCES") + "REFERENCES".length();
+                String ref = colDef.substring(idx).trim();
+
+                // users(id)
+                int open = ref.indexOf('(');
+                int close = ref.indexOf(')');
+
+                refTable = ref.substring(0, open).trim();
+                refColumn = ref.substring(open + 1, close).trim();
+            }
+
+            columns.add(new Column(
+                    name,
+                    type,
+                    primary,
+                    unique,
+                    refTable,
+                    refColumn
+            ));
+        }
+
+        return columns;
+    }
+
+    /* =========================
+       ORDER BY / LIMIT
+       ========================= */
+
+    private record Tail(String statement, List<SortKey> orderBy, Integer limit) {
+    }
+
+    /** Splits a trailing ORDER BY and LIMIT off a (normalized) query. */
+    private static Tail splitTail(String sql) {
+        Matcher m = ORDER_AND_LIMIT.matcher(sql);
+        if (!m.matches()) {
+            return new Tail(sql, List.of(), null);
+        }
+
+        List<SortKey> orderBy = new ArrayList<>();
+        if (m.group(2) != null) {
+            // name ASC, age DESC
+            for (String part : m.group(2).split(",")) {
+                Matcher key = SORT_KEY.matcher(part.trim());
+
+                if (!key.matches()) {
+                    throw new IllegalArgumentException(
+                            "Invalid ORDER BY term: " + part.trim()
+                    );
+                }
+                orderBy.add(new SortKey(
+                        key.group(1),
+                        "DESC".equalsIgnoreCase(key.group(2))
+                ));
+            }
+        }
+
+        Integer limit = m.group(3) == null ? null : Integer.valueOf(m.group(3));
+        return new Tail(m.group(1), orderBy, limit);
+    }
+
+    /* =========================
+       Shared helpers
+       ========================= */
+
+    static String normalize(String sql) {
+        return sql
+                .trim()
+                .replaceAll("\\s+", " ")
+                .replaceAll(";+$", "");
+    }
+
+    /** Statement text with its {@code ?} placeholders numbered. */
+    record Placeholders(String sql, int count) {
+    }
+
+    /**
+     * Numbers each {@code ?} outside a string literal: {@code ?1},
+     * {@code ?2}, ..., which the parsers read as a {@link Parameter}.
+     */
+    static Placeholders numberParameters(String sql) {
+        StringBuilder out = new StringBuilder(sql.length() + 8);
+        boolean quoted = false;
+        int count = 0;
+
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            out.append(c);
+
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (c == '?' && !quoted) {
+                out.append(++count);
+            }
+        }
+        return new Placeholders(count == 0 ? sql : out.toString(), count);
+    }
+
+    public static DeleteCommand parseDelete(String sql) {
+
+        sql = normalize(sql);
+        String upper = sql.toUpperCase();
+
+        if (!upper.startsWith("DELETE FROM")) {
+            throw new IllegalArgumentException("Not a DELETE statement");
+        }
+
+        // DELETE FROM users WHERE id=1 AND name='Bob'
+        String table =
+                sql.split(" ")[2];
+
+        String wherePart =
+                upper.contains("WHERE")
+                        ? sql.substring(upper.indexOf("WHERE") + 5).trim()
+                        : "";
+
+        List<Condition> where =
+                wherePart.isEmpty()
+                        ? List.of()
+                        : parseConditions(wherePart);
+
+        return new DeleteCommand(table, where);
+    }
+
+    public static SelectCommand parseSelect(String sql) {
+
+        Tail tail = splitTail(normalize(sql));
+        sql = tail.statement();
+        String upper = sql.toUpperCase();
+
+        if (!upper.startsWith("SELECT * FROM")) {
+            throw new IllegalArgumentException("Only SELECT * FROM is supported");
+        }
+
+        // SELECT * FROM users WHERE id=1 AND name='Bob'
+        String table =
+                sql.split(" ")[3];
+
+        String wherePart =
+                upper.contains("WHERE")
+                        ? sql.substring(upper.indexOf("WHERE") + 5).trim()
+                        : "";
+
+        List<Condition> where =
+                wherePart.isEmpty()
+                        ? List.of()
+                        : parseConditions(wherePart);
+
+        return new SelectCommand(table, List.of(), where, tail.orderBy(), tail.limit());
+    }
+
+    private static List<String> parseColumnList(String input) {
+        List<String> cols = new ArrayList<>();
+        for (String part : input.split(",")) {
+            cols.add(part.trim());
+        }
+        return cols;
+    }
+
+    private static List<Object> parseValueList(String input) {
+        List<Object> vals = new ArrayList<>();
+        for (String part : input.split(",")) {
+            vals.add(parseValue(part.trim()));
+        }
+        return vals;
+    }
+
+
+    public static InsertCommand parseInsert(String sql) {
+
+        sql = normalize(sql);
+        String upper = sql.toUpperCase();
+
+        if (!upper.startsWith("INSERT INTO")) {
+            throw new IllegalArgumentException("Not an INSERT statement");
+        }
+
+        // INSERT INTO users (id, name) VALUES (1, 'Bob')
+        String table =
+                sql.split(" ")[2];
+
+        int colsStart = sql.indexOf('(');
+        int colsEnd   = sql.indexOf(')', colsStart);
+
+        int valsStart = upper.indexOf("VALUES", colsEnd) + 6;
+        int valsOpen  = sql.indexOf('(', valsStart);
+        int valsClose = sql.indexOf(')', valsOpen);
+
+        if (colsStart == -1 || valsOpen == -1) {
+            throw new IllegalArgumentException("Invalid INSERT syntax");
+        }
+
+        List<String> columns =
+                parseColumnList(
+                        sql.substring(colsStart + 1, colsEnd)
+                );
+
+        List<Object> values =
+                parseValueList(
+                        sql.substring(valsOpen + 1, valsClose)
+                );
+
+        if (columns.size() != values.size()) {
+            throw new IllegalArgumentException(
+                    "Column count does not match value count"
+            );
+        }
+
+        return new InsertCommand(table, columns, values);
+    }
+
+    public static JoinCommand parseJoin(String sql) {
+
+        Tail tail = splitTail(normalize(sql));
+        sql = tail.statement();
+        String upper = sql.toUpperCase();
+
+        if (!upper.startsWith("SELECT * FROM")) {
+            throw new IllegalArgumentException("Only SELECT * FROM ... JOIN supported");
+        }
+
+        JoinType joinType;
+        if (upper.contains(" LEFT JOIN ")) {
+            joinType = JoinType.LEFT;
+        } else if (upper.contains(" RIGHT JOIN ")) {
+            joinType = JoinType.RIGHT;
+        } else if (upper.contains(" JOIN ")) {
+            joinType = JoinType.INNER;
+        } else {
+            throw new IllegalArgumentException("No JOIN clause found");
+        }
+
+        // SELECT * FROM orders LEFT JOIN users ON ...
+        String[] tokens = sql.split(" ");
+
+        String leftTable = tokens[3];
+        String rightTable =
+                joinType == JoinType.INNER
+                        ? tokens[5]
+                        : tokens[6];
+
+        int onIndex = upper.indexOf("ON") + 2;
+        int whereIndex =
+                upper.contains("WHERE")
+                        ? upper.indexOf("WHERE")
+                        : sql.length();
+
+        String onClause =
+                sql.substring(onIndex, whereIndex).trim();
+
+        // orders.user_id = users.id
+        String[] onParts = onClause.split("=");
+
+        String[] leftRef = onParts[0].trim().split("\\.");
+        String[] rightRef = onParts[1].trim().split("\\.");
+
+        List<Condition> where =
+                upper.contains("WHERE")
+                        ? parseConditions(
+                        sql.substring(whereIndex + 5).trim()
+                )
+                        : List.of();
+
+        return new JoinCommand(
+                joinType,
+                List.of(),
+                leftTable,
+                rightTable,
+                leftRef[1],
+                rightRef[1],
+                where,
+                tail.orderBy(),
+                tail.limit()
+        );
+    }
+
+}
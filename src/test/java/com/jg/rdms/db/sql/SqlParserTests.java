@@ -0,0 +1,118 @@
+package com.jg.rdms.db.sql;
+
+import com.jg.rdms.db.core.Column;
+import com.jg.rdms.db.core.DataType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlParserTests {
+
+    @Test
+    void valuesMayContainKeywordsQuotesAndCommas() {
+        UpdateCommand update = SqlParser.parseUpdate(
+                "update users set name = 'WHERE x AND y=1' where id = 3 and name = 'a, b'");
+
+        assertEquals(Map.of("name", "WHERE x AND y=1"), update.setValues());
+        assertEquals(List.of(
+                new Comparison("id", Comparison.Op.EQ, 3),
+                new Comparison("name", Comparison.Op.EQ, "a, b")
+        ), update.where());
+
+        InsertCommand insert = SqlParser.parseInsert(
+                "INSERT INTO users (id, name) VALUES (-1, 'O''Brien, Pat');");
+        assertEquals(List.of(-1, "O'Brien, Pat"), insert.values());
+    }
+
+    @Test
+    void joinsAndSelects() {
+        JoinCommand join = SqlParser.parseJoin("""
+                SELECT * FROM orders LEFT OUTER JOIN users ON users.id = orders.user_id
+                WHERE users.age >= 18 ORDER BY orders.id DESC, amount LIMIT 5""");
+
+        assertEquals(new JoinCommand(
+                JoinType.LEFT, List.of(), "orders", "users", "user_id", "id",
+                List.of(new Comparison("users.age", Comparison.Op.GE, 18)),
+                List.of(new SortKey("orders.id", true), new SortKey("amount", false)),
+                5
+        ), join);
+
+        assertEquals(
+                new SelectCommand("users", List.of(), List.of(), List.of(), null),
+                SqlParser.parseSelect("select * from users")
+        );
+        assertEquals(
+                List.of("name", "users.id"),
+                SqlParser.parseSelect("SELECT name, users.id FROM users ORDER BY name").columns()
+        );
+        assertEquals(TransactionCommand.BEGIN, SqlParser.parse("START TRANSACTION"));
+    }
+
+    @Test
+    void richWhereClauses() {
+        SelectCommand select = SqlParser.parseSelect("""
+                SELECT * FROM users WHERE age BETWEEN 18 AND 65 AND name NOT LIKE 'J%'
+                AND (id IN (1, 2) OR email IS NULL) AND NOT (age < 30 OR id <> 7)""");
+
+        assertEquals(List.of(
+                new Condition.Between("age", 18, 65, false),
+                new Condition.Like("name", "J%", true),
+                new Condition.Or(List.of(
+                        new Condition.In("id", List.of(1, 2), false),
+                        new Condition.IsNull("email", false)
+                )),
+                // NOT pushed down (De Morgan, each comparison flipped) and the AND inlined
+                new Comparison("age", Comparison.Op.GE, 30),
+                new Comparison("id", Comparison.Op.EQ, 7)
+        ), select.where());
+
+        assertEquals(
+                List.of(new Comparison("id", Comparison.Op.NE, 1), new Condition.IsNull("email", true)),
+                SqlParser.parseDelete("DELETE FROM users WHERE id != 1 AND email IS NOT NULL").where()
+        );
+        assertThrows(IllegalArgumentException.class,
+                () -> SqlParser.parse("SELECT * FROM users WHERE id NOT = 1"));
+    }
+
+    @Test
+    void createTable() {
+        CreateTableCommand create = SqlParser.parseCreateTable(
+                "CREATE TABLE orders (id int PRIMARY KEY, user_id INT REFERENCES users(id), code TEXT UNIQUE)");
+
+        assertEquals(List.of(
+                new Column("id", DataType.INT, true, false, null, null),
+                new Column("user_id", DataType.INT, false, false, "users", "id"),
+                new Column("code", DataType.TEXT, false, true, null, null)
+        ), create.columns());
+    }
+
+    @Test
+    void rejectsMalformedStatements() {
+        for (String sql : List.of(
+                "SELECT * FROM",
+                "SELECT * FROM users WHERE id = 1 extra",
+                "SELECT * FROM users WHERE name = 'open",
+                "INSERT INTO users (id, name) VALUES (1)",
+                "UPDATE users SET WHERE id = 1")) {
+            assertThrows(IllegalArgumentException.class, () -> SqlParser.parse(sql), sql);
+        }
+    }
+
+    @Test
+    void normalizeKeepsLiterals() {
+        assertEquals(
+                "SELECT * FROM users WHERE name = 'a  b'",
+                SqlParser.normalize("  SELECT  *\n FROM users WHERE name = 'a  b' ;")
+        );
+        String clean = "SELECT * FROM users";
+        assertSame(clean, SqlParser.normalize(clean));
+    }
+
+    @Test
+    void benchmarkBaselineBuildsTheSameCommands() {
+        assertDoesNotThrow(ParserBenchmark::checkAgreement);
+    }
+}
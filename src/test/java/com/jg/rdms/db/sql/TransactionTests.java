@@ -0,0 +1,189 @@
+package com.jg.rdms.db.sql;
+
+import com.jg.rdms.db.core.Database;
+import com.jg.rdms.db.core.Row;
+import com.jg.rdms.db.core.TestDatabases;
+import com.jg.rdms.db.tx.WalRecord;
+import com.jg.rdms.db.tx.WriteAheadLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionTests {
+
+    @TempDir
+    Path dir;
+
+    private Database db;
+    private QueryExecutor q;
+
+    @BeforeEach
+    void open() {
+        db = TestDatabases.open(dir, options -> options.setLockWaitTimeoutMillis(3_000));
+        q = new QueryExecutor(db, db.transactions());
+        q.execute("CREATE TABLE users (id INT PRIMARY KEY, email TEXT UNIQUE, name TEXT)");
+        q.execute("INSERT INTO users (id, email, name) VALUES (1, 'a@x', 'Ann')");
+        q.execute("INSERT INTO users (id, email, name) VALUES (2, 'b@x', 'Bob')");
+    }
+
+    @AfterEach
+    void close() {
+        if (db != null) {
+            db.close();
+        }
+    }
+
+    @Test
+    void commitMakesChangesVisibleToOtherSessions() {
+        Session writer = q.openSession();
+        Session reader = q.openSession();
+
+        q.execute(writer, "BEGIN");
+        q.execute(writer, "INSERT INTO users (id, email, name) VALUES (3, 'c@x', 'Cy')");
+        q.execute(writer, "UPDATE users SET name='Anna' WHERE id=1");
+
+        assertEquals(List.of(1, 2, 3), ids(q.execute(writer, "SELECT * FROM users ORDER BY id")));
+        assertEquals(List.of(1, 2), ids(q.execute(reader, "SELECT * FROM users ORDER BY id")));
+        assertEquals("Ann", name(reader, 1));
+
+        q.execute(writer, "COMMIT");
+
+        assertEquals(List.of(1, 2, 3), ids(q.execute(reader, "SELECT * FROM users ORDER BY id")));
+        assertEquals("Anna", name(reader, 1));
+    }
+
+    @Test
+    void rollbackUndoesInsertUpdateAndDelete() {
+        Session session = q.openSession();
+
+        q.execute(session, "BEGIN");
+        q.execute(session, "INSERT INTO users (id, email, name) VALUES (3, 'c@x', 'Cy')");
+        q.execute(session, "UPDATE users SET name='Anna' WHERE id=1");
+        q.execute(session, "DELETE FROM users WHERE id=2");
+        q.execute(session, "ROLLBACK");
+
+        assertEquals(List.of(1, 2), ids(q.execute(session, "SELECT * FROM users ORDER BY id")));
+        assertEquals("Ann", name(session, 1));
+
+        // the undone keys are free again
+        q.execute(session, "INSERT INTO users (id, email, name) VALUES (3, 'c@x', 'Cy')");
+        assertEquals(List.of(1, 2, 3), ids(q.execute(session, "SELECT * FROM users ORDER BY id")));
+    }
+
+    @Test
+    void failingStatementIsUndoneAloneInsideATransaction() {
+        Session session = q.openSession();
+
+        q.execute(session, "BEGIN");
+        q.execute(session, "UPDATE users SET name='Anna' WHERE id=1");
+
+        // the second row collides with Ann's email after the first is changed
+        assertThrows(RuntimeException.class,
+                () -> q.execute(session, "UPDATE users SET email='a@x', name='Nope' WHERE id >= 1"));
+
+        assertNotNull(session.transaction(), "the transaction stays open");
+        q.execute(session, "INSERT INTO users (id, email, name) VALUES (3, 'c@x', 'Cy')");
+        q.execute(session, "COMMIT");
+
+        Session reader = q.openSession();
+        assertEquals(List.of(1, 2, 3), ids(q.execute(reader, "SELECT * FROM users ORDER BY id")));
+        assertEquals("Anna", name(reader, 1));
+        assertEquals("Bob", name(reader, 2));
+    }
+
+    @Test
+    void recoveryDropsTransactionsThatNeverCommitted() throws Exception {
+        db.close();
+        db = null;
+
+        // a crash after these reached the log: 1000 committed, 1001 did not
+        WriteAheadLog wal = new WriteAheadLog(dir.resolve("wal").toString(), 1024 * 1024, 8, 0);
+        wal.log(1000, WalRecord.Type.INSERT, "users", Map.of("id", 3, "email", "c@x", "name", "Cy"));
+        wal.log(1001, WalRecord.Type.INSERT, "users", Map.of("id", 4, "email", "d@x", "name", "Di"));
+        wal.log(1001, WalRecord.Type.DELETE, "users", Map.of("id", 1, "email", "a@x", "name", "Ann"));
+        wal.log(1000, WalRecord.Type.COMMIT, "", Map.of());
+        wal.awaitDurable();
+        wal.close();
+
+        db = TestDatabases.open(dir, options -> options.setLockWaitTimeoutMillis(3_000));
+        q = new QueryExecutor(db, db.transactions());
+
+        Session session = q.openSession();
+        assertEquals(List.of(1, 2, 3), ids(q.execute(session, "SELECT * FROM users ORDER BY id")));
+        assertEquals("Ann", name(session, 1));
+    }
+
+    @Test
+    void aSessionWaitingForARowLockDoesNotHoldUpOthers() throws Exception {
+        Session owner = q.openSession();
+        Session waiter = q.openSession();
+
+        q.execute(owner, "BEGIN");
+        q.execute(owner, "UPDATE users SET name='Anna' WHERE id=1");
+
+        CompletableFuture<Object> blocked = CompletableFuture.supplyAsync(
+                () -> q.execute(waiter, "UPDATE users SET name='Ana' WHERE id=1"));
+
+        // the owner still runs statements and commits while the waiter waits
+        Thread.sleep(100);
+        assertFalse(blocked.isDone());
+        long start = System.nanoTime();
+        q.execute(owner, "UPDATE users SET name='Annie' WHERE id=1");
+        q.execute(owner, "COMMIT");
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+
+        assertEquals(1, blocked.get(2, TimeUnit.SECONDS));
+        assertEquals("Ana", name(owner, 1));
+    }
+
+    @Test
+    void anIdleTransactionIsRolledBackAndItsSessionTold() throws Exception {
+        Session idle = q.openSession();
+        Session other = q.openSession();
+
+        q.execute(idle, "BEGIN");
+        q.execute(idle, "UPDATE users SET name='Anna' WHERE id=1");
+        long horizon = db.transactions().horizon();
+
+        // not idle long enough yet
+        assertEquals(0, db.transactions().abortIdle(60_000));
+
+        Thread.sleep(100);
+        assertEquals(1, db.transactions().abortIdle(50));
+
+        // its row lock, checkpoint pin and snapshot are gone
+        assertEquals(1, q.execute(other, "UPDATE users SET name='Ana' WHERE id=1"));
+        assertEquals(Long.MAX_VALUE, db.transactions().oldestLsn());
+        assertTrue(db.transactions().horizon() > horizon);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> q.execute(idle, "SELECT * FROM users"));
+        assertTrue(e.getMessage().contains("idle"), e.getMessage());
+
+        // the session carries on in autocommit
+        assertEquals("Ana", name(idle, 1));
+        q.execute(idle, "BEGIN");
+        q.execute(idle, "COMMIT");
+    }
+
+    private String name(Session session, int id) {
+        @SuppressWarnings("unchecked")
+        List<Row> rows = (List<Row>) q.execute(session, "SELECT * FROM users WHERE id=" + id);
+        assertEquals(1, rows.size());
+        return (String) rows.get(0).get("name");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Integer> ids(Object result) {
+        return ((List<Row>) result).stream().map(r -> (Integer) r.get("id")).toList();
+    }
+}
@@ -0,0 +1,52 @@
+package com.jg.rdms.db.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TableStatisticsTests {
+
+    @Test
+    void tracksCountsNullsRangeAndDistinctValues() {
+        TableStatistics stats = new TableStatistics(List.of("id", "n", "city"));
+        List<Map<String, Object>> rows = new ArrayList<>();
+
+        for (int id = 1; id <= 50_000; id++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", id);
+            row.put("n", id % 10 == 0 ? null : id % 5_000);
+            row.put("city", "c" + id % 7);
+            stats.add(row);
+            rows.add(row);
+        }
+
+        assertEquals(50_000, stats.rowCount());
+
+        ColumnStatistics n = stats.column("n");
+        assertEquals(5_000, n.nulls());
+        assertEquals(0.1, n.nullFraction(), 1e-9);
+        assertEquals(1, n.min());
+        assertEquals(4_999, n.max());
+        // 4,500 non-NULL values (multiples of 10 are NULL); the sketch is within a few percent
+        assertEquals(4_500, n.distinct(), 4_500 * 0.08);
+
+        assertEquals(7, stats.column("city").distinct());
+        assertEquals(50_000, stats.column("id").distinct(), 50_000 * 0.08);
+        assertNull(stats.column("missing"));
+
+        // removals adjust counts at once; min / max wait for a rebuild
+        for (Map<String, Object> row : rows.subList(0, 40_000)) {
+            stats.remove(row);
+        }
+        assertEquals(10_000, stats.rowCount());
+        assertEquals(1, stats.column("id").min());
+        assertTrue(stats.stale());
+
+        stats.rebuild(rows.subList(40_000, 50_000));
+        assertEquals(10_000, stats.rowCount());
+        assertEquals(40_001, stats.column("id").min());
+        assertFalse(stats.stale());
+    }
+}
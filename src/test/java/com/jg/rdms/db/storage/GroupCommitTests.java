@@ -0,0 +1,108 @@
+package com.jg.rdms.db.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupCommitTests {
+
+    @Test
+    void aLoneWriterSyncsOncePerWrite() throws Exception {
+        AtomicInteger syncs = new AtomicInteger();
+        GroupCommit commit = new GroupCommit(syncs::incrementAndGet, 64, 0);
+
+        for (int i = 0; i < 5; i++) {
+            commit.awaitDurable();
+        }
+
+        assertEquals(5, syncs.get());
+    }
+
+    @Test
+    void concurrentWritersShareFsyncsThatStartAfterTheirWrites() throws Exception {
+        int writers = 16;
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+
+        GroupCommit commit = new GroupCommit(() -> {
+            started.incrementAndGet();
+            sleep(20);
+            finished.incrementAndGet();
+        }, 64, 0);
+
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            tasks.add(() -> {
+                int before = started.get();
+                commit.awaitDurable();
+                // a force that began after the write has completed
+                return finished.get() > before;
+            });
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        try {
+            for (Future<Boolean> covered : pool.invokeAll(tasks)) {
+                assertTrue(covered.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertTrue(started.get() < writers, started.get() + " fsyncs for " + writers + " writers");
+    }
+
+    @Test
+    void aFullBatchEndsTheLeadersWait() throws Exception {
+        int writers = 4;
+        AtomicInteger syncs = new AtomicInteger();
+        GroupCommit commit = new GroupCommit(syncs::incrementAndGet, writers, TimeUnit.SECONDS.toMicros(30));
+
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                done.add(pool.submit(() -> {
+                    commit.awaitDurable();
+                    return null;
+                }));
+            }
+            for (Future<?> f : done) {
+                f.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+        assertEquals(1, syncs.get());
+    }
+
+    @Test
+    void aFailedFsyncIsReportedToEveryLaterWriter() {
+        GroupCommit commit = new GroupCommit(() -> {
+            throw new IOException("disk gone");
+        }, 64, 0);
+
+        IOException first = assertThrows(IOException.class, commit::awaitDurable);
+        assertEquals("disk gone", first.getMessage());
+
+        IOException later = assertThrows(IOException.class, commit::awaitDurable);
+        assertSame(first, later.getCause());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
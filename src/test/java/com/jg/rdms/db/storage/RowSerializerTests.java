@@ -0,0 +1,67 @@
+package com.jg.rdms.db.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowSerializerTests {
+
+    private final RowSerializer format = new RowSerializer(
+            List.of("id", "name", "age", "city"),
+            List.of(true, false, true, false)
+    );
+
+    @Test
+    void compactRowRoundTripsWithNullsAndExtras() throws Exception {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", 7);
+        row.put("name", "Zoë");
+        row.put("age", "unknown");   // wrong type: kept as an extra
+        row.put("city", null);
+        row.put("note", "not in schema");
+
+        byte[] data = format.encode(row);
+        Map<String, Object> decoded = format.decode(data);
+
+        row.remove("city");
+        assertEquals(row, decoded);
+        assertFalse(RowSerializer.isSelfDescribing(data));
+    }
+
+    @Test
+    void compactRowIsSmallerAndOldRowsStillDecode() throws Exception {
+        Map<String, Object> row = Map.of("id", 1, "name", "Jane", "age", 30, "city", "Nairobi");
+
+        byte[] compact = format.encode(row);
+        byte[] old = RowSerializer.serialize(row);
+
+        // 1 version + 1 bitmap + 4 + (1 + 4) + 4 + (1 + 7) + 1 extras count
+        assertEquals(24, compact.length);
+        assertTrue(old.length > 2 * compact.length);
+
+        assertTrue(RowSerializer.isSelfDescribing(old));
+        assertEquals(row, format.decode(old));
+    }
+
+    @Test
+    void positionalEncodingMatchesTheMapForm() throws Exception {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", 3);
+        row.put("name", "Ann");
+        row.put("note", "extra");
+
+        byte[] data = format.encode(new Object[]{3, "Ann", null, null}, Map.of("note", "extra"));
+        assertArrayEquals(format.encode(row), data);
+
+        Object[] values = new Object[4];
+        Map<String, Object> others = format.decodeInto(ByteBuffer.wrap(data), values);
+
+        assertArrayEquals(new Object[]{3, "Ann", null, null}, values);
+        assertEquals(Map.of("note", "extra"), others);
+    }
+}
@@ -0,0 +1,147 @@
+package com.jg.rdms.db.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlottedHeapFileTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void updateAndDeleteTouchOnlyTheirRows() throws Exception {
+        SlottedHeapFile heap = SlottedHeapFile.open(dir.resolve("t.tbl").toString());
+
+        List<RecordId> rids = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            rids.add(heap.insert(("row-" + i).getBytes()));
+        }
+
+        heap.update(rids.get(10), "changed".getBytes());
+        heap.delete(rids.get(11));
+
+        assertArrayEquals("changed".getBytes(), heap.read(rids.get(10)));
+        assertEquals(1_999, scan(heap).size());
+        heap.close();
+    }
+
+    @Test
+    void grownRowIsForwardedAndKeepsItsRecordId() throws Exception {
+        SlottedHeapFile heap = SlottedHeapFile.open(dir.resolve("t.tbl").toString());
+
+        // fill the first page completely
+        List<RecordId> rids = new ArrayList<>();
+        while (rids.isEmpty() || rids.get(rids.size() - 1).pageNo() == 0) {
+            rids.add(heap.insert(new byte[100]));
+        }
+
+        RecordId first = rids.get(0);
+        byte[] big = new byte[4_000];
+        Arrays.fill(big, (byte) 7);
+
+        heap.update(first, big);
+        assertArrayEquals(big, heap.read(first));
+
+        heap.update(first, new byte[6_000]);
+        assertEquals(6_000, heap.read(first).length);
+
+        Map<RecordId, byte[]> rows = scan(heap);
+        assertEquals(rids.size(), rows.size());
+        assertEquals(6_000, rows.get(first).length);
+
+        heap.delete(first);
+        assertEquals(rids.size() - 1, scan(heap).size());
+        heap.flush();
+        heap.close();
+
+        // reopen: free space map and forwarding survive a restart
+        SlottedHeapFile reopened = SlottedHeapFile.open(dir.resolve("t.tbl").toString());
+        assertEquals(rids.size() - 1, scan(reopened).size());
+        reopened.close();
+    }
+
+    @Test
+    void migratesLegacyHeapFile() throws Exception {
+        Path path = dir.resolve("legacy.tbl");
+        HeapFile legacy = new HeapFile(path.toString());
+        legacy.append(new HashMap<>(Map.of("id", 1, "name", "Jane")));
+        legacy.append(new HashMap<>(Map.of("id", 2, "name", "John")));
+
+        SlottedHeapFile heap = SlottedHeapFile.open(path.toString());
+        List<Map<String, Object>> rows = new ArrayList<>();
+        heap.scan((rid, data) -> rows.add(RowSerializer.deserialize(data)));
+
+        assertEquals(2, rows.size());
+        assertEquals("John", rows.get(1).get("name"));
+        assertEquals(0, Files.size(path) % SlottedPage.PAGE_SIZE);
+        heap.close();
+    }
+
+    @Test
+    void mappedScanSeesFlushedAndDirtyPages() throws Exception {
+        SlottedHeapFile heap = SlottedHeapFile.open(dir.resolve("t.tbl").toString());
+
+        List<RecordId> rids = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            rids.add(heap.insert(("row-" + i).getBytes()));
+        }
+        heap.flush();
+
+        // one page changed in memory, new pages past the end of the file
+        heap.update(rids.get(0), "changed".getBytes());
+        for (int i = 0; i < 1_000; i++) {
+            heap.insert(new byte[50]);
+        }
+
+        Map<RecordId, String> rows = new HashMap<>();
+        heap.scanMapped((rid, data) -> {
+            assertTrue(data.isReadOnly());
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            rows.put(rid, new String(bytes));
+        });
+
+        assertEquals(2_000, rows.size());
+        assertEquals("changed", rows.get(rids.get(0)));
+        assertEquals("row-999", rows.get(rids.get(999)));
+        heap.close();
+    }
+
+    @Test
+    void boundedPoolEvictsDirtyPagesAfterTheGuard() throws Exception {
+        int[] guarded = {0};
+        BufferPool pool = new BufferPool(4, () -> guarded[0]++);
+        SlottedHeapFile heap = SlottedHeapFile.open(dir.resolve("t.tbl").toString(), pool);
+
+        List<RecordId> rids = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            rids.add(heap.insert(("row-" + i + "-" + "x".repeat(50)).getBytes()));
+        }
+        heap.update(rids.get(0), "changed".getBytes());
+
+        assertTrue(pool.size() <= 4);
+        assertTrue(guarded[0] > 0, "evicted dirty pages must run the guard first");
+        assertArrayEquals("changed".getBytes(), heap.read(rids.get(0)));
+        assertEquals(2_000, scan(heap).size());
+
+        heap.flush();
+        assertEquals(0, heap.dirtyPageCount());
+        heap.close();
+
+        SlottedHeapFile reopened = SlottedHeapFile.open(dir.resolve("t.tbl").toString());
+        assertEquals("row-1999-" + "x".repeat(50), new String(reopened.read(rids.get(1_999))));
+        reopened.close();
+    }
+
+    private static Map<RecordId, byte[]> scan(SlottedHeapFile heap) throws Exception {
+        Map<RecordId, byte[]> rows = new LinkedHashMap<>();
+        heap.scan(rows::put);
+        return rows;
+    }
+}
@@ -0,0 +1,98 @@
+package com.jg.rdms.db.tx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recordsSurviveReopenWithIncreasingLsns() throws Exception {
+        String path = dir.resolve("wal").toString();
+
+        WriteAheadLog wal = new WriteAheadLog(path, 1024 * 1024, 8, 0);
+        long first = wal.log(1, WalRecord.Type.INSERT, "users", Map.of("id", 1, "name", "Jane"));
+        long second = wal.log(1, WalRecord.Type.DELETE, "users", Map.of("id", 1));
+        wal.awaitDurable();
+        wal.close();
+
+        assertEquals(first + 1, second);
+
+        WriteAheadLog reopened = new WriteAheadLog(path, 1024 * 1024, 8, 0);
+        List<WalRecord> records = reopened.readAfter(0);
+
+        assertEquals(2, records.size());
+        assertEquals(WalRecord.Type.INSERT, records.get(0).type());
+        assertEquals("Jane", records.get(0).row().get("name"));
+        assertEquals(List.of(records.get(1)), reopened.readAfter(first));
+        assertEquals(second + 1, reopened.log(2, WalRecord.Type.INSERT, "users", Map.of("id", 2)));
+        reopened.close();
+    }
+
+    @Test
+    void tornTailIsTruncated() throws Exception {
+        Path path = dir.resolve("wal");
+
+        WriteAheadLog wal = new WriteAheadLog(path.toString(), 1024 * 1024, 8, 0);
+        wal.log(1, WalRecord.Type.INSERT, "users", Map.of("id", 1));
+        wal.log(1, WalRecord.Type.INSERT, "users", Map.of("id", 2));
+        wal.close();
+
+        // flip a byte in the last record's payload
+        try (FileChannel ch = FileChannel.open(path.resolve(LogSegment.fileName(1)), WRITE)) {
+            ch.write(ByteBuffer.wrap(new byte[]{0x7f}), ch.size() - 1);
+        }
+
+        WriteAheadLog reopened = new WriteAheadLog(path.toString(), 1024 * 1024, 8, 0);
+        List<WalRecord> records = reopened.readAfter(0);
+
+        assertEquals(1, records.size());
+        assertEquals(2, reopened.log(1, WalRecord.Type.INSERT, "users", Map.of("id", 3)));
+        reopened.close();
+    }
+
+    @Test
+    void checkpointLsnIsPersisted() throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(dir.resolve("wal").toString(), 1024 * 1024, 8, 0);
+        assertEquals(0, wal.readCheckpointLsn());
+
+        wal.writeCheckpointLsn(42);
+        assertEquals(42, wal.readCheckpointLsn());
+        wal.close();
+    }
+
+    @Test
+    void segmentsRotateAndAreDroppedAfterCheckpoint() throws Exception {
+        String path = dir.resolve("wal").toString();
+        WriteAheadLog wal = new WriteAheadLog(path, 256, 8, 0);
+
+        for (int i = 1; i <= 50; i++) {
+            wal.log(1, WalRecord.Type.INSERT, "users", Map.of("id", i));
+        }
+        assertTrue(wal.segmentCount() > 1);
+
+        wal.writeCheckpointLsn(40);
+        wal.truncateBefore(40);
+
+        List<WalRecord> remaining = wal.readAfter(40);
+        assertEquals(10, remaining.size());
+        assertEquals(41, remaining.get(0).lsn());
+        wal.close();
+
+        WriteAheadLog reopened = new WriteAheadLog(path, 256, 8, 0);
+        assertEquals(10, reopened.readAfter(40).size());
+        assertEquals(51, reopened.log(1, WalRecord.Type.INSERT, "users", Map.of("id", 51)));
+        reopened.close();
+    }
+}